@@ -0,0 +1,108 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.laurel.benchmarks;
+
+import com.io7m.laurel.filemodel.LFileModelType;
+import com.io7m.laurel.filemodel.LFileModels;
+import com.io7m.laurel.model.LCaptionID;
+import com.io7m.laurel.model.LCaptionName;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Functions shared between benchmarks.
+ */
+
+public final class LBenchmarkModels
+{
+  private LBenchmarkModels()
+  {
+
+  }
+
+  /**
+   * Open a file model, waiting for it to finish loading.
+   *
+   * @param file     The file
+   * @param readOnly {@code true} if the model should be read-only
+   *
+   * @return The model
+   *
+   * @throws Exception On errors
+   */
+
+  public static LFileModelType open(
+    final Path file,
+    final boolean readOnly)
+    throws Exception
+  {
+    final var model = LFileModels.open(file, readOnly);
+    model.loading().get(1L, TimeUnit.HOURS);
+    return model;
+  }
+
+  /**
+   * Open a private, writable copy of the given dataset.
+   *
+   * @param dataset   The dataset
+   * @param directory The directory in which to place the copy
+   *
+   * @return The model
+   *
+   * @throws Exception On errors
+   */
+
+  public static LFileModelType openCopy(
+    final LSyntheticDataset dataset,
+    final Path directory)
+    throws Exception
+  {
+    return open(
+      dataset.copyTo(directory.resolve(dataset.name() + ".db")),
+      false
+    );
+  }
+
+  /**
+   * Create a caption, returning its ID.
+   *
+   * @param model The model
+   * @param text  The caption text
+   *
+   * @return The caption ID
+   *
+   * @throws Exception On errors
+   */
+
+  public static LCaptionID captionCreate(
+    final LFileModelType model,
+    final String text)
+    throws Exception
+  {
+    final var name = new LCaptionName(text);
+    model.captionAdd(name).get(1L, TimeUnit.MINUTES);
+
+    return model.captionList()
+      .get()
+      .stream()
+      .filter(c -> c.name().equals(name))
+      .findFirst()
+      .orElseThrow()
+      .id();
+  }
+}
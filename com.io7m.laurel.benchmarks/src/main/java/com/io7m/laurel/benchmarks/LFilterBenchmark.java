@@ -0,0 +1,150 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.laurel.benchmarks;
+
+import com.io7m.laurel.filemodel.LFileModelType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filtering the image and caption lists, as the user interface does on
+ * every keystroke in a search field.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LFilterBenchmark
+{
+  /*
+   * Consecutive filters must differ, or setting the filter does nothing.
+   */
+
+  private static final String[] IMAGE_FILTERS = {
+    "image_0000",
+    "7",
+    "IMAGE_00001",
+    "",
+  };
+
+  private static final String[] CAPTION_FILTERS = {
+    "caption_00",
+    "9",
+    "CAPTION_000",
+    "",
+  };
+
+  @Param({"1000", "10000", "100000"})
+  private int imageCount;
+
+  private Path directory;
+  private LFileModelType model;
+  private int index;
+
+  /**
+   * Filtering the image and caption lists.
+   */
+
+  public LFilterBenchmark()
+  {
+
+  }
+
+  /**
+   * Open a copy of the dataset and select an image.
+   *
+   * @throws Exception On errors
+   */
+
+  @Setup(Level.Trial)
+  public void setupTrial()
+    throws Exception
+  {
+    this.directory =
+      Files.createTempDirectory("laurel-benchmark-");
+    this.model =
+      LBenchmarkModels.openCopy(
+        LSyntheticDataset.ofImages(this.imageCount),
+        this.directory
+      );
+
+    this.model.imageSelect(
+      Optional.of(this.model.imageList().get().get(0).id())
+    ).get(1L, TimeUnit.MINUTES);
+  }
+
+  /**
+   * Close and delete the copy of the dataset.
+   *
+   * @throws Exception On errors
+   */
+
+  @TearDown(Level.Trial)
+  public void tearDownTrial()
+    throws Exception
+  {
+    this.model.close();
+    LSyntheticDataset.deleteRecursive(this.directory);
+  }
+
+  /**
+   * Filter the list of all images.
+   *
+   * @return The number of matching images
+   */
+
+  @Benchmark
+  public int imageFilter()
+  {
+    this.index = (this.index + 1) % IMAGE_FILTERS.length;
+    this.model.imageListFilterSet(IMAGE_FILTERS[this.index]);
+    return this.model.imageListFiltered().get().size();
+  }
+
+  /**
+   * Filter the list of captions not assigned to the selected image.
+   *
+   * @return The number of matching captions
+   */
+
+  @Benchmark
+  public int captionFilter()
+  {
+    this.index = (this.index + 1) % CAPTION_FILTERS.length;
+    this.model.captionsUnassignedListFilterSet(CAPTION_FILTERS[this.index]);
+    return this.model.imageCaptionsUnassignedFiltered().get().size();
+  }
+}
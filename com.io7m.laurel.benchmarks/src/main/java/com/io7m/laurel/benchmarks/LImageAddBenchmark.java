@@ -0,0 +1,149 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.laurel.benchmarks;
+
+import com.io7m.laurel.filemodel.LFileModelType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adding many images to an empty file.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LImageAddBenchmark
+{
+  @Param({"100", "1000"})
+  private int imageCount;
+
+  private Path directory;
+  private List<Path> images;
+  private LFileModelType model;
+
+  /**
+   * Adding many images to an empty file.
+   */
+
+  public LImageAddBenchmark()
+  {
+
+  }
+
+  /**
+   * Generate the image files.
+   *
+   * @throws Exception On errors
+   */
+
+  @Setup(Level.Trial)
+  public void setupTrial()
+    throws Exception
+  {
+    this.directory =
+      Files.createTempDirectory("laurel-benchmark-");
+
+    final var imageDirectory = this.directory.resolve("images");
+    LSyntheticDataset.ofImages(this.imageCount)
+      .writeImages(imageDirectory);
+
+    try (var stream = Files.list(imageDirectory)) {
+      this.images = stream.sorted().toList();
+    }
+  }
+
+  /**
+   * Open an empty file.
+   *
+   * @throws Exception On errors
+   */
+
+  @Setup(Level.Invocation)
+  public void setupInvocation()
+    throws Exception
+  {
+    final var file = this.directory.resolve("model.db");
+    Files.deleteIfExists(file);
+    this.model = LBenchmarkModels.open(file, false);
+  }
+
+  /**
+   * Close the file.
+   *
+   * @throws Exception On errors
+   */
+
+  @TearDown(Level.Invocation)
+  public void tearDownInvocation()
+    throws Exception
+  {
+    this.model.close();
+  }
+
+  /**
+   * Delete the image files.
+   *
+   * @throws Exception On errors
+   */
+
+  @TearDown(Level.Trial)
+  public void tearDownTrial()
+    throws Exception
+  {
+    LSyntheticDataset.deleteRecursive(this.directory);
+  }
+
+  /**
+   * Add all images, one command per image, as the importer does.
+   *
+   * @throws Exception On errors
+   */
+
+  @Benchmark
+  public void imageAdd()
+    throws Exception
+  {
+    for (final var file : this.images) {
+      this.model.imageAdd(
+        file.getFileName().toString(),
+        file,
+        Optional.empty()
+      ).get(1L, TimeUnit.MINUTES);
+    }
+  }
+}
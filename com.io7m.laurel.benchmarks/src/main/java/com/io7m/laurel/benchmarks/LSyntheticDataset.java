@@ -0,0 +1,334 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.laurel.benchmarks;
+
+import com.io7m.laurel.filemodel.LFileModels;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * A deterministic synthetic dataset. Generating a dataset with the same
+ * parameters always produces the same images and captions, so benchmark
+ * results are reproducible without access to any real data.
+ *
+ * @param imageCount       The number of images
+ * @param captionCount     The number of distinct captions
+ * @param captionsPerImage The number of captions assigned to each image
+ * @param seed             The random seed
+ */
+
+public record LSyntheticDataset(
+  int imageCount,
+  int captionCount,
+  int captionsPerImage,
+  long seed)
+{
+  /**
+   * The system property that specifies the directory in which generated
+   * datasets are cached.
+   */
+
+  public static final String CACHE_DIRECTORY_PROPERTY =
+    "com.io7m.laurel.benchmarks.cacheDirectory";
+
+  private static final int[][] SIZES = {
+    {16, 16},
+    {24, 16},
+    {16, 24},
+    {32, 16},
+  };
+
+  /**
+   * A deterministic synthetic dataset.
+   *
+   * @param imageCount       The number of images
+   * @param captionCount     The number of distinct captions
+   * @param captionsPerImage The number of captions assigned to each image
+   * @param seed             The random seed
+   */
+
+  public LSyntheticDataset
+  {
+    if (imageCount <= 0) {
+      throw new IllegalArgumentException("Image count must be positive.");
+    }
+    if (captionCount <= 0) {
+      throw new IllegalArgumentException("Caption count must be positive.");
+    }
+    if (captionsPerImage < 0 || captionsPerImage > captionCount) {
+      throw new IllegalArgumentException(
+        "Captions per image must be in the range [0, %d]."
+          .formatted(Integer.valueOf(captionCount))
+      );
+    }
+  }
+
+  /**
+   * A dataset with the given number of images, and a caption vocabulary
+   * shaped like that of a typical tagged image dataset.
+   *
+   * @param imageCount The number of images
+   *
+   * @return A dataset
+   */
+
+  public static LSyntheticDataset ofImages(
+    final int imageCount)
+  {
+    return new LSyntheticDataset(
+      imageCount,
+      Math.max(20, Math.min(5000, imageCount / 4)),
+      20,
+      0x6c617572656cL
+    );
+  }
+
+  /**
+   * @return The name of the dataset, unique to its parameters
+   */
+
+  public String name()
+  {
+    return "dataset-%d-%d-%d-%x".formatted(
+      Integer.valueOf(this.imageCount),
+      Integer.valueOf(this.captionCount),
+      Integer.valueOf(this.captionsPerImage),
+      Long.valueOf(this.seed)
+    );
+  }
+
+  /**
+   * @param index The caption index
+   *
+   * @return The text of the caption with the given index
+   */
+
+  public static String captionText(
+    final int index)
+  {
+    return "caption_%05d".formatted(Integer.valueOf(index));
+  }
+
+  /**
+   * Write the images and caption files of the dataset into the given
+   * directory, in the layout accepted by the importer.
+   *
+   * @param directory The output directory
+   *
+   * @throws IOException On errors
+   */
+
+  public void writeImportDirectory(
+    final Path directory)
+    throws IOException
+  {
+    Files.createDirectories(directory);
+
+    final var random = new Random(this.seed);
+    for (int index = 0; index < this.imageCount; ++index) {
+      final var baseName = "image_%08d".formatted(Integer.valueOf(index));
+      Files.write(
+        directory.resolve(baseName + ".png"),
+        this.imageData(random)
+      );
+      Files.writeString(
+        directory.resolve(baseName + ".caption"),
+        String.join(",\n", this.captions(random))
+      );
+    }
+  }
+
+  /**
+   * Write the images of the dataset into the given directory, without
+   * caption files.
+   *
+   * @param directory The output directory
+   *
+   * @throws IOException On errors
+   */
+
+  public void writeImages(
+    final Path directory)
+    throws IOException
+  {
+    Files.createDirectories(directory);
+
+    final var random = new Random(this.seed);
+    for (int index = 0; index < this.imageCount; ++index) {
+      Files.write(
+        directory.resolve("image_%08d.png".formatted(Integer.valueOf(index))),
+        this.imageData(random)
+      );
+    }
+  }
+
+  /**
+   * Return the dataset file for this dataset, generating and importing it
+   * if it has not already been cached. Callers that modify the dataset
+   * must work on a copy.
+   *
+   * @return The cached dataset file
+   *
+   * @throws Exception On errors
+   */
+
+  public Path file()
+    throws Exception
+  {
+    final var cacheDirectory =
+      Path.of(System.getProperty(
+        CACHE_DIRECTORY_PROPERTY,
+        Path.of(System.getProperty("java.io.tmpdir"))
+          .resolve("laurel-benchmarks")
+          .toString()
+      )).toAbsolutePath();
+
+    final var file = cacheDirectory.resolve(this.name() + ".db");
+    if (Files.isRegularFile(file)) {
+      return file;
+    }
+
+    Files.createDirectories(cacheDirectory);
+    final var work =
+      Files.createTempDirectory(cacheDirectory, this.name());
+
+    try {
+      final var importDirectory = work.resolve("import");
+      final var output = work.resolve("output.db");
+      this.writeImportDirectory(importDirectory);
+
+      try (var importer = LFileModels.createImport(importDirectory, output)) {
+        importer.execute().get(6L, TimeUnit.HOURS);
+      }
+
+      Files.move(output, file, REPLACE_EXISTING, ATOMIC_MOVE);
+      return file;
+    } finally {
+      deleteRecursive(work);
+    }
+  }
+
+  /**
+   * Copy this dataset's file to the given file.
+   *
+   * @param target The target file
+   *
+   * @return The target file
+   *
+   * @throws Exception On errors
+   */
+
+  public Path copyTo(
+    final Path target)
+    throws Exception
+  {
+    Files.copy(this.file(), target, REPLACE_EXISTING);
+    return target;
+  }
+
+  private LinkedHashSet<String> captions(
+    final Random random)
+  {
+    /*
+     * Caption frequencies in real datasets are heavily skewed; squaring a
+     * uniform value biases selection towards low indices.
+     */
+
+    final var results = new LinkedHashSet<String>(this.captionsPerImage);
+    while (results.size() < this.captionsPerImage) {
+      final var x = random.nextDouble();
+      final var index = (int) (x * x * this.captionCount);
+      results.add(captionText(index));
+    }
+    return results;
+  }
+
+  private byte[] imageData(
+    final Random random)
+    throws IOException
+  {
+    final var size =
+      SIZES[random.nextInt(SIZES.length)];
+    final var image =
+      new BufferedImage(size[0], size[1], BufferedImage.TYPE_INT_RGB);
+
+    for (int y = 0; y < size[1]; ++y) {
+      for (int x = 0; x < size[0]; ++x) {
+        image.setRGB(x, y, random.nextInt(0x1000000));
+      }
+    }
+
+    try (var output = new ByteArrayOutputStream()) {
+      ImageIO.write(image, "png", output);
+      return output.toByteArray();
+    }
+  }
+
+  /**
+   * Delete the given file or directory, recursively.
+   *
+   * @param path The path
+   *
+   * @throws IOException On errors
+   */
+
+  public static void deleteRecursive(
+    final Path path)
+    throws IOException
+  {
+    if (!Files.exists(path)) {
+      return;
+    }
+
+    Files.walkFileTree(path, new SimpleFileVisitor<>()
+    {
+      @Override
+      public FileVisitResult visitFile(
+        final Path file,
+        final BasicFileAttributes attrs)
+        throws IOException
+      {
+        Files.delete(file);
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult postVisitDirectory(
+        final Path dir,
+        final IOException exc)
+        throws IOException
+      {
+        Files.delete(dir);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.laurel.benchmarks;
+
+import com.io7m.laurel.filemodel.LFileModelType;
+import com.io7m.laurel.filemodel.LImageCaptionsAssignment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Undoing and redoing a command that touches every image.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LUndoRedoBenchmark
+{
+  @Param({"1000", "10000"})
+  private int imageCount;
+
+  private Path directory;
+  private LFileModelType model;
+
+  /**
+   * Undoing and redoing a command that touches every image.
+   */
+
+  public LUndoRedoBenchmark()
+  {
+
+  }
+
+  /**
+   * Open a copy of the dataset, and execute a large command.
+   *
+   * @throws Exception On errors
+   */
+
+  @Setup(Level.Trial)
+  public void setupTrial()
+    throws Exception
+  {
+    this.directory =
+      Files.createTempDirectory("laurel-benchmark-");
+    this.model =
+      LBenchmarkModels.openCopy(
+        LSyntheticDataset.ofImages(this.imageCount),
+        this.directory
+      );
+
+    final var caption =
+      LBenchmarkModels.captionCreate(this.model, "benchmark_caption");
+
+    this.model.imageCaptionsAssign(
+      this.model.imageList()
+        .get()
+        .stream()
+        .map(i -> new LImageCaptionsAssignment(i.id(), Set.of(caption)))
+        .toList()
+    ).get(1L, TimeUnit.HOURS);
+  }
+
+  /**
+   * Close and delete the copy of the dataset.
+   *
+   * @throws Exception On errors
+   */
+
+  @TearDown(Level.Trial)
+  public void tearDownTrial()
+    throws Exception
+  {
+    this.model.close();
+    LSyntheticDataset.deleteRecursive(this.directory);
+  }
+
+  /**
+   * Undo and then redo the command.
+   *
+   * @throws Exception On errors
+   */
+
+  @Benchmark
+  public void undoRedo()
+    throws Exception
+  {
+    this.model.undo().get(1L, TimeUnit.HOURS);
+    this.model.redo().get(1L, TimeUnit.HOURS);
+  }
+}
@@ -19,6 +19,7 @@ package com.io7m.laurel.cmdline;
 
 import com.io7m.laurel.cmdline.internal.LCExport;
 import com.io7m.laurel.cmdline.internal.LCImport;
+import com.io7m.laurel.cmdline.internal.LCStatistics;
 import com.io7m.quarrel.core.QApplication;
 import com.io7m.quarrel.core.QApplicationMetadata;
 import com.io7m.quarrel.core.QApplicationType;
@@ -69,6 +70,7 @@ public final class LCMain implements Runnable
     builder.allowAtSyntax(true);
     builder.addCommand(new LCImport());
     builder.addCommand(new LCExport());
+    builder.addCommand(new LCStatistics());
 
     this.application = builder.build();
     this.exitCode = 0;
@@ -17,18 +17,25 @@
 
 package com.io7m.laurel.cmdline.internal;
 
+import com.io7m.laurel.filemodel.LBucket;
+import com.io7m.laurel.filemodel.LExportArchiveRequest;
+import com.io7m.laurel.filemodel.LExportImageFormat;
+import com.io7m.laurel.filemodel.LExportManifestRequest;
 import com.io7m.laurel.filemodel.LExportRequest;
+import com.io7m.laurel.filemodel.LExportTransform;
 import com.io7m.laurel.filemodel.LFileModelEvent;
 import com.io7m.laurel.filemodel.LFileModelEventError;
 import com.io7m.laurel.filemodel.LFileModelEventType;
-import com.io7m.laurel.filemodel.LFileModelStatusIdle;
 import com.io7m.laurel.filemodel.LFileModelStatusLoading;
+import com.io7m.laurel.filemodel.LFileModelTelemetry;
 import com.io7m.laurel.filemodel.LFileModels;
 import com.io7m.laurel.model.LException;
 import com.io7m.quarrel.core.QCommandContextType;
 import com.io7m.quarrel.core.QCommandMetadata;
 import com.io7m.quarrel.core.QCommandStatus;
 import com.io7m.quarrel.core.QCommandType;
+import com.io7m.quarrel.core.QParameterNamed01;
+import com.io7m.quarrel.core.QParameterNamed0N;
 import com.io7m.quarrel.core.QParameterNamed1;
 import com.io7m.quarrel.core.QParameterNamedType;
 import com.io7m.quarrel.core.QStringType;
@@ -37,8 +44,11 @@ import com.io7m.seltzer.api.SStructuredErrorType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
@@ -83,6 +93,106 @@ public final class LCExport implements QCommandType,
       Boolean.class
     );
 
+  private static final QParameterNamed0N<String> BUCKET =
+    new QParameterNamed0N<>(
+      "--bucket",
+      List.of(),
+      new QStringType.QConstant(
+        "A resolution bucket of the form WIDTHxHEIGHT. If any buckets are specified, images are exported into one directory per bucket."),
+      List.of(),
+      String.class
+    );
+
+  private static final QParameterNamed01<Integer> TRANSFORM_MAXIMUM_DIMENSION =
+    new QParameterNamed01<>(
+      "--transform-maximum-dimension",
+      List.of(),
+      new QStringType.QConstant(
+        "Scale down exported images so that the longest side is at most this many pixels."),
+      Optional.empty(),
+      Integer.class
+    );
+
+  private static final QParameterNamed01<String> TRANSFORM_FORMAT =
+    new QParameterNamed01<>(
+      "--transform-format",
+      List.of(),
+      new QStringType.QConstant(
+        "Re-encode exported images in the given format (png, jpeg, webp)."),
+      Optional.empty(),
+      String.class
+    );
+
+  private static final QParameterNamed1<Double> TRANSFORM_QUALITY =
+    new QParameterNamed1<>(
+      "--transform-quality",
+      List.of(),
+      new QStringType.QConstant(
+        "The quality in the range [0, 1] used when re-encoding images."),
+      Optional.of(Double.valueOf(0.9)),
+      Double.class
+    );
+
+  private static final QParameterNamed01<Path> TRANSFORM_CACHE_DIRECTORY =
+    new QParameterNamed01<>(
+      "--transform-cache-directory",
+      List.of(),
+      new QStringType.QConstant(
+        "A directory used to cache transformed images between exports."),
+      Optional.empty(),
+      Path.class
+    );
+
+  private static final QParameterNamed01<Path> BLOB_CACHE_DIRECTORY =
+    new QParameterNamed01<>(
+      "--blob-cache-directory",
+      List.of(),
+      new QStringType.QConstant(
+        "A content-addressed directory of image blobs. Exported images are hard-linked from the cache where possible."),
+      Optional.empty(),
+      Path.class
+    );
+
+  private static final QParameterNamed1<String> FORMAT =
+    new QParameterNamed1<>(
+      "--format",
+      List.of(),
+      new QStringType.QConstant(
+        "The export format: 'directory' writes image and caption files into the output directory, 'tar' writes size-bounded tar shards, 'manifest' writes a JSON Lines manifest named manifest.jsonl."),
+      Optional.of("directory"),
+      String.class
+    );
+
+  private static final QParameterNamed1<Long> SHARD_SIZE =
+    new QParameterNamed1<>(
+      "--shard-size",
+      List.of(),
+      new QStringType.QConstant(
+        "The approximate maximum size in bytes of each tar shard."),
+      Optional.of(Long.valueOf(1073741824L)),
+      Long.class
+    );
+
+  private static final QParameterNamed01<Path> JFR_FILE =
+    new QParameterNamed01<>(
+      "--jfr-file",
+      List.of(),
+      new QStringType.QConstant(
+        "Record a JDK Flight Recorder recording of the export into the given file."),
+      Optional.empty(),
+      Path.class
+    );
+
+  private static final QParameterNamed01<Long> SLOW_QUERY_THRESHOLD =
+    new QParameterNamed01<>(
+      "--slow-query-threshold-ms",
+      List.of(),
+      new QStringType.QConstant(
+        "Log database statements that take at least this many milliseconds, along with their query plans."),
+      Optional.empty(),
+      Long.class
+    );
+
   private final QCommandMetadata metadata;
   private final AtomicBoolean failed;
   private QCommandContextType context;
@@ -106,7 +216,21 @@ public final class LCExport implements QCommandType,
   public List<QParameterNamedType<?>> onListNamedParameters()
   {
     return Stream.concat(
-      Stream.of(INPUT_FILE, OUTPUT_DIRECTORY, EXPORT_IMAGES),
+      Stream.of(
+        INPUT_FILE,
+        OUTPUT_DIRECTORY,
+        EXPORT_IMAGES,
+        FORMAT,
+        SHARD_SIZE,
+        BUCKET,
+        TRANSFORM_MAXIMUM_DIMENSION,
+        TRANSFORM_FORMAT,
+        TRANSFORM_QUALITY,
+        TRANSFORM_CACHE_DIRECTORY,
+        BLOB_CACHE_DIRECTORY,
+        JFR_FILE,
+        SLOW_QUERY_THRESHOLD
+      ),
       QLogback.parameters().stream()
     ).toList();
   }
@@ -127,33 +251,80 @@ public final class LCExport implements QCommandType,
       this.context.parameterValue(OUTPUT_DIRECTORY);
 
     try {
-      try (var model = LFileModels.open(inputFile, true)) {
+      final var buckets =
+        this.context.parameterValues(BUCKET)
+          .stream()
+          .map(LBucket::parse)
+          .toList();
+      final var transform =
+        this.transform();
+      final var format =
+        this.context.parameterValue(FORMAT);
+
+      try (var ignored =
+             LCFlightRecording.start(this.context.parameterValue(JFR_FILE));
+           var model = LFileModels.open(inputFile, true, this.telemetry())) {
         model.events().subscribe(this);
 
         LOG.info("Waiting for dataset to finish loading...");
         final var loadLatch = new CountDownLatch(1);
         model.status().subscribe((oldValue, newValue) -> {
           if (oldValue instanceof LFileModelStatusLoading
-              && newValue instanceof LFileModelStatusIdle) {
+              && !(newValue instanceof LFileModelStatusLoading)) {
             loadLatch.countDown();
           }
         });
         loadLatch.await();
 
         LOG.info("Exporting dataset...");
-        model.export(new LExportRequest(
-          outputDirectory,
-          this.context.<Boolean>parameterValue(EXPORT_IMAGES)
-            .booleanValue()
-        )).get();
+        switch (format) {
+          case "directory" -> {
+            model.export(new LExportRequest(
+              outputDirectory,
+              this.context.<Boolean>parameterValue(EXPORT_IMAGES)
+                .booleanValue(),
+              buckets,
+              transform,
+              this.context.parameterValue(BLOB_CACHE_DIRECTORY)
+            )).get();
+          }
+          case "tar" -> {
+            model.exportArchive(new LExportArchiveRequest(
+              outputDirectory,
+              this.context.<Long>parameterValue(SHARD_SIZE).longValue()
+            )).get();
+          }
+          case "manifest" -> {
+            model.exportManifest(new LExportManifestRequest(
+              outputDirectory.resolve("manifest.jsonl")
+            )).get();
+          }
+          default -> {
+            throw new IllegalArgumentException(
+              "Unrecognized export format '%s'".formatted(format)
+            );
+          }
+        }
+
+        final var slowQueries = model.slowQueries();
+        if (!slowQueries.isEmpty()) {
+          LOG.warn(
+            "{} slow queries were recorded.",
+            Integer.valueOf(slowQueries.size())
+          );
+        }
 
         LOG.info("Export completed.");
         return QCommandStatus.SUCCESS;
       }
     } catch (final LException e) {
       logStructuredError(e);
+    } catch (final IllegalArgumentException e) {
+      LOG.error("{}", e.getMessage());
     } catch (final InterruptedException e) {
       LOG.info("Interrupted");
+    } catch (final IOException e) {
+      LOG.error("Flight recording: ", e);
     } catch (final ExecutionException e) {
       final var cause = e.getCause();
       if (cause instanceof final SStructuredErrorType<?> s) {
@@ -165,6 +336,38 @@ public final class LCExport implements QCommandType,
     return QCommandStatus.FAILURE;
   }
 
+  private LFileModelTelemetry telemetry()
+  {
+    return this.context.parameterValue(SLOW_QUERY_THRESHOLD)
+      .map(ms -> {
+        return LFileModelTelemetry.none()
+          .withSlowQueryThreshold(Duration.ofMillis(ms.longValue()));
+      })
+      .orElseGet(LFileModelTelemetry::none);
+  }
+
+  private Optional<LExportTransform> transform()
+  {
+    final var maximumDimension =
+      this.context.parameterValue(TRANSFORM_MAXIMUM_DIMENSION);
+    final var format =
+      this.context.parameterValue(TRANSFORM_FORMAT);
+
+    if (maximumDimension.isEmpty() && format.isEmpty()) {
+      return Optional.empty();
+    }
+
+    return Optional.of(
+      new LExportTransform(
+        maximumDimension.orElse(Integer.valueOf(Integer.MAX_VALUE)).intValue(),
+        format.map(f -> LExportImageFormat.valueOf(f.toUpperCase(Locale.ROOT)))
+          .orElse(LExportImageFormat.JPEG),
+        this.context.<Double>parameterValue(TRANSFORM_QUALITY).doubleValue(),
+        this.context.parameterValue(TRANSFORM_CACHE_DIRECTORY)
+      )
+    );
+  }
+
   @Override
   public QCommandMetadata metadata()
   {
@@ -0,0 +1,96 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.laurel.cmdline.internal;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * An optional JDK Flight Recorder recording that covers the execution of a
+ * command. The recording is written to the destination file when closed.
+ */
+
+final class LCFlightRecording implements AutoCloseable
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(LCFlightRecording.class);
+
+  private final Optional<Recording> recording;
+
+  private LCFlightRecording(
+    final Optional<Recording> inRecording)
+  {
+    this.recording =
+      Objects.requireNonNull(inRecording, "recording");
+  }
+
+  /**
+   * Start a recording using the JDK's "default" (low overhead) settings, if
+   * a destination file is given.
+   *
+   * @param file The destination file
+   *
+   * @return A recording
+   *
+   * @throws IOException On errors
+   */
+
+  static LCFlightRecording start(
+    final Optional<Path> file)
+    throws IOException
+  {
+    if (file.isEmpty()) {
+      return new LCFlightRecording(Optional.empty());
+    }
+
+    final Configuration configuration;
+    try {
+      configuration = Configuration.getConfiguration("default");
+    } catch (final ParseException e) {
+      throw new IOException(e);
+    }
+
+    final var destination = file.get().toAbsolutePath();
+    final var recording = new Recording(configuration);
+    recording.setName("laurel");
+    recording.setDestination(destination);
+    recording.setToDisk(true);
+    recording.start();
+
+    LOG.info("Flight recording to {}", destination);
+    return new LCFlightRecording(Optional.of(recording));
+  }
+
+  @Override
+  public void close()
+  {
+    this.recording.ifPresent(r -> {
+      final var destination = r.getDestination();
+      r.stop();
+      r.close();
+      LOG.info("Flight recording written to {}", destination);
+    });
+  }
+}
@@ -25,6 +25,7 @@ import com.io7m.quarrel.core.QCommandContextType;
 import com.io7m.quarrel.core.QCommandMetadata;
 import com.io7m.quarrel.core.QCommandStatus;
 import com.io7m.quarrel.core.QCommandType;
+import com.io7m.quarrel.core.QParameterNamed01;
 import com.io7m.quarrel.core.QParameterNamed1;
 import com.io7m.quarrel.core.QParameterNamedType;
 import com.io7m.quarrel.core.QStringType;
@@ -33,6 +34,7 @@ import com.io7m.seltzer.api.SStructuredErrorType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Optional;
@@ -68,6 +70,16 @@ public final class LCImport implements QCommandType, Flow.Subscriber<LFileModelE
       Path.class
     );
 
+  private static final QParameterNamed01<Path> JFR_FILE =
+    new QParameterNamed01<>(
+      "--jfr-file",
+      List.of(),
+      new QStringType.QConstant(
+        "Record a JDK Flight Recorder recording of the import into the given file."),
+      Optional.empty(),
+      Path.class
+    );
+
   private final QCommandMetadata metadata;
   private final AtomicBoolean failed;
   private QCommandContextType context;
@@ -91,7 +103,7 @@ public final class LCImport implements QCommandType, Flow.Subscriber<LFileModelE
   public List<QParameterNamedType<?>> onListNamedParameters()
   {
     return Stream.concat(
-      Stream.of(INPUT_DIRECTORY, OUTPUT_FILE),
+      Stream.of(INPUT_DIRECTORY, OUTPUT_FILE, JFR_FILE),
       QLogback.parameters().stream()
     ).toList();
   }
@@ -111,7 +123,9 @@ public final class LCImport implements QCommandType, Flow.Subscriber<LFileModelE
     final var outputFile =
       this.context.parameterValue(OUTPUT_FILE);
 
-    try (var importer =
+    try (var ignored =
+           LCFlightRecording.start(this.context.parameterValue(JFR_FILE));
+         var importer =
            LFileModels.createImport(inputDirectory, outputFile)) {
       importer.events().subscribe(this);
       importer.execute().get();
@@ -126,6 +140,9 @@ public final class LCImport implements QCommandType, Flow.Subscriber<LFileModelE
     } catch (final InterruptedException e) {
       this.failed.set(true);
       LOG.info("Interrupted");
+    } catch (final IOException e) {
+      this.failed.set(true);
+      LOG.error("Flight recording: ", e);
     }
 
     if (this.failed.get()) {
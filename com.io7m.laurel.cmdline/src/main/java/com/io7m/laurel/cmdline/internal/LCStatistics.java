@@ -0,0 +1,246 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.laurel.cmdline.internal;
+
+import com.io7m.laurel.filemodel.LCaptionStatistics;
+import com.io7m.laurel.filemodel.LCaptionStatisticsRequest;
+import com.io7m.laurel.filemodel.LFileModelStatusLoading;
+import com.io7m.laurel.filemodel.LFileModelTelemetry;
+import com.io7m.laurel.filemodel.LFileModelType;
+import com.io7m.laurel.filemodel.LFileModels;
+import com.io7m.laurel.model.LCaptionID;
+import com.io7m.laurel.model.LCaptionName;
+import com.io7m.laurel.model.LException;
+import com.io7m.quarrel.core.QCommandContextType;
+import com.io7m.quarrel.core.QCommandMetadata;
+import com.io7m.quarrel.core.QCommandStatus;
+import com.io7m.quarrel.core.QCommandType;
+import com.io7m.quarrel.core.QParameterNamed01;
+import com.io7m.quarrel.core.QParameterNamed1;
+import com.io7m.quarrel.core.QParameterNamedType;
+import com.io7m.quarrel.core.QStringType;
+import com.io7m.quarrel.ext.logback.QLogback;
+import com.io7m.seltzer.api.SStructuredErrorType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.PrintWriter;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Stream;
+
+/**
+ * "statistics"
+ */
+
+public final class LCStatistics implements QCommandType
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(LCStatistics.class);
+
+  private static final QParameterNamed1<Path> INPUT_FILE =
+    new QParameterNamed1<>(
+      "--input-file",
+      List.of(),
+      new QStringType.QConstant("The input file."),
+      Optional.empty(),
+      Path.class
+    );
+
+  private static final QParameterNamed1<Integer> LIMIT =
+    new QParameterNamed1<>(
+      "--limit",
+      List.of(),
+      new QStringType.QConstant(
+        "The maximum number of caption pairs and outlier images to show."),
+      Optional.of(Integer.valueOf(20)),
+      Integer.class
+    );
+
+  private static final QParameterNamed01<String> CAPTION =
+    new QParameterNamed01<>(
+      "--caption",
+      List.of(),
+      new QStringType.QConstant(
+        "Only show caption pairs that include the given caption."),
+      Optional.empty(),
+      String.class
+    );
+
+  private final QCommandMetadata metadata;
+
+  /**
+   * Construct a command.
+   */
+
+  public LCStatistics()
+  {
+    this.metadata = new QCommandMetadata(
+      "statistics",
+      new QStringType.QConstant("Show caption statistics for a dataset."),
+      Optional.empty()
+    );
+  }
+
+  @Override
+  public List<QParameterNamedType<?>> onListNamedParameters()
+  {
+    return Stream.concat(
+      Stream.of(
+        INPUT_FILE,
+        LIMIT,
+        CAPTION
+      ),
+      QLogback.parameters().stream()
+    ).toList();
+  }
+
+  @Override
+  public QCommandStatus onExecute(
+    final QCommandContextType context)
+  {
+    System.setProperty("org.jooq.no-tips", "true");
+    System.setProperty("org.jooq.no-logo", "true");
+
+    QLogback.configure(context);
+
+    final var inputFile =
+      context.parameterValue(INPUT_FILE);
+    final var limit =
+      context.<Integer>parameterValue(LIMIT).intValue();
+
+    try (var model =
+           LFileModels.open(inputFile, true, LFileModelTelemetry.none())) {
+
+      LOG.info("Waiting for dataset to finish loading...");
+      final var loadLatch = new CountDownLatch(1);
+      model.status().subscribe((oldValue, newValue) -> {
+        if (oldValue instanceof LFileModelStatusLoading
+            && !(newValue instanceof LFileModelStatusLoading)) {
+          loadLatch.countDown();
+        }
+      });
+      loadLatch.await();
+
+      final var caption =
+        context.parameterValue(CAPTION)
+          .map(LCaptionName::new)
+          .map(name -> findCaption(model, name));
+
+      model.captionStatisticsCalculate(
+        new LCaptionStatisticsRequest(caption, limit)
+      ).get();
+
+      show(context.output(), model.captionStatistics().get());
+      return QCommandStatus.SUCCESS;
+    } catch (final LException e) {
+      logStructuredError(e);
+    } catch (final IllegalArgumentException e) {
+      LOG.error("{}", e.getMessage());
+    } catch (final InterruptedException e) {
+      LOG.info("Interrupted");
+    } catch (final ExecutionException e) {
+      final var cause = e.getCause();
+      if (cause instanceof final SStructuredErrorType<?> s) {
+        logStructuredError(s);
+      } else {
+        LOG.error("Exception: ", e);
+      }
+    }
+    return QCommandStatus.FAILURE;
+  }
+
+  private static LCaptionID findCaption(
+    final LFileModelType model,
+    final LCaptionName name)
+  {
+    return model.captionList()
+      .get()
+      .stream()
+      .filter(c -> c.name().equals(name))
+      .findFirst()
+      .orElseThrow(() -> {
+        return new IllegalArgumentException(
+          "No caption named '%s' exists.".formatted(name)
+        );
+      })
+      .id();
+  }
+
+  private static void show(
+    final PrintWriter output,
+    final LCaptionStatistics statistics)
+  {
+    output.printf("# Images: %d%n", Long.valueOf(statistics.imageCount()));
+    output.printf(
+      "# Captions: %d%n",
+      Integer.valueOf(statistics.frequencies().size())
+    );
+    output.println();
+
+    output.println("# Caption frequencies (count, caption)");
+    for (final var caption : statistics.frequencies()) {
+      output.printf("%d\t%s%n", Long.valueOf(caption.count()), caption.name());
+    }
+    output.println();
+
+    output.println(
+      "# Caption co-occurrences (count, jaccard, caption, caption)");
+    for (final var pair : statistics.cooccurrences()) {
+      output.printf(
+        "%d\t%.4f\t%s\t%s%n",
+        Long.valueOf(pair.count()),
+        Double.valueOf(pair.jaccard()),
+        pair.captionA().name(),
+        pair.captionB().name()
+      );
+    }
+    output.println();
+
+    output.println("# Outlier images (score, captions, image)");
+    for (final var outlier : statistics.outliers()) {
+      output.printf(
+        "%.4f\t%d\t%s%n",
+        Double.valueOf(outlier.score()),
+        Integer.valueOf(outlier.captions()),
+        outlier.image()
+      );
+    }
+    output.flush();
+  }
+
+  private static void logStructuredError(
+    final SStructuredErrorType<?> error)
+  {
+    LOG.error("{}: {}", error.errorCode(), error.message());
+    for (final var entry : error.attributes().entrySet()) {
+      LOG.error("  {}: {}", entry.getKey(), entry.getValue());
+    }
+    error.exception()
+      .ifPresent(throwable -> LOG.error("  Exception: ", throwable));
+  }
+
+  @Override
+  public QCommandMetadata metadata()
+  {
+    return this.metadata;
+  }
+}
@@ -28,6 +28,7 @@ module com.io7m.laurel.cmdline
   requires com.io7m.laurel.model;
   requires com.io7m.quarrel.core;
   requires com.io7m.quarrel.ext.logback;
+  requires jdk.jfr;
 
   exports com.io7m.laurel.cmdline;
 
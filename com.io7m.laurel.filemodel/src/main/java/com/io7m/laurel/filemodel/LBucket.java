@@ -0,0 +1,110 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.laurel.filemodel;
+
+import java.util.regex.Pattern;
+
+/**
+ * A resolution bucket. Images are assigned to the bucket with the closest
+ * aspect ratio.
+ *
+ * @param width  The bucket width in pixels
+ * @param height The bucket height in pixels
+ */
+
+public record LBucket(
+  int width,
+  int height)
+{
+  private static final Pattern VALID_BUCKET =
+    Pattern.compile("([0-9]+)x([0-9]+)");
+
+  /**
+   * A resolution bucket. Images are assigned to the bucket with the closest
+   * aspect ratio.
+   *
+   * @param width  The bucket width in pixels
+   * @param height The bucket height in pixels
+   */
+
+  public LBucket
+  {
+    if (width <= 0) {
+      throw new IllegalArgumentException(
+        "Bucket width %d must be positive.".formatted(Integer.valueOf(width))
+      );
+    }
+    if (height <= 0) {
+      throw new IllegalArgumentException(
+        "Bucket height %d must be positive.".formatted(Integer.valueOf(height))
+      );
+    }
+  }
+
+  /**
+   * Parse a bucket of the form {@code WIDTHxHEIGHT}.
+   *
+   * @param text The text
+   *
+   * @return A bucket
+   */
+
+  public static LBucket parse(
+    final String text)
+  {
+    final var matcher = VALID_BUCKET.matcher(text.trim());
+    if (!matcher.matches()) {
+      throw new IllegalArgumentException(
+        "Bucket '%s' must match the pattern %s"
+          .formatted(text, VALID_BUCKET)
+      );
+    }
+
+    return new LBucket(
+      Integer.parseInt(matcher.group(1)),
+      Integer.parseInt(matcher.group(2))
+    );
+  }
+
+  /**
+   * @return The aspect ratio (width / height) of the bucket
+   */
+
+  public double aspectRatio()
+  {
+    return (double) this.width / (double) this.height;
+  }
+
+  /**
+   * @return The bucket name, used as a directory name in bucketed exports
+   */
+
+  public String name()
+  {
+    return "%dx%d".formatted(
+      Integer.valueOf(this.width),
+      Integer.valueOf(this.height)
+    );
+  }
+
+  @Override
+  public String toString()
+  {
+    return this.name();
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.laurel.filemodel;
+
+import com.io7m.laurel.model.LCaption;
+
+import java.util.Objects;
+
+/**
+ * The number of images to which both of a pair of captions are assigned.
+ *
+ * @param captionA The first caption
+ * @param captionB The second caption
+ * @param count    The number of images to which both captions are assigned
+ */
+
+public record LCaptionCooccurrence(
+  LCaption captionA,
+  LCaption captionB,
+  long count)
+{
+  /**
+   * The number of images to which both of a pair of captions are assigned.
+   *
+   * @param captionA The first caption
+   * @param captionB The second caption
+   * @param count    The number of images to which both captions are assigned
+   */
+
+  public LCaptionCooccurrence
+  {
+    Objects.requireNonNull(captionA, "captionA");
+    Objects.requireNonNull(captionB, "captionB");
+  }
+
+  /**
+   * @return The Jaccard index of the two captions: the number of images with
+   * both captions divided by the number of images with either caption
+   */
+
+  public double jaccard()
+  {
+    final var union =
+      this.captionA.count() + this.captionB.count() - this.count;
+    if (union <= 0L) {
+      return 0.0;
+    }
+    return (double) this.count / (double) union;
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.laurel.filemodel;
+
+import com.io7m.laurel.model.LCaption;
+
+import java.util.List;
+
+/**
+ * Caption frequency and co-occurrence statistics for a dataset.
+ *
+ * @param imageCount    The number of images in the dataset
+ * @param frequencies   The captions, most frequently assigned first
+ * @param cooccurrences The most frequently co-occurring caption pairs, most
+ *                      frequent first
+ * @param outliers      The images with the rarest captions, rarest first
+ */
+
+public record LCaptionStatistics(
+  long imageCount,
+  List<LCaption> frequencies,
+  List<LCaptionCooccurrence> cooccurrences,
+  List<LImageOutlier> outliers)
+{
+  /**
+   * Caption frequency and co-occurrence statistics for a dataset.
+   *
+   * @param imageCount    The number of images in the dataset
+   * @param frequencies   The captions, most frequently assigned first
+   * @param cooccurrences The most frequently co-occurring caption pairs, most
+   *                      frequent first
+   * @param outliers      The images with the rarest captions, rarest first
+   */
+
+  public LCaptionStatistics
+  {
+    frequencies = List.copyOf(frequencies);
+    cooccurrences = List.copyOf(cooccurrences);
+    outliers = List.copyOf(outliers);
+  }
+
+  /**
+   * @return Empty statistics
+   */
+
+  public static LCaptionStatistics empty()
+  {
+    return new LCaptionStatistics(0L, List.of(), List.of(), List.of());
+  }
+
+  /**
+   * @return The captions that are not assigned to any image
+   */
+
+  public List<LCaption> unused()
+  {
+    return this.frequencies.stream()
+      .filter(c -> c.count() == 0L)
+      .toList();
+  }
+
+  @Override
+  public String toString()
+  {
+    return "[LCaptionStatistics images=%d captions=%d]".formatted(
+      Long.valueOf(this.imageCount),
+      Integer.valueOf(this.frequencies.size())
+    );
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.laurel.filemodel;
+
+import com.io7m.laurel.model.LCaptionID;
+
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * A request to calculate caption statistics.
+ *
+ * @param caption If present, only co-occurrences involving this caption are
+ *                returned
+ * @param limit   The maximum number of co-occurrences and outliers returned
+ */
+
+public record LCaptionStatisticsRequest(
+  Optional<LCaptionID> caption,
+  int limit)
+{
+  /**
+   * A request to calculate caption statistics.
+   *
+   * @param caption If present, only co-occurrences involving this caption are
+   *                returned
+   * @param limit   The maximum number of co-occurrences and outliers returned
+   */
+
+  public LCaptionStatisticsRequest
+  {
+    Objects.requireNonNull(caption, "caption");
+
+    if (limit <= 0) {
+      throw new IllegalArgumentException(
+        "Limit %d must be positive.".formatted(Integer.valueOf(limit))
+      );
+    }
+  }
+}
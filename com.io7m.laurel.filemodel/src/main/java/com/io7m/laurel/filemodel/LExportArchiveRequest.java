@@ -0,0 +1,56 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.laurel.filemodel;
+
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * A request to export a dataset as a set of size-bounded tar archives
+ * ("shards"). Each image and its caption file are stored as a pair of
+ * members sharing a key, such as {@code 000012345.png} and
+ * {@code 000012345.txt}, as expected by WebDataset-style loaders. Each
+ * shard is accompanied by an index file listing the offset and size of
+ * every member.
+ *
+ * @param outputDirectory  The output directory
+ * @param shardSizeLimit   The approximate maximum size in bytes of each shard
+ */
+
+public record LExportArchiveRequest(
+  Path outputDirectory,
+  long shardSizeLimit)
+{
+  /**
+   * A request to export a dataset as a set of size-bounded tar archives.
+   *
+   * @param outputDirectory  The output directory
+   * @param shardSizeLimit   The approximate maximum size in bytes of each shard
+   */
+
+  public LExportArchiveRequest
+  {
+    Objects.requireNonNull(outputDirectory, "outputDirectory");
+
+    if (shardSizeLimit <= 0L) {
+      throw new IllegalArgumentException(
+        "Shard size limit %d must be positive."
+          .formatted(Long.valueOf(shardSizeLimit))
+      );
+    }
+  }
+}
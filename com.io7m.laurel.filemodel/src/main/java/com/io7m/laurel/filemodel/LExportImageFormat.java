@@ -0,0 +1,71 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.laurel.filemodel;
+
+/**
+ * The image formats to which images may be re-encoded during export.
+ */
+
+public enum LExportImageFormat
+{
+  /**
+   * PNG (lossless; the quality parameter is ignored).
+   */
+
+  PNG("png", "png"),
+
+  /**
+   * JPEG.
+   */
+
+  JPEG("jpeg", "jpg"),
+
+  /**
+   * WebP. Requires an ImageIO WebP writer plugin to be present at run-time.
+   */
+
+  WEBP("webp", "webp");
+
+  private final String formatName;
+  private final String extension;
+
+  LExportImageFormat(
+    final String inFormatName,
+    final String inExtension)
+  {
+    this.formatName = inFormatName;
+    this.extension = inExtension;
+  }
+
+  /**
+   * @return The ImageIO format name
+   */
+
+  public String formatName()
+  {
+    return this.formatName;
+  }
+
+  /**
+   * @return The file extension used for images of this format
+   */
+
+  public String extension()
+  {
+    return this.extension;
+  }
+}
@@ -18,28 +18,71 @@
 package com.io7m.laurel.filemodel;
 
 import java.nio.file.Path;
+import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 
 /**
  * A request to export a dataset.
  *
  * @param outputDirectory The output directory
  * @param exportImages    {@code true} if images should be exported
+ * @param buckets         The resolution buckets; if non-empty, images and
+ *                        captions are written into one subdirectory per
+ *                        bucket
+ * @param transform       The transform applied to exported images, if any
+ * @param blobCache       The content-addressed blob cache directory, if
+ *                        any; exported images are hard-linked from the
+ *                        cache where possible
  */
 
 public record LExportRequest(
   Path outputDirectory,
-  boolean exportImages)
+  boolean exportImages,
+  List<LBucket> buckets,
+  Optional<LExportTransform> transform,
+  Optional<Path> blobCache)
 {
   /**
    * A request to export a dataset.
    *
    * @param outputDirectory The output directory
    * @param exportImages    {@code true} if images should be exported
+   * @param buckets         The resolution buckets; if non-empty, images and
+   *                        captions are written into one subdirectory per
+   *                        bucket
+   * @param transform       The transform applied to exported images, if any
+   * @param blobCache       The content-addressed blob cache directory, if
+   *                        any; exported images are hard-linked from the
+   *                        cache where possible
    */
 
   public LExportRequest
   {
     Objects.requireNonNull(outputDirectory, "outputDirectory");
+    Objects.requireNonNull(transform, "transform");
+    Objects.requireNonNull(blobCache, "blobCache");
+    buckets = List.copyOf(buckets);
+  }
+
+  /**
+   * A request to export a dataset using a flat directory layout and the
+   * original image data.
+   *
+   * @param outputDirectory The output directory
+   * @param exportImages    {@code true} if images should be exported
+   */
+
+  public LExportRequest(
+    final Path outputDirectory,
+    final boolean exportImages)
+  {
+    this(
+      outputDirectory,
+      exportImages,
+      List.of(),
+      Optional.empty(),
+      Optional.empty()
+    );
   }
 }
@@ -0,0 +1,93 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.laurel.filemodel;
+
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * A transform applied to images during export.
+ *
+ * @param maximumDimension The maximum length of the longest side of an image;
+ *                         larger images are scaled down preserving the
+ *                         aspect ratio
+ * @param format           The output format
+ * @param quality          The encoding quality in the range {@code [0, 1]}
+ * @param cacheDirectory   The directory used to cache transformed images,
+ *                         keyed by the image hash and the transform parameters
+ */
+
+public record LExportTransform(
+  int maximumDimension,
+  LExportImageFormat format,
+  double quality,
+  Optional<Path> cacheDirectory)
+{
+  /**
+   * A transform applied to images during export.
+   *
+   * @param maximumDimension The maximum length of the longest side of an
+   *                         image; larger images are scaled down preserving
+   *                         the aspect ratio
+   * @param format           The output format
+   * @param quality          The encoding quality in the range {@code [0, 1]}
+   * @param cacheDirectory   The directory used to cache transformed images,
+   *                         keyed by the image hash and the transform
+   *                         parameters
+   */
+
+  public LExportTransform
+  {
+    Objects.requireNonNull(format, "format");
+    Objects.requireNonNull(cacheDirectory, "cacheDirectory");
+
+    if (maximumDimension <= 0) {
+      throw new IllegalArgumentException(
+        "Maximum dimension %d must be positive."
+          .formatted(Integer.valueOf(maximumDimension))
+      );
+    }
+    if (!(quality >= 0.0 && quality <= 1.0)) {
+      throw new IllegalArgumentException(
+        "Quality %s must be in the range [0, 1]."
+          .formatted(Double.valueOf(quality))
+      );
+    }
+  }
+
+  /**
+   * The quality is included exactly (as the bits of its IEEE 754
+   * representation), so that transforms with qualities that differ by any
+   * amount never share cached images.
+   *
+   * @return A name that uniquely identifies the transform parameters
+   */
+
+  public String parameterKey()
+  {
+    /*
+     * Adding zero normalizes -0.0 to 0.0.
+     */
+
+    return "%d-%s-%016x".formatted(
+      Integer.valueOf(this.maximumDimension),
+      this.format.formatName(),
+      Long.valueOf(Double.doubleToLongBits(this.quality + 0.0))
+    );
+  }
+}
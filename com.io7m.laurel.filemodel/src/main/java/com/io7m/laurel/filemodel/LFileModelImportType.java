@@ -34,7 +34,10 @@ public interface LFileModelImportType
   Flow.Publisher<LFileModelEventType> events();
 
   /**
-   * Execute the operation.
+   * Execute the operation. Cancelling the returned future cancels the model
+   * operation that the import is waiting for (if any), and stops the import
+   * at the next file or caption. As with {@link LFileModelType}, the future
+   * is completed as cancelled once the import has stopped.
    *
    * @return The operation in process
    */
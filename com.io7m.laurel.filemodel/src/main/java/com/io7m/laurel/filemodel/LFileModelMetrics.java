@@ -0,0 +1,58 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.laurel.filemodel;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A snapshot of the metrics collected by a file model since it was opened.
+ *
+ * @param commands               The command latencies, keyed by
+ *                               {@code COMMAND:OPERATION}
+ * @param queries                The query latencies, keyed by query text
+ * @param transactionsCommitted  The number of committed transactions
+ * @param transactionsRolledBack The number of rolled-back transactions
+ * @param rowsTouched            The total number of rows fetched or affected
+ *                               by queries
+ */
+
+public record LFileModelMetrics(
+  Map<String, LLatencyHistogram> commands,
+  Map<String, LLatencyHistogram> queries,
+  long transactionsCommitted,
+  long transactionsRolledBack,
+  long rowsTouched)
+{
+  /**
+   * A snapshot of the metrics collected by a file model since it was opened.
+   *
+   * @param commands               The command latencies, keyed by
+   *                               {@code COMMAND:OPERATION}
+   * @param queries                The query latencies, keyed by query text
+   * @param transactionsCommitted  The number of committed transactions
+   * @param transactionsRolledBack The number of rolled-back transactions
+   * @param rowsTouched            The total number of rows fetched or
+   *                               affected by queries
+   */
+
+  public LFileModelMetrics
+  {
+    commands = Map.copyOf(Objects.requireNonNull(commands, "commands"));
+    queries = Map.copyOf(Objects.requireNonNull(queries, "queries"));
+  }
+}
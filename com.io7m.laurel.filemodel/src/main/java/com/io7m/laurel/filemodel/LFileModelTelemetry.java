@@ -0,0 +1,122 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.laurel.filemodel;
+
+import com.io7m.laurel.filemodel.internal.LMetricsOpenTelemetry;
+import io.opentelemetry.api.OpenTelemetry;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * The telemetry configuration for a file model. Every file model collects
+ * in-process metrics (see {@link LFileModelType#metrics()}); the recorders
+ * given here additionally receive every measurement, and the OpenTelemetry
+ * instance, if any, receives the database transaction and statement spans.
+ * If a slow query threshold is given, statements that take at least that long
+ * are logged along with their query plans (see
+ * {@link LFileModelType#slowQueries()}).
+ *
+ * @param recorders          Additional metrics recorders
+ * @param openTelemetry      The OpenTelemetry instance used for database tracing
+ * @param slowQueryThreshold The slow query threshold
+ */
+
+public record LFileModelTelemetry(
+  List<LMetricsRecorderType> recorders,
+  Optional<OpenTelemetry> openTelemetry,
+  Optional<Duration> slowQueryThreshold)
+{
+  private static final LFileModelTelemetry NONE =
+    new LFileModelTelemetry(List.of(), Optional.empty());
+
+  /**
+   * The telemetry configuration for a file model.
+   *
+   * @param recorders          Additional metrics recorders
+   * @param openTelemetry      The OpenTelemetry instance used for database
+   *                           tracing
+   * @param slowQueryThreshold The slow query threshold
+   */
+
+  public LFileModelTelemetry
+  {
+    recorders = List.copyOf(recorders);
+    Objects.requireNonNull(openTelemetry, "openTelemetry");
+    Objects.requireNonNull(slowQueryThreshold, "slowQueryThreshold");
+  }
+
+  /**
+   * The telemetry configuration for a file model, without slow query
+   * logging.
+   *
+   * @param recorders     Additional metrics recorders
+   * @param openTelemetry The OpenTelemetry instance used for database tracing
+   */
+
+  public LFileModelTelemetry(
+    final List<LMetricsRecorderType> recorders,
+    final Optional<OpenTelemetry> openTelemetry)
+  {
+    this(recorders, openTelemetry, Optional.empty());
+  }
+
+  /**
+   * @param threshold The slow query threshold
+   *
+   * @return This configuration with slow query logging enabled
+   */
+
+  public LFileModelTelemetry withSlowQueryThreshold(
+    final Duration threshold)
+  {
+    return new LFileModelTelemetry(
+      this.recorders,
+      this.openTelemetry,
+      Optional.of(threshold)
+    );
+  }
+
+  /**
+   * @return A configuration that only collects in-process metrics
+   */
+
+  public static LFileModelTelemetry none()
+  {
+    return NONE;
+  }
+
+  /**
+   * A configuration that publishes metrics and database traces to the given
+   * OpenTelemetry instance, in addition to collecting in-process metrics.
+   *
+   * @param openTelemetry The OpenTelemetry instance
+   *
+   * @return A telemetry configuration
+   */
+
+  public static LFileModelTelemetry openTelemetry(
+    final OpenTelemetry openTelemetry)
+  {
+    return new LFileModelTelemetry(
+      List.of(LMetricsOpenTelemetry.create(openTelemetry)),
+      Optional.of(openTelemetry)
+    );
+  }
+}
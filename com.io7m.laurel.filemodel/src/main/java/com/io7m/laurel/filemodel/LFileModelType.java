@@ -43,6 +43,15 @@ import java.util.concurrent.Flow;
 
 /**
  * The interface to a file model.
+ *
+ * <p>Cancelling a future returned by an operation only requests that the
+ * operation stop. Unlike a plain {@link CompletableFuture}, a successful
+ * call to {@code cancel} returns {@code true} before the future is
+ * cancelled: the future is completed as cancelled (and only then does
+ * {@code isCancelled} return {@code true}) once the operation has stopped
+ * and rolled back its changes. A call to {@code cancel} that returns
+ * {@code false} means that the operation has already completed, or has
+ * progressed too far to be stopped, and will complete normally.</p>
  */
 
 public interface LFileModelType
@@ -441,14 +450,63 @@ public interface LFileModelType
   CompletableFuture<?> redo();
 
   /**
-   * Compact the file, deleting the undo/redo log and cleaning up any
-   * unused data in the file.
+   * Compact the file, deleting the undo/redo log. Unused data is then
+   * cleaned up by a background job, as if by {@link #reclaimSpace()}. Files
+   * created by older versions, which cannot return unused space to the
+   * filesystem incrementally, are first converted by a background job that
+   * rebuilds the entire file.
    *
    * @return The operation in progress
    */
 
   CompletableFuture<?> compact();
 
+  /**
+   * Delete images that are no longer referenced by the file or by the
+   * undo/redo log, and release free space back to the filesystem. The work
+   * is done in small steps by a background job, and does not prevent
+   * commands from executing.
+   *
+   * @return The operation in progress
+   *
+   * @see #jobs()
+   */
+
+  CompletableFuture<?> reclaimSpace();
+
+  /**
+   * Set the history retention policy. The policy is stored in the file, and
+   * the oldest entries in the undo history are discarded by a background job
+   * whenever the history exceeds any of the limits. The redo history is
+   * never pruned.
+   *
+   * @param retention The retention policy
+   *
+   * @return The operation in progress
+   */
+
+  CompletableFuture<?> historyRetentionSet(
+    LHistoryRetention retention);
+
+  /**
+   * @return The history retention policy
+   */
+
+  AttributeReadableType<LHistoryRetention> historyRetention();
+
+  /**
+   * Apply the history retention policy now, discarding the oldest undo
+   * entries that exceed the limits. Images that were only referenced by the
+   * discarded entries are subsequently deleted as if by
+   * {@link #reclaimSpace()}.
+   *
+   * @return The operation in progress
+   *
+   * @see #jobs()
+   */
+
+  CompletableFuture<?> historyPrune();
+
   /**
    * @return Text describing the top of the redo stack, if any
    */
@@ -526,9 +584,12 @@ public interface LFileModelType
     Set<LImageID> images);
 
   /**
-   * Execute a validation.
+   * Execute a validation. The validation runs as a background job, and so
+   * does not prevent commands from executing.
    *
    * @return The operation in progress
+   *
+   * @see #jobs()
    */
 
   CompletableFuture<?> validate();
@@ -539,6 +600,86 @@ public interface LFileModelType
 
   AttributeReadableType<List<LValidationProblemType>> validationProblems();
 
+  /**
+   * Assign every image to the bucket with the closest aspect ratio, and
+   * calculate the number of images in each bucket. The calculation runs as
+   * a background job.
+   *
+   * @param buckets The buckets
+   *
+   * @return The operation in progress
+   *
+   * @see #bucketCounts()
+   * @see #jobs()
+   */
+
+  CompletableFuture<?> bucketsCalculate(List<LBucket> buckets);
+
+  /**
+   * @return The number of images in each bucket, as of the most recent bucket calculation
+   */
+
+  AttributeReadableType<List<LBucketCount>> bucketCounts();
+
+  /**
+   * Calculate caption frequencies, caption co-occurrences, and the images
+   * with the rarest captions. The underlying index is built on first use and
+   * is then maintained incrementally as captions are assigned and unassigned.
+   * The calculation runs as a background job.
+   *
+   * @param request The request
+   *
+   * @return The operation in progress
+   *
+   * @see #captionStatistics()
+   * @see #jobs()
+   */
+
+  CompletableFuture<?> captionStatisticsCalculate(
+    LCaptionStatisticsRequest request);
+
+  /**
+   * @return The caption statistics, as of the most recent calculation
+   */
+
+  AttributeReadableType<LCaptionStatistics> captionStatistics();
+
+  /**
+   * The captions suggested for the selected image, best first. Captions are
+   * ranked by how often they appear on other images alongside the captions
+   * already assigned to the selected image. The suggestions are updated
+   * after every command that changes caption assignments.
+   *
+   * @return The suggested captions for the selected image
+   */
+
+  AttributeReadableType<List<LCaptionSuggestion>> imageCaptionSuggestions();
+
+  /**
+   * The background jobs that are running or waiting to run, running job
+   * first. Background jobs execute one at a time in priority order, and
+   * pause whenever commands, undo, or redo operations are pending.
+   *
+   * @return The status of each background job
+   */
+
+  AttributeReadableType<List<LJobStatus>> jobs();
+
+  /**
+   * @return A snapshot of the metrics collected since the model was opened
+   */
+
+  LFileModelMetrics metrics();
+
+  /**
+   * @return The most recent slow queries, oldest first, or an empty list if
+   * slow query logging is not enabled
+   *
+   * @see LFileModelTelemetry#slowQueryThreshold()
+   */
+
+  List<LSlowQuery> slowQueries();
+
   /**
    * Execute an export.
    *
@@ -550,6 +691,31 @@ public interface LFileModelType
   CompletableFuture<?> export(LExportRequest request);
 
   /**
+   * Execute an export into size-bounded tar archives.
+   *
+   * @param request The export request
+   *
+   * @return The operation in progress
+   */
+
+  CompletableFuture<?> exportArchive(LExportArchiveRequest request);
+
+  /**
+   * Export a JSON Lines manifest describing every image in the dataset.
+   *
+   * @param request The export request
+   *
+   * @return The operation in progress
+   */
+
+  CompletableFuture<?> exportManifest(LExportManifestRequest request);
+
+  /**
+   * The events produced by the most recent export. Only the most recent
+   * events are retained for very large exports, and the attribute is
+   * updated periodically rather than for every event; the complete set of
+   * retained events is available when the export completes.
+   *
    * @return The export events
    */
 
@@ -53,6 +53,27 @@ public final class LFileModels
     return LFileModel.open(file, readOnly);
   }
 
+  /**
+   * Open a file model.
+   *
+   * @param file      The file
+   * @param readOnly  {@code true} if the file should be read-only
+   * @param telemetry The telemetry configuration
+   *
+   * @return A file model
+   *
+   * @throws LException On errors
+   */
+
+  public static LFileModelType open(
+    final Path file,
+    final boolean readOnly,
+    final LFileModelTelemetry telemetry)
+    throws LException
+  {
+    return LFileModel.open(file, readOnly, telemetry);
+  }
+
   /**
    * Create a file model import operation.
    *
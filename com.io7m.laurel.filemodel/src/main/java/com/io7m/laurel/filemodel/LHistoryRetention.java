@@ -0,0 +1,145 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.laurel.filemodel;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+/**
+ * A policy limiting the amount of undo history kept in a file. Each limit
+ * that is present is applied; the oldest commands are discarded until the
+ * history satisfies every limit. The size of the history includes the images
+ * that are referenced only by the history, such as deleted images that could
+ * be restored by undoing their deletion. Redo history is not limited.
+ *
+ * @param commands The maximum number of commands kept
+ * @param age      The maximum age of commands kept
+ * @param bytes    The maximum size of the history, in bytes
+ */
+
+public record LHistoryRetention(
+  OptionalLong commands,
+  Optional<Duration> age,
+  OptionalLong bytes)
+{
+  private static final LHistoryRetention UNLIMITED =
+    new LHistoryRetention(
+      OptionalLong.empty(),
+      Optional.empty(),
+      OptionalLong.empty()
+    );
+
+  /**
+   * A policy limiting the amount of undo history kept in a file.
+   *
+   * @param commands The maximum number of commands kept
+   * @param age      The maximum age of commands kept
+   * @param bytes    The maximum size of the history, in bytes
+   */
+
+  public LHistoryRetention
+  {
+    Objects.requireNonNull(commands, "commands");
+    Objects.requireNonNull(age, "age");
+    Objects.requireNonNull(bytes, "bytes");
+
+    if (commands.isPresent() && commands.getAsLong() < 0L) {
+      throw new IllegalArgumentException(
+        "Command count %d must be non-negative."
+          .formatted(Long.valueOf(commands.getAsLong()))
+      );
+    }
+    if (age.isPresent() && age.get().isNegative()) {
+      throw new IllegalArgumentException(
+        "Age %s must be non-negative.".formatted(age.get())
+      );
+    }
+    if (bytes.isPresent() && bytes.getAsLong() < 0L) {
+      throw new IllegalArgumentException(
+        "Size %d must be non-negative."
+          .formatted(Long.valueOf(bytes.getAsLong()))
+      );
+    }
+  }
+
+  /**
+   * @return A policy that keeps all history
+   */
+
+  public static LHistoryRetention unlimited()
+  {
+    return UNLIMITED;
+  }
+
+  /**
+   * @return {@code true} if this policy keeps all history
+   */
+
+  public boolean isUnlimited()
+  {
+    return this.commands.isEmpty()
+           && this.age.isEmpty()
+           && this.bytes.isEmpty();
+  }
+
+  /**
+   * @param count The maximum number of commands kept
+   *
+   * @return This policy with the given command limit
+   */
+
+  public LHistoryRetention withCommands(
+    final long count)
+  {
+    return new LHistoryRetention(OptionalLong.of(count), this.age, this.bytes);
+  }
+
+  /**
+   * @param maximum The maximum age of commands kept
+   *
+   * @return This policy with the given age limit
+   */
+
+  public LHistoryRetention withAge(
+    final Duration maximum)
+  {
+    return new LHistoryRetention(
+      this.commands,
+      Optional.of(maximum),
+      this.bytes
+    );
+  }
+
+  /**
+   * @param size The maximum size of the history, in bytes
+   *
+   * @return This policy with the given size limit
+   */
+
+  public LHistoryRetention withBytes(
+    final long size)
+  {
+    return new LHistoryRetention(
+      this.commands,
+      this.age,
+      OptionalLong.of(size)
+    );
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.laurel.filemodel;
+
+import com.io7m.laurel.model.LImageID;
+
+import java.util.Objects;
+
+/**
+ * An image whose captions are unusually rare within the dataset.
+ *
+ * @param image    The image
+ * @param captions The number of captions assigned to the image
+ * @param score    The mean self-information, in bits, of the image's captions
+ */
+
+public record LImageOutlier(
+  LImageID image,
+  int captions,
+  double score)
+{
+  /**
+   * An image whose captions are unusually rare within the dataset.
+   *
+   * @param image    The image
+   * @param captions The number of captions assigned to the image
+   * @param score    The mean self-information, in bits, of the image's captions
+   */
+
+  public LImageOutlier
+  {
+    Objects.requireNonNull(image, "image");
+  }
+}
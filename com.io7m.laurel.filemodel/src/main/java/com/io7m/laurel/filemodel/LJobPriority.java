@@ -0,0 +1,45 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.laurel.filemodel;
+
+/**
+ * The priority of a background job. Jobs of a higher priority are started
+ * before jobs of a lower priority; jobs of the same priority are started in
+ * the order in which they were submitted.
+ */
+
+public enum LJobPriority
+{
+  /**
+   * Work that the user has explicitly requested and is waiting for.
+   */
+
+  HIGH,
+
+  /**
+   * Work that produces results shown to the user.
+   */
+
+  NORMAL,
+
+  /**
+   * Maintenance work that the user is not waiting for.
+   */
+
+  LOW
+}
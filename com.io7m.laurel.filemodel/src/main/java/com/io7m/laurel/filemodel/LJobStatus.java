@@ -0,0 +1,57 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.laurel.filemodel;
+
+import java.util.Objects;
+import java.util.OptionalDouble;
+
+/**
+ * The status of a background job.
+ *
+ * @param id          The job ID, unique within a file model
+ * @param description The job description
+ * @param priority    The job priority
+ * @param state       The job state
+ * @param progress    The job progress in the range {@code [0, 1]}, if known
+ */
+
+public record LJobStatus(
+  long id,
+  String description,
+  LJobPriority priority,
+  LJobState state,
+  OptionalDouble progress)
+{
+  /**
+   * The status of a background job.
+   *
+   * @param id          The job ID, unique within a file model
+   * @param description The job description
+   * @param priority    The job priority
+   * @param state       The job state
+   * @param progress    The job progress in the range {@code [0, 1]}, if known
+   */
+
+  public LJobStatus
+  {
+    Objects.requireNonNull(description, "description");
+    Objects.requireNonNull(priority, "priority");
+    Objects.requireNonNull(state, "state");
+    Objects.requireNonNull(progress, "progress");
+  }
+}
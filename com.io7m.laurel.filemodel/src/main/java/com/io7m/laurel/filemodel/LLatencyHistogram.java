@@ -0,0 +1,156 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.laurel.filemodel;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A histogram of latencies. Observations are counted in buckets with fixed,
+ * roughly logarithmically spaced upper bounds; see
+ * {@link #BUCKET_UPPER_BOUNDS_NANOS}. The final bucket counts observations
+ * larger than the largest bound.
+ *
+ * @param count        The number of observations
+ * @param totalNanos   The sum of all observations in nanoseconds
+ * @param minimumNanos The smallest observation in nanoseconds
+ * @param maximumNanos The largest observation in nanoseconds
+ * @param bucketCounts The number of observations in each bucket
+ */
+
+public record LLatencyHistogram(
+  long count,
+  long totalNanos,
+  long minimumNanos,
+  long maximumNanos,
+  List<Long> bucketCounts)
+{
+  /**
+   * The inclusive upper bounds of the histogram buckets, in nanoseconds.
+   */
+
+  public static final List<Long> BUCKET_UPPER_BOUNDS_NANOS =
+    List.of(
+      Long.valueOf(10_000L),
+      Long.valueOf(25_000L),
+      Long.valueOf(50_000L),
+      Long.valueOf(100_000L),
+      Long.valueOf(250_000L),
+      Long.valueOf(500_000L),
+      Long.valueOf(1_000_000L),
+      Long.valueOf(2_500_000L),
+      Long.valueOf(5_000_000L),
+      Long.valueOf(10_000_000L),
+      Long.valueOf(25_000_000L),
+      Long.valueOf(50_000_000L),
+      Long.valueOf(100_000_000L),
+      Long.valueOf(250_000_000L),
+      Long.valueOf(500_000_000L),
+      Long.valueOf(1_000_000_000L),
+      Long.valueOf(2_500_000_000L),
+      Long.valueOf(5_000_000_000L),
+      Long.valueOf(10_000_000_000L)
+    );
+
+  /**
+   * A histogram of latencies.
+   *
+   * @param count        The number of observations
+   * @param totalNanos   The sum of all observations in nanoseconds
+   * @param minimumNanos The smallest observation in nanoseconds
+   * @param maximumNanos The largest observation in nanoseconds
+   * @param bucketCounts The number of observations in each bucket
+   */
+
+  public LLatencyHistogram
+  {
+    Objects.requireNonNull(bucketCounts, "bucketCounts");
+    bucketCounts = List.copyOf(bucketCounts);
+
+    if (bucketCounts.size() != BUCKET_UPPER_BOUNDS_NANOS.size() + 1) {
+      throw new IllegalArgumentException(
+        "Histograms must have exactly %d buckets."
+          .formatted(Integer.valueOf(BUCKET_UPPER_BOUNDS_NANOS.size() + 1))
+      );
+    }
+  }
+
+  /**
+   * @param nanos An observation in nanoseconds
+   *
+   * @return The index of the bucket that holds the given observation
+   */
+
+  public static int bucketFor(
+    final long nanos)
+  {
+    final var bounds = BUCKET_UPPER_BOUNDS_NANOS;
+    for (int index = 0; index < bounds.size(); ++index) {
+      if (nanos <= bounds.get(index).longValue()) {
+        return index;
+      }
+    }
+    return bounds.size();
+  }
+
+  /**
+   * @return The mean observation in nanoseconds, or zero if there are none
+   */
+
+  public double meanNanos()
+  {
+    if (this.count == 0L) {
+      return 0.0;
+    }
+    return (double) this.totalNanos / (double) this.count;
+  }
+
+  /**
+   * Estimate a percentile. The result is the upper bound of the bucket
+   * containing the requested percentile, clamped to the largest
+   * observation.
+   *
+   * @param percentile The percentile in the range [0, 1]
+   *
+   * @return The estimated percentile in nanoseconds
+   */
+
+  public long percentileNanos(
+    final double percentile)
+  {
+    if (this.count == 0L) {
+      return 0L;
+    }
+
+    final var clamped =
+      Math.min(1.0, Math.max(0.0, percentile));
+    final var target =
+      Math.max(1L, (long) Math.ceil(clamped * (double) this.count));
+
+    long seen = 0L;
+    for (int index = 0; index < BUCKET_UPPER_BOUNDS_NANOS.size(); ++index) {
+      seen += this.bucketCounts.get(index).longValue();
+      if (seen >= target) {
+        return Math.min(
+          BUCKET_UPPER_BOUNDS_NANOS.get(index).longValue(),
+          this.maximumNanos
+        );
+      }
+    }
+    return this.maximumNanos;
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.laurel.filemodel;
+
+/**
+ * A receiver of metrics from a file model. Methods are called on the
+ * thread that performed the measured operation, and must therefore be
+ * cheap and must not block.
+ */
+
+public interface LMetricsRecorderType
+{
+  /**
+   * A command finished.
+   *
+   * @param command       The command name
+   * @param operation     The operation applied to the command
+   * @param durationNanos The time taken in nanoseconds
+   * @param succeeded     {@code true} if the operation succeeded
+   */
+
+  void onCommand(
+    String command,
+    LCommandOperation operation,
+    long durationNanos,
+    boolean succeeded);
+
+  /**
+   * A database query finished.
+   *
+   * @param query         The query text, with bind values as placeholders
+   * @param durationNanos The time taken in nanoseconds
+   * @param rows          The number of rows fetched or affected
+   */
+
+  void onQuery(
+    String query,
+    long durationNanos,
+    long rows);
+
+  /**
+   * A database transaction was committed.
+   *
+   * @param durationNanos The time taken by the commit in nanoseconds
+   */
+
+  void onTransactionCommit(
+    long durationNanos);
+
+  /**
+   * A database transaction was rolled back.
+   */
+
+  void onTransactionRollback();
+}
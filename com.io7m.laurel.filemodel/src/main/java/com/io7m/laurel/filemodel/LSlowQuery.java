@@ -0,0 +1,57 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.laurel.filemodel;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A database statement that took longer than the configured slow query
+ * threshold.
+ *
+ * @param time          The time the statement completed
+ * @param query         The SQL text of the statement
+ * @param durationNanos The execution time in nanoseconds
+ * @param plan          The output of {@code EXPLAIN QUERY PLAN}, one line per
+ *                      plan step, indented by depth
+ */
+
+public record LSlowQuery(
+  OffsetDateTime time,
+  String query,
+  long durationNanos,
+  List<String> plan)
+{
+  /**
+   * A database statement that took longer than the configured slow query
+   * threshold.
+   *
+   * @param time          The time the statement completed
+   * @param query         The SQL text of the statement
+   * @param durationNanos The execution time in nanoseconds
+   * @param plan          The output of {@code EXPLAIN QUERY PLAN}, one line
+   *                      per plan step, indented by depth
+   */
+
+  public LSlowQuery
+  {
+    Objects.requireNonNull(time, "time");
+    Objects.requireNonNull(query, "query");
+    plan = List.copyOf(plan);
+  }
+}
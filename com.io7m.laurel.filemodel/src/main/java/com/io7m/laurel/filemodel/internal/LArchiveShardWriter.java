@@ -0,0 +1,194 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.laurel.filemodel.internal;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Objects;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A writer of size-bounded tar shards. Members are written directly to
+ * the shard files; no temporary files are used. Alongside each shard
+ * {@code shard-N.tar}, an index {@code shard-N.idx} is written containing
+ * one line per member: the member name, the byte offset of the member data
+ * within the shard, and the member size, separated by tabs.
+ */
+
+public final class LArchiveShardWriter
+  implements AutoCloseable
+{
+  private static final int TAR_BLOCK_SIZE = 512;
+
+  private static final FileTime TIME_EPOCH =
+    FileTime.fromMillis(0L);
+
+  private final Path directory;
+  private final long shardSizeLimit;
+  private TarArchiveOutputStream shard;
+  private BufferedWriter index;
+  private long shardBytes;
+  private int shardEntries;
+  private int shardCount;
+
+  /**
+   * A writer of size-bounded tar shards.
+   *
+   * @param inDirectory      The output directory
+   * @param inShardSizeLimit The approximate maximum size of each shard
+   */
+
+  public LArchiveShardWriter(
+    final Path inDirectory,
+    final long inShardSizeLimit)
+  {
+    this.directory =
+      Objects.requireNonNull(inDirectory, "directory");
+    this.shardSizeLimit =
+      inShardSizeLimit;
+  }
+
+  /**
+   * @return The number of shards created so far
+   */
+
+  public int shardCount()
+  {
+    return this.shardCount;
+  }
+
+  /**
+   * Write a pair of members sharing the given key. A new shard is started
+   * if adding the pair would take the current shard over the size limit;
+   * a pair larger than the limit is still written, into a shard of its own.
+   *
+   * @param key            The member key
+   * @param imageExtension The image file extension
+   * @param imageData      The image data
+   * @param captionData    The caption data
+   *
+   * @throws IOException On errors
+   */
+
+  public void write(
+    final String key,
+    final String imageExtension,
+    final byte[] imageData,
+    final byte[] captionData)
+    throws IOException
+  {
+    final var pairSize =
+      memberSize(imageData.length) + memberSize(captionData.length);
+
+    if (this.shard != null
+        && this.shardEntries > 0
+        && this.shardBytes + pairSize > this.shardSizeLimit) {
+      this.finishShard();
+    }
+
+    if (this.shard == null) {
+      this.startShard();
+    }
+
+    this.writeMember("%s.%s".formatted(key, imageExtension), imageData);
+    this.writeMember("%s.txt".formatted(key), captionData);
+    ++this.shardEntries;
+  }
+
+  private static long memberSize(
+    final long size)
+  {
+    final var blocks = (size + TAR_BLOCK_SIZE - 1) / TAR_BLOCK_SIZE;
+    return TAR_BLOCK_SIZE + (blocks * TAR_BLOCK_SIZE);
+  }
+
+  private void writeMember(
+    final String name,
+    final byte[] data)
+    throws IOException
+  {
+    final var entry = new TarArchiveEntry(name);
+    entry.setSize(data.length);
+    entry.setLastModifiedTime(TIME_EPOCH);
+
+    this.shard.putArchiveEntry(entry);
+    this.shard.write(data);
+    this.shard.closeArchiveEntry();
+
+    /*
+     * Member names are short and ASCII, so every member consists of exactly
+     * one header block followed by the data padded to the block size.
+     */
+
+    this.index.write(name);
+    this.index.write('\t');
+    this.index.write(Long.toString(this.shardBytes + TAR_BLOCK_SIZE));
+    this.index.write('\t');
+    this.index.write(Integer.toString(data.length));
+    this.index.write('\n');
+    this.shardBytes += memberSize(data.length);
+  }
+
+  private void startShard()
+    throws IOException
+  {
+    final var name =
+      "shard-%06d".formatted(Integer.valueOf(this.shardCount));
+
+    this.shard =
+      new TarArchiveOutputStream(
+        new BufferedOutputStream(
+          Files.newOutputStream(this.directory.resolve(name + ".tar"))
+        )
+      );
+    this.shard.setLongFileMode(TarArchiveOutputStream.LONGFILE_ERROR);
+    this.index =
+      Files.newBufferedWriter(this.directory.resolve(name + ".idx"), UTF_8);
+    this.shardBytes = 0L;
+    this.shardEntries = 0;
+    ++this.shardCount;
+  }
+
+  private void finishShard()
+    throws IOException
+  {
+    try (var ignored0 = this.shard;
+         var ignored1 = this.index) {
+      this.shard.finish();
+    } finally {
+      this.shard = null;
+      this.index = null;
+    }
+  }
+
+  @Override
+  public void close()
+    throws IOException
+  {
+    if (this.shard != null) {
+      this.finishShard();
+    }
+  }
+}
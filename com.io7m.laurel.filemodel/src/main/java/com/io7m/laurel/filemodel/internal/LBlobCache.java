@@ -0,0 +1,160 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.laurel.filemodel.internal;
+
+import com.io7m.laurel.model.LHashType;
+
+import java.io.IOException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.UUID;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * A content-addressed cache of image blobs on the filesystem. Blobs are
+ * stored as {@code xx/HASH.EXT}, where {@code xx} is the first two
+ * characters of the hash, and are written at most once. Exported files are
+ * produced by hard-linking to cached blobs, falling back to copying where
+ * the filesystem does not support hard links (or the output is on a
+ * different filesystem).
+ *
+ * <p>Because exported files may be hard links to cached blobs, files in an
+ * export directory must never be written in place; they are always replaced
+ * with new files using {@link #replace(Path, byte[])}.</p>
+ */
+
+public final class LBlobCache
+{
+  private final Path directory;
+
+  /**
+   * A content-addressed cache of image blobs.
+   *
+   * @param inDirectory The cache directory
+   */
+
+  public LBlobCache(
+    final Path inDirectory)
+  {
+    this.directory =
+      Objects.requireNonNull(inDirectory, "directory")
+        .toAbsolutePath();
+  }
+
+  /**
+   * @param hash      The blob hash
+   * @param extension The file extension
+   *
+   * @return The cache file for the given blob
+   */
+
+  public Path fileFor(
+    final LHashType hash,
+    final String extension)
+  {
+    final var value = hash.value();
+    return this.directory
+      .resolve(value.substring(0, 2))
+      .resolve("%s.%s".formatted(value, extension));
+  }
+
+  /**
+   * Atomically store data in the given cache file.
+   *
+   * @param file The cache file
+   * @param data The data
+   *
+   * @throws IOException On errors
+   */
+
+  public static void store(
+    final Path file,
+    final byte[] data)
+    throws IOException
+  {
+    replace(file, data);
+  }
+
+  /**
+   * Atomically replace the given file with a new file containing the given
+   * data. An existing file is never written to, so any other hard links to
+   * the existing file (such as cached blobs) are left unchanged.
+   *
+   * @param file The file
+   * @param data The data
+   *
+   * @throws IOException On errors
+   */
+
+  public static void replace(
+    final Path file,
+    final byte[] data)
+    throws IOException
+  {
+    final var parent = file.getParent();
+    Files.createDirectories(parent);
+
+    /*
+     * The temporary file is created with the default permissions (unlike
+     * Files.createTempFile), so that exported files are readable by others
+     * in the same way as files written directly.
+     */
+
+    final var temporary =
+      parent.resolve(
+        "%s.%s.tmp".formatted(file.getFileName(), UUID.randomUUID())
+      );
+
+    try {
+      Files.write(temporary, data, CREATE_NEW, WRITE);
+      Files.move(temporary, file, REPLACE_EXISTING, ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  /**
+   * Make {@code target} refer to the contents of {@code source}, using a
+   * hard link if possible, and a copy otherwise. Any existing target file
+   * is replaced.
+   *
+   * @param source The source file
+   * @param target The target file
+   *
+   * @throws IOException On errors
+   */
+
+  public static void linkOrCopy(
+    final Path source,
+    final Path target)
+    throws IOException
+  {
+    Files.deleteIfExists(target);
+
+    try {
+      Files.createLink(target, source);
+    } catch (final UnsupportedOperationException | FileSystemException e) {
+      Files.copy(source, target, REPLACE_EXISTING);
+    }
+  }
+}
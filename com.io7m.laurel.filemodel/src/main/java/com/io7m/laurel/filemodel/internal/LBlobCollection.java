@@ -0,0 +1,208 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.laurel.filemodel.internal;
+
+import com.io7m.laurel.model.LLongSet;
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.regex.Pattern;
+
+import static com.io7m.laurel.filemodel.internal.Tables.IMAGES;
+import static com.io7m.laurel.filemodel.internal.Tables.IMAGE_BLOBS;
+import static com.io7m.laurel.filemodel.internal.Tables.REDO;
+import static com.io7m.laurel.filemodel.internal.Tables.UNDO;
+
+/**
+ * Functions to find and delete image blobs that are no longer needed.
+ *
+ * A blob is garbage if no image refers to it and no undo or redo entry
+ * refers to it. Candidates are found on a read-only snapshot, and then
+ * deleted later in small batches. Because the file may have changed in the
+ * meantime, deletion checks every source of references again in the same
+ * transaction as the delete, and skips any blob that is referenced.
+ */
+
+final class LBlobCollection
+{
+  /**
+   * The pattern of the keys under which serialized commands store blob IDs.
+   */
+
+  private static final Pattern BLOB_KEY =
+    Pattern.compile("image\\.[0-9]+\\.blob");
+
+  private LBlobCollection()
+  {
+
+  }
+
+  /**
+   * Find the blobs to which no image refers, using an anti-join.
+   *
+   * @param context The database context
+   *
+   * @return The unreferenced blobs
+   */
+
+  static LLongSet unreferencedByImages(
+    final DSLContext context)
+  {
+    final var results = LLongSet.builder(64);
+    try (var cursor =
+           context.select(IMAGE_BLOBS.IMAGE_BLOB_ID)
+             .from(IMAGE_BLOBS)
+             .leftJoin(IMAGES)
+             .on(IMAGES.IMAGE_BLOB.eq(IMAGE_BLOBS.IMAGE_BLOB_ID))
+             .where(IMAGES.IMAGE_ID.isNull())
+             .fetchLazy()) {
+      for (final var r : cursor) {
+        results.add(r.value1().longValue());
+      }
+    }
+    return results.build();
+  }
+
+  /**
+   * Find the blobs to which any undo or redo entry refers.
+   *
+   * @param context The database context
+   *
+   * @return The referenced blobs
+   *
+   * @throws IOException On errors parsing history entries
+   */
+
+  static LLongSet referencedByHistory(
+    final DSLContext context)
+    throws IOException
+  {
+    final var results = LLongSet.builder(64);
+    try (var cursor =
+           context.select(UNDO.UNDO_DATA).from(UNDO).fetchLazy()) {
+      for (final var r : cursor) {
+        referencedBy(r.value1(), results);
+      }
+    }
+    try (var cursor =
+           context.select(REDO.REDO_DATA).from(REDO).fetchLazy()) {
+      for (final var r : cursor) {
+        referencedBy(r.value1(), results);
+      }
+    }
+    return results.build();
+  }
+
+  /**
+   * Add the blobs referred to by a serialized command to the given set.
+   *
+   * @param data    The serialized command
+   * @param results The set of blobs
+   *
+   * @throws IOException On errors parsing the command
+   */
+
+  static void referencedBy(
+    final byte[] data,
+    final LLongSet.Builder results)
+    throws IOException
+  {
+    final var properties = new Properties();
+    try (var stream = new ByteArrayInputStream(data)) {
+      properties.loadFromXML(stream);
+    }
+
+    for (final var key : properties.stringPropertyNames()) {
+      if (BLOB_KEY.matcher(key).matches()) {
+        results.add(Long.parseUnsignedLong(properties.getProperty(key)));
+      }
+    }
+  }
+
+  /**
+   * Find the blobs that are garbage.
+   *
+   * @param context The database context
+   *
+   * @return The garbage blobs
+   *
+   * @throws IOException On errors parsing history entries
+   */
+
+  static List<Long> garbage(
+    final DSLContext context)
+    throws IOException
+  {
+    final var unreferenced = unreferencedByImages(context);
+    if (unreferenced.isEmpty()) {
+      return List.of();
+    }
+
+    final var history = referencedByHistory(context);
+    final var results = new ArrayList<Long>(unreferenced.size());
+    unreferenced.forEach(blob -> {
+      if (!history.contains(blob)) {
+        results.add(Long.valueOf(blob));
+      }
+    });
+    return results;
+  }
+
+  /**
+   * Delete the given blobs, skipping any blob to which an image, an undo
+   * entry, or a redo entry refers. This must be called in a write
+   * transaction so that the checks and the delete see the same state.
+   *
+   * @param context The database context
+   * @param blobs   The blobs
+   *
+   * @return The number of blobs deleted
+   *
+   * @throws IOException On errors parsing history entries
+   */
+
+  static int delete(
+    final DSLContext context,
+    final List<Long> blobs)
+    throws IOException
+  {
+    final var history = referencedByHistory(context);
+    final var unreferenced = new ArrayList<Long>(blobs.size());
+    for (final var blob : blobs) {
+      if (!history.contains(blob.longValue())) {
+        unreferenced.add(blob);
+      }
+    }
+    if (unreferenced.isEmpty()) {
+      return 0;
+    }
+
+    return context.deleteFrom(IMAGE_BLOBS)
+      .where(IMAGE_BLOBS.IMAGE_BLOB_ID.in(unreferenced))
+      .andNotExists(
+        DSL.selectOne()
+          .from(IMAGES)
+          .where(IMAGES.IMAGE_BLOB.eq(IMAGE_BLOBS.IMAGE_BLOB_ID)))
+      .execute();
+  }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.laurel.filemodel.internal;
+
+import com.io7m.laurel.filemodel.LBucket;
+import com.io7m.laurel.filemodel.LBucketCount;
+import com.io7m.laurel.model.LImageID;
+import org.jooq.DSLContext;
+
+import javax.imageio.ImageIO;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.io7m.laurel.filemodel.internal.Tables.IMAGES;
+import static com.io7m.laurel.filemodel.internal.Tables.IMAGE_BLOBS;
+
+/**
+ * Functions to assign images to resolution buckets.
+ */
+
+public final class LBuckets
+{
+  private LBuckets()
+  {
+
+  }
+
+  /**
+   * The dimensions of an image.
+   *
+   * @param width  The width in pixels
+   * @param height The height in pixels
+   */
+
+  record Size(
+    int width,
+    int height)
+  {
+
+  }
+
+  /**
+   * Find the bucket with the aspect ratio closest to that of the given
+   * dimensions. Aspect ratios are compared in log space so that, for example,
+   * 2:1 and 1:2 are considered equally far from 1:1. Ties are broken by
+   * picking the bucket with the area closest to that of the image, and then
+   * by the order of the buckets in the list.
+   *
+   * @param buckets The buckets
+   * @param width   The image width
+   * @param height  The image height
+   *
+   * @return The closest bucket
+   */
+
+  public static LBucket bucketFor(
+    final List<LBucket> buckets,
+    final int width,
+    final int height)
+  {
+    if (buckets.isEmpty()) {
+      throw new IllegalArgumentException("At least one bucket is required.");
+    }
+
+    final var imageRatio =
+      Math.log((double) width / (double) height);
+    final var imageArea =
+      (double) width * (double) height;
+
+    LBucket best = null;
+    double bestRatioDistance = Double.POSITIVE_INFINITY;
+    double bestAreaDistance = Double.POSITIVE_INFINITY;
+
+    for (final var bucket : buckets) {
+      final var ratioDistance =
+        Math.abs(Math.log(bucket.aspectRatio()) - imageRatio);
+      final var areaDistance =
+        Math.abs((double) bucket.width() * (double) bucket.height() - imageArea);
+
+      if (ratioDistance < bestRatioDistance
+          || (ratioDistance == bestRatioDistance
+              && areaDistance < bestAreaDistance)) {
+        best = bucket;
+        bestRatioDistance = ratioDistance;
+        bestAreaDistance = areaDistance;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Count the images assigned to each bucket.
+   *
+   * @param buckets The buckets
+   * @param sizes   The image sizes
+   *
+   * @return The per-bucket counts, in bucket order
+   */
+
+  static List<LBucketCount> count(
+    final List<LBucket> buckets,
+    final Map<LImageID, Size> sizes)
+  {
+    final var counts = new LinkedHashMap<LBucket, Long>();
+    for (final var bucket : buckets) {
+      counts.put(bucket, Long.valueOf(0L));
+    }
+
+    for (final var size : sizes.values()) {
+      final var bucket = bucketFor(buckets, size.width(), size.height());
+      counts.merge(bucket, Long.valueOf(1L), Long::sum);
+    }
+
+    return counts.entrySet()
+      .stream()
+      .map(e -> new LBucketCount(e.getKey(), e.getValue().longValue()))
+      .toList();
+  }
+
+  /**
+   * Retrieve the dimensions of every image. The stored dimensions are used
+   * where present; blobs created with older versions of the schema have
+   * their headers read instead.
+   *
+   * @param context The database context
+   *
+   * @return The image sizes
+   *
+   * @throws IOException On errors reading image headers
+   */
+
+  static Map<LImageID, Size> imageSizes(
+    final DSLContext context)
+    throws IOException
+  {
+    final var records =
+      context.select(
+          IMAGES.IMAGE_ID,
+          IMAGE_BLOBS.IMAGE_BLOB_ID,
+          IMAGE_BLOBS.IMAGE_BLOB_WIDTH,
+          IMAGE_BLOBS.IMAGE_BLOB_HEIGHT)
+        .from(IMAGES)
+        .join(IMAGE_BLOBS)
+        .on(IMAGE_BLOBS.IMAGE_BLOB_ID.eq(IMAGES.IMAGE_BLOB))
+        .fetch();
+
+    final var results = new HashMap<LImageID, Size>(records.size());
+    for (final var r : records) {
+      final var id =
+        new LImageID(r.<Long>get(IMAGES.IMAGE_ID).longValue());
+      final var width =
+        r.get(IMAGE_BLOBS.IMAGE_BLOB_WIDTH);
+      final var height =
+        r.get(IMAGE_BLOBS.IMAGE_BLOB_HEIGHT);
+
+      if (width != null && height != null) {
+        results.put(id, new Size(width.intValue(), height.intValue()));
+      } else {
+        final var data =
+          context.select(IMAGE_BLOBS.IMAGE_BLOB_DATA)
+            .from(IMAGE_BLOBS)
+            .where(IMAGE_BLOBS.IMAGE_BLOB_ID.eq(r.get(IMAGE_BLOBS.IMAGE_BLOB_ID)))
+            .fetchOne(IMAGE_BLOBS.IMAGE_BLOB_DATA);
+        results.put(id, sizeOfImageData(data));
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Determine the size of the given image data by reading only the image
+   * header.
+   *
+   * @param data The image data
+   *
+   * @return The image size
+   *
+   * @throws IOException On errors
+   */
+
+  static Size sizeOfImageData(
+    final byte[] data)
+    throws IOException
+  {
+    try (var stream =
+           ImageIO.createImageInputStream(new ByteArrayInputStream(data))) {
+      final var readers = ImageIO.getImageReaders(stream);
+      if (!readers.hasNext()) {
+        throw new IOException("Unrecognized image format.");
+      }
+
+      final var reader = readers.next();
+      try {
+        reader.setInput(stream, true, true);
+        return new Size(reader.getWidth(0), reader.getHeight(0));
+      } finally {
+        reader.dispose();
+      }
+    }
+  }
+}
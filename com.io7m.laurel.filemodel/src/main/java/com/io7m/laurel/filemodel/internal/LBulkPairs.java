@@ -0,0 +1,223 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.laurel.filemodel.internal;
+
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Set-based statements over the association tables that map one ID to
+ * another (such as image captions and caption categories). Rows are
+ * inserted and deleted with one statement per chunk of pairs rather than one
+ * statement per pair, and {@code RETURNING} is used to find out which pairs
+ * were actually affected. Pairs to be deleted are first staged in a
+ * temporary table, so that the delete joins against the table rather than
+ * against a very long list of row values.
+ */
+
+final class LBulkPairs
+{
+  /**
+   * The maximum number of pairs in a single statement. Each pair uses two
+   * bind variables, and SQLite permits at most 32766 per statement.
+   */
+
+  static final int CHUNK_SIZE = 8192;
+
+  private static final Table<Record> STAGED =
+    DSL.table(DSL.name("laurel_bulk_pairs"));
+  private static final Field<Long> STAGED_LEFT =
+    DSL.field(DSL.name("laurel_bulk_pairs", "pair_left"), Long.class);
+  private static final Field<Long> STAGED_RIGHT =
+    DSL.field(DSL.name("laurel_bulk_pairs", "pair_right"), Long.class);
+
+  private LBulkPairs()
+  {
+
+  }
+
+  /**
+   * A pair of IDs.
+   *
+   * @param left  The left ID
+   * @param right The right ID
+   */
+
+  record Pair(
+    long left,
+    long right)
+  {
+
+  }
+
+  /**
+   * A function called after each chunk has been processed.
+   */
+
+  interface ProgressType
+  {
+    /**
+     * @param processed The number of pairs processed so far
+     * @param total     The total number of pairs
+     */
+
+    void onProgress(
+      int processed,
+      int total);
+  }
+
+  /**
+   * Insert the given pairs, ignoring pairs that already exist.
+   *
+   * @param context  The database context
+   * @param table    The table
+   * @param left     The left column
+   * @param right    The right column
+   * @param pairs    The pairs
+   * @param progress A progress receiver
+   * @param <R>      The type of table records
+   *
+   * @return The pairs that were inserted
+   */
+
+  static <R extends Record> List<Pair> insert(
+    final DSLContext context,
+    final Table<R> table,
+    final Field<Long> left,
+    final Field<Long> right,
+    final List<Pair> pairs,
+    final ProgressType progress)
+  {
+    final var results = new ArrayList<Pair>(pairs.size());
+    final var total = pairs.size();
+
+    for (int start = 0; start < total; start += CHUNK_SIZE) {
+      final var chunk =
+        pairs.subList(start, Math.min(total, start + CHUNK_SIZE));
+
+      var insert = context.insertInto(table, left, right);
+      for (final var pair : chunk) {
+        insert = insert.values(
+          Long.valueOf(pair.left()),
+          Long.valueOf(pair.right())
+        );
+      }
+
+      final var inserted =
+        insert.onConflictDoNothing()
+          .returning(left, right)
+          .fetch();
+
+      for (final var rec : inserted) {
+        results.add(
+          new Pair(rec.get(left).longValue(), rec.get(right).longValue())
+        );
+      }
+      progress.onProgress(start + chunk.size(), total);
+    }
+    return results;
+  }
+
+  /**
+   * Delete the given pairs.
+   *
+   * @param context  The database context
+   * @param table    The table
+   * @param left     The left column
+   * @param right    The right column
+   * @param pairs    The pairs
+   * @param progress A progress receiver
+   * @param <R>      The type of table records
+   *
+   * @return The pairs that were deleted
+   */
+
+  static <R extends Record> List<Pair> delete(
+    final DSLContext context,
+    final Table<R> table,
+    final Field<Long> left,
+    final Field<Long> right,
+    final List<Pair> pairs,
+    final ProgressType progress)
+  {
+    final var results = new ArrayList<Pair>(pairs.size());
+    final var total = pairs.size();
+
+    for (int start = 0; start < total; start += CHUNK_SIZE) {
+      final var chunk =
+        pairs.subList(start, Math.min(total, start + CHUNK_SIZE));
+
+      stage(context, chunk);
+
+      final var deleted =
+        context.deleteFrom(table)
+          .where(DSL.row(left, right).in(
+            DSL.select(STAGED_LEFT, STAGED_RIGHT).from(STAGED)))
+          .returning(left, right)
+          .fetch();
+
+      for (final var rec : deleted) {
+        results.add(
+          new Pair(rec.get(left).longValue(), rec.get(right).longValue())
+        );
+      }
+      progress.onProgress(start + chunk.size(), total);
+    }
+
+    if (total > 0) {
+      context.deleteFrom(STAGED).execute();
+    }
+    return results;
+  }
+
+  /**
+   * Replace the contents of the staging table with the given pairs. The
+   * table is temporary, and so is private to the connection.
+   *
+   * @param context The database context
+   * @param pairs   The pairs
+   */
+
+  private static void stage(
+    final DSLContext context,
+    final List<Pair> pairs)
+  {
+    context.execute("""
+      CREATE TEMPORARY TABLE IF NOT EXISTS laurel_bulk_pairs (
+        pair_left  INTEGER NOT NULL,
+        pair_right INTEGER NOT NULL,
+        PRIMARY KEY (pair_left, pair_right)
+      ) WITHOUT ROWID
+      """);
+    context.deleteFrom(STAGED).execute();
+
+    var insert = context.insertInto(STAGED, STAGED_LEFT, STAGED_RIGHT);
+    for (final var pair : pairs) {
+      insert = insert.values(
+        Long.valueOf(pair.left()),
+        Long.valueOf(pair.right())
+      );
+    }
+    insert.onConflictDoNothing().execute();
+  }
+}
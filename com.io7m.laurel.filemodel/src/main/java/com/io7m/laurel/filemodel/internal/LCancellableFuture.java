@@ -0,0 +1,131 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.laurel.filemodel.internal;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A future that cancels the underlying operation when it is cancelled.
+ *
+ * Cancelling the future only requests cancellation. The future itself is
+ * completed as cancelled by the operation, once the operation has actually
+ * stopped and rolled back any changes, using {@link #completeCancelled()}.
+ * A request that arrives after the operation has reached its commit point
+ * is refused, and the future is completed normally.
+ *
+ * Consequently, unlike {@link CompletableFuture#cancel(boolean)}, a call to
+ * {@link #cancel(boolean)} may return {@code true} whilst
+ * {@link #isCancelled()} still returns {@code false}. This is documented on
+ * the public interfaces that return these futures.
+ *
+ * @param <T> The type of results
+ */
+
+final class LCancellableFuture<T> extends CompletableFuture<T>
+{
+  private final LCancellation cancellation;
+  private volatile Runnable onCancelRequested;
+
+  LCancellableFuture(
+    final LCancellation inCancellation)
+  {
+    this.cancellation =
+      Objects.requireNonNull(inCancellation, "cancellation");
+  }
+
+  /**
+   * @return The cancellation token for the underlying operation
+   */
+
+  LCancellation cancellation()
+  {
+    return this.cancellation;
+  }
+
+  /**
+   * Set a function that is called when cancellation has been successfully
+   * requested, such as to remove an operation that has not yet started from
+   * a queue.
+   *
+   * @param receiver The function
+   */
+
+  void onCancelRequested(
+    final Runnable receiver)
+  {
+    this.onCancelRequested =
+      Objects.requireNonNull(receiver, "receiver");
+  }
+
+  /**
+   * Complete the future as cancelled. This is called by the operation once
+   * it has stopped.
+   *
+   * @return {@code true} if this call completed the future
+   */
+
+  boolean completeCancelled()
+  {
+    return super.cancel(false);
+  }
+
+  /**
+   * Complete the future after the operation failed. If the operation was
+   * cancelled, the future is completed as cancelled.
+   *
+   * @param e The failure
+   */
+
+  void completeFailed(
+    final Throwable e)
+  {
+    if (this.cancellation.isCancelled()) {
+      this.completeCancelled();
+    } else {
+      this.completeExceptionally(e);
+    }
+  }
+
+  /**
+   * Request cancellation of the operation.
+   *
+   * @param mayInterruptIfRunning Ignored
+   *
+   * @return {@code true} if the future is cancelled or will be completed as
+   * cancelled, {@code false} if the operation has already completed or
+   * reached its commit point
+   */
+
+  @Override
+  public boolean cancel(
+    final boolean mayInterruptIfRunning)
+  {
+    if (this.isDone()) {
+      return this.isCancelled();
+    }
+    if (!this.cancellation.cancel()) {
+      return false;
+    }
+
+    final var receiver = this.onCancelRequested;
+    if (receiver != null) {
+      receiver.run();
+    }
+    return true;
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.laurel.filemodel.internal;
+
+import com.io7m.laurel.model.LException;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A cooperative cancellation token. Long-running operations call
+ * {@link #check()} between units of work (rows, files, images); once the
+ * token has been cancelled, the check fails and the operation's transaction
+ * is rolled back. Transactional operations call {@link #commitPoint()}
+ * immediately before committing; from then on, cancellation is refused, so
+ * that an operation is never reported as cancelled after its changes have
+ * been applied.
+ */
+
+public final class LCancellation
+{
+  private static final LCancellation NEVER =
+    new LCancellation();
+
+  private static final int STATE_RUNNING = 0;
+  private static final int STATE_CANCELLED = 1;
+  private static final int STATE_COMMITTING = 2;
+
+  private final AtomicInteger state;
+
+  /**
+   * A cooperative cancellation token.
+   */
+
+  public LCancellation()
+  {
+    this.state = new AtomicInteger(STATE_RUNNING);
+  }
+
+  /**
+   * @return A token that is never cancelled
+   */
+
+  public static LCancellation never()
+  {
+    return NEVER;
+  }
+
+  /**
+   * Cancel the operation.
+   *
+   * @return {@code true} if the operation has been cancelled, or
+   * {@code false} if the operation has already reached its commit point
+   */
+
+  public boolean cancel()
+  {
+    if (this == NEVER) {
+      return false;
+    }
+    this.state.compareAndSet(STATE_RUNNING, STATE_CANCELLED);
+    return this.isCancelled();
+  }
+
+  /**
+   * @return {@code true} if the operation has been cancelled
+   */
+
+  public boolean isCancelled()
+  {
+    return this.state.get() == STATE_CANCELLED;
+  }
+
+  /**
+   * Indicate that the operation is about to commit. Any later attempt to
+   * cancel the operation fails.
+   *
+   * @throws LException If the operation has already been cancelled
+   */
+
+  public void commitPoint()
+    throws LException
+  {
+    if (this == NEVER) {
+      return;
+    }
+    this.state.compareAndSet(STATE_RUNNING, STATE_COMMITTING);
+    this.check();
+  }
+
+  /**
+   * Check if the operation has been cancelled.
+   *
+   * @throws LException If the operation has been cancelled
+   */
+
+  public void check()
+    throws LException
+  {
+    if (this.isCancelled()) {
+      throw new LException(
+        "The operation was cancelled.",
+        "error-cancelled",
+        Map.of(),
+        Optional.empty()
+      );
+    }
+  }
+}
@@ -110,16 +110,34 @@ public final class LCaptionFiles
   {
     attributes.put("File", outputFile);
 
-    final var rawLines =
-      new ArrayList<String>(globalCaptions.size() + captions.size());
-    globalCaptions.forEach(x -> rawLines.add(x.caption().name().text()));
-    captions.forEach(x -> rawLines.add(x.name().text()));
-
     Files.writeString(
       outputFile,
-      String.join(",\n", rawLines),
+      serializeToString(
+        globalCaptions,
+        captions.stream().map(x -> x.name().text()).toList()
+      ),
       UTF_8,
       OPEN_OPTIONS
     );
   }
+
+  /**
+   * Serialize captions to a string in caption file format.
+   *
+   * @param globalCaptions The global captions
+   * @param captions       The caption texts
+   *
+   * @return The caption file text
+   */
+
+  public static String serializeToString(
+    final List<LGlobalCaption> globalCaptions,
+    final List<String> captions)
+  {
+    final var rawLines =
+      new ArrayList<String>(globalCaptions.size() + captions.size());
+    globalCaptions.forEach(x -> rawLines.add(x.caption().name().text()));
+    rawLines.addAll(captions);
+    return String.join(",\n", rawLines);
+  }
 }
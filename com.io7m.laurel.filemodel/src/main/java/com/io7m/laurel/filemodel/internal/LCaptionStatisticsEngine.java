@@ -0,0 +1,644 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.laurel.filemodel.internal;
+
+import com.io7m.laurel.filemodel.LCaptionCooccurrence;
+import com.io7m.laurel.filemodel.LCaptionStatistics;
+import com.io7m.laurel.filemodel.LCaptionStatisticsRequest;
+import com.io7m.laurel.filemodel.LCaptionSuggestion;
+import com.io7m.laurel.filemodel.LImageOutlier;
+import com.io7m.laurel.model.LCaption;
+import com.io7m.laurel.model.LImageID;
+import com.io7m.laurel.model.LLongMap;
+import com.io7m.laurel.model.LLongSet;
+import org.jooq.DSLContext;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import static com.io7m.laurel.filemodel.internal.Tables.IMAGES;
+import static com.io7m.laurel.filemodel.internal.Tables.IMAGE_CAPTIONS;
+
+/**
+ * An in-memory index of caption assignments, holding the set of captions
+ * assigned to each image, the number of images to which each caption is
+ * assigned, and a sparse, symmetric caption×caption co-occurrence matrix.
+ *
+ * The index is built from the {@code image_captions} table on first use, and
+ * is then kept up-to-date incrementally by the commands that assign and
+ * unassign captions, and that delete images. Commands that change assignments
+ * in other ways (such as by deleting captions) invalidate the index, as does
+ * any rolled back transaction, and the index is rebuilt on next use.
+ *
+ * The index may also be built without holding the command lock, into a
+ * separate engine that is then installed with
+ * {@link #install(LCaptionStatisticsEngine, long)}. Every change to the
+ * index, valid or not, increments a version number, and the installation
+ * is refused if the version has changed since the build started.
+ *
+ * Caption suggestions for an image are derived from the index by summing,
+ * for each caption on the image, the conditional probability of each other
+ * caption appearing alongside it. The most recent suggestions are cached
+ * until the index or the caption list changes.
+ */
+
+final class LCaptionStatisticsEngine
+{
+  private static final Comparator<LCaptionCooccurrence> BY_COUNT =
+    Comparator.comparingLong(LCaptionCooccurrence::count)
+      .reversed()
+      .thenComparing(LCaptionCooccurrence::captionA)
+      .thenComparing(LCaptionCooccurrence::captionB);
+
+  private static final Comparator<LImageOutlier> BY_SCORE =
+    Comparator.comparingDouble(LImageOutlier::score)
+      .reversed()
+      .thenComparing(LImageOutlier::image);
+
+  private static final Comparator<LCaption> BY_FREQUENCY =
+    Comparator.comparingLong(LCaption::count)
+      .reversed()
+      .thenComparing(Comparator.naturalOrder());
+
+  /**
+   * The maximum number of suggestions produced for an image.
+   */
+
+  static final int SUGGESTIONS_MAXIMUM = 100;
+
+  private static final Comparator<LCaptionSuggestion> BY_SCORE_SUGGESTED =
+    Comparator.comparingDouble(LCaptionSuggestion::score)
+      .reversed()
+      .thenComparing(LCaptionSuggestion::caption);
+
+  private LLongMap<LLongSet> imageCaptions;
+  private long captionedImages;
+  private LLongMap<long[]> frequencies;
+  private LLongMap<LLongMap<long[]>> cooccurrences;
+  private boolean valid;
+  private long version;
+  private long suggestionsImage;
+  private long suggestionsVersion;
+  private List<LCaption> suggestionsCaptions;
+  private List<LCaptionSuggestion> suggestions;
+
+  /**
+   * A function called periodically whilst the index is being built.
+   *
+   * @param <E> The type of exceptions raised by the function
+   */
+
+  interface ProgressType<E extends Exception>
+  {
+    /**
+     * @param processed The number of assignments processed so far
+     * @param total     The total number of assignments
+     *
+     * @throws E On errors, such as cancellation
+     */
+
+    void onProgress(
+      int processed,
+      int total)
+      throws E;
+  }
+
+  LCaptionStatisticsEngine()
+  {
+    this.imageCaptions = new LLongMap<>(0);
+    this.captionedImages = 0L;
+    this.frequencies = new LLongMap<>(0);
+    this.cooccurrences = new LLongMap<>(0);
+    this.valid = false;
+    this.version = 0L;
+    this.suggestionsVersion = -1L;
+    this.suggestionsCaptions = List.of();
+    this.suggestions = List.of();
+  }
+
+  /**
+   * @return {@code true} if the index is up-to-date
+   */
+
+  synchronized boolean isValid()
+  {
+    return this.valid;
+  }
+
+  /**
+   * @return The version number of the index
+   */
+
+  synchronized long version()
+  {
+    return this.version;
+  }
+
+  /**
+   * Replace the contents of this index with the contents of an index built
+   * elsewhere, if this index has not changed since the given version was
+   * observed.
+   *
+   * @param built    The built index
+   * @param expected The version observed before building started
+   *
+   * @return {@code true} if the index was installed
+   */
+
+  boolean install(
+    final LCaptionStatisticsEngine built,
+    final long expected)
+  {
+    synchronized (built) {
+      synchronized (this) {
+        if (this.version != expected || !built.valid) {
+          return false;
+        }
+
+        this.imageCaptions = built.imageCaptions;
+        this.captionedImages = built.captionedImages;
+        this.frequencies = built.frequencies;
+        this.cooccurrences = built.cooccurrences;
+        this.valid = true;
+        ++this.version;
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Discard the index; it will be rebuilt on next use.
+   */
+
+  synchronized void invalidate()
+  {
+    this.valid = false;
+    ++this.version;
+    this.imageCaptions = new LLongMap<>(0);
+    this.captionedImages = 0L;
+    this.frequencies = new LLongMap<>(0);
+    this.cooccurrences = new LLongMap<>(0);
+  }
+
+  /**
+   * Rebuild the index from the database.
+   *
+   * @param context  The database context
+   * @param progress A progress receiver
+   * @param <E>      The type of exceptions raised by the progress receiver
+   *
+   * @throws E On errors
+   */
+
+  synchronized <E extends Exception> void rebuild(
+    final DSLContext context,
+    final ProgressType<E> progress)
+    throws E
+  {
+    this.invalidate();
+
+    final var total =
+      context.fetchCount(IMAGE_CAPTIONS);
+
+    var processed = 0;
+    try (var cursor =
+           context.select(
+               IMAGE_CAPTIONS.IMAGE_CAPTION_IMAGE,
+               IMAGE_CAPTIONS.IMAGE_CAPTION_CAPTION)
+             .from(IMAGE_CAPTIONS)
+             .orderBy(IMAGE_CAPTIONS.IMAGE_CAPTION_IMAGE)
+             .fetchLazy()) {
+
+      var image = 0L;
+      var captions = LLongSet.builder(16);
+      var started = false;
+
+      for (final var r : cursor) {
+        final var rowImage = r.value1().longValue();
+        if (started && rowImage != image) {
+          this.addImage(image, captions.build());
+          captions = LLongSet.builder(16);
+          progress.onProgress(processed, total);
+        }
+        image = rowImage;
+        started = true;
+        captions.add(r.value2().longValue());
+        ++processed;
+      }
+
+      if (started) {
+        this.addImage(image, captions.build());
+      }
+    }
+
+    progress.onProgress(processed, total);
+    this.valid = true;
+    ++this.version;
+  }
+
+  /**
+   * Rebuild the index from the database if it is not up-to-date.
+   *
+   * @param context The database context
+   */
+
+  synchronized void ensureValid(
+    final DSLContext context)
+  {
+    if (!this.valid) {
+      this.rebuild(context, (processed, total) -> {
+
+      });
+    }
+  }
+
+  private void addImage(
+    final long image,
+    final LLongSet captions)
+  {
+    if (captions.isEmpty()) {
+      return;
+    }
+
+    this.imageCaptions.put(image, captions);
+    ++this.captionedImages;
+
+    final var size = captions.size();
+    for (int a = 0; a < size; ++a) {
+      final var captionA = captions.get(a);
+      this.frequencyAdd(captionA, 1L);
+      for (int b = a + 1; b < size; ++b) {
+        final var captionB = captions.get(b);
+        this.cooccurrenceAdd(captionA, captionB, 1L);
+        this.cooccurrenceAdd(captionB, captionA, 1L);
+      }
+    }
+  }
+
+  private void frequencyAdd(
+    final long caption,
+    final long delta)
+  {
+    var cell = this.frequencies.get(caption);
+    if (cell == null) {
+      cell = new long[1];
+      this.frequencies.put(caption, cell);
+    }
+    cell[0] += delta;
+  }
+
+  private void cooccurrenceAdd(
+    final long captionA,
+    final long captionB,
+    final long delta)
+  {
+    var row = this.cooccurrences.get(captionA);
+    if (row == null) {
+      row = new LLongMap<>(8);
+      this.cooccurrences.put(captionA, row);
+    }
+
+    var cell = row.get(captionB);
+    if (cell == null) {
+      cell = new long[1];
+      row.put(captionB, cell);
+    }
+    cell[0] += delta;
+  }
+
+  /**
+   * Record that captions have been assigned to images.
+   *
+   * @param pairs The (image, caption) pairs that were inserted
+   */
+
+  synchronized void assigned(
+    final List<LBulkPairs.Pair> pairs)
+  {
+    ++this.version;
+    if (!this.valid) {
+      return;
+    }
+
+    for (final var pair : pairs) {
+      final var image = pair.left();
+      final var caption = pair.right();
+      final var existing = this.imageCaptions.get(image);
+      final var current = existing == null ? LLongSet.empty() : existing;
+      if (current.contains(caption)) {
+        continue;
+      }
+
+      for (int index = 0; index < current.size(); ++index) {
+        final var other = current.get(index);
+        this.cooccurrenceAdd(caption, other, 1L);
+        this.cooccurrenceAdd(other, caption, 1L);
+      }
+      this.frequencyAdd(caption, 1L);
+      if (current.isEmpty()) {
+        ++this.captionedImages;
+      }
+      this.imageCaptions.put(image, current.with(caption));
+    }
+  }
+
+  /**
+   * Record that captions have been unassigned from images.
+   *
+   * @param pairs The (image, caption) pairs that were deleted
+   */
+
+  synchronized void unassigned(
+    final List<LBulkPairs.Pair> pairs)
+  {
+    ++this.version;
+    if (!this.valid) {
+      return;
+    }
+
+    for (final var pair : pairs) {
+      final var image = pair.left();
+      final var caption = pair.right();
+      final var existing = this.imageCaptions.get(image);
+      if (existing == null || !existing.contains(caption)) {
+        continue;
+      }
+
+      final var remaining = existing.without(caption);
+      for (int index = 0; index < remaining.size(); ++index) {
+        final var other = remaining.get(index);
+        this.cooccurrenceAdd(caption, other, -1L);
+        this.cooccurrenceAdd(other, caption, -1L);
+      }
+      this.frequencyAdd(caption, -1L);
+
+      /*
+       * Images without captions are not kept in the index, so that the
+       * number of captioned images stays accurate.
+       */
+
+      if (remaining.isEmpty()) {
+        this.imageCaptions.remove(image);
+        --this.captionedImages;
+      } else {
+        this.imageCaptions.put(image, remaining);
+      }
+    }
+  }
+
+  /**
+   * Record that an image has been deleted, along with its caption
+   * assignments.
+   *
+   * @param image The image
+   */
+
+  synchronized void imageDeleted(
+    final long image)
+  {
+    ++this.version;
+    if (!this.valid) {
+      return;
+    }
+
+    final var captions = this.imageCaptions.get(image);
+    if (captions == null) {
+      return;
+    }
+
+    final var pairs = new ArrayList<LBulkPairs.Pair>(captions.size());
+    captions.forEach(c -> pairs.add(new LBulkPairs.Pair(image, c)));
+    this.unassigned(pairs);
+  }
+
+  /**
+   * Suggest captions for the given image. Captions already assigned to the
+   * image are never suggested. If the image has no captions, captions are
+   * ranked by the fraction of captioned images to which they are assigned.
+   *
+   * @param image    The image
+   * @param captions The list of all captions
+   *
+   * @return The suggested captions, best first
+   */
+
+  synchronized List<LCaptionSuggestion> suggestions(
+    final long image,
+    final List<LCaption> captions)
+  {
+    if (this.suggestionsImage == image
+        && this.suggestionsVersion == this.version
+        && this.suggestionsCaptions == captions) {
+      return this.suggestions;
+    }
+
+    final var captionsById = new LLongMap<LCaption>(captions.size());
+    for (final var caption : captions) {
+      captionsById.put(caption.id().value(), caption);
+    }
+
+    final var existing = this.imageCaptions.get(image);
+    final var assigned = existing == null ? LLongSet.empty() : existing;
+    final var scores = new LLongMap<double[]>(64);
+
+    if (assigned.isEmpty()) {
+      final var captioned = (double) Math.max(1L, this.captionedImages);
+      this.frequencies.forEach((cell, caption) -> {
+        if (cell[0] > 0L) {
+          scores.put(caption, new double[]{(double) cell[0] / captioned});
+        }
+      });
+    } else {
+      final var size = assigned.size();
+      for (int index = 0; index < size; ++index) {
+        final var captionA = assigned.get(index);
+        final var frequency = this.frequencies.get(captionA);
+        final var row = this.cooccurrences.get(captionA);
+        if (frequency == null || frequency[0] <= 0L || row == null) {
+          continue;
+        }
+
+        final var weight = 1.0 / ((double) frequency[0] * (double) size);
+        row.forEach((cell, captionB) -> {
+          if (cell[0] <= 0L || assigned.contains(captionB)) {
+            return;
+          }
+
+          var score = scores.get(captionB);
+          if (score == null) {
+            score = new double[1];
+            scores.put(captionB, score);
+          }
+          score[0] += (double) cell[0] * weight;
+        });
+      }
+    }
+
+    final var heap =
+      new PriorityQueue<LCaptionSuggestion>(
+        SUGGESTIONS_MAXIMUM + 1,
+        BY_SCORE_SUGGESTED.reversed()
+      );
+
+    scores.forEach((score, caption) -> {
+      final var c = captionsById.get(caption);
+      if (c == null) {
+        return;
+      }
+      heap.add(new LCaptionSuggestion(c, score[0]));
+      if (heap.size() > SUGGESTIONS_MAXIMUM) {
+        heap.poll();
+      }
+    });
+
+    final var results = new ArrayList<>(heap);
+    results.sort(BY_SCORE_SUGGESTED);
+
+    this.suggestionsImage = image;
+    this.suggestionsVersion = this.version;
+    this.suggestionsCaptions = captions;
+    this.suggestions = List.copyOf(results);
+    return this.suggestions;
+  }
+
+  /**
+   * Produce statistics from the current state of the index.
+   *
+   * @param context The database context
+   * @param request The request
+   *
+   * @return The statistics
+   */
+
+  synchronized LCaptionStatistics statistics(
+    final DSLContext context,
+    final LCaptionStatisticsRequest request)
+  {
+    final var imageCount =
+      context.fetchCount(IMAGES);
+    final var captions =
+      LCommandModelUpdates.listCaptionsAll(context);
+    final var captionsById =
+      new LLongMap<LCaption>(captions.size());
+
+    for (final var caption : captions) {
+      captionsById.put(caption.id().value(), caption);
+    }
+
+    final var frequencies =
+      captions.stream()
+        .sorted(BY_FREQUENCY)
+        .toList();
+
+    return new LCaptionStatistics(
+      imageCount,
+      frequencies,
+      this.topCooccurrences(captionsById, request),
+      this.topOutliers(imageCount, request.limit())
+    );
+  }
+
+  private List<LCaptionCooccurrence> topCooccurrences(
+    final LLongMap<LCaption> captionsById,
+    final LCaptionStatisticsRequest request)
+  {
+    final var limit = request.limit();
+    final var heap =
+      new PriorityQueue<LCaptionCooccurrence>(limit + 1, BY_COUNT.reversed());
+
+    final var onlyCaption = request.caption();
+    this.cooccurrences.forEach((row, captionA) -> {
+      if (onlyCaption.isPresent()
+          && onlyCaption.get().value() != captionA) {
+        return;
+      }
+
+      row.forEach((cell, captionB) -> {
+        final var count = cell[0];
+        if (count <= 0L) {
+          return;
+        }
+
+        /*
+         * The matrix is symmetric; each unordered pair is only reported
+         * once unless the results are restricted to a single caption.
+         */
+
+        if (onlyCaption.isEmpty() && captionA > captionB) {
+          return;
+        }
+
+        final var a = captionsById.get(captionA);
+        final var b = captionsById.get(captionB);
+        if (a == null || b == null) {
+          return;
+        }
+
+        heap.add(new LCaptionCooccurrence(a, b, count));
+        if (heap.size() > limit) {
+          heap.poll();
+        }
+      });
+    });
+
+    final var results = new ArrayList<>(heap);
+    results.sort(BY_COUNT);
+    return results;
+  }
+
+  private List<LImageOutlier> topOutliers(
+    final long imageCount,
+    final int limit)
+  {
+    final var heap =
+      new PriorityQueue<LImageOutlier>(limit + 1, BY_SCORE.reversed());
+
+    this.imageCaptions.forEach((captions, image) -> {
+      final var size = captions.size();
+      if (size == 0 || imageCount == 0L) {
+        return;
+      }
+
+      var information = 0.0;
+      for (int index = 0; index < size; ++index) {
+        final var cell = this.frequencies.get(captions.get(index));
+        final var frequency = cell == null ? 1L : Math.max(1L, cell[0]);
+        information += log2((double) imageCount / (double) frequency);
+      }
+
+      heap.add(
+        new LImageOutlier(new LImageID(image), size, information / size)
+      );
+      if (heap.size() > limit) {
+        heap.poll();
+      }
+    });
+
+    final var results = new ArrayList<>(heap);
+    results.sort(BY_SCORE);
+    return results;
+  }
+
+  private static double log2(
+    final double x)
+  {
+    return Math.log(x) / Math.log(2.0);
+  }
+}
@@ -32,6 +32,7 @@ public abstract class LCommandAbstract<T>
   implements LCommandType<T>
 {
   private boolean executed;
+  private LCancellation cancellation = LCancellation.never();
 
   /**
    * @return {@code true} if this command has ever successfully executed
@@ -54,6 +55,19 @@ public abstract class LCommandAbstract<T>
     this.executed = e;
   }
 
+  /**
+   * Check if the currently executing command has been cancelled. Commands
+   * that iterate over rows or files call this between units of work.
+   *
+   * @throws LException If the command has been cancelled
+   */
+
+  protected final void checkCancelled()
+    throws LException
+  {
+    this.cancellation.check();
+  }
+
   protected abstract LCommandUndoable onExecute(
     LFileModel model,
     LDatabaseTransactionType transaction,
@@ -74,16 +88,25 @@ public abstract class LCommandAbstract<T>
   public final LCommandUndoable execute(
     final LFileModel model,
     final LDatabaseTransactionType transaction,
-    final T parameters)
+    final T parameters,
+    final LCancellation inCancellation)
     throws LException, DDatabaseException
   {
     Objects.requireNonNull(model, "model");
     Objects.requireNonNull(transaction, "transaction");
     Objects.requireNonNull(parameters, "parameters");
 
-    final var r = this.onExecute(model, transaction, parameters);
-    this.setExecuted(true);
-    return r;
+    this.cancellation =
+      Objects.requireNonNull(inCancellation, "cancellation");
+
+    try {
+      this.cancellation.check();
+      final var r = this.onExecute(model, transaction, parameters);
+      this.setExecuted(true);
+      return r;
+    } finally {
+      this.cancellation = LCancellation.never();
+    }
   }
 
   @Override
@@ -19,6 +19,7 @@ package com.io7m.laurel.filemodel.internal;
 
 import com.io7m.laurel.model.LCaptionID;
 import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -26,6 +27,8 @@ import java.util.Properties;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import static com.io7m.laurel.filemodel.internal.LPreparedQueries.executeBatch;
+import static com.io7m.laurel.filemodel.internal.LPreparedQueries.longParam;
 import static com.io7m.laurel.filemodel.internal.Tables.CAPTIONS;
 import static com.io7m.laurel.filemodel.internal.Tables.CAPTION_CATEGORIES;
 import static com.io7m.laurel.filemodel.internal.Tables.IMAGE_CAPTIONS;
@@ -122,48 +125,64 @@ public final class LCommandCaptionDelete
     final var context =
       transaction.get(DSLContext.class);
 
-    int index = 0;
-    for (final var caption : captions) {
-      model.eventWithProgressCurrentMax(
-        index,
-        captions.size(),
-        "Deleting caption %s",
-        caption
-      );
-      ++index;
-
-      final var categories =
-        context.select(CAPTION_CATEGORIES.CAPTION_CATEGORY_ID)
-          .from(CAPTION_CATEGORIES)
-          .where(CAPTION_CATEGORIES.CAPTION_CAPTION_ID.eq(caption.value()))
-          .orderBy(CAPTION_CATEGORIES.CAPTION_CAPTION_ID)
-          .fetchSet(CAPTION_CATEGORIES.CAPTION_CATEGORY_ID);
-
-      final var images =
-        context.select(IMAGE_CAPTIONS.IMAGE_CAPTION_IMAGE)
-          .from(IMAGE_CAPTIONS)
-          .where(IMAGE_CAPTIONS.IMAGE_CAPTION_CAPTION.eq(caption.value()))
-          .orderBy(IMAGE_CAPTIONS.IMAGE_CAPTION_IMAGE)
-          .fetchSet(IMAGE_CAPTIONS.IMAGE_CAPTION_IMAGE);
-
-      final var deleted =
-        context.deleteFrom(CAPTIONS)
-          .where(CAPTIONS.CAPTION_ID.eq(caption.value()))
-          .returning(CAPTIONS.CAPTION_TEXT)
-          .fetchOne(CAPTIONS.CAPTION_TEXT);
-
-      if (deleted == null) {
-        continue;
+    try (var selectCategories =
+           context.select(CAPTION_CATEGORIES.CAPTION_CATEGORY_ID)
+             .from(CAPTION_CATEGORIES)
+             .where(
+               CAPTION_CATEGORIES.CAPTION_CAPTION_ID.eq(longParam("caption"))
+             )
+             .orderBy(CAPTION_CATEGORIES.CAPTION_CAPTION_ID)
+             .keepStatement(true);
+         var selectImages =
+           context.select(IMAGE_CAPTIONS.IMAGE_CAPTION_IMAGE)
+             .from(IMAGE_CAPTIONS)
+             .where(
+               IMAGE_CAPTIONS.IMAGE_CAPTION_CAPTION.eq(longParam("caption"))
+             )
+             .orderBy(IMAGE_CAPTIONS.IMAGE_CAPTION_IMAGE)
+             .keepStatement(true);
+         var delete =
+           context.deleteFrom(CAPTIONS)
+             .where(CAPTIONS.CAPTION_ID.eq(longParam("caption")))
+             .returning(CAPTIONS.CAPTION_TEXT)
+             .keepStatement(true)) {
+
+      int index = 0;
+      for (final var caption : captions) {
+        model.eventWithProgressCurrentMax(
+          index,
+          captions.size(),
+          "Deleting caption %s",
+          caption
+        );
+        ++index;
+
+        final var captionId =
+          Long.valueOf(caption.value());
+        final var categories =
+          selectCategories.bind(1, captionId)
+            .fetchSet(CAPTION_CATEGORIES.CAPTION_CATEGORY_ID);
+        final var images =
+          selectImages.bind(1, captionId)
+            .fetchSet(IMAGE_CAPTIONS.IMAGE_CAPTION_IMAGE);
+        final var deleted =
+          delete.bind(1, captionId)
+            .fetchOne(CAPTIONS.CAPTION_TEXT);
+
+        if (deleted == null) {
+          continue;
+        }
+
+        this.savedData.add(
+          new SavedData(caption.value(), deleted, images, categories)
+        );
       }
-
-      this.savedData.add(
-        new SavedData(caption.value(), deleted, images, categories)
-      );
     }
 
     if (this.savedData.isEmpty()) {
       return LCommandUndoable.COMMAND_NOT_UNDOABLE;
     } else {
+      model.captionStatisticsEngine().invalidate();
       LCommandModelUpdates.updateCaptionsAndCategories(context, model);
       return LCommandUndoable.COMMAND_UNDOABLE;
     }
@@ -177,6 +196,28 @@ public final class LCommandCaptionDelete
     final var context =
       transaction.get(DSLContext.class);
 
+    final var insertCaptions =
+      context.batch(
+        context.insertInto(CAPTIONS)
+          .set(CAPTIONS.CAPTION_ID, longParam("caption"))
+          .set(CAPTIONS.CAPTION_TEXT, DSL.param("text", String.class))
+          .onConflictDoNothing()
+      );
+    final var insertCategories =
+      context.batch(
+        context.insertInto(CAPTION_CATEGORIES)
+          .set(CAPTION_CATEGORIES.CAPTION_CAPTION_ID, longParam("caption"))
+          .set(CAPTION_CATEGORIES.CAPTION_CATEGORY_ID, longParam("category"))
+          .onConflictDoNothing()
+      );
+    final var insertImages =
+      context.batch(
+        context.insertInto(IMAGE_CAPTIONS)
+          .set(IMAGE_CAPTIONS.IMAGE_CAPTION_CAPTION, longParam("caption"))
+          .set(IMAGE_CAPTIONS.IMAGE_CAPTION_IMAGE, longParam("image"))
+          .onConflictDoNothing()
+      );
+
     int index = 0;
     for (final var data : this.savedData) {
       model.eventWithProgressCurrentMax(
@@ -187,29 +228,26 @@ public final class LCommandCaptionDelete
       );
       ++index;
 
-      context.insertInto(CAPTIONS)
-        .set(CAPTIONS.CAPTION_ID, data.captionId)
-        .set(CAPTIONS.CAPTION_TEXT, data.captionText)
-        .onConflictDoNothing()
-        .execute();
+      final var captionId = Long.valueOf(data.captionId);
+      insertCaptions.bind(captionId, data.captionText);
 
       for (final var category : data.categories) {
-        context.insertInto(CAPTION_CATEGORIES)
-          .set(CAPTION_CATEGORIES.CAPTION_CAPTION_ID, data.captionId)
-          .set(CAPTION_CATEGORIES.CAPTION_CATEGORY_ID, category)
-          .onConflictDoNothing()
-          .execute();
+        insertCategories.bind(captionId, category);
       }
-
       for (final var image : data.images) {
-        context.insertInto(IMAGE_CAPTIONS)
-          .set(IMAGE_CAPTIONS.IMAGE_CAPTION_CAPTION, data.captionId)
-          .set(IMAGE_CAPTIONS.IMAGE_CAPTION_IMAGE, image)
-          .onConflictDoNothing()
-          .execute();
+        insertImages.bind(captionId, image);
       }
     }
 
+    /*
+     * Captions must exist before their assignments are restored.
+     */
+
+    executeBatch(insertCaptions);
+    executeBatch(insertCategories);
+    executeBatch(insertImages);
+
+    model.captionStatisticsEngine().invalidate();
     LCommandModelUpdates.updateCaptionsAndCategories(context, model);
   }
 
@@ -221,6 +259,12 @@ public final class LCommandCaptionDelete
     final var context =
       transaction.get(DSLContext.class);
 
+    final var delete =
+      context.batch(
+        context.deleteFrom(CAPTIONS)
+          .where(CAPTIONS.CAPTION_ID.eq(longParam("caption")))
+      );
+
     int index = 0;
     for (final var data : this.savedData) {
       model.eventWithProgressCurrentMax(
@@ -231,11 +275,11 @@ public final class LCommandCaptionDelete
       );
       ++index;
 
-      context.deleteFrom(CAPTIONS)
-        .where(CAPTIONS.CAPTION_ID.eq(data.captionId))
-        .execute();
+      delete.bind(Long.valueOf(data.captionId));
     }
+    executeBatch(delete);
 
+    model.captionStatisticsEngine().invalidate();
     LCommandModelUpdates.updateCaptionsAndCategories(context, model);
   }
 
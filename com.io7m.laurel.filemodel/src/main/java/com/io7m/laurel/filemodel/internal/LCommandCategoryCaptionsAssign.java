@@ -22,7 +22,6 @@ import org.jooq.DSLContext;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Properties;
 
 import static com.io7m.laurel.filemodel.internal.Tables.CAPTION_CATEGORIES;
@@ -94,6 +93,12 @@ public final class LCommandCategoryCaptionsAssign
     return c;
   }
 
+  @Override
+  public boolean isCoalescable()
+  {
+    return true;
+  }
+
   @Override
   protected LCommandUndoable onExecute(
     final LFileModel model,
@@ -103,62 +108,40 @@ public final class LCommandCategoryCaptionsAssign
     final var context =
       transaction.get(DSLContext.class);
 
-    final var max =
-      categories.stream()
-        .mapToInt(c -> c.captions().size())
-        .sum();
-
-    final var entries =
+    final var pairs =
       categories.stream()
         .flatMap(c -> {
           return c.captions()
             .stream()
-            .map(t -> Map.entry(c.category(), t));
+            .map(t -> new LBulkPairs.Pair(c.category().value(), t.value()));
         })
         .toList();
 
-    int index = 0;
-    for (final var entry : entries) {
-      final var category =
-        entry.getKey();
-      final var caption =
-        entry.getValue();
-
-      model.eventWithProgressCurrentMax(
-        index,
-        max,
-        "Assigning caption to category '%s'.",
-        category
+    final var affected =
+      LBulkPairs.insert(
+        context,
+        CAPTION_CATEGORIES,
+        CAPTION_CATEGORIES.CAPTION_CATEGORY_ID,
+        CAPTION_CATEGORIES.CAPTION_CAPTION_ID,
+        pairs,
+        (processed, total) -> {
+          model.eventWithProgressCurrentMax(
+            processed,
+            total,
+            "Assigning captions to categories."
+          );
+        }
       );
 
-      final var recOpt =
-        context.insertInto(CAPTION_CATEGORIES)
-          .set(CAPTION_CATEGORIES.CAPTION_CATEGORY_ID, category.value())
-          .set(CAPTION_CATEGORIES.CAPTION_CAPTION_ID, caption.value())
-          .onConflictDoNothing()
-          .returning(
-            CAPTION_CATEGORIES.CAPTION_CATEGORY_ID,
-            CAPTION_CATEGORIES.CAPTION_CAPTION_ID)
-          .fetchOptional();
-
-      ++index;
-
-      if (recOpt.isEmpty()) {
-        model.eventWithProgressCurrentMax(
-          index,
-          max,
-          "Category/caption either did not exist or was already assigned.",
-          category
-        );
-        continue;
-      }
+    for (final var pair : affected) {
+      this.savedData.add(new SavedData(pair.left(), pair.right()));
+    }
 
-      final var rec = recOpt.get();
-      this.savedData.add(
-        new SavedData(
-          rec.get(CAPTION_CATEGORIES.CAPTION_CATEGORY_ID).longValue(),
-          rec.get(CAPTION_CATEGORIES.CAPTION_CAPTION_ID).longValue()
-        )
+    final var skipped = pairs.size() - affected.size();
+    if (skipped > 0) {
+      model.eventWithoutProgress(
+        "%d category/caption pairs either did not exist or were already assigned.",
+        Integer.valueOf(skipped)
       );
     }
 
@@ -172,6 +155,13 @@ public final class LCommandCategoryCaptionsAssign
     return LCommandUndoable.COMMAND_NOT_UNDOABLE;
   }
 
+  private List<LBulkPairs.Pair> savedPairs()
+  {
+    return this.savedData.stream()
+      .map(d -> new LBulkPairs.Pair(d.categoryId, d.tagId))
+      .toList();
+  }
+
   @Override
   protected void onUndo(
     final LFileModel model,
@@ -181,23 +171,20 @@ public final class LCommandCategoryCaptionsAssign
       transaction.get(DSLContext.class);
 
     final var max = this.savedData.size();
-    for (int index = 0; index < max; ++index) {
-      final var data = this.savedData.get(index);
-
-      model.eventWithProgressCurrentMax(
-        index,
-        max,
-        "Unassigning caption from category."
-      );
-
-      final var matches =
-        CAPTION_CATEGORIES.CAPTION_CATEGORY_ID.eq(data.categoryId())
-          .and(CAPTION_CATEGORIES.CAPTION_CAPTION_ID.eq(data.tagId()));
-
-      context.deleteFrom(CAPTION_CATEGORIES)
-        .where(matches)
-        .execute();
-    }
+    LBulkPairs.delete(
+      context,
+      CAPTION_CATEGORIES,
+      CAPTION_CATEGORIES.CAPTION_CATEGORY_ID,
+      CAPTION_CATEGORIES.CAPTION_CAPTION_ID,
+      this.savedPairs(),
+      (processed, total) -> {
+        model.eventWithProgressCurrentMax(
+          processed,
+          total,
+          "Unassigning captions from categories."
+        );
+      }
+    );
 
     model.eventWithoutProgress("Unassigned %d captions.", Integer.valueOf(max));
     LCommandModelUpdates.updateCaptionsAndCategories(context, model);
@@ -212,21 +199,20 @@ public final class LCommandCategoryCaptionsAssign
       transaction.get(DSLContext.class);
 
     final var max = this.savedData.size();
-    for (int index = 0; index < max; ++index) {
-      final var data = this.savedData.get(index);
-
-      model.eventWithProgressCurrentMax(
-        index,
-        max,
-        "Reassigning caption to category."
-      );
-
-      context.insertInto(CAPTION_CATEGORIES)
-        .set(CAPTION_CATEGORIES.CAPTION_CATEGORY_ID, data.categoryId)
-        .set(CAPTION_CATEGORIES.CAPTION_CAPTION_ID, data.tagId)
-        .onConflictDoNothing()
-        .execute();
-    }
+    LBulkPairs.insert(
+      context,
+      CAPTION_CATEGORIES,
+      CAPTION_CATEGORIES.CAPTION_CATEGORY_ID,
+      CAPTION_CATEGORIES.CAPTION_CAPTION_ID,
+      this.savedPairs(),
+      (processed, total) -> {
+        model.eventWithProgressCurrentMax(
+          processed,
+          total,
+          "Reassigning captions to categories."
+        );
+      }
+    );
 
     model.eventWithoutProgress("Assigned %d captions.", Integer.valueOf(max));
     LCommandModelUpdates.updateCaptionsAndCategories(context, model);
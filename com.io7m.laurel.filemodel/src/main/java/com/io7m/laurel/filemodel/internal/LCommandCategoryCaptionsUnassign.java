@@ -94,6 +94,12 @@ public final class LCommandCategoryCaptionsUnassign
     return c;
   }
 
+  @Override
+  public boolean isCoalescable()
+  {
+    return true;
+  }
+
   @Override
   protected LCommandUndoable onExecute(
     final LFileModel model,
@@ -23,13 +23,15 @@ import org.jooq.DSLContext;
 
 import java.util.Properties;
 
-import static com.io7m.laurel.filemodel.internal.Tables.IMAGES;
-import static com.io7m.laurel.filemodel.internal.Tables.IMAGE_BLOBS;
 import static com.io7m.laurel.filemodel.internal.Tables.REDO;
 import static com.io7m.laurel.filemodel.internal.Tables.UNDO;
 
 /**
- * Compact a file.
+ * Compact a file by discarding the undo and redo history. The space used by
+ * the images that the history kept alive is reclaimed afterwards by a
+ * background job.
+ *
+ * @see LJobSpaceReclaim
  */
 
 public final class LCommandCompact
@@ -78,12 +80,6 @@ public final class LCommandCompact
       .execute();
     context.truncate(REDO)
       .execute();
-    context.deleteFrom(IMAGE_BLOBS)
-      .where(IMAGE_BLOBS.IMAGE_BLOB_ID.notIn(
-        context.select(IMAGES.IMAGE_BLOB)
-          .from(IMAGES)
-      ))
-      .execute();
 
     transaction.commit();
 
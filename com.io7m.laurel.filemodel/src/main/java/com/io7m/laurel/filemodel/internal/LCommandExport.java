@@ -20,7 +20,6 @@ package com.io7m.laurel.filemodel.internal;
 import com.io7m.laurel.filemodel.LExportRequest;
 import com.io7m.laurel.filemodel.LFileModelEvent;
 import com.io7m.laurel.filemodel.LFileModelEventError;
-import com.io7m.laurel.filemodel.LFileModelEventType;
 import com.io7m.laurel.model.LException;
 import com.io7m.laurel.model.LGlobalCaption;
 import com.io7m.laurel.model.LImageID;
@@ -32,7 +31,6 @@ import org.jooq.DSLContext;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -55,7 +53,8 @@ public final class LCommandExport
   private final HashMap<String, Object> attributes;
   private int imageCount;
   private int imageIndex;
-  private final ArrayList<LFileModelEventType> events;
+  private final LEventLog events;
+  private Optional<LBlobCache> blobCache;
 
   /**
    * Export.
@@ -63,8 +62,9 @@ public final class LCommandExport
 
   public LCommandExport()
   {
-    this.events = new ArrayList<>();
+    this.events = new LEventLog();
     this.attributes = new HashMap<String, Object>();
+    this.blobCache = Optional.empty();
   }
 
   /**
@@ -95,6 +95,19 @@ public final class LCommandExport
     final LDatabaseTransactionType transaction,
     final LExportRequest request)
     throws LException
+  {
+    try {
+      return this.exportDataset(model, transaction, request);
+    } finally {
+      this.events.publish(model::setExportEvents);
+    }
+  }
+
+  private LCommandUndoable exportDataset(
+    final LFileModel model,
+    final LDatabaseTransactionType transaction,
+    final LExportRequest request)
+    throws LException
   {
     final var context =
       transaction.get(DSLContext.class);
@@ -111,16 +124,46 @@ public final class LCommandExport
       final var images = model.imageList().get();
       this.imageCount = images.size();
       this.imageIndex = 0;
-
-      for (final var image : images) {
-        this.exportImage(
+      this.blobCache = request.blobCache().map(LBlobCache::new);
+
+      final var bucketStage = new LJFRStageEvent("export", "buckets");
+      bucketStage.begin();
+      final var directories =
+        this.bucketDirectories(model, context, request);
+      bucketStage.commit();
+
+      final var imageStage = new LJFRStageEvent("export", "images");
+      imageStage.begin();
+
+      final var transform = request.transform();
+      if (request.exportImages() && transform.isPresent()) {
+        try (var transformer = LExportTransformer.create(transform.get())) {
+          this.exportImages(
+            model,
+            context,
+            request,
+            images,
+            directories,
+            Optional.of(transformer)
+          );
+          imageStage.commit();
+
+          final var transformStage = new LJFRStageEvent("export", "transforms");
+          transformStage.begin();
+          this.event(model, 1.0, "Waiting for image transforms to complete.");
+          transformer.finish();
+          transformStage.commit();
+        }
+      } else {
+        this.exportImages(
           model,
           context,
-          model.globalCaptionList().get(),
-          image,
-          request
+          request,
+          images,
+          directories,
+          Optional.empty()
         );
-        ++this.imageIndex;
+        imageStage.commit();
       }
 
       this.event(model, 1.0, "Exported dataset.");
@@ -130,6 +173,78 @@ public final class LCommandExport
     }
   }
 
+  private void exportImages(
+    final LFileModel model,
+    final DSLContext context,
+    final LExportRequest request,
+    final List<LImageWithID> images,
+    final Map<LImageID, Path> directories,
+    final Optional<LExportTransformer> transformer)
+    throws LException
+  {
+    for (final var image : images) {
+      this.checkCancelled();
+      this.exportImage(
+        model,
+        context,
+        model.globalCaptionList().get(),
+        image,
+        request,
+        directories.getOrDefault(image.id(), request.outputDirectory()),
+        transformer
+      );
+      ++this.imageIndex;
+    }
+  }
+
+  private Map<LImageID, Path> bucketDirectories(
+    final LFileModel model,
+    final DSLContext context,
+    final LExportRequest request)
+    throws IOException
+  {
+    final var buckets = request.buckets();
+    if (buckets.isEmpty()) {
+      return Map.of();
+    }
+
+    this.event(model, 0.0, "Assigning images to buckets.");
+
+    final var outputDirectory =
+      request.outputDirectory();
+    final var sizes =
+      LBuckets.imageSizes(context);
+    final var directories =
+      new HashMap<LImageID, Path>(sizes.size());
+
+    for (final var entry : sizes.entrySet()) {
+      final var size = entry.getValue();
+      final var bucket =
+        LBuckets.bucketFor(buckets, size.width(), size.height());
+      directories.put(entry.getKey(), outputDirectory.resolve(bucket.name()));
+    }
+
+    final var counts = LBuckets.count(buckets, sizes);
+    for (final var count : counts) {
+      this.event(
+        model,
+        0.0,
+        "Bucket %s: %d images.",
+        count.bucket(),
+        Long.valueOf(count.count())
+      );
+      if (count.count() > 0L) {
+        final var bucketDirectory =
+          outputDirectory.resolve(count.bucket().name());
+        this.attributes.put("Bucket Directory", bucketDirectory);
+        Files.createDirectories(bucketDirectory);
+      }
+    }
+
+    model.setBucketCounts(counts);
+    return directories;
+  }
+
   private LException mapException(
     final Throwable e)
   {
@@ -192,7 +307,7 @@ public final class LCommandExport
       )
     );
 
-    model.setExportEvents(List.copyOf(this.events));
+    this.events.publishIfDue(model::setExportEvents);
   }
 
   private void eventWithProgress(
@@ -207,7 +322,7 @@ public final class LCommandExport
       )
     );
 
-    model.setExportEvents(List.copyOf(this.events));
+    this.events.publishIfDue(model::setExportEvents);
   }
 
   private void exportImage(
@@ -215,29 +330,38 @@ public final class LCommandExport
     final DSLContext context,
     final List<LGlobalCaption> globalCaptions,
     final LImageWithID image,
-    final LExportRequest request)
+    final LExportRequest request,
+    final Path directory,
+    final Optional<LExportTransformer> transformer)
     throws LException
   {
-    final var idString =
-      Long.toUnsignedString(image.id().value());
-    final var idStringZeroed =
-      "0".repeat(20 - idString.length());
     final var imageNumber =
-      "%s%s".formatted(idStringZeroed, idString);
+      imageNumber(image.id().value());
     final var imageExt =
-      imageExtensionFor(image.image().type());
+      transformer.map(t -> t.format().extension())
+        .orElseGet(() -> imageExtensionFor(image.image().type()));
     final var imageName =
       "%s.%s".formatted(imageNumber, imageExt);
     final var captionName =
       "%s.caption".formatted(imageNumber);
 
     if (request.exportImages()) {
-      this.writeImage(
-        context,
-        model,
-        image,
-        request.outputDirectory().resolve(imageName)
-      );
+      if (transformer.isPresent()) {
+        this.writeImageTransformed(
+          context,
+          model,
+          image,
+          directory.resolve(imageName),
+          transformer.get()
+        );
+      } else {
+        this.writeImage(
+          context,
+          model,
+          image,
+          directory.resolve(imageName)
+        );
+      }
     }
 
     this.writeCaptions(
@@ -245,7 +369,7 @@ public final class LCommandExport
       context,
       globalCaptions,
       image,
-      request.outputDirectory().resolve(captionName)
+      directory.resolve(captionName)
     );
   }
 
@@ -279,12 +403,66 @@ public final class LCommandExport
     final Path file)
     throws LException
   {
-    this.eventWithProgress(model, "Writing image file '%s'", file);
     this.attributes.put("Image", image.id());
     this.attributes.put("File", file);
 
     try {
-      Files.write(file, imageData(context, image.id()));
+      if (this.blobCache.isPresent()) {
+        this.writeImageCached(context, model, image, file, this.blobCache.get());
+        return;
+      }
+
+      this.eventWithProgress(model, "Writing image file '%s'", file);
+      LBlobCache.replace(file, imageData(context, image.id()));
+    } catch (final Exception e) {
+      throw this.handleException(e);
+    }
+  }
+
+  private void writeImageCached(
+    final DSLContext context,
+    final LFileModel model,
+    final LImageWithID image,
+    final Path file,
+    final LBlobCache cache)
+    throws IOException
+  {
+    final var cacheFile =
+      cache.fileFor(
+        image.image().hash(),
+        imageExtensionFor(image.image().type())
+      );
+
+    this.attributes.put("CacheFile", cacheFile);
+
+    if (!Files.isRegularFile(cacheFile)) {
+      this.eventWithProgress(model, "Caching image blob '%s'", cacheFile);
+      LBlobCache.store(cacheFile, imageData(context, image.id()));
+    }
+
+    this.eventWithProgress(model, "Linking image file '%s'", file);
+    LBlobCache.linkOrCopy(cacheFile, file);
+  }
+
+  private void writeImageTransformed(
+    final DSLContext context,
+    final LFileModel model,
+    final LImageWithID image,
+    final Path file,
+    final LExportTransformer transformer)
+    throws LException
+  {
+    this.attributes.put("Image", image.id());
+    this.attributes.put("File", file);
+
+    try {
+      if (transformer.copyFromCache(image.image().hash(), file)) {
+        this.eventWithProgress(model, "Linked cached image file '%s'", file);
+        return;
+      }
+
+      this.eventWithProgress(model, "Transforming image file '%s'", file);
+      transformer.submit(image, imageData(context, image.id()), file);
     } catch (final Exception e) {
       throw this.handleException(e);
     }
@@ -294,15 +472,32 @@ public final class LCommandExport
     final DSLContext context,
     final LImageID id)
   {
-    return context.select(IMAGE_BLOBS.IMAGE_BLOB_DATA)
-      .from(IMAGE_BLOBS)
-      .join(IMAGES)
-      .on(IMAGES.IMAGE_BLOB.eq(IMAGE_BLOBS.IMAGE_BLOB_ID))
-      .where(IMAGES.IMAGE_ID.eq(id.value()))
-      .fetchOne(IMAGE_BLOBS.IMAGE_BLOB_DATA);
+    final var event = new LJFRBlobReadEvent();
+    event.begin();
+
+    final var data =
+      context.select(IMAGE_BLOBS.IMAGE_BLOB_DATA)
+        .from(IMAGE_BLOBS)
+        .join(IMAGES)
+        .on(IMAGES.IMAGE_BLOB.eq(IMAGE_BLOBS.IMAGE_BLOB_ID))
+        .where(IMAGES.IMAGE_ID.eq(id.value()))
+        .fetchOne(IMAGE_BLOBS.IMAGE_BLOB_DATA);
+
+    event.record(id.value(), data);
+    return data;
+  }
+
+  static String imageNumber(
+    final long id)
+  {
+    final var idString =
+      Long.toUnsignedString(id);
+    final var idStringZeroed =
+      "0".repeat(20 - idString.length());
+    return "%s%s".formatted(idStringZeroed, idString);
   }
 
-  private static String imageExtensionFor(
+  static String imageExtensionFor(
     final MimeType type)
   {
     return MimeFileExtensions.suggestFileExtension(type)
@@ -0,0 +1,323 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.laurel.filemodel.internal;
+
+import com.io7m.laurel.filemodel.LExportArchiveRequest;
+import com.io7m.laurel.filemodel.LFileModelEvent;
+import com.io7m.laurel.filemodel.LFileModelEventError;
+import com.io7m.laurel.model.LException;
+import com.io7m.mime2045.fileext.MimeFileExtensions;
+import org.jooq.DSLContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.Properties;
+import java.util.stream.Collectors;
+
+import static com.io7m.laurel.filemodel.internal.Tables.CAPTIONS;
+import static com.io7m.laurel.filemodel.internal.Tables.IMAGES;
+import static com.io7m.laurel.filemodel.internal.Tables.IMAGE_BLOBS;
+import static com.io7m.laurel.filemodel.internal.Tables.IMAGE_CAPTIONS;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Export to sharded tar archives.
+ */
+
+public final class LCommandExportArchive
+  extends LCommandAbstract<LExportArchiveRequest>
+{
+  private final HashMap<String, Object> attributes;
+  private final LEventLog events;
+
+  /**
+   * Export to sharded tar archives.
+   */
+
+  public LCommandExportArchive()
+  {
+    this.events = new LEventLog();
+    this.attributes = new HashMap<String, Object>();
+  }
+
+  /**
+   * Export to sharded tar archives.
+   *
+   * @return A command factory
+   */
+
+  public static LCommandFactoryType<LExportArchiveRequest> provider()
+  {
+    return new LCommandFactory<>(
+      LCommandExportArchive.class.getCanonicalName(),
+      LCommandExportArchive::fromProperties
+    );
+  }
+
+  private static LCommandExportArchive fromProperties(
+    final Properties p)
+  {
+    final var c = new LCommandExportArchive();
+    c.setExecuted(true);
+    return c;
+  }
+
+  @Override
+  protected LCommandUndoable onExecute(
+    final LFileModel model,
+    final LDatabaseTransactionType transaction,
+    final LExportArchiveRequest request)
+    throws LException
+  {
+    try {
+      return this.exportArchive(model, transaction, request);
+    } finally {
+      this.events.publish(model::setExportEvents);
+    }
+  }
+
+  private LCommandUndoable exportArchive(
+    final LFileModel model,
+    final LDatabaseTransactionType transaction,
+    final LExportArchiveRequest request)
+    throws LException
+  {
+    final var context =
+      transaction.get(DSLContext.class);
+    final var outputDirectory =
+      request.outputDirectory();
+
+    try {
+      this.attributes.put("Output Directory", outputDirectory);
+      Files.createDirectories(outputDirectory);
+    } catch (final IOException e) {
+      throw this.handleException(
+        new LException(
+          e.getMessage(),
+          e,
+          "error-create-directory",
+          this.takeAttributes(),
+          Optional.empty()
+        )
+      );
+    }
+
+    try (var writer =
+           new LArchiveShardWriter(outputDirectory, request.shardSizeLimit())) {
+      final var stage = new LJFRStageEvent("export", "archive");
+      stage.begin();
+      this.exportAll(model, context, writer);
+      stage.commit();
+      this.event(
+        model,
+        1.0,
+        "Exported dataset into %d shards.",
+        Integer.valueOf(writer.shardCount())
+      );
+      return LCommandUndoable.COMMAND_NOT_UNDOABLE;
+    } catch (final Throwable e) {
+      throw this.handleException(e);
+    }
+  }
+
+  /**
+   * Stream images and captions using two cursors ordered by image ID, and
+   * merge them. Only the current image and its captions are held in memory.
+   */
+
+  private void exportAll(
+    final LFileModel model,
+    final DSLContext context,
+    final LArchiveShardWriter writer)
+    throws Exception
+  {
+    final var globalCaptions =
+      LCommandModelUpdates.listGlobalCaptions(context);
+    final var imageCount =
+      context.fetchCount(IMAGES);
+
+    try (var images =
+           context.select(
+               IMAGES.IMAGE_ID,
+               IMAGE_BLOBS.IMAGE_BLOB_TYPE,
+               IMAGE_BLOBS.IMAGE_BLOB_DATA)
+             .from(IMAGES)
+             .join(IMAGE_BLOBS)
+             .on(IMAGE_BLOBS.IMAGE_BLOB_ID.eq(IMAGES.IMAGE_BLOB))
+             .orderBy(IMAGES.IMAGE_ID.asc())
+             .fetchLazy();
+         var captions =
+           context.select(
+               IMAGE_CAPTIONS.IMAGE_CAPTION_IMAGE,
+               CAPTIONS.CAPTION_TEXT)
+             .from(IMAGE_CAPTIONS)
+             .join(CAPTIONS)
+             .on(CAPTIONS.CAPTION_ID.eq(IMAGE_CAPTIONS.IMAGE_CAPTION_CAPTION))
+             .orderBy(
+               IMAGE_CAPTIONS.IMAGE_CAPTION_IMAGE.asc(),
+               CAPTIONS.CAPTION_TEXT.asc())
+             .fetchLazy()) {
+
+      var caption = captions.fetchNext();
+      var index = 0;
+
+      for (final var image : images) {
+        this.checkCancelled();
+        final var imageId =
+          image.get(IMAGES.IMAGE_ID).longValue();
+        final var captionTexts =
+          new ArrayList<String>();
+
+        while (caption != null) {
+          final var captionImage =
+            caption.get(IMAGE_CAPTIONS.IMAGE_CAPTION_IMAGE).longValue();
+          if (captionImage > imageId) {
+            break;
+          }
+          if (captionImage == imageId) {
+            captionTexts.add(caption.get(CAPTIONS.CAPTION_TEXT));
+          }
+          caption = captions.fetchNext();
+        }
+
+        final var key =
+          "%09d".formatted(Long.valueOf(imageId));
+        final var extension =
+          MimeFileExtensions.suggestFileExtension(
+            LCommandModelUpdates.MIME_PARSERS.parse(
+              image.get(IMAGE_BLOBS.IMAGE_BLOB_TYPE))
+          ).orElse("bin");
+
+        this.attributes.put("Image", Long.valueOf(imageId));
+        this.event(
+          model,
+          (double) index / (double) Math.max(1, imageCount),
+          "Writing archive entry '%s'",
+          key
+        );
+
+        final var readEvent = new LJFRBlobReadEvent();
+        readEvent.begin();
+        final var data = image.get(IMAGE_BLOBS.IMAGE_BLOB_DATA);
+        readEvent.record(imageId, data);
+
+        writer.write(
+          key,
+          extension,
+          data,
+          LCaptionFiles.serializeToString(globalCaptions, captionTexts)
+            .getBytes(UTF_8)
+        );
+        ++index;
+      }
+    }
+  }
+
+  private LException mapException(
+    final Throwable e)
+  {
+    if (e instanceof final LException es) {
+      return es;
+    }
+
+    return new LException(
+      Objects.requireNonNullElse(e.getMessage(), e.getClass().getSimpleName()),
+      e,
+      "error-exception",
+      this.takeAttributes(),
+      Optional.empty()
+    );
+  }
+
+  private Map<String, String> takeAttributes()
+  {
+    final var attributeMap =
+      this.attributes.entrySet()
+        .stream()
+        .map(x -> Map.entry(x.getKey(), x.getValue().toString()))
+        .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    this.attributes.clear();
+    return attributeMap;
+  }
+
+  private LException handleException(
+    final Throwable e)
+  {
+    final var x = this.mapException(e);
+    this.events.add(
+      new LFileModelEventError(
+        x.getMessage(),
+        OptionalDouble.of(0.0),
+        x.errorCode().toString(),
+        x.attributes(),
+        x.remediatingAction(),
+        Optional.of(x)
+      )
+    );
+    return x;
+  }
+
+  private void event(
+    final LFileModel model,
+    final double progress,
+    final String text,
+    final Object... arguments)
+  {
+    this.events.add(
+      new LFileModelEvent(
+        text.formatted(arguments),
+        OptionalDouble.of(progress)
+      )
+    );
+
+    this.events.publishIfDue(model::setExportEvents);
+  }
+
+  @Override
+  protected void onUndo(
+    final LFileModel model,
+    final LDatabaseTransactionType transaction)
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  protected void onRedo(
+    final LFileModel model,
+    final LDatabaseTransactionType transaction)
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public Properties toProperties()
+  {
+    return new Properties();
+  }
+
+  @Override
+  public String describe()
+  {
+    return "Export archive";
+  }
+}
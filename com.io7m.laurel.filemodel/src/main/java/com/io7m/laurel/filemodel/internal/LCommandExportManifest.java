@@ -0,0 +1,456 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.laurel.filemodel.internal;
+
+import com.io7m.laurel.filemodel.LExportManifestRequest;
+import com.io7m.laurel.filemodel.LFileModelEvent;
+import com.io7m.laurel.filemodel.LFileModelEventError;
+import com.io7m.laurel.model.LException;
+import com.io7m.laurel.model.LGlobalCaption;
+import org.jooq.DSLContext;
+import org.jooq.Record;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.Properties;
+import java.util.TreeSet;
+
+import static com.io7m.laurel.filemodel.internal.Tables.CAPTIONS;
+import static com.io7m.laurel.filemodel.internal.Tables.CAPTION_CATEGORIES;
+import static com.io7m.laurel.filemodel.internal.Tables.CATEGORIES;
+import static com.io7m.laurel.filemodel.internal.Tables.IMAGES;
+import static com.io7m.laurel.filemodel.internal.Tables.IMAGE_BLOBS;
+import static com.io7m.laurel.filemodel.internal.Tables.IMAGE_CAPTIONS;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Export a JSON Lines manifest.
+ */
+
+public final class LCommandExportManifest
+  extends LCommandAbstract<LExportManifestRequest>
+{
+  private static final int PROGRESS_INTERVAL = 1000;
+
+  private final LEventLog events;
+  private final HashMap<String, String> extensions;
+
+  /**
+   * Export a JSON Lines manifest.
+   */
+
+  public LCommandExportManifest()
+  {
+    this.events = new LEventLog();
+    this.extensions = new HashMap<>();
+  }
+
+  /**
+   * Export a JSON Lines manifest.
+   *
+   * @return A command factory
+   */
+
+  public static LCommandFactoryType<LExportManifestRequest> provider()
+  {
+    return new LCommandFactory<>(
+      LCommandExportManifest.class.getCanonicalName(),
+      LCommandExportManifest::fromProperties
+    );
+  }
+
+  private static LCommandExportManifest fromProperties(
+    final Properties p)
+  {
+    final var c = new LCommandExportManifest();
+    c.setExecuted(true);
+    return c;
+  }
+
+  /**
+   * The state of the image currently being accumulated from the joined
+   * rows. Rows for a single image are contiguous because the query is
+   * ordered by image ID.
+   */
+
+  private static final class ImageState
+  {
+    private final Record first;
+    private final LinkedHashSet<String> captions;
+    private final TreeSet<String> categories;
+
+    ImageState(
+      final Record inFirst)
+    {
+      this.first = inFirst;
+      this.captions = new LinkedHashSet<>();
+      this.categories = new TreeSet<>();
+    }
+
+    long id()
+    {
+      return this.first.get(IMAGES.IMAGE_ID).longValue();
+    }
+
+    void add(
+      final Record r)
+    {
+      final var caption = r.get(CAPTIONS.CAPTION_TEXT);
+      if (caption != null) {
+        this.captions.add(caption);
+      }
+      final var category = r.get(CATEGORIES.CATEGORY_TEXT);
+      if (category != null) {
+        this.categories.add(category);
+      }
+    }
+  }
+
+  @Override
+  protected LCommandUndoable onExecute(
+    final LFileModel model,
+    final LDatabaseTransactionType transaction,
+    final LExportManifestRequest request)
+    throws LException
+  {
+    try {
+      return this.exportManifest(model, transaction, request);
+    } finally {
+      this.events.publish(model::setExportEvents);
+    }
+  }
+
+  private LCommandUndoable exportManifest(
+    final LFileModel model,
+    final LDatabaseTransactionType transaction,
+    final LExportManifestRequest request)
+    throws LException
+  {
+    final var context =
+      transaction.get(DSLContext.class);
+    final var outputFile =
+      request.outputFile().toAbsolutePath();
+
+    try {
+      final var parent = outputFile.getParent();
+      if (parent != null) {
+        Files.createDirectories(parent);
+      }
+
+      final var stage = new LJFRStageEvent("export", "manifest");
+      stage.begin();
+
+      final int count;
+      try (var writer = Files.newBufferedWriter(outputFile, UTF_8)) {
+        count = this.exportAll(model, context, writer);
+      }
+      stage.commit();
+
+      this.event(
+        model,
+        1.0,
+        "Exported manifest of %d images.",
+        Integer.valueOf(count)
+      );
+      return LCommandUndoable.COMMAND_NOT_UNDOABLE;
+    } catch (final Throwable e) {
+      throw this.handleException(e, outputFile.toString());
+    }
+  }
+
+  private int exportAll(
+    final LFileModel model,
+    final DSLContext context,
+    final Writer writer)
+    throws IOException, LException
+  {
+    final var globalCaptions =
+      LCommandModelUpdates.listGlobalCaptions(context)
+        .stream()
+        .map(LGlobalCaption::caption)
+        .map(c -> c.name().text())
+        .toList();
+    final var imageCount =
+      Math.max(1, context.fetchCount(IMAGES));
+
+    this.event(model, 0.0, "Writing manifest.");
+
+    var count = 0;
+    try (var rows =
+           context.select(
+               IMAGES.IMAGE_ID,
+               IMAGES.IMAGE_NAME,
+               IMAGES.IMAGE_FILE,
+               IMAGES.IMAGE_SOURCE,
+               IMAGE_BLOBS.IMAGE_BLOB_SHA256,
+               IMAGE_BLOBS.IMAGE_BLOB_TYPE,
+               IMAGE_BLOBS.IMAGE_BLOB_WIDTH,
+               IMAGE_BLOBS.IMAGE_BLOB_HEIGHT,
+               CAPTIONS.CAPTION_TEXT,
+               CATEGORIES.CATEGORY_TEXT)
+             .from(IMAGES)
+             .join(IMAGE_BLOBS)
+             .on(IMAGE_BLOBS.IMAGE_BLOB_ID.eq(IMAGES.IMAGE_BLOB))
+             .leftJoin(IMAGE_CAPTIONS)
+             .on(IMAGE_CAPTIONS.IMAGE_CAPTION_IMAGE.eq(IMAGES.IMAGE_ID))
+             .leftJoin(CAPTIONS)
+             .on(CAPTIONS.CAPTION_ID.eq(IMAGE_CAPTIONS.IMAGE_CAPTION_CAPTION))
+             .leftJoin(CAPTION_CATEGORIES)
+             .on(CAPTION_CATEGORIES.CAPTION_CAPTION_ID.eq(CAPTIONS.CAPTION_ID))
+             .leftJoin(CATEGORIES)
+             .on(CATEGORIES.CATEGORY_ID.eq(CAPTION_CATEGORIES.CAPTION_CATEGORY_ID))
+             .orderBy(IMAGES.IMAGE_ID.asc(), CAPTIONS.CAPTION_TEXT.asc())
+             .fetchLazy()) {
+
+      ImageState current = null;
+      for (final var row : rows) {
+        this.checkCancelled();
+        final var id = row.get(IMAGES.IMAGE_ID).longValue();
+        if (current == null || current.id() != id) {
+          if (current != null) {
+            this.writeImage(writer, globalCaptions, current);
+            ++count;
+            if (count % PROGRESS_INTERVAL == 0) {
+              this.event(
+                model,
+                (double) count / (double) imageCount,
+                "Wrote %d manifest entries.",
+                Integer.valueOf(count)
+              );
+            }
+          }
+          current = new ImageState(row);
+        }
+        current.add(row);
+      }
+
+      if (current != null) {
+        this.writeImage(writer, globalCaptions, current);
+        ++count;
+      }
+    }
+    return count;
+  }
+
+  private String extensionFor(
+    final String type)
+    throws IOException
+  {
+    final var existing = this.extensions.get(type);
+    if (existing != null) {
+      return existing;
+    }
+
+    try {
+      final var extension =
+        LCommandExport.imageExtensionFor(
+          LCommandModelUpdates.MIME_PARSERS.parse(type)
+        );
+      this.extensions.put(type, extension);
+      return extension;
+    } catch (final Exception e) {
+      throw new IOException(e);
+    }
+  }
+
+  private void writeImage(
+    final Writer writer,
+    final List<String> globalCaptions,
+    final ImageState image)
+    throws IOException
+  {
+    final var r = image.first;
+    final var type = r.get(IMAGE_BLOBS.IMAGE_BLOB_TYPE);
+    final var extension = this.extensionFor(type);
+
+    final var captions =
+      new ArrayList<String>(globalCaptions.size() + image.captions.size());
+    captions.addAll(globalCaptions);
+    captions.addAll(image.captions);
+
+    writer.write("{\"id\":");
+    writer.write(Long.toUnsignedString(image.id()));
+    writer.write(",\"name\":");
+    writeString(writer, r.get(IMAGES.IMAGE_NAME));
+    writer.write(",\"path\":");
+    writeString(
+      writer,
+      "%s.%s".formatted(LCommandExport.imageNumber(image.id()), extension)
+    );
+    writer.write(",\"file\":");
+    writeString(writer, r.get(IMAGES.IMAGE_FILE));
+    writer.write(",\"source\":");
+    writeString(writer, r.get(IMAGES.IMAGE_SOURCE));
+    writer.write(",\"type\":");
+    writeString(writer, type);
+    writer.write(",\"sha256\":");
+    writeString(writer, r.get(IMAGE_BLOBS.IMAGE_BLOB_SHA256));
+    writer.write(",\"width\":");
+    writeNumber(writer, r.get(IMAGE_BLOBS.IMAGE_BLOB_WIDTH));
+    writer.write(",\"height\":");
+    writeNumber(writer, r.get(IMAGE_BLOBS.IMAGE_BLOB_HEIGHT));
+    writer.write(",\"captions\":");
+    writeStrings(writer, captions);
+    writer.write(",\"categories\":");
+    writeStrings(writer, image.categories);
+    writer.write("}\n");
+  }
+
+  private static void writeNumber(
+    final Writer writer,
+    final Long value)
+    throws IOException
+  {
+    if (value == null) {
+      writer.write("null");
+    } else {
+      writer.write(value.toString());
+    }
+  }
+
+  private static void writeStrings(
+    final Writer writer,
+    final Collection<String> values)
+    throws IOException
+  {
+    writer.write('[');
+    var first = true;
+    for (final var value : values) {
+      if (!first) {
+        writer.write(',');
+      }
+      writeString(writer, value);
+      first = false;
+    }
+    writer.write(']');
+  }
+
+  private static void writeString(
+    final Writer writer,
+    final String value)
+    throws IOException
+  {
+    if (value == null) {
+      writer.write("null");
+      return;
+    }
+
+    writer.write('"');
+    for (int index = 0; index < value.length(); ++index) {
+      final var c = value.charAt(index);
+      switch (c) {
+        case '"' -> writer.write("\\\"");
+        case '\\' -> writer.write("\\\\");
+        case '\n' -> writer.write("\\n");
+        case '\r' -> writer.write("\\r");
+        case '\t' -> writer.write("\\t");
+        default -> {
+          if (c < 0x20) {
+            writer.write("\\u%04x".formatted(Integer.valueOf(c)));
+          } else {
+            writer.write(c);
+          }
+        }
+      }
+    }
+    writer.write('"');
+  }
+
+  private LException handleException(
+    final Throwable e,
+    final String file)
+  {
+    final LException x;
+    if (e instanceof final LException es) {
+      x = es;
+    } else {
+      x = new LException(
+        Objects.requireNonNullElse(e.getMessage(), e.getClass().getSimpleName()),
+        e,
+        "error-exception",
+        Map.of("File", file),
+        Optional.empty()
+      );
+    }
+
+    this.events.add(
+      new LFileModelEventError(
+        x.getMessage(),
+        OptionalDouble.of(0.0),
+        x.errorCode().toString(),
+        x.attributes(),
+        x.remediatingAction(),
+        Optional.of(x)
+      )
+    );
+    return x;
+  }
+
+  private void event(
+    final LFileModel model,
+    final double progress,
+    final String text,
+    final Object... arguments)
+  {
+    this.events.add(
+      new LFileModelEvent(
+        text.formatted(arguments),
+        OptionalDouble.of(progress)
+      )
+    );
+
+    this.events.publishIfDue(model::setExportEvents);
+  }
+
+  @Override
+  protected void onUndo(
+    final LFileModel model,
+    final LDatabaseTransactionType transaction)
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  protected void onRedo(
+    final LFileModel model,
+    final LDatabaseTransactionType transaction)
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public Properties toProperties()
+  {
+    return new Properties();
+  }
+
+  @Override
+  public String describe()
+  {
+    return "Export manifest";
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.laurel.filemodel.internal;
+
+import com.io7m.laurel.filemodel.LHistoryRetention;
+import org.jooq.DSLContext;
+
+import java.util.Properties;
+
+/**
+ * Set the history retention policy.
+ */
+
+public final class LCommandHistoryRetentionSet
+  extends LCommandAbstract<LHistoryRetention>
+{
+  /**
+   * Set the history retention policy.
+   */
+
+  public LCommandHistoryRetentionSet()
+  {
+
+  }
+
+  /**
+   * @return A command factory
+   */
+
+  public static LCommandFactoryType<LHistoryRetention> provider()
+  {
+    return new LCommandFactory<>(
+      LCommandHistoryRetentionSet.class.getCanonicalName(),
+      LCommandHistoryRetentionSet::fromProperties
+    );
+  }
+
+  private static LCommandHistoryRetentionSet fromProperties(
+    final Properties p)
+  {
+    final var c = new LCommandHistoryRetentionSet();
+    c.setExecuted(true);
+    return c;
+  }
+
+  @Override
+  protected LCommandUndoable onExecute(
+    final LFileModel model,
+    final LDatabaseTransactionType transaction,
+    final LHistoryRetention retention)
+  {
+    final var context =
+      transaction.get(DSLContext.class);
+
+    LHistoryRetentions.put(context, retention);
+    model.setHistoryRetention(retention);
+    model.historyPruneRequest();
+    return LCommandUndoable.COMMAND_NOT_UNDOABLE;
+  }
+
+  @Override
+  protected void onUndo(
+    final LFileModel model,
+    final LDatabaseTransactionType transaction)
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  protected void onRedo(
+    final LFileModel model,
+    final LDatabaseTransactionType transaction)
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public Properties toProperties()
+  {
+    return new Properties();
+  }
+
+  @Override
+  public String describe()
+  {
+    return "Set history retention";
+  }
+}
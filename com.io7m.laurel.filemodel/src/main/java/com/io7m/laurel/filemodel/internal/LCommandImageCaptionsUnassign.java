@@ -22,7 +22,6 @@ import org.jooq.DSLContext;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Properties;
 
 import static com.io7m.laurel.filemodel.internal.Tables.IMAGE_CAPTIONS;
@@ -94,6 +93,12 @@ public final class LCommandImageCaptionsUnassign
     return c;
   }
 
+  @Override
+  public boolean isCoalescable()
+  {
+    return true;
+  }
+
   @Override
   protected LCommandUndoable onExecute(
     final LFileModel model,
@@ -103,57 +108,41 @@ public final class LCommandImageCaptionsUnassign
     final var context =
       transaction.get(DSLContext.class);
 
-    final var max =
-      images.stream()
-        .mapToInt(c -> c.captions().size())
-        .sum();
-
-    final var entries =
+    final var pairs =
       images.stream()
         .flatMap(c -> {
           return c.captions()
             .stream()
-            .map(t -> Map.entry(c.image(), t));
+            .map(t -> new LBulkPairs.Pair(c.image().value(), t.value()));
         })
         .toList();
 
-    int index = 0;
-    for (final var entry : entries) {
-      final var image =
-        entry.getKey();
-      final var caption =
-        entry.getValue();
-
-      model.eventWithProgressCurrentMax(
-        index,
-        max,
-        "Unassigning caption from image '%s'.",
-        image
+    final var affected =
+      LBulkPairs.delete(
+        context,
+        IMAGE_CAPTIONS,
+        IMAGE_CAPTIONS.IMAGE_CAPTION_IMAGE,
+        IMAGE_CAPTIONS.IMAGE_CAPTION_CAPTION,
+        pairs,
+        (processed, total) -> {
+          model.eventWithProgressCurrentMax(
+            processed,
+            total,
+            "Unassigning captions from images."
+          );
+        }
       );
 
-      final var deleted =
-        context.deleteFrom(IMAGE_CAPTIONS)
-          .where(IMAGE_CAPTIONS.IMAGE_CAPTION_IMAGE.eq(image.value())
-                   .and(IMAGE_CAPTIONS.IMAGE_CAPTION_CAPTION.eq(caption.value())))
-          .execute();
-
-      ++index;
-
-      if (deleted == 0) {
-        model.eventWithProgressCurrentMax(
-          index,
-          max,
-          "Image/caption either did not exist or was already unassigned.",
-          image
-        );
-        continue;
-      }
+    for (final var pair : affected) {
+      this.savedData.add(new SavedData(pair.left(), pair.right()));
+    }
+    model.captionStatisticsEngine().unassigned(affected);
 
-      this.savedData.add(
-        new SavedData(
-          image.value(),
-          caption.value()
-        )
+    final var skipped = pairs.size() - affected.size();
+    if (skipped > 0) {
+      model.eventWithoutProgress(
+        "%d image/caption pairs either did not exist or were already unassigned.",
+        Integer.valueOf(skipped)
       );
     }
 
@@ -167,6 +156,13 @@ public final class LCommandImageCaptionsUnassign
     return LCommandUndoable.COMMAND_NOT_UNDOABLE;
   }
 
+  private List<LBulkPairs.Pair> savedPairs()
+  {
+    return this.savedData.stream()
+      .map(d -> new LBulkPairs.Pair(d.imageId, d.tagId))
+      .toList();
+  }
+
   @Override
   protected void onUndo(
     final LFileModel model,
@@ -176,21 +172,22 @@ public final class LCommandImageCaptionsUnassign
       transaction.get(DSLContext.class);
 
     final var max = this.savedData.size();
-    for (int index = 0; index < max; ++index) {
-      final var data = this.savedData.get(index);
-
-      model.eventWithProgressCurrentMax(
-        index,
-        max,
-        "Assigning caption to image."
+    final var affected =
+      LBulkPairs.insert(
+        context,
+        IMAGE_CAPTIONS,
+        IMAGE_CAPTIONS.IMAGE_CAPTION_IMAGE,
+        IMAGE_CAPTIONS.IMAGE_CAPTION_CAPTION,
+        this.savedPairs(),
+        (processed, total) -> {
+          model.eventWithProgressCurrentMax(
+            processed,
+            total,
+            "Assigning captions to images."
+          );
+        }
       );
-
-      context.insertInto(IMAGE_CAPTIONS)
-        .set(IMAGE_CAPTIONS.IMAGE_CAPTION_IMAGE, data.imageId())
-        .set(IMAGE_CAPTIONS.IMAGE_CAPTION_CAPTION, data.tagId())
-        .onConflictDoNothing()
-        .execute();
-    }
+    model.captionStatisticsEngine().assigned(affected);
 
     model.eventWithoutProgress("Unassigned %d captions.", Integer.valueOf(max));
     LCommandModelUpdates.updateCaptionsAndCategories(context, model);
@@ -205,20 +202,22 @@ public final class LCommandImageCaptionsUnassign
       transaction.get(DSLContext.class);
 
     final var max = this.savedData.size();
-    for (int index = 0; index < max; ++index) {
-      final var data = this.savedData.get(index);
-
-      model.eventWithProgressCurrentMax(
-        index,
-        max,
-        "Unassigning caption from image."
+    final var affected =
+      LBulkPairs.delete(
+        context,
+        IMAGE_CAPTIONS,
+        IMAGE_CAPTIONS.IMAGE_CAPTION_IMAGE,
+        IMAGE_CAPTIONS.IMAGE_CAPTION_CAPTION,
+        this.savedPairs(),
+        (processed, total) -> {
+          model.eventWithProgressCurrentMax(
+            processed,
+            total,
+            "Unassigning captions from images."
+          );
+        }
       );
-
-      context.deleteFrom(IMAGE_CAPTIONS)
-        .where(IMAGE_CAPTIONS.IMAGE_CAPTION_IMAGE.eq(data.imageId)
-                 .and(IMAGE_CAPTIONS.IMAGE_CAPTION_CAPTION.eq(data.tagId)))
-        .execute();
-    }
+    model.captionStatisticsEngine().unassigned(affected);
 
     model.eventWithoutProgress("Unassigned %d captions.", Integer.valueOf(max));
     LCommandModelUpdates.updateCaptionsAndCategories(context, model);
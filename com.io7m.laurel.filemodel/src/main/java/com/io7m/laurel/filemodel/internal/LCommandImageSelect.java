@@ -82,7 +82,7 @@ public final class LCommandImageSelect
   {
     return new LCaption(
       new LCaptionID(r.get(CAPTIONS.CAPTION_ID)),
-      new LCaptionName(r.get(CAPTIONS.CAPTION_TEXT)),
+      LCaptionName.interned(r.get(CAPTIONS.CAPTION_TEXT)),
       r.get(LCommandModelUpdates.COUNT_FIELD)
     );
   }
@@ -100,6 +100,7 @@ public final class LCommandImageSelect
     if (request.isEmpty()) {
       model.setImageCaptionsAssigned(List.of());
       model.setImageSelected(Optional.empty());
+      model.setImageCaptionSuggestions(List.of());
       return LCommandUndoable.COMMAND_NOT_UNDOABLE;
     }
 
@@ -124,6 +125,7 @@ public final class LCommandImageSelect
     if (imageRecOpt.isEmpty()) {
       model.setImageCaptionsAssigned(List.of());
       model.setImageSelected(Optional.empty());
+      model.setImageCaptionSuggestions(List.of());
       return LCommandUndoable.COMMAND_NOT_UNDOABLE;
     }
 
@@ -169,6 +171,8 @@ public final class LCommandImageSelect
     } catch (final MimeParseException e) {
       throw new LException(e, "error-mime", Map.of(), Optional.empty());
     }
+
+    LCommandModelUpdates.updateCaptionSuggestions(model);
     return LCommandUndoable.COMMAND_NOT_UNDOABLE;
   }
 
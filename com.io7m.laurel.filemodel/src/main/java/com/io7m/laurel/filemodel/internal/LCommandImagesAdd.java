@@ -52,6 +52,14 @@ public final class LCommandImagesAdd
 
   private final ArrayList<SavedData> savedData;
 
+  private record LoadedImage(
+    byte[] data,
+    int width,
+    int height)
+  {
+
+  }
+
   private record SavedData(
     long savedBlobId,
     long savedImageId,
@@ -132,13 +140,16 @@ public final class LCommandImagesAdd
 
     final var max = requests.size();
     for (int index = 0; index < max; ++index) {
+      this.checkCancelled();
       final var request = requests.get(index);
       final var file = request.file();
       model.setAttribute("ImageFile", file);
       model.eventWithProgressCurrentMax(index, max, "Adding image '%s'.", file);
 
-      final var imageBytes =
+      final var image =
         loadImage(model, request);
+      final var imageBytes =
+        image.data();
       final var imageHash =
         hashOf(imageBytes);
 
@@ -150,14 +161,21 @@ public final class LCommandImagesAdd
         throw new LException(e, "error-mime", Map.of(), Optional.empty());
       }
 
+      final var writeEvent = new LJFRBlobWriteEvent();
+      writeEvent.begin();
+
       final var blobRec =
         context.insertInto(IMAGE_BLOBS)
           .set(IMAGE_BLOBS.IMAGE_BLOB_SHA256, imageHash.value())
           .set(IMAGE_BLOBS.IMAGE_BLOB_DATA, imageBytes)
           .set(IMAGE_BLOBS.IMAGE_BLOB_TYPE, type.toString())
+          .set(IMAGE_BLOBS.IMAGE_BLOB_WIDTH, Long.valueOf(image.width()))
+          .set(IMAGE_BLOBS.IMAGE_BLOB_HEIGHT, Long.valueOf(image.height()))
           .returning(IMAGE_BLOBS.IMAGE_BLOB_ID)
           .fetchOne();
 
+      writeEvent.record(imageHash.value(), imageBytes);
+
       final var savedName =
         request.name();
       final var savedBlobId =
@@ -209,7 +227,7 @@ public final class LCommandImagesAdd
     return new LHashSHA256(HexFormat.of().formatHex(digest.digest()));
   }
 
-  private static byte[] loadImage(
+  private static LoadedImage loadImage(
     final LFileModel model,
     final LImageRequest request)
     throws LException
@@ -228,9 +246,8 @@ public final class LCommandImagesAdd
             Optional.empty()
           );
         }
+        return new LoadedImage(imageBytes, image.getWidth(), image.getHeight());
       }
-
-      return imageBytes;
     } catch (final IOException e) {
       throw new LException(
         "Failed to open image file.",
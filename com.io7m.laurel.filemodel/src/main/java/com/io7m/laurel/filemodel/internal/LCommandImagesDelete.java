@@ -19,15 +19,17 @@ package com.io7m.laurel.filemodel.internal;
 
 import com.io7m.laurel.model.LException;
 import com.io7m.laurel.model.LImageID;
+import com.io7m.laurel.model.LLongSet;
 import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
-import java.util.Set;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
+import static com.io7m.laurel.filemodel.internal.LPreparedQueries.executeBatch;
+import static com.io7m.laurel.filemodel.internal.LPreparedQueries.longParam;
 import static com.io7m.laurel.filemodel.internal.Tables.IMAGES;
 import static com.io7m.laurel.filemodel.internal.Tables.IMAGE_CAPTIONS;
 
@@ -46,7 +48,7 @@ public final class LCommandImagesDelete
     String savedSourceText,
     String savedFile,
     String savedName,
-    Set<Long> savedCaptions)
+    LLongSet savedCaptions)
   {
 
   }
@@ -101,10 +103,13 @@ public final class LCommandImagesDelete
         captionsText.split(",");
 
       final var captionIds =
-        Stream.of(captionStrings)
-          .filter(s -> !s.isEmpty())
-          .map(Long::parseUnsignedLong)
-          .collect(Collectors.toSet());
+        LLongSet.builder(captionStrings.length);
+
+      for (final var captionString : captionStrings) {
+        if (!captionString.isEmpty()) {
+          captionIds.add(Long.parseUnsignedLong(captionString));
+        }
+      }
 
       final var data =
         new SavedData(
@@ -113,7 +118,7 @@ public final class LCommandImagesDelete
           p.getProperty(sourceKey),
           p.getProperty(fileKey),
           p.getProperty(nameKey),
-          captionIds
+          captionIds.build()
         );
 
       c.savedData.add(data);
@@ -133,52 +138,80 @@ public final class LCommandImagesDelete
     final var context =
       transaction.get(DSLContext.class);
 
-    final var max = requests.size();
-    for (int index = 0; index < max; ++index) {
-      final var id = requests.get(index);
-      model.setAttribute("Image", id);
-      model.eventWithProgressCurrentMax(index, max, "Deleting image '%s'.", id);
-
-      final var captions =
-        LCommandModelUpdates.listImageCaptions(context, id);
-
-      final var deletedOpt =
-        context.deleteFrom(IMAGES)
-          .where(IMAGES.IMAGE_ID.eq(Long.valueOf(id.value())))
-          .returning(
-            IMAGES.IMAGE_BLOB,
-            IMAGES.IMAGE_SOURCE,
-            IMAGES.IMAGE_FILE,
-            IMAGES.IMAGE_ID,
-            IMAGES.IMAGE_NAME
-          )
-          .fetchOptional();
-
-      if (deletedOpt.isEmpty()) {
+    try (var selectCaptions =
+           context.select(IMAGE_CAPTIONS.IMAGE_CAPTION_CAPTION)
+             .from(IMAGE_CAPTIONS)
+             .where(IMAGE_CAPTIONS.IMAGE_CAPTION_IMAGE.eq(longParam("image")))
+             .keepStatement(true);
+         var delete =
+           context.deleteFrom(IMAGES)
+             .where(IMAGES.IMAGE_ID.eq(longParam("image")))
+             .returning(
+               IMAGES.IMAGE_BLOB,
+               IMAGES.IMAGE_SOURCE,
+               IMAGES.IMAGE_FILE,
+               IMAGES.IMAGE_ID,
+               IMAGES.IMAGE_NAME
+             )
+             .keepStatement(true)) {
+
+      final var max = requests.size();
+      for (int index = 0; index < max; ++index) {
+        final var id = requests.get(index);
+        model.setAttribute("Image", id);
         model.eventWithProgressCurrentMax(
           index,
           max,
-          "Image did not exist."
+          "Deleting image '%s'.",
+          id
         );
-        continue;
-      }
 
-      final var deleted = deletedOpt.orElseThrow();
-      this.savedData.add(new SavedData(
-        deleted.get(IMAGES.IMAGE_BLOB),
-        deleted.get(IMAGES.IMAGE_ID),
-        deleted.get(IMAGES.IMAGE_SOURCE),
-        deleted.get(IMAGES.IMAGE_FILE),
-        deleted.get(IMAGES.IMAGE_NAME),
-        captions.stream()
-          .map(x -> Long.valueOf(x.value()))
-          .collect(Collectors.toSet())
-      ));
+        final var imageId =
+          Long.valueOf(id.value());
+        final var captions =
+          LLongSet.builder(16);
+
+        try (var cursor = selectCaptions.bind(1, imageId).fetchLazy()) {
+          for (final var r : cursor) {
+            captions.add(r.value1().longValue());
+          }
+        }
+
+        final var deletedOpt =
+          delete.bind(1, imageId)
+            .fetchOptional();
+
+        if (deletedOpt.isEmpty()) {
+          model.eventWithProgressCurrentMax(
+            index,
+            max,
+            "Image did not exist."
+          );
+          continue;
+        }
+
+        final var deleted = deletedOpt.orElseThrow();
+        this.savedData.add(new SavedData(
+          deleted.get(IMAGES.IMAGE_BLOB),
+          deleted.get(IMAGES.IMAGE_ID),
+          deleted.get(IMAGES.IMAGE_SOURCE),
+          deleted.get(IMAGES.IMAGE_FILE),
+          deleted.get(IMAGES.IMAGE_NAME),
+          captions.build()
+        ));
+      }
     }
 
     model.setImagesAll(LCommandModelUpdates.listImages(context));
+    final var engine = model.captionStatisticsEngine();
+    for (final var saved : this.savedData) {
+      engine.imageDeleted(saved.savedImageId);
+    }
     LCommandModelUpdates.updateCaptionsAndCategories(context, model);
-    model.eventWithoutProgress("Deleted %d images.", Integer.valueOf(max));
+    model.eventWithoutProgress(
+      "Deleted %d images.",
+      Integer.valueOf(requests.size())
+    );
     return LCommandUndoable.COMMAND_UNDOABLE;
   }
 
@@ -190,6 +223,24 @@ public final class LCommandImagesDelete
     final var context =
       transaction.get(DSLContext.class);
 
+    final var insertImages =
+      context.batch(
+        context.insertInto(IMAGES)
+          .set(IMAGES.IMAGE_ID, longParam("id"))
+          .set(IMAGES.IMAGE_NAME, DSL.param("name", String.class))
+          .set(IMAGES.IMAGE_BLOB, longParam("blob"))
+          .set(IMAGES.IMAGE_SOURCE, DSL.param("source", String.class))
+          .set(IMAGES.IMAGE_FILE, DSL.param("file", String.class))
+          .onConflictDoNothing()
+      );
+    final var insertCaptions =
+      context.batch(
+        context.insertInto(IMAGE_CAPTIONS)
+          .set(IMAGE_CAPTIONS.IMAGE_CAPTION_CAPTION, longParam("caption"))
+          .set(IMAGE_CAPTIONS.IMAGE_CAPTION_IMAGE, longParam("image"))
+          .onConflictDoNothing()
+      );
+
     final var max = this.savedData.size();
     for (int index = 0; index < max; ++index) {
       final var saved = this.savedData.get(index);
@@ -201,25 +252,37 @@ public final class LCommandImagesDelete
         saved.savedImageId
       );
 
-      context.insertInto(IMAGES)
-        .set(IMAGES.IMAGE_ID, saved.savedImageId)
-        .set(IMAGES.IMAGE_NAME, saved.savedName)
-        .set(IMAGES.IMAGE_BLOB, saved.savedBlobId)
-        .set(IMAGES.IMAGE_SOURCE, saved.savedSourceText)
-        .set(IMAGES.IMAGE_FILE, saved.savedFile)
-        .onConflictDoNothing()
-        .execute();
+      final var imageId = Long.valueOf(saved.savedImageId);
+      insertImages.bind(
+        imageId,
+        saved.savedName,
+        Long.valueOf(saved.savedBlobId),
+        saved.savedSourceText,
+        saved.savedFile
+      );
 
-      for (final var tag : saved.savedCaptions) {
-        context.insertInto(IMAGE_CAPTIONS)
-          .set(IMAGE_CAPTIONS.IMAGE_CAPTION_CAPTION, tag)
-          .set(IMAGE_CAPTIONS.IMAGE_CAPTION_IMAGE, saved.savedImageId)
-          .onConflictDoNothing()
-          .execute();
+      final var captions = saved.savedCaptions;
+      for (int c = 0; c < captions.size(); ++c) {
+        insertCaptions.bind(Long.valueOf(captions.get(c)), imageId);
       }
     }
 
+    /*
+     * Images must exist before their caption assignments are restored.
+     */
+
+    executeBatch(insertImages);
+    executeBatch(insertCaptions);
+
     model.setImagesAll(LCommandModelUpdates.listImages(context));
+    final var engine = model.captionStatisticsEngine();
+    final var pairs = new ArrayList<LBulkPairs.Pair>();
+    for (final var saved : this.savedData) {
+      saved.savedCaptions.forEach(c -> {
+        pairs.add(new LBulkPairs.Pair(saved.savedImageId, c));
+      });
+    }
+    engine.assigned(pairs);
     LCommandModelUpdates.updateCaptionsAndCategories(context, model);
     model.eventWithoutProgress("Undeleted %d images.", Integer.valueOf(max));
   }
@@ -232,6 +295,12 @@ public final class LCommandImagesDelete
     final var context =
       transaction.get(DSLContext.class);
 
+    final var delete =
+      context.batch(
+        context.deleteFrom(IMAGES)
+          .where(IMAGES.IMAGE_ID.eq(longParam("image")))
+      );
+
     final var max = this.savedData.size();
     for (int index = 0; index < max; ++index) {
       final var saved = this.savedData.get(index);
@@ -243,12 +312,15 @@ public final class LCommandImagesDelete
         saved.savedImageId
       );
 
-      context.deleteFrom(IMAGES)
-        .where(IMAGES.IMAGE_ID.eq(saved.savedImageId))
-        .execute();
+      delete.bind(Long.valueOf(saved.savedImageId));
     }
+    executeBatch(delete);
 
     model.setImagesAll(LCommandModelUpdates.listImages(context));
+    final var engine = model.captionStatisticsEngine();
+    for (final var saved : this.savedData) {
+      engine.imageDeleted(saved.savedImageId);
+    }
     LCommandModelUpdates.updateCaptionsAndCategories(context, model);
     model.eventWithoutProgress("Re-deleted %d images.", Integer.valueOf(max));
   }
@@ -278,7 +350,7 @@ public final class LCommandImagesDelete
       final var captionsText =
         data.savedCaptions
           .stream()
-          .map(Long::toUnsignedString)
+          .mapToObj(Long::toUnsignedString)
           .collect(Collectors.joining(","));
 
       p.setProperty(idKey, Long.toUnsignedString(data.savedImageId));
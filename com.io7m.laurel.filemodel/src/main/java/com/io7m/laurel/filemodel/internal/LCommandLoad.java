@@ -19,9 +19,17 @@ package com.io7m.laurel.filemodel.internal;
 
 import com.io7m.darco.api.DDatabaseUnit;
 import com.io7m.laurel.filemodel.LFileModelStatusLoading;
+import com.io7m.laurel.filemodel.LFileModelStatusRunningCommand;
+import com.io7m.laurel.model.LException;
 import org.jooq.DSLContext;
 
+import java.util.Objects;
 import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 
 /**
  * Load everything.
@@ -70,28 +78,103 @@ public final class LCommandLoad
     final LFileModel model,
     final LDatabaseTransactionType transaction,
     final DDatabaseUnit request)
+    throws LException
   {
     model.setStatus(new LFileModelStatusLoading());
 
     final var context = transaction.get(DSLContext.class);
+    model.setHistoryRetention(LHistoryRetentions.get(context));
+
+    final var snapshot = LModelSnapshots.load(context);
+    if (snapshot.isPresent()) {
+      loadFromSnapshot(model, transaction, snapshot.get());
+      return LCommandUndoable.COMMAND_NOT_UNDOABLE;
+    }
+
+    /*
+     * The image and caption lists are all that is required for the file to
+     * be browsed, so these are loaded and published first, and the model
+     * stops reporting that it is loading. Commands submitted from this point
+     * wait for the command lock, and so run after the load has completed.
+     */
 
     model.eventWithProgress(0.0, "Loading images…");
     model.setImagesAll(LCommandModelUpdates.listImages(context));
 
     model.eventWithProgress(0.25, "Loading captions…");
-    model.setCategoriesAndCaptions(
-      context,
-      LCommandModelUpdates.listCaptionsAll(context),
-      LCommandModelUpdates.listCategoriesAll(context),
-      LCommandModelUpdates.listCategoriesRequired(context),
-      LCommandModelUpdates.listCategoriesCaptions(context)
-    );
+    final var captionsAll = LCommandModelUpdates.listCaptionsAll(context);
+    model.setCaptionsAll(captionsAll);
+    model.setStatus(new LFileModelStatusRunningCommand());
+
+    this.checkCancelled();
+
+    /*
+     * Everything else is loaded concurrently on separate read-only
+     * connections.
+     */
+
+    model.eventWithProgress(0.5, "Loading categories, metadata and history…");
+
+    try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      final var categoriesAll =
+        query(executor, model, LCommandModelUpdates::listCategoriesAll);
+      final var categoriesRequired =
+        query(executor, model, LCommandModelUpdates::listCategoriesRequired);
+      final var categoriesCaptions =
+        query(executor, model, LCommandModelUpdates::listCategoriesCaptions);
+      final var metadata =
+        query(executor, model, LCommandModelUpdates::listMetadata);
+      final var globalCaptions =
+        query(executor, model, LCommandModelUpdates::listGlobalCaptions);
+      final var undo =
+        submit(executor, model, t -> {
+          model.loadUndo(t);
+          return DDatabaseUnit.UNIT;
+        });
+      final var redo =
+        submit(executor, model, t -> {
+          model.loadRedo(t);
+          return DDatabaseUnit.UNIT;
+        });
 
-    model.eventWithProgress(0.5, "Loading metadata…");
-    model.setMetadata(LCommandModelUpdates.listMetadata(context));
+      model.setCategoriesAndCaptions(
+        context,
+        captionsAll,
+        await(categoriesAll),
+        await(categoriesRequired),
+        await(categoriesCaptions)
+      );
+      model.setMetadata(await(metadata));
+      model.setGlobalCaptions(await(globalCaptions));
+      await(undo);
+      await(redo);
+    }
 
-    model.eventWithProgress(0.75, "Loading global captions…");
-    model.setGlobalCaptions(LCommandModelUpdates.listGlobalCaptions(context));
+    model.eventWithProgress(1.0, "Loaded file.");
+    return LCommandUndoable.COMMAND_NOT_UNDOABLE;
+  }
+
+  /**
+   * Load the model from a snapshot taken at the current database generation.
+   * Only the undo and redo tips are read from the database.
+   */
+
+  private static void loadFromSnapshot(
+    final LFileModel model,
+    final LDatabaseTransactionType transaction,
+    final LModelSnapshot snapshot)
+  {
+    model.eventWithProgress(0.0, "Loading snapshot…");
+    model.setImagesAll(snapshot.images());
+    model.setCategoriesAndCaptions(
+      transaction.get(DSLContext.class),
+      snapshot.captions(),
+      snapshot.categories(),
+      snapshot.categoriesRequired(),
+      snapshot.categoryCaptions()
+    );
+    model.setMetadata(snapshot.metadata());
+    model.setGlobalCaptions(snapshot.globalCaptions());
 
     model.eventWithProgress(0.8, "Loading undo stack…");
     model.loadUndo(transaction);
@@ -100,7 +183,50 @@ public final class LCommandLoad
     model.loadRedo(transaction);
 
     model.eventWithProgress(1.0, "Loaded file.");
-    return LCommandUndoable.COMMAND_NOT_UNDOABLE;
+  }
+
+  private static <T> Future<T> query(
+    final ExecutorService executor,
+    final LFileModel model,
+    final Function<DSLContext, T> query)
+  {
+    return submit(executor, model, t -> query.apply(t.get(DSLContext.class)));
+  }
+
+  private static <T> Future<T> submit(
+    final ExecutorService executor,
+    final LFileModel model,
+    final LFileModel.ReadOnlyQueryType<T> query)
+  {
+    return executor.submit(() -> model.readOnly(query));
+  }
+
+  private static <T> T await(
+    final Future<T> future)
+    throws LException
+  {
+    try {
+      return future.get();
+    } catch (final ExecutionException e) {
+      final var cause = e.getCause();
+      if (cause instanceof final LException x) {
+        throw x;
+      }
+      throw new LException(
+        Objects.requireNonNullElse(
+          cause.getMessage(),
+          cause.getClass().getSimpleName()),
+        cause,
+        "error-exception"
+      );
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new LException(
+        "Interrupted while loading.",
+        e,
+        "error-exception"
+      );
+    }
   }
 
   @Override
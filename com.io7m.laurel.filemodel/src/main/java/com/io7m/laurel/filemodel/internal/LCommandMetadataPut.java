@@ -97,6 +97,12 @@ public final class LCommandMetadataPut
     return c;
   }
 
+  @Override
+  public boolean isCoalescable()
+  {
+    return true;
+  }
+
   @Override
   protected LCommandUndoable onExecute(
     final LFileModel model,
@@ -140,7 +146,7 @@ public final class LCommandMetadataPut
     }
 
     model.eventWithoutProgress("Added %d metadata values.", max);
-    model.setMetadata(LCommandModelUpdates.listMetadata(context));
+    LCommandModelUpdates.updateMetadata(context, model);
     return LCommandUndoable.COMMAND_UNDOABLE;
   }
 
@@ -175,7 +181,7 @@ public final class LCommandMetadataPut
     }
 
     model.eventWithoutProgress("Updated %d metadata values.", this.savedData.size());
-    model.setMetadata(LCommandModelUpdates.listMetadata(context));
+    LCommandModelUpdates.updateMetadata(context, model);
   }
 
   @Override
@@ -205,7 +211,7 @@ public final class LCommandMetadataPut
     }
 
     model.eventWithoutProgress("Updated %d metadata values.", this.savedData.size());
-    model.setMetadata(LCommandModelUpdates.listMetadata(context));
+    LCommandModelUpdates.updateMetadata(context, model);
   }
 
   @Override
@@ -92,6 +92,12 @@ public final class LCommandMetadataRemove
     return c;
   }
 
+  @Override
+  public boolean isCoalescable()
+  {
+    return true;
+  }
+
   @Override
   protected LCommandUndoable onExecute(
     final LFileModel model,
@@ -124,7 +130,7 @@ public final class LCommandMetadataRemove
     }
 
     model.eventWithoutProgress("Removed %d metadata values.", max);
-    model.setMetadata(LCommandModelUpdates.listMetadata(context));
+    LCommandModelUpdates.updateMetadata(context, model);
     return LCommandUndoable.COMMAND_UNDOABLE;
   }
 
@@ -153,7 +159,7 @@ public final class LCommandMetadataRemove
     }
 
     model.eventWithoutProgress("Updated %d metadata values.", this.savedData.size());
-    model.setMetadata(LCommandModelUpdates.listMetadata(context));
+    LCommandModelUpdates.updateMetadata(context, model);
   }
 
   @Override
@@ -181,7 +187,7 @@ public final class LCommandMetadataRemove
     }
 
     model.eventWithoutProgress("Removed %d metadata values.", this.savedData.size());
-    model.setMetadata(LCommandModelUpdates.listMetadata(context));
+    LCommandModelUpdates.updateMetadata(context, model);
   }
 
   @Override
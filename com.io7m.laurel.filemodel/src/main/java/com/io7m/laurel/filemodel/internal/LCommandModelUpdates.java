@@ -24,8 +24,6 @@ import com.io7m.laurel.model.LCategory;
 import com.io7m.laurel.model.LCategoryID;
 import com.io7m.laurel.model.LCategoryName;
 import com.io7m.laurel.model.LGlobalCaption;
-import com.io7m.laurel.model.LHashSHA256;
-import com.io7m.laurel.model.LImage;
 import com.io7m.laurel.model.LImageID;
 import com.io7m.laurel.model.LImageWithID;
 import com.io7m.laurel.model.LMetadataValue;
@@ -35,12 +33,9 @@ import org.jooq.DSLContext;
 import org.jooq.Field;
 import org.jooq.impl.DSL;
 
-import java.net.URI;
-import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
@@ -75,7 +70,7 @@ public final class LCommandModelUpdates
   static List<LImageWithID> listImages(
     final DSLContext context)
   {
-    return context.select(
+    final var records = context.select(
         IMAGES.IMAGE_ID,
         IMAGES.IMAGE_SOURCE,
         IMAGES.IMAGE_NAME,
@@ -87,25 +82,21 @@ public final class LCommandModelUpdates
       .join(IMAGE_BLOBS)
       .on(IMAGE_BLOBS.IMAGE_BLOB_ID.eq(IMAGES.IMAGE_BLOB))
       .orderBy(IMAGES.IMAGE_NAME)
-      .stream()
-      .map(LCommandModelUpdates::mapImageRecord)
-      .toList();
-  }
+      .fetchLazy();
 
-  private static LImageWithID mapImageRecord(
-    final org.jooq.Record r)
-  {
-    try {
-      return new LImageWithID(
-        new LImageID(r.<Long>get(IMAGES.IMAGE_ID).longValue()),
-        new LImage(
+    try (records) {
+      final var builder = LImageIndex.builder(0);
+      for (final var r : records) {
+        builder.add(
+          r.<Long>get(IMAGES.IMAGE_ID).longValue(),
           r.get(IMAGES.IMAGE_NAME),
-          Optional.ofNullable(r.get(IMAGES.IMAGE_FILE)).map(Paths::get),
-          Optional.ofNullable(r.get(IMAGES.IMAGE_SOURCE)).map(URI::create),
-          MIME_PARSERS.parse(r.get(IMAGE_BLOBS.IMAGE_BLOB_TYPE)),
-          new LHashSHA256(r.get(IMAGE_BLOBS.IMAGE_BLOB_SHA256))
-        )
-      );
+          r.get(IMAGES.IMAGE_FILE),
+          r.get(IMAGES.IMAGE_SOURCE),
+          r.get(IMAGE_BLOBS.IMAGE_BLOB_TYPE),
+          r.get(IMAGE_BLOBS.IMAGE_BLOB_SHA256)
+        );
+      }
+      return builder.build();
     } catch (final MimeParseException e) {
       throw new IllegalStateException(e);
     }
@@ -126,7 +117,7 @@ public final class LCommandModelUpdates
       .map(r -> {
         return new LCaption(
           new LCaptionID(r.<Long>get(CAPTIONS.CAPTION_ID).longValue()),
-          new LCaptionName(r.get(CAPTIONS.CAPTION_TEXT)),
+          LCaptionName.interned(r.get(CAPTIONS.CAPTION_TEXT)),
           r.<Long>get(COUNT_FIELD).longValue()
         );
       })
@@ -153,7 +144,7 @@ public final class LCommandModelUpdates
       .map(r -> {
         return new LCaption(
           new LCaptionID(r.<Long>get(CAPTIONS.CAPTION_ID).longValue()),
-          new LCaptionName(r.get(CAPTIONS.CAPTION_TEXT)),
+          LCaptionName.interned(r.get(CAPTIONS.CAPTION_TEXT)),
           r.<Long>get(COUNT_FIELD).longValue()
         );
       })
@@ -179,7 +170,7 @@ public final class LCommandModelUpdates
       .map(r -> {
         return new LCaption(
           new LCaptionID(r.<Long>get(CAPTIONS.CAPTION_ID).longValue()),
-          new LCaptionName(r.get(CAPTIONS.CAPTION_TEXT)),
+          LCaptionName.interned(r.get(CAPTIONS.CAPTION_TEXT)),
           r.<Long>get(COUNT_FIELD).longValue()
         );
       })
@@ -213,7 +204,7 @@ public final class LCommandModelUpdates
       final var category =
         new LCategoryID(rec.get(CATEGORIES.CATEGORY_ID));
       final var caption =
-        new LCaptionName(rec.get(CAPTIONS.CAPTION_TEXT));
+        LCaptionName.interned(rec.get(CAPTIONS.CAPTION_TEXT));
       final var tagWithId =
         new LCaption(
           new LCaptionID(rec.<Long>get(CAPTIONS.CAPTION_ID).longValue()),
@@ -283,6 +274,10 @@ public final class LCommandModelUpdates
     final DSLContext context,
     final LFileModel model)
   {
+    if (model.deferRefresh(LModelRefresh.CAPTIONS_AND_CATEGORIES)) {
+      return;
+    }
+
     final var imageSelectedOpt =
       model.imageSelected().get();
     if (imageSelectedOpt.isPresent()) {
@@ -310,18 +305,57 @@ public final class LCommandModelUpdates
       listCategoriesRequired(context),
       listCategoriesCaptions(context)
     );
+
+    updateCaptionSuggestions(model);
+  }
+
+  /**
+   * Update the caption suggestions for the selected image. The suggestions
+   * are computed from the in-memory caption index. If the index is not
+   * valid, rebuilding it would mean scanning every caption assignment, so
+   * no suggestions are published, and a job is scheduled to rebuild the
+   * index and then compute the suggestions.
+   *
+   * @param model The model
+   *
+   * @see LJobCaptionIndex
+   */
+
+  static void updateCaptionSuggestions(
+    final LFileModel model)
+  {
+    final var imageSelectedOpt =
+      model.imageSelected().get();
+
+    if (imageSelectedOpt.isEmpty()) {
+      model.setImageCaptionSuggestions(List.of());
+      return;
+    }
+
+    final var engine = model.captionStatisticsEngine();
+    if (!engine.isValid()) {
+      model.setImageCaptionSuggestions(List.of());
+      model.captionIndexRequest();
+      return;
+    }
+
+    model.setImageCaptionSuggestions(
+      engine.suggestions(
+        imageSelectedOpt.get().id().value(),
+        model.captionList().get()
+      )
+    );
   }
 
-  static List<LCaptionID> listImageCaptions(
+  static void updateMetadata(
     final DSLContext context,
-    final LImageID id)
+    final LFileModel model)
   {
-    return context.select(IMAGE_CAPTIONS.IMAGE_CAPTION_CAPTION)
-      .from(IMAGE_CAPTIONS)
-      .where(IMAGE_CAPTIONS.IMAGE_CAPTION_IMAGE.eq(id.value()))
-      .stream()
-      .map(x -> new LCaptionID(x.value1().longValue()))
-      .toList();
+    if (model.deferRefresh(LModelRefresh.METADATA)) {
+      return;
+    }
+
+    model.setMetadata(listMetadata(context));
   }
 
   static List<LMetadataValue> listMetadata(
@@ -353,7 +387,7 @@ public final class LCommandModelUpdates
         return new LGlobalCaption(
           new LCaption(
             new LCaptionID(r.get(GLOBAL_CAPTIONS.GLOBAL_CAPTION_ID)),
-            new LCaptionName(r.get(GLOBAL_CAPTIONS.GLOBAL_CAPTION_TEXT)),
+            LCaptionName.interned(r.get(GLOBAL_CAPTIONS.GLOBAL_CAPTION_TEXT)),
             1L
           ),
           r.get(GLOBAL_CAPTIONS.GLOBAL_CAPTION_ORDER).longValue()
@@ -0,0 +1,129 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.laurel.filemodel.internal;
+
+import com.io7m.darco.api.DDatabaseException;
+import com.io7m.laurel.model.LException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A queue of coalescable commands. Commands are added by any thread, and
+ * drained by whichever thread holds the model's command lock. Every command
+ * drained at once is executed in a single transaction.
+ *
+ * @see LCommandType#isCoalescable()
+ */
+
+final class LCommandQueue
+{
+  /**
+   * The maximum number of commands executed in a single transaction.
+   */
+
+  static final int MAXIMUM_BATCH = 256;
+
+  private final ConcurrentLinkedQueue<Entry<?>> queue;
+
+  LCommandQueue()
+  {
+    this.queue = new ConcurrentLinkedQueue<>();
+  }
+
+  /**
+   * A queued command.
+   *
+   * @param command    The command
+   * @param parameters The command parameters
+   * @param future     The future completed when the command has executed;
+   *                   cancelling it cancels the command
+   * @param <P>        The type of parameters
+   */
+
+  record Entry<P>(
+    LCommandType<P> command,
+    P parameters,
+    LCancellableFuture<Void> future)
+  {
+    Entry
+    {
+      Objects.requireNonNull(command, "command");
+      Objects.requireNonNull(parameters, "parameters");
+      Objects.requireNonNull(future, "future");
+    }
+
+    LCommandUndoable execute(
+      final LFileModel model,
+      final LDatabaseTransactionType transaction)
+      throws LException, DDatabaseException
+    {
+      return this.command.execute(
+        model,
+        transaction,
+        this.parameters,
+        this.future.cancellation()
+      );
+    }
+  }
+
+  /**
+   * Add a command to the queue.
+   *
+   * @param command    The command
+   * @param parameters The parameters
+   * @param <P>        The type of parameters
+   *
+   * @return The queued entry
+   */
+
+  <P> Entry<P> enqueue(
+    final LCommandType<P> command,
+    final P parameters)
+  {
+    final var entry =
+      new Entry<>(
+        command,
+        parameters,
+        new LCancellableFuture<Void>(new LCancellation())
+      );
+    this.queue.add(entry);
+    return entry;
+  }
+
+  /**
+   * Remove up to {@link #MAXIMUM_BATCH} commands from the queue, in the
+   * order in which they were added.
+   *
+   * @return The commands
+   */
+
+  List<Entry<?>> drain()
+  {
+    final var entries = new ArrayList<Entry<?>>();
+    while (entries.size() < MAXIMUM_BATCH) {
+      final var entry = this.queue.poll();
+      if (entry == null) {
+        break;
+      }
+      entries.add(entry);
+    }
+    return entries;
+  }
+}
@@ -44,10 +44,16 @@ public interface LCommandType<P>
   }
 
   /**
-   * @return {@code true} if the database should be compacted after this command
+   * A coalescable command only changes captions, categories, or metadata,
+   * and refreshes the model solely through {@link LCommandModelUpdates}.
+   * Queued coalescable commands may be executed together in a single
+   * transaction with a single model refresh, although each command is still
+   * recorded as a separate undo entry.
+   *
+   * @return {@code true} if this command is coalescable
    */
 
-  default boolean requiresCompaction()
+  default boolean isCoalescable()
   {
     return false;
   }
@@ -55,20 +61,22 @@ public interface LCommandType<P>
   /**
    * Execute the command.
    *
-   * @param model       The model
-   * @param transaction The database transaction
-   * @param parameters  The parameters
+   * @param model        The model
+   * @param transaction  The database transaction
+   * @param parameters   The parameters
+   * @param cancellation The cancellation token, checked between units of work
    *
    * @return A value indicating if the command can be undone
    *
-   * @throws LException         On errors
+   * @throws LException         On errors, or if the command was cancelled
    * @throws DDatabaseException On errors
    */
 
   LCommandUndoable execute(
     LFileModel model,
     LDatabaseTransactionType transaction,
-    P parameters)
+    P parameters,
+    LCancellation cancellation)
     throws LException, DDatabaseException;
 
   /**
@@ -56,6 +56,24 @@ final class LDatabase
     }
   }
 
+  /**
+   * Request incremental auto-vacuum. This takes effect when a new database
+   * is created; existing databases keep their mode until fully vacuumed.
+   *
+   * @see LJobVacuumConvert
+   */
+
+  private static void setAutoVacuumMode(
+    final Connection connection)
+    throws DDatabaseException
+  {
+    try (var st = connection.createStatement()) {
+      st.execute("PRAGMA auto_vacuum=INCREMENTAL;");
+    } catch (final SQLException e) {
+      throw DDatabaseException.ofException(e);
+    }
+  }
+
   @Override
   protected LDatabaseConnectionType createConnection(
     final Span span,
@@ -63,6 +81,7 @@ final class LDatabase
     final Map<Class<?>, LDatabaseQueryProviderType<?, ?, ?>> queries)
     throws DDatabaseException
   {
+    setAutoVacuumMode(connection);
     setWALMode(connection);
     return new LDatabaseConnection(this, span, connection, queries);
   }
@@ -21,18 +21,22 @@ import com.io7m.darco.api.DDatabaseCreate;
 import com.io7m.darco.api.DDatabaseTelemetryType;
 import com.io7m.darco.api.DDatabaseUpgrade;
 import com.io7m.darco.sqlite.DSDatabaseConfigurationType;
+import com.io7m.laurel.filemodel.LMetricsRecorderType;
 
 import java.nio.file.Path;
 import java.util.Objects;
+import java.util.Optional;
 
 /**
  * The configuration information for the laurel SQLite database.
  *
- * @param telemetry The telemetry interface
- * @param create    The database creation option
- * @param upgrade   The database upgrade option
- * @param file      The database file
- * @param readOnly  If the database should be read-only
+ * @param telemetry   The telemetry interface
+ * @param create      The database creation option
+ * @param upgrade     The database upgrade option
+ * @param file        The database file
+ * @param readOnly    If the database should be read-only
+ * @param metrics     The metrics recorder
+ * @param slowQueries The slow query log, if slow queries are recorded
  */
 
 public record LDatabaseConfiguration(
@@ -40,17 +44,21 @@ public record LDatabaseConfiguration(
   DDatabaseCreate create,
   DDatabaseUpgrade upgrade,
   Path file,
-  boolean readOnly)
+  boolean readOnly,
+  LMetricsRecorderType metrics,
+  Optional<LSlowQueryLog> slowQueries)
   implements DSDatabaseConfigurationType
 {
   /**
    * The configuration information for the laurel SQLite database.
    *
-   * @param telemetry The telemetry interface
-   * @param create    The database creation option
-   * @param upgrade   The database upgrade option
-   * @param file      The database file
-   * @param readOnly  If the database should be read-only
+   * @param telemetry   The telemetry interface
+   * @param create      The database creation option
+   * @param upgrade     The database upgrade option
+   * @param file        The database file
+   * @param readOnly    If the database should be read-only
+   * @param metrics     The metrics recorder
+   * @param slowQueries The slow query log, if slow queries are recorded
    */
 
   public LDatabaseConfiguration
@@ -59,5 +67,7 @@ public record LDatabaseConfiguration(
     Objects.requireNonNull(create, "create");
     Objects.requireNonNull(upgrade, "upgrade");
     Objects.requireNonNull(file, "file");
+    Objects.requireNonNull(metrics, "metrics");
+    Objects.requireNonNull(slowQueries, "slowQueries");
   }
 }
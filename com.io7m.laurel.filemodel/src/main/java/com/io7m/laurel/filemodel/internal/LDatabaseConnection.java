@@ -21,12 +21,16 @@ import com.io7m.darco.api.DDatabaseConnectionAbstract;
 import com.io7m.darco.api.DDatabaseTransactionCloseBehavior;
 import io.opentelemetry.api.trace.Span;
 import org.jooq.DSLContext;
+import org.jooq.ExecuteListenerProvider;
 import org.jooq.SQLDialect;
 import org.jooq.conf.RenderNameCase;
 import org.jooq.conf.Settings;
 import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultConfiguration;
+import org.jooq.impl.DefaultExecuteListenerProvider;
 
 import java.sql.Connection;
+import java.util.ArrayList;
 import java.util.Map;
 
 final class LDatabaseConnection
@@ -39,6 +43,8 @@ final class LDatabaseConnection
   private static final Settings SETTINGS =
     new Settings().withRenderNameCase(RenderNameCase.LOWER);
 
+  private final ExecuteListenerProvider[] listeners;
+
   LDatabaseConnection(
     final LDatabase database,
     final Span span,
@@ -46,6 +52,25 @@ final class LDatabaseConnection
     final Map<Class<?>, LDatabaseQueryProviderType<?, ?, ?>> queries)
   {
     super(database.configuration(), span, connection, queries);
+
+    final var configuration =
+      database.configuration();
+    final var listenerList =
+      new ArrayList<ExecuteListenerProvider>(2);
+
+    listenerList.add(
+      new DefaultExecuteListenerProvider(
+        new LMetricsExecuteListener(configuration.metrics())
+      )
+    );
+    configuration.slowQueries().ifPresent(log -> {
+      listenerList.add(
+        new DefaultExecuteListenerProvider(new LSlowQueryExecuteListener(log))
+      );
+    });
+
+    this.listeners =
+      listenerList.toArray(new ExecuteListenerProvider[0]);
   }
 
   @Override
@@ -68,6 +93,12 @@ final class LDatabaseConnection
 
   private DSLContext createContext()
   {
-    return DSL.using(this.connection(), SQLDialect.SQLITE, SETTINGS);
+    return DSL.using(
+      new DefaultConfiguration()
+        .set(this.connection())
+        .set(SQLDialect.SQLITE)
+        .set(SETTINGS)
+        .set(this.listeners)
+    );
   }
 }
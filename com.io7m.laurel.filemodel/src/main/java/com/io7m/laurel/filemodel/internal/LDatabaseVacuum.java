@@ -0,0 +1,164 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.laurel.filemodel.internal;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Functions to manage SQLite auto-vacuum.
+ */
+
+public final class LDatabaseVacuum
+{
+  /**
+   * The value of {@code PRAGMA auto_vacuum} for incremental auto-vacuum.
+   */
+
+  public static final int AUTO_VACUUM_INCREMENTAL = 2;
+
+  private LDatabaseVacuum()
+  {
+
+  }
+
+  /**
+   * @param connection The connection
+   *
+   * @return The auto-vacuum mode actually in effect for the database
+   *
+   * @throws SQLException On errors
+   */
+
+  public static int autoVacuumMode(
+    final Connection connection)
+    throws SQLException
+  {
+    try (var st = connection.createStatement();
+         var rs = st.executeQuery("PRAGMA auto_vacuum")) {
+      rs.next();
+      return rs.getInt(1);
+    }
+  }
+
+  /**
+   * @param connection The connection
+   *
+   * @return The number of unused pages in the database
+   *
+   * @throws SQLException On errors
+   */
+
+  public static long freePages(
+    final Connection connection)
+    throws SQLException
+  {
+    try (var st = connection.createStatement();
+         var rs = st.executeQuery("PRAGMA freelist_count")) {
+      rs.next();
+      return rs.getLong(1);
+    }
+  }
+
+  /**
+   * Switch the database to incremental auto-vacuum if it does not already
+   * use it. Databases created before incremental auto-vacuum was requested
+   * can only be switched by rebuilding them with a full {@code VACUUM}, and
+   * so this should be called once, outside of any transaction.
+   *
+   * @param connection The connection
+   *
+   * @return {@code true} if the database was converted
+   *
+   * @throws SQLException On errors
+   */
+
+  public static boolean convertToIncremental(
+    final Connection connection)
+    throws SQLException
+  {
+    if (autoVacuumMode(connection) == AUTO_VACUUM_INCREMENTAL) {
+      return false;
+    }
+
+    final var event = new LJFRVacuumEvent();
+    event.begin();
+
+    final var before = freePages(connection);
+    try (var st = connection.createStatement()) {
+      st.execute("PRAGMA auto_vacuum=INCREMENTAL;");
+      st.execute("VACUUM;");
+    }
+
+    event.mode = "FULL";
+    event.pagesFreed = before - freePages(connection);
+    event.commit();
+    return true;
+  }
+
+  /**
+   * Release up to {@code pages} unused pages back to the filesystem.
+   *
+   * {@code PRAGMA incremental_vacuum} frees one page per step of the
+   * statement, and so executing it as a prepared statement that is stepped
+   * only once frees a single page. The pragma is instead repeated until the
+   * requested number of pages have been freed or no further progress is
+   * made.
+   *
+   * @param connection The connection
+   * @param pages      The maximum number of pages to free
+   *
+   * @return The number of pages freed
+   *
+   * @throws SQLException On errors
+   */
+
+  public static long incrementalVacuum(
+    final Connection connection,
+    final long pages)
+    throws SQLException
+  {
+    final var event = new LJFRVacuumEvent();
+    event.begin();
+
+    final var before = freePages(connection);
+    var remaining = Math.min(pages, before);
+    var current = before;
+
+    try (var st = connection.createStatement()) {
+      while (remaining > 0L) {
+        st.executeUpdate(
+          "PRAGMA incremental_vacuum(%d)".formatted(Long.valueOf(remaining))
+        );
+
+        final var after = freePages(connection);
+        final var freed = current - after;
+        if (freed <= 0L) {
+          break;
+        }
+        remaining -= freed;
+        current = after;
+      }
+    }
+
+    event.mode = "INCREMENTAL";
+    event.pagesFreed = before - current;
+    event.commit();
+    return before - current;
+  }
+}
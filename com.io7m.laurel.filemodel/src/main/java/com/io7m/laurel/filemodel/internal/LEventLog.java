@@ -0,0 +1,184 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.laurel.filemodel.internal;
+
+import com.io7m.laurel.filemodel.LFileModelEventType;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * A bounded log of events produced by a long-running command. Events are
+ * held in a ring buffer, so that once the log is full, the oldest events are
+ * discarded. Snapshots of the log are published at most once per interval
+ * (and on request), so the cost of publishing the log is bounded by the
+ * capacity of the log rather than growing with the number of events.
+ *
+ * <p>Instances are not thread-safe.</p>
+ */
+
+public final class LEventLog
+{
+  /**
+   * The default maximum number of retained events.
+   */
+
+  public static final int DEFAULT_CAPACITY = 10_000;
+
+  /**
+   * The default interval between published snapshots.
+   */
+
+  public static final Duration DEFAULT_INTERVAL =
+    Duration.ofMillis(100L);
+
+  private final LFileModelEventType[] ring;
+  private final long intervalNanos;
+  private int head;
+  private int size;
+  private long discarded;
+  private long timeLast;
+  private boolean published;
+  private boolean dirty;
+
+  /**
+   * A bounded log of events.
+   *
+   * @param capacity The maximum number of retained events
+   * @param interval The minimum interval between published snapshots
+   */
+
+  public LEventLog(
+    final int capacity,
+    final Duration interval)
+  {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException(
+        "Capacity %d must be positive.".formatted(Integer.valueOf(capacity))
+      );
+    }
+
+    this.ring =
+      new LFileModelEventType[capacity];
+    this.intervalNanos =
+      Objects.requireNonNull(interval, "interval").toNanos();
+  }
+
+  /**
+   * A bounded log of events with the default capacity and interval.
+   */
+
+  public LEventLog()
+  {
+    this(DEFAULT_CAPACITY, DEFAULT_INTERVAL);
+  }
+
+  /**
+   * Append an event, discarding the oldest event if the log is full.
+   *
+   * @param event The event
+   */
+
+  public void add(
+    final LFileModelEventType event)
+  {
+    Objects.requireNonNull(event, "event");
+
+    final var capacity = this.ring.length;
+    if (this.size == capacity) {
+      this.ring[this.head] = event;
+      this.head = (this.head + 1) % capacity;
+      ++this.discarded;
+    } else {
+      this.ring[(this.head + this.size) % capacity] = event;
+      ++this.size;
+    }
+    this.dirty = true;
+  }
+
+  /**
+   * @return The number of events discarded because the log was full
+   */
+
+  public long discarded()
+  {
+    return this.discarded;
+  }
+
+  /**
+   * @return The retained events, oldest first
+   */
+
+  public List<LFileModelEventType> snapshot()
+  {
+    final var capacity = this.ring.length;
+    final var results = new ArrayList<LFileModelEventType>(this.size);
+    for (int index = 0; index < this.size; ++index) {
+      results.add(this.ring[(this.head + index) % capacity]);
+    }
+    return List.copyOf(results);
+  }
+
+  /**
+   * Publish a snapshot of the log if the log has changed, and either no
+   * snapshot has been published yet or the interval has elapsed since the
+   * last snapshot.
+   *
+   * @param receiver The snapshot receiver
+   */
+
+  public void publishIfDue(
+    final Consumer<List<LFileModelEventType>> receiver)
+  {
+    if (!this.dirty) {
+      return;
+    }
+
+    final var timeNow = System.nanoTime();
+    if (!this.published || timeNow - this.timeLast >= this.intervalNanos) {
+      this.publishAt(receiver, timeNow);
+    }
+  }
+
+  /**
+   * Publish a snapshot of the log if the log has changed since the last
+   * snapshot.
+   *
+   * @param receiver The snapshot receiver
+   */
+
+  public void publish(
+    final Consumer<List<LFileModelEventType>> receiver)
+  {
+    if (this.dirty) {
+      this.publishAt(receiver, System.nanoTime());
+    }
+  }
+
+  private void publishAt(
+    final Consumer<List<LFileModelEventType>> receiver,
+    final long timeNow)
+  {
+    receiver.accept(this.snapshot());
+    this.published = true;
+    this.dirty = false;
+    this.timeLast = timeNow;
+  }
+}
@@ -0,0 +1,398 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.laurel.filemodel.internal;
+
+import com.io7m.laurel.filemodel.LExportImageFormat;
+import com.io7m.laurel.filemodel.LExportTransform;
+import com.io7m.laurel.model.LException;
+import com.io7m.laurel.model.LHashType;
+import com.io7m.laurel.model.LImageWithID;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import java.awt.Color;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * An image transformer that decodes, scales, and re-encodes images for
+ * export. Transforms run on a fixed pool of one platform thread per core,
+ * and the number of images in flight is bounded so that at most a small
+ * multiple of the core count of images are held in memory at any one time.
+ */
+
+public final class LExportTransformer
+  implements AutoCloseable
+{
+  private final LExportTransform transform;
+  private final ExecutorService executor;
+  private final Semaphore permits;
+  private final int permitsMaximum;
+  private final ConcurrentLinkedQueue<Failure> failures;
+
+  private record Failure(
+    LImageWithID image,
+    Path file,
+    Throwable exception)
+  {
+
+  }
+
+  private LExportTransformer(
+    final LExportTransform inTransform,
+    final int threads)
+  {
+    this.transform =
+      Objects.requireNonNull(inTransform, "transform");
+    this.executor =
+      Executors.newFixedThreadPool(threads, r -> {
+        final var thread = new Thread(r);
+        thread.setName("com.io7m.laurel.export.transform-" + thread.threadId());
+        thread.setDaemon(true);
+        return thread;
+      });
+    this.permitsMaximum =
+      threads * 2;
+    this.permits =
+      new Semaphore(this.permitsMaximum);
+    this.failures =
+      new ConcurrentLinkedQueue<>();
+  }
+
+  /**
+   * Create a transformer.
+   *
+   * @param transform The transform
+   *
+   * @return A transformer
+   *
+   * @throws LException If the output format is not supported
+   */
+
+  public static LExportTransformer create(
+    final LExportTransform transform)
+    throws LException
+  {
+    final var format = transform.format();
+    if (!ImageIO.getImageWritersByFormatName(format.formatName()).hasNext()) {
+      throw new LException(
+        "No image writer is available for the requested format.",
+        "error-image-format-unsupported",
+        Map.of("Format", format.formatName()),
+        Optional.empty()
+      );
+    }
+
+    final var cacheDirectory = transform.cacheDirectory();
+    if (cacheDirectory.isPresent()) {
+      try {
+        Files.createDirectories(cacheDirectory.get());
+      } catch (final IOException e) {
+        throw new LException(
+          e.getMessage(),
+          e,
+          "error-create-directory",
+          Map.of("Cache Directory", cacheDirectory.get().toString()),
+          Optional.empty()
+        );
+      }
+    }
+
+    return new LExportTransformer(
+      transform,
+      Math.max(1, Runtime.getRuntime().availableProcessors())
+    );
+  }
+
+  /**
+   * @return The output format
+   */
+
+  public LExportImageFormat format()
+  {
+    return this.transform.format();
+  }
+
+  /**
+   * Determine the cache file for the image with the given hash.
+   *
+   * @param hash The image hash
+   *
+   * @return The cache file, if caching is enabled
+   */
+
+  public Optional<Path> cacheFileFor(
+    final LHashType hash)
+  {
+    return this.transform.cacheDirectory()
+      .map(d -> d.resolve("%s-%s.%s".formatted(
+        hash.value(),
+        this.transform.parameterKey(),
+        this.transform.format().extension()
+      )));
+  }
+
+  /**
+   * Link or copy the transformed image with the given hash from the cache,
+   * if it has previously been transformed with the same parameters.
+   *
+   * @param hash   The image hash
+   * @param output The output file
+   *
+   * @return {@code true} if the image was present in the cache
+   *
+   * @throws IOException On errors
+   */
+
+  public boolean copyFromCache(
+    final LHashType hash,
+    final Path output)
+    throws IOException
+  {
+    final var cacheFile = this.cacheFileFor(hash);
+    if (cacheFile.isPresent() && Files.isRegularFile(cacheFile.get())) {
+      LBlobCache.linkOrCopy(cacheFile.get(), output);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Submit an image for transformation. The method blocks if too many images
+   * are already in flight.
+   *
+   * @param image  The image
+   * @param data   The original image data
+   * @param output The output file
+   *
+   * @throws InterruptedException If interrupted whilst waiting
+   */
+
+  public void submit(
+    final LImageWithID image,
+    final byte[] data,
+    final Path output)
+    throws InterruptedException
+  {
+    this.permits.acquire();
+
+    try {
+      this.executor.execute(() -> {
+        try {
+          this.transformOne(image, data, output);
+        } catch (final Throwable e) {
+          this.failures.add(new Failure(image, output, e));
+        } finally {
+          this.permits.release();
+        }
+      });
+    } catch (final RuntimeException e) {
+      this.permits.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Wait for all submitted images to be transformed.
+   *
+   * @throws InterruptedException If interrupted whilst waiting
+   * @throws LException           If any image failed to transform
+   */
+
+  public void finish()
+    throws InterruptedException, LException
+  {
+    this.permits.acquire(this.permitsMaximum);
+    this.permits.release(this.permitsMaximum);
+
+    final var failure = this.failures.peek();
+    if (failure != null) {
+      final var e = failure.exception();
+      throw new LException(
+        Objects.requireNonNullElse(e.getMessage(), e.getClass().getSimpleName()),
+        e,
+        "error-image-transform",
+        Map.ofEntries(
+          Map.entry("Image", failure.image().id().toString()),
+          Map.entry("File", failure.file().toString()),
+          Map.entry("Failures", Integer.toString(this.failures.size()))
+        ),
+        Optional.empty()
+      );
+    }
+  }
+
+  private void transformOne(
+    final LImageWithID image,
+    final byte[] data,
+    final Path output)
+    throws IOException
+  {
+    final BufferedImage source;
+    try (var stream = new ByteArrayInputStream(data)) {
+      source = ImageIO.read(stream);
+    }
+    if (source == null) {
+      throw new IOException("Unrecognized image format.");
+    }
+
+    final var encoded =
+      this.encode(this.scale(source));
+    final var cacheFile =
+      this.cacheFileFor(image.image().hash());
+
+    if (cacheFile.isPresent()) {
+      final var file = cacheFile.get();
+      LBlobCache.store(file, encoded);
+      LBlobCache.linkOrCopy(file, output);
+      return;
+    }
+
+    LBlobCache.replace(output, encoded);
+  }
+
+  private BufferedImage scale(
+    final BufferedImage source)
+  {
+    final var sourceWidth = source.getWidth();
+    final var sourceHeight = source.getHeight();
+    final var maximum = this.transform.maximumDimension();
+    final var opaque = this.transform.format() == LExportImageFormat.JPEG;
+    final var longest = Math.max(sourceWidth, sourceHeight);
+
+    if (longest <= maximum) {
+      if (opaque && source.getColorModel().hasAlpha()) {
+        return draw(source, sourceWidth, sourceHeight, true);
+      }
+      return source;
+    }
+
+    final var factor =
+      (double) maximum / (double) longest;
+    final var targetWidth =
+      Math.max(1, (int) Math.round(sourceWidth * factor));
+    final var targetHeight =
+      Math.max(1, (int) Math.round(sourceHeight * factor));
+
+    /*
+     * Scale down in successive halving steps before the final resize;
+     * a single bilinear step from a much larger image loses most of the
+     * source pixels and produces aliasing.
+     */
+
+    var current = source;
+    var currentWidth = sourceWidth;
+    var currentHeight = sourceHeight;
+    while (currentWidth / 2 >= targetWidth && currentHeight / 2 >= targetHeight) {
+      currentWidth /= 2;
+      currentHeight /= 2;
+      current = draw(current, currentWidth, currentHeight, opaque);
+    }
+    return draw(current, targetWidth, targetHeight, opaque);
+  }
+
+  private static BufferedImage draw(
+    final BufferedImage source,
+    final int width,
+    final int height,
+    final boolean opaque)
+  {
+    final var type =
+      opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+    final var target =
+      new BufferedImage(width, height, type);
+    final var graphics =
+      target.createGraphics();
+
+    try {
+      graphics.setRenderingHint(
+        RenderingHints.KEY_INTERPOLATION,
+        RenderingHints.VALUE_INTERPOLATION_BILINEAR
+      );
+      graphics.setRenderingHint(
+        RenderingHints.KEY_RENDERING,
+        RenderingHints.VALUE_RENDER_QUALITY
+      );
+      if (opaque) {
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, width, height);
+      }
+      graphics.drawImage(source, 0, 0, width, height, null);
+    } finally {
+      graphics.dispose();
+    }
+    return target;
+  }
+
+  private byte[] encode(
+    final BufferedImage image)
+    throws IOException
+  {
+    final var format =
+      this.transform.format();
+    final var writers =
+      ImageIO.getImageWritersByFormatName(format.formatName());
+
+    if (!writers.hasNext()) {
+      throw new IOException(
+        "No image writer is available for format %s".formatted(format)
+      );
+    }
+
+    final var writer = writers.next();
+    try (var output = new ByteArrayOutputStream()) {
+      try (var imageOutput = ImageIO.createImageOutputStream(output)) {
+        writer.setOutput(imageOutput);
+
+        final var parameters = writer.getDefaultWriteParam();
+        if (format != LExportImageFormat.PNG && parameters.canWriteCompressed()) {
+          parameters.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+          final var types = parameters.getCompressionTypes();
+          if (types != null && types.length > 0) {
+            parameters.setCompressionType(types[0]);
+          }
+          parameters.setCompressionQuality((float) this.transform.quality());
+        }
+
+        writer.write(null, new IIOImage(image, null, null), parameters);
+        imageOutput.flush();
+      }
+      return output.toByteArray();
+    } finally {
+      writer.dispose();
+    }
+  }
+
+  @Override
+  public void close()
+  {
+    this.executor.close();
+  }
+}
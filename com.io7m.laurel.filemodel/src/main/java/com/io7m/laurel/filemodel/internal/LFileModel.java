@@ -20,6 +20,7 @@ package com.io7m.laurel.filemodel.internal;
 import com.io7m.darco.api.DDatabaseCreate;
 import com.io7m.darco.api.DDatabaseException;
 import com.io7m.darco.api.DDatabaseTelemetryNoOp;
+import com.io7m.darco.api.DDatabaseTelemetryType;
 import com.io7m.darco.api.DDatabaseUnit;
 import com.io7m.darco.api.DDatabaseUpgrade;
 import com.io7m.jattribute.core.AttributeReadableType;
@@ -27,17 +28,30 @@ import com.io7m.jattribute.core.AttributeType;
 import com.io7m.jattribute.core.Attributes;
 import com.io7m.jmulticlose.core.CloseableCollection;
 import com.io7m.jmulticlose.core.CloseableCollectionType;
+import com.io7m.laurel.filemodel.LBucket;
+import com.io7m.laurel.filemodel.LBucketCount;
+import com.io7m.laurel.filemodel.LCaptionStatistics;
+import com.io7m.laurel.filemodel.LCaptionStatisticsRequest;
+import com.io7m.laurel.filemodel.LCaptionSuggestion;
 import com.io7m.laurel.filemodel.LCategoryCaptionsAssignment;
+import com.io7m.laurel.filemodel.LCommandOperation;
+import com.io7m.laurel.filemodel.LExportArchiveRequest;
+import com.io7m.laurel.filemodel.LExportManifestRequest;
 import com.io7m.laurel.filemodel.LExportRequest;
 import com.io7m.laurel.filemodel.LFileModelEvent;
 import com.io7m.laurel.filemodel.LFileModelEventType;
+import com.io7m.laurel.filemodel.LFileModelMetrics;
 import com.io7m.laurel.filemodel.LFileModelStatusIdle;
 import com.io7m.laurel.filemodel.LFileModelStatusLoading;
 import com.io7m.laurel.filemodel.LFileModelStatusRunningCommand;
 import com.io7m.laurel.filemodel.LFileModelStatusType;
+import com.io7m.laurel.filemodel.LFileModelTelemetry;
 import com.io7m.laurel.filemodel.LFileModelType;
+import com.io7m.laurel.filemodel.LHistoryRetention;
 import com.io7m.laurel.filemodel.LImageCaptionsAssignment;
 import com.io7m.laurel.filemodel.LImageComparison;
+import com.io7m.laurel.filemodel.LJobStatus;
+import com.io7m.laurel.filemodel.LSlowQuery;
 import com.io7m.laurel.filemodel.LValidationProblemType;
 import com.io7m.laurel.model.LCaption;
 import com.io7m.laurel.model.LCaptionID;
@@ -67,7 +81,9 @@ import java.net.URI;
 import java.nio.file.Path;
 import java.time.Instant;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -78,12 +94,14 @@ import java.util.Properties;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.SubmissionPublisher;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantLock;
 
 import static com.io7m.laurel.filemodel.internal.Tables.IMAGES;
@@ -137,16 +155,46 @@ public final class LFileModel implements LFileModelType
   private final ReentrantLock commandLock;
   private final SubmissionPublisher<LFileModelEventType> events;
   private final AttributeType<List<LValidationProblemType>> validationProblems;
+  private final AttributeType<List<LBucketCount>> bucketCounts;
+  private final AttributeType<LCaptionStatistics> captionStatistics;
+  private final AttributeType<List<LCaptionSuggestion>> imageCaptionSuggestions;
+  private final LCaptionStatisticsEngine captionStatisticsEngine;
+  private final LJobScheduler jobScheduler;
+  private final AttributeType<LHistoryRetention> historyRetention;
+  private final AtomicBoolean historyPrunePending;
+  private final AtomicBoolean captionIndexPending;
   private final AttributeType<List<LFileModelEventType>> exportEvents;
   private final AttributeType<LFileModelStatusType> status;
   private final ExecutorService executor;
   private final CompletableFuture<Object> loadingLatch;
+  private final LMetrics metrics;
+  private final Optional<LSlowQueryLog> slowQueries;
+  private final boolean readOnly;
+  private final LCommandQueue commandQueue;
+  private final LProgressThrottle progressThrottle;
+  private final EnumSet<LModelRefresh> refreshesPending;
+  private boolean refreshesDeferred;
 
   private LFileModel(
-    final LDatabaseType inDatabase)
+    final LDatabaseType inDatabase,
+    final LMetrics inMetrics,
+    final Optional<LSlowQueryLog> inSlowQueries,
+    final boolean inReadOnly)
   {
     this.database =
       Objects.requireNonNull(inDatabase, "database");
+    this.metrics =
+      Objects.requireNonNull(inMetrics, "metrics");
+    this.slowQueries =
+      Objects.requireNonNull(inSlowQueries, "slowQueries");
+    this.readOnly =
+      inReadOnly;
+    this.progressThrottle =
+      new LProgressThrottle(LProgressThrottle.DEFAULT_INTERVAL);
+    this.commandQueue =
+      new LCommandQueue();
+    this.refreshesPending =
+      EnumSet.noneOf(LModelRefresh.class);
     this.metadata =
       ATTRIBUTES.withValue(List.of());
     this.captionClipboard =
@@ -199,6 +247,14 @@ public final class LFileModel implements LFileModelType
       ATTRIBUTES.withValue(List.of());
     this.validationProblems =
       ATTRIBUTES.withValue(List.of());
+    this.bucketCounts =
+      ATTRIBUTES.withValue(List.of());
+    this.captionStatistics =
+      ATTRIBUTES.withValue(LCaptionStatistics.empty());
+    this.captionStatisticsEngine =
+      new LCaptionStatisticsEngine();
+    this.imageCaptionSuggestions =
+      ATTRIBUTES.withValue(List.of());
     this.status =
       ATTRIBUTES.withValue(new LFileModelStatusLoading());
     this.commandLock =
@@ -226,6 +282,14 @@ public final class LFileModel implements LFileModelType
       this.resources.add(Executors.newVirtualThreadPerTaskExecutor());
 
     this.resources.add(this.database);
+    this.historyRetention =
+      ATTRIBUTES.withValue(LHistoryRetention.unlimited());
+    this.historyPrunePending =
+      new AtomicBoolean(false);
+    this.captionIndexPending =
+      new AtomicBoolean(false);
+    this.jobScheduler =
+      this.resources.add(new LJobScheduler(ATTRIBUTES, this.executor, this));
     this.events = this.resources.add(new SubmissionPublisher<>());
 
     this.resources.add(
@@ -288,12 +352,16 @@ public final class LFileModel implements LFileModelType
     final var filter =
       this.imageFilter.get().toUpperCase();
 
+    final var images = this.imagesAll.get();
     if (filter.isBlank()) {
-      this.imagesAllFiltered.set(this.imagesAll.get());
+      this.imagesAllFiltered.set(images);
+    } else if (images instanceof final LImageIndex index) {
+      this.imagesAllFiltered.set(
+        index.filterByName(name -> name.toUpperCase().contains(filter))
+      );
     } else {
       this.imagesAllFiltered.set(
-        this.imagesAll.get()
-          .stream()
+        images.stream()
           .filter(i -> i.image().name().toUpperCase().contains(filter))
           .toList()
       );
@@ -316,50 +384,90 @@ public final class LFileModel implements LFileModelType
     final boolean readOnly)
     throws LException
   {
-    final var model = openModel(file, readOnly);
+    return open(file, readOnly, LFileModelTelemetry.none());
+  }
+
+  /**
+   * Open a file model.
+   *
+   * @param file      The file
+   * @param readOnly  {@code true} if the file should be read-only
+   * @param telemetry The telemetry configuration
+   *
+   * @return A file model
+   *
+   * @throws LException On errors
+   */
+
+  public static LFileModelType open(
+    final Path file,
+    final boolean readOnly,
+    final LFileModelTelemetry telemetry)
+    throws LException
+  {
+    final var model = openModel(file, readOnly, telemetry);
     model.load();
     return model;
   }
 
   private static LFileModel openModel(
     final Path file,
-    final boolean readOnly)
+    final boolean readOnly,
+    final LFileModelTelemetry telemetry)
     throws LException
   {
     try {
       final var databases =
         new LDatabaseFactory();
+      final var metrics =
+        new LMetrics(telemetry.recorders());
+      final var slowQueries =
+        telemetry.slowQueryThreshold().map(LSlowQueryLog::new);
+      final DDatabaseTelemetryType databaseTelemetry =
+        telemetry.openTelemetry()
+          .<DDatabaseTelemetryType>map(LDatabaseTelemetry::create)
+          .orElseGet(DDatabaseTelemetryNoOp::get);
 
       if (readOnly) {
         return new LFileModel(
           databases.open(
             new LDatabaseConfiguration(
-              DDatabaseTelemetryNoOp.get(),
+              databaseTelemetry,
               DDatabaseCreate.DO_NOT_CREATE_DATABASE,
               DDatabaseUpgrade.DO_NOT_UPGRADE_DATABASE,
               file,
-              readOnly
+              readOnly,
+              metrics,
+              slowQueries
             ),
             event -> {
 
             }
-          )
+          ),
+          metrics,
+          slowQueries,
+          true
         );
       }
 
       return new LFileModel(
         databases.open(
           new LDatabaseConfiguration(
-            DDatabaseTelemetryNoOp.get(),
+            databaseTelemetry,
             DDatabaseCreate.CREATE_DATABASE,
             DDatabaseUpgrade.UPGRADE_DATABASE,
             file,
-            readOnly
+            readOnly,
+            metrics,
+            slowQueries
           ),
           event -> {
 
           }
-        )
+        ),
+        metrics,
+        slowQueries,
+        false
       );
     } catch (final DDatabaseException e) {
       throw new LException(
@@ -516,7 +624,25 @@ public final class LFileModel implements LFileModelType
     this.runCommand(
       new LCommandLoad(),
       DDatabaseUnit.UNIT
-    );
+    ).thenRun(this::scheduleMaintenance);
+  }
+
+  /**
+   * Schedule the background jobs that prepare a freshly loaded file for
+   * use: building the caption index used for suggestions and, for files
+   * that are not read-only, applying the history retention policy and
+   * recording the dimensions of each image (for files created by older
+   * versions).
+   */
+
+  private void scheduleMaintenance()
+  {
+    this.captionIndexRequest();
+    if (!this.readOnly) {
+      this.historyPrunePending.set(true);
+      this.jobScheduler.schedule(new LJobHistoryPrune());
+      this.jobScheduler.schedule(new LJobImageDimensions());
+    }
   }
 
   void setAttribute(
@@ -819,7 +945,18 @@ public final class LFileModel implements LFileModelType
     final C command,
     final P parameters)
   {
-    final var future = new CompletableFuture<Void>();
+    this.jobScheduler.interactiveBegin();
+
+    if (command.isCoalescable()) {
+      final var entry = this.commandQueue.enqueue(command, parameters);
+      this.interactiveEndOnCompletion(entry.future());
+      this.executor.execute(this::runQueuedCommands);
+      return entry.future();
+    }
+
+    final var cancellation = new LCancellation();
+    final var future = new LCancellableFuture<Void>(cancellation);
+    this.interactiveEndOnCompletion(future);
     this.executor.execute(() -> {
       try {
         if (command.loading()) {
@@ -828,7 +965,7 @@ public final class LFileModel implements LFileModelType
           this.status.set(new LFileModelStatusRunningCommand());
         }
 
-        this.executeCommandLocked(command, parameters);
+        this.executeCommandLocked(command, parameters, cancellation);
 
         if (command.loading()) {
           this.finishLoading();
@@ -840,12 +977,26 @@ public final class LFileModel implements LFileModelType
         if (command.loading()) {
           this.loadingLatch.completeExceptionally(e);
         }
-        future.completeExceptionally(e);
+        this.status.set(new LFileModelStatusIdle());
+        future.completeFailed(e);
       }
     });
     return future;
   }
 
+  /**
+   * Mark an interactive operation as complete when the given future
+   * completes, allowing paused background jobs to continue.
+   *
+   * @param future The future
+   */
+
+  private void interactiveEndOnCompletion(
+    final CompletableFuture<?> future)
+  {
+    future.whenComplete((_0, _1) -> this.jobScheduler.interactiveEnd());
+  }
+
   private void finishLoading()
   {
     LOG.debug("Signalling load completion.");
@@ -855,57 +1006,333 @@ public final class LFileModel implements LFileModelType
   private <P, C extends LCommandType<P>>
   void executeCommandLocked(
     final C command,
-    final P parameters)
+    final P parameters,
+    final LCancellation cancellation)
     throws Exception
   {
     this.commandLock.lock();
 
+    final var timeThen = System.nanoTime();
+    final var event = new LJFRCommandEvent();
+    event.begin();
+
+    var succeeded = false;
+    var recorded = false;
+
     try {
       this.attributes.clear();
+      this.progressThrottle.reset();
 
       try (var t = this.database.openTransaction()) {
+        final var changesBefore =
+          LModelSnapshots.changes(t.get(DSLContext.class));
         final var undoable =
-          command.execute(this, t, parameters);
+          command.execute(this, t, parameters, cancellation);
+        final var modelChanged =
+          LModelSnapshots.changes(t.get(DSLContext.class)) != changesBefore;
+
+        cancellation.check();
 
         switch (undoable) {
           case COMMAND_UNDOABLE -> {
-            final var context = t.get(DSLContext.class);
-            context.insertInto(UNDO)
-              .set(UNDO.UNDO_DESCRIPTION, command.describe())
-              .set(UNDO.UNDO_TIME, Long.valueOf(nowMilliseconds()))
-              .set(UNDO.UNDO_DATA, command.serialize())
-              .execute();
+            this.recordUndo(t.get(DSLContext.class), command);
           }
           case COMMAND_NOT_UNDOABLE -> {
 
           }
         }
 
+        cancellation.commitPoint();
         LOG.trace("{}: Commit", command);
-        t.commit();
-
-        if (command.requiresCompaction()) {
-          final var context = t.get(DSLContext.class);
-          context.execute("VACUUM");
-        }
+        this.commit(t, modelChanged);
 
         switch (undoable) {
           case COMMAND_UNDOABLE -> {
             this.undo.set(Optional.of(command));
+            this.historyPruneRequest();
+            recorded = true;
           }
           case COMMAND_NOT_UNDOABLE -> {
 
           }
         }
+        succeeded = true;
       } catch (final Throwable e) {
         LOG.debug("Exception: ", e);
+        this.metrics.onTransactionRollback();
+        this.captionStatisticsEngine.invalidate();
         throw this.handleThrowable(e);
       }
     } finally {
       this.commandLock.unlock();
+      this.metrics.onCommand(
+        command.getClass().getSimpleName(),
+        LCommandOperation.EXECUTE,
+        System.nanoTime() - timeThen,
+        succeeded
+      );
+
+      if (event.shouldCommit()) {
+        event.commandClass = command.getClass().getSimpleName();
+        event.operation = LCommandOperation.EXECUTE.name();
+        event.parameterSize = LJFRCommandEvent.sizeOf(parameters);
+        event.undoable = recorded;
+        event.succeeded = succeeded;
+        event.commit();
+      }
     }
   }
 
+  /**
+   * Execute any queued coalescable commands. Each call submitted by
+   * {@link #runCommand(LCommandType, Object)} drains the whole queue, so
+   * commands queued in a burst are executed together by the first task to
+   * acquire the command lock, and the remaining tasks find the queue empty.
+   */
+
+  private void runQueuedCommands()
+  {
+    this.commandLock.lock();
+
+    try {
+      final var entries = this.commandQueue.drain();
+      if (entries.isEmpty()) {
+        return;
+      }
+
+      this.status.set(new LFileModelStatusRunningCommand());
+      try {
+        if (entries.size() == 1) {
+          final var entry = entries.get(0);
+          try {
+            this.executeCommandLocked(
+              entry.command(),
+              entry.parameters(),
+              entry.future().cancellation()
+            );
+            entry.future().complete(null);
+          } catch (final Throwable e) {
+            entry.future().completeFailed(e);
+          }
+        } else {
+          this.executeCommandsCoalescedLocked(entries);
+        }
+      } finally {
+        this.status.set(new LFileModelStatusIdle());
+      }
+    } finally {
+      this.commandLock.unlock();
+    }
+  }
+
+  /**
+   * Execute a batch of coalescable commands in a single transaction. Each
+   * command runs inside its own savepoint so that a failing command is rolled
+   * back on its own without affecting the others. Model refreshes requested
+   * by the commands are deferred, and performed once at the end.
+   */
+
+  private void executeCommandsCoalescedLocked(
+    final List<LCommandQueue.Entry<?>> entries)
+  {
+    final var succeeded = new ArrayList<LCommandQueue.Entry<?>>();
+    Optional<LCommandType<?>> lastUndoable = Optional.empty();
+
+    try {
+      this.attributes.clear();
+      this.progressThrottle.reset();
+
+      try (var t = this.database.openTransaction()) {
+        final var context = t.get(DSLContext.class);
+
+        var modelChanged = false;
+        this.refreshesDeferred = true;
+        for (final var entry : entries) {
+          final var command = entry.command();
+          final var timeThen = System.nanoTime();
+          final var event = new LJFRCommandEvent();
+          event.begin();
+
+          var commandSucceeded = false;
+          var recorded = false;
+          this.progressThrottle.reset();
+          context.execute("SAVEPOINT laurel_command");
+          try {
+            final var changesBefore = LModelSnapshots.changes(context);
+            final var undoable = entry.execute(this, t);
+            final var changesAfter = LModelSnapshots.changes(context);
+            if (undoable == LCommandUndoable.COMMAND_UNDOABLE) {
+              this.recordUndo(context, command);
+            }
+
+            /*
+             * The command's changes are kept from this point on, and so
+             * it can no longer be cancelled.
+             */
+
+            entry.future().cancellation().commitPoint();
+            modelChanged |= changesAfter != changesBefore;
+            if (undoable == LCommandUndoable.COMMAND_UNDOABLE) {
+              lastUndoable = Optional.of(command);
+              recorded = true;
+            }
+            context.execute("RELEASE laurel_command");
+            succeeded.add(entry);
+            commandSucceeded = true;
+          } catch (final Throwable e) {
+            LOG.debug("Exception: ", e);
+            context.execute("ROLLBACK TO laurel_command");
+            this.captionStatisticsEngine.invalidate();
+            context.execute("RELEASE laurel_command");
+            entry.future().completeFailed(this.handleThrowable(e));
+          } finally {
+            this.metrics.onCommand(
+              command.getClass().getSimpleName(),
+              LCommandOperation.EXECUTE,
+              System.nanoTime() - timeThen,
+              commandSucceeded
+            );
+
+            if (event.shouldCommit()) {
+              event.commandClass = command.getClass().getSimpleName();
+              event.operation = LCommandOperation.EXECUTE.name();
+              event.parameterSize =
+                LJFRCommandEvent.sizeOf(entry.parameters());
+              event.undoable = recorded;
+              event.succeeded = commandSucceeded;
+              event.commit();
+            }
+          }
+        }
+
+        this.runDeferredRefreshes(context);
+        this.commit(t, modelChanged);
+      }
+    } catch (final Throwable e) {
+      LOG.debug("Exception: ", e);
+      this.metrics.onTransactionRollback();
+      this.captionStatisticsEngine.invalidate();
+      final var failure = this.handleThrowable(e);
+      for (final var entry : entries) {
+        entry.future().completeExceptionally(failure);
+      }
+      return;
+    } finally {
+      this.refreshesDeferred = false;
+      this.refreshesPending.clear();
+    }
+
+    lastUndoable.ifPresent(c -> {
+      this.undo.set(Optional.of(c));
+      this.historyPruneRequest();
+    });
+    for (final var entry : succeeded) {
+      entry.future().complete(null);
+    }
+  }
+
+  /**
+   * Note that a part of the model needs to be refreshed.
+   *
+   * @param refresh The part of the model
+   *
+   * @return {@code true} if the refresh has been deferred, and the caller
+   * should not perform it
+   */
+
+  boolean deferRefresh(
+    final LModelRefresh refresh)
+  {
+    if (this.refreshesDeferred) {
+      this.refreshesPending.add(refresh);
+      return true;
+    }
+    return false;
+  }
+
+  private void runDeferredRefreshes(
+    final DSLContext context)
+  {
+    this.refreshesDeferred = false;
+
+    for (final var refresh : this.refreshesPending) {
+      switch (refresh) {
+        case CAPTIONS_AND_CATEGORIES -> {
+          LCommandModelUpdates.updateCaptionsAndCategories(context, this);
+        }
+        case METADATA -> {
+          LCommandModelUpdates.updateMetadata(context, this);
+        }
+      }
+    }
+  }
+
+  private void recordUndo(
+    final DSLContext context,
+    final LCommandType<?> command)
+  {
+    context.insertInto(UNDO)
+      .set(UNDO.UNDO_DESCRIPTION, command.describe())
+      .set(UNDO.UNDO_TIME, Long.valueOf(nowMilliseconds()))
+      .set(UNDO.UNDO_DATA, command.serialize())
+      .execute();
+  }
+
+  /**
+   * Commit a transaction. The database generation is incremented if the
+   * transaction changed the model, so that stored model snapshots are
+   * known to be out of date. Whether the model changed is determined by the
+   * caller from the rows changed by the command itself, excluding the undo
+   * and redo bookkeeping.
+   *
+   * @param transaction  The transaction
+   * @param modelChanged {@code true} if the transaction changed the model
+   *
+   * @throws DDatabaseException On errors
+   */
+
+  private void commit(
+    final LDatabaseTransactionType transaction,
+    final boolean modelChanged)
+    throws DDatabaseException
+  {
+    final var event = new LJFRTransactionCommitEvent();
+    event.begin();
+    final var timeThen = System.nanoTime();
+    if (modelChanged) {
+      LModelSnapshots.generationIncrement(transaction.get(DSLContext.class));
+    }
+    transaction.commit();
+    this.metrics.onTransactionCommit(System.nanoTime() - timeThen);
+    event.commit();
+  }
+
+  private void recordUndoRedo(
+    final Optional<? extends LCommandType<?>> command,
+    final LCommandOperation operation,
+    final long timeThen,
+    final LJFRCommandEvent event,
+    final boolean succeeded)
+  {
+    command.ifPresent(c -> {
+      this.metrics.onCommand(
+        c.getClass().getSimpleName(),
+        operation,
+        System.nanoTime() - timeThen,
+        succeeded
+      );
+
+      if (event.shouldCommit()) {
+        event.commandClass = c.getClass().getSimpleName();
+        event.operation = operation.name();
+        event.parameterSize = 1;
+        event.undoable = true;
+        event.succeeded = succeeded;
+        event.commit();
+      }
+    });
+  }
+
   private LException handleThrowable(
     final Throwable e)
   {
@@ -951,6 +1378,7 @@ public final class LFileModel implements LFileModelType
   public void close()
     throws LException
   {
+    this.saveSnapshot();
     this.resources.close();
 
     try {
@@ -960,6 +1388,29 @@ public final class LFileModel implements LFileModelType
     }
   }
 
+  /**
+   * Store a snapshot of the model so that the file can be reopened without
+   * a full load, if the file has changed since the last snapshot was taken.
+   */
+
+  private void saveSnapshot()
+  {
+    if (this.readOnly) {
+      return;
+    }
+
+    this.commandLock.lock();
+    try (var t = this.database.openTransaction()) {
+      if (LModelSnapshots.save(t.get(DSLContext.class))) {
+        t.commit();
+      }
+    } catch (final Exception e) {
+      LOG.debug("Unable to store model snapshot: ", e);
+    } finally {
+      this.commandLock.unlock();
+    }
+  }
+
   @Override
   public AttributeReadableType<List<LMetadataValue>> metadataList()
   {
@@ -1067,7 +1518,9 @@ public final class LFileModel implements LFileModelType
   @Override
   public CompletableFuture<?> undo()
   {
+    this.jobScheduler.interactiveBegin();
     final var future = new CompletableFuture<Void>();
+    this.interactiveEndOnCompletion(future);
     this.executor.execute(() -> {
       try {
         this.executeUndo();
@@ -1084,8 +1537,15 @@ public final class LFileModel implements LFileModelType
   {
     this.commandLock.lock();
 
+    final var timeThen = System.nanoTime();
+    final var event = new LJFRCommandEvent();
+    event.begin();
+    Optional<LCommandType<?>> command = Optional.empty();
+    var succeeded = false;
+
     try {
       this.attributes.clear();
+      this.progressThrottle.reset();
 
       try (var t = this.database.openTransaction()) {
         final var oldCommandRecOpt = dbUndoGetTip(t);
@@ -1098,9 +1558,14 @@ public final class LFileModel implements LFileModelType
         final var oldCommand =
           parseUndoCommandFromProperties(oldCommandRec);
 
+        command = Optional.of(oldCommand);
+        final var changesBefore =
+          LModelSnapshots.changes(t.get(DSLContext.class));
         oldCommand.undo(this, t);
+        final var modelChanged =
+          LModelSnapshots.changes(t.get(DSLContext.class)) != changesBefore;
         dbUndoMoveToRedo(t, oldCommandRec);
-        t.commit();
+        this.commit(t, modelChanged);
 
         this.redo.set(Optional.of(oldCommand));
 
@@ -1112,18 +1577,30 @@ public final class LFileModel implements LFileModelType
         } else {
           this.undo.set(Optional.empty());
         }
+        succeeded = true;
       } catch (final Throwable e) {
+        this.metrics.onTransactionRollback();
+        this.captionStatisticsEngine.invalidate();
         throw this.handleThrowable(e);
       }
     } finally {
       this.commandLock.unlock();
+      this.recordUndoRedo(
+        command,
+        LCommandOperation.UNDO,
+        timeThen,
+        event,
+        succeeded
+      );
     }
   }
 
   @Override
   public CompletableFuture<?> redo()
   {
+    this.jobScheduler.interactiveBegin();
     final var future = new CompletableFuture<Void>();
+    this.interactiveEndOnCompletion(future);
     this.executor.execute(() -> {
       try {
         this.executeRedo();
@@ -1138,10 +1615,39 @@ public final class LFileModel implements LFileModelType
   @Override
   public CompletableFuture<?> compact()
   {
-    return this.runCommand(
-      new LCommandCompact(),
-      DDatabaseUnit.UNIT
-    );
+    final var future =
+      this.runCommand(new LCommandCompact(), DDatabaseUnit.UNIT);
+    future.thenRun(() -> {
+      this.jobScheduler.schedule(new LJobVacuumConvert());
+      this.reclaimSpace();
+    });
+    return future;
+  }
+
+  @Override
+  public CompletableFuture<?> reclaimSpace()
+  {
+    return this.jobScheduler.schedule(new LJobSpaceReclaim());
+  }
+
+  @Override
+  public CompletableFuture<?> historyRetentionSet(
+    final LHistoryRetention retention)
+  {
+    return this.runCommand(new LCommandHistoryRetentionSet(), retention);
+  }
+
+  @Override
+  public AttributeReadableType<LHistoryRetention> historyRetention()
+  {
+    return this.historyRetention;
+  }
+
+  @Override
+  public CompletableFuture<?> historyPrune()
+  {
+    this.historyPrunePending.set(true);
+    return this.jobScheduler.schedule(new LJobHistoryPrune());
   }
 
   @Override
@@ -1236,10 +1742,7 @@ public final class LFileModel implements LFileModelType
   @Override
   public CompletableFuture<?> validate()
   {
-    return this.runCommand(
-      new LCommandValidate(),
-      DDatabaseUnit.UNIT
-    );
+    return this.jobScheduler.schedule(new LJobValidate());
   }
 
   @Override
@@ -1248,6 +1751,65 @@ public final class LFileModel implements LFileModelType
     return this.validationProblems;
   }
 
+  @Override
+  public CompletableFuture<?> bucketsCalculate(
+    final List<LBucket> buckets)
+  {
+    Objects.requireNonNull(buckets, "buckets");
+
+    return this.jobScheduler.schedule(
+      new LJobBucketsCalculate(List.copyOf(buckets))
+    );
+  }
+
+  @Override
+  public AttributeReadableType<List<LBucketCount>> bucketCounts()
+  {
+    return this.bucketCounts;
+  }
+
+  @Override
+  public CompletableFuture<?> captionStatisticsCalculate(
+    final LCaptionStatisticsRequest request)
+  {
+    Objects.requireNonNull(request, "request");
+
+    return this.jobScheduler.schedule(
+      new LJobCaptionStatistics(request)
+    );
+  }
+
+  @Override
+  public AttributeReadableType<LCaptionStatistics> captionStatistics()
+  {
+    return this.captionStatistics;
+  }
+
+  @Override
+  public AttributeReadableType<List<LCaptionSuggestion>> imageCaptionSuggestions()
+  {
+    return this.imageCaptionSuggestions;
+  }
+
+  @Override
+  public AttributeReadableType<List<LJobStatus>> jobs()
+  {
+    return this.jobScheduler.jobs();
+  }
+
+  @Override
+  public LFileModelMetrics metrics()
+  {
+    return this.metrics.snapshot();
+  }
+
+  @Override
+  public List<LSlowQuery> slowQueries()
+  {
+    return this.slowQueries.map(LSlowQueryLog::snapshot)
+      .orElseGet(List::of);
+  }
+
   @Override
   public CompletableFuture<?> export(
     final LExportRequest request)
@@ -1260,6 +1822,30 @@ public final class LFileModel implements LFileModelType
     );
   }
 
+  @Override
+  public CompletableFuture<?> exportArchive(
+    final LExportArchiveRequest request)
+  {
+    Objects.requireNonNull(request, "request");
+
+    return this.runCommand(
+      new LCommandExportArchive(),
+      request
+    );
+  }
+
+  @Override
+  public CompletableFuture<?> exportManifest(
+    final LExportManifestRequest request)
+  {
+    Objects.requireNonNull(request, "request");
+
+    return this.runCommand(
+      new LCommandExportManifest(),
+      request
+    );
+  }
+
   @Override
   public AttributeReadableType<List<LFileModelEventType>> exportEvents()
   {
@@ -1300,16 +1886,23 @@ public final class LFileModel implements LFileModelType
 
     try {
       this.attributes.clear();
+      this.progressThrottle.reset();
 
       try (var t = this.database.openTransaction()) {
+        final var event = new LJFRBlobReadEvent();
+        event.begin();
+
         final var context = t.get(DSLContext.class);
-        return context.select(IMAGE_BLOBS.IMAGE_BLOB_DATA)
-          .from(IMAGE_BLOBS)
-          .join(IMAGES)
-          .on(IMAGES.IMAGE_BLOB.eq(IMAGE_BLOBS.IMAGE_BLOB_ID))
-          .where(IMAGES.IMAGE_ID.eq(id.value()))
-          .fetchOptional()
-          .map(rec -> new ByteArrayInputStream(rec.get(IMAGE_BLOBS.IMAGE_BLOB_DATA)));
+        final var data =
+          context.select(IMAGE_BLOBS.IMAGE_BLOB_DATA)
+            .from(IMAGE_BLOBS)
+            .join(IMAGES)
+            .on(IMAGES.IMAGE_BLOB.eq(IMAGE_BLOBS.IMAGE_BLOB_ID))
+            .where(IMAGES.IMAGE_ID.eq(id.value()))
+            .fetchOptional(IMAGE_BLOBS.IMAGE_BLOB_DATA);
+
+        data.ifPresent(bytes -> event.record(id.value(), bytes));
+        return data.map(ByteArrayInputStream::new);
       } catch (final Throwable e) {
         throw this.handleThrowable(e);
       }
@@ -1323,8 +1916,15 @@ public final class LFileModel implements LFileModelType
   {
     this.commandLock.lock();
 
+    final var timeThen = System.nanoTime();
+    final var event = new LJFRCommandEvent();
+    event.begin();
+    Optional<LCommandType<?>> command = Optional.empty();
+    var succeeded = false;
+
     try {
       this.attributes.clear();
+      this.progressThrottle.reset();
 
       try (var t = this.database.openTransaction()) {
         final var oldCommandRecOpt = dbRedoGetTip(t);
@@ -1337,9 +1937,14 @@ public final class LFileModel implements LFileModelType
         final var oldCommand =
           parseRedoCommandFromProperties(oldCommandRec);
 
+        command = Optional.of(oldCommand);
+        final var changesBefore =
+          LModelSnapshots.changes(t.get(DSLContext.class));
         oldCommand.redo(this, t);
+        final var modelChanged =
+          LModelSnapshots.changes(t.get(DSLContext.class)) != changesBefore;
         dbRedoMoveToUndo(t, oldCommandRec);
-        t.commit();
+        this.commit(t, modelChanged);
 
         this.undo.set(Optional.of(oldCommand));
 
@@ -1351,11 +1956,21 @@ public final class LFileModel implements LFileModelType
         } else {
           this.redo.set(Optional.empty());
         }
+        succeeded = true;
       } catch (final Throwable e) {
+        this.metrics.onTransactionRollback();
+        this.captionStatisticsEngine.invalidate();
         throw this.handleThrowable(e);
       }
     } finally {
       this.commandLock.unlock();
+      this.recordUndoRedo(
+        command,
+        LCommandOperation.REDO,
+        timeThen,
+        event,
+        succeeded
+      );
     }
   }
 
@@ -1415,12 +2030,27 @@ public final class LFileModel implements LFileModelType
     ));
   }
 
+  /**
+   * Publish a progress event for item {@code current} of {@code max}. Events
+   * are rate-limited; the message is only formatted if the event is actually
+   * published.
+   *
+   * @param current   The index of the current item
+   * @param max       The number of items
+   * @param format    The message format
+   * @param arguments The message arguments
+   */
+
   void eventWithProgressCurrentMax(
     final int current,
     final int max,
     final String format,
     final Object... arguments)
   {
+    if (!this.progressThrottle.shouldDeliver(current, max)) {
+      return;
+    }
+
     this.event(new LFileModelEvent(
       String.format(format, arguments),
       OptionalDouble.of(
@@ -1443,6 +2073,12 @@ public final class LFileModel implements LFileModelType
     this.imageComparison.reload(context);
   }
 
+  void setCaptionsAll(
+    final List<LCaption> newCaptionsAll)
+  {
+    this.tagsAll.set(newCaptionsAll);
+  }
+
   void setCategorySelected(
     final Optional<LCategory> category)
   {
@@ -1467,6 +2103,209 @@ public final class LFileModel implements LFileModelType
     this.globalCaptions.set(captions);
   }
 
+  /**
+   * A query executed on a read-only transaction.
+   *
+   * @param <T> The type of results
+   */
+
+  interface ReadOnlyQueryType<T>
+  {
+    /**
+     * Execute the query.
+     *
+     * @param transaction The transaction
+     *
+     * @return The query result
+     *
+     * @throws Exception On errors
+     */
+
+    T execute(LDatabaseTransactionType transaction)
+      throws Exception;
+  }
+
+  /**
+   * Execute a query on a new transaction that cannot modify the database.
+   * The transaction uses its own connection, and so may run concurrently
+   * with the transaction of the currently executing command.
+   *
+   * @param query The query
+   * @param <T>   The type of results
+   *
+   * @return The query result
+   *
+   * @throws Exception On errors
+   */
+
+  <T> T readOnly(
+    final ReadOnlyQueryType<T> query)
+    throws Exception
+  {
+    try (var t = this.database.openTransaction()) {
+      final var context = t.get(DSLContext.class);
+      context.execute("PRAGMA query_only = 1");
+      try {
+        return query.execute(t);
+      } finally {
+        context.execute("PRAGMA query_only = 0");
+      }
+    }
+  }
+
+  /**
+   * A batch of writes executed by a background job.
+   */
+
+  interface WriteBatchType
+  {
+    /**
+     * Execute the batch.
+     *
+     * @param transaction The transaction
+     *
+     * @throws Exception On errors
+     */
+
+    void execute(LDatabaseTransactionType transaction)
+      throws Exception;
+  }
+
+  /**
+   * Execute a section of code whilst holding the command lock. No command
+   * can start or finish whilst the section is executing.
+   *
+   * @param section The section
+   * @param <T>     The type of results
+   *
+   * @return The result of the section
+   *
+   * @throws Exception On errors
+   */
+
+  <T> T withCommandLock(
+    final Callable<T> section)
+    throws Exception
+  {
+    this.commandLock.lock();
+    try {
+      return section.call();
+    } finally {
+      this.commandLock.unlock();
+    }
+  }
+
+  /**
+   * Execute and commit a batch of writes on behalf of a background job. The
+   * batch is not recorded in the undo history.
+   *
+   * @param batch The batch
+   *
+   * @throws Exception On errors
+   */
+
+  void writeBatch(
+    final WriteBatchType batch)
+    throws Exception
+  {
+    this.commandLock.lock();
+    try (var t = this.database.openTransaction()) {
+      try {
+        batch.execute(t);
+        this.commit(t, false);
+      } catch (final Throwable e) {
+        this.metrics.onTransactionRollback();
+        throw e;
+      }
+    } finally {
+      this.commandLock.unlock();
+    }
+  }
+
+  void setHistoryRetention(
+    final LHistoryRetention retention)
+  {
+    this.historyRetention.set(retention);
+  }
+
+  boolean isReadOnly()
+  {
+    return this.readOnly;
+  }
+
+  /**
+   * Schedule a history pruning job if the retention policy is limited and
+   * a job is not already waiting to run.
+   */
+
+  void historyPruneRequest()
+  {
+    if (this.readOnly) {
+      return;
+    }
+    if (this.historyRetention.get().isUnlimited()) {
+      return;
+    }
+    if (this.historyPrunePending.compareAndSet(false, true)) {
+      this.jobScheduler.schedule(new LJobHistoryPrune());
+    }
+  }
+
+  /**
+   * Indicate that a history pruning job has started; any changes to the
+   * history after this point require another job.
+   */
+
+  void historyPruneStarted()
+  {
+    this.historyPrunePending.set(false);
+  }
+
+  /**
+   * Schedule a job to build the caption index if a job is not already
+   * waiting to run.
+   */
+
+  void captionIndexRequest()
+  {
+    if (this.captionIndexPending.compareAndSet(false, true)) {
+      this.jobScheduler.schedule(new LJobCaptionIndex());
+    }
+  }
+
+  /**
+   * Indicate that a caption index job has started; any invalidation of the
+   * index after this point requires another job.
+   */
+
+  void captionIndexStarted()
+  {
+    this.captionIndexPending.set(false);
+  }
+
+  /**
+   * Reload the undo state after entries have been removed from the undo
+   * history by something other than a command. The caller must hold the
+   * command lock.
+   *
+   * @throws DDatabaseException On database errors
+   * @throws IOException         On errors parsing the stored command
+   */
+
+  void undoHistoryReload()
+    throws DDatabaseException, IOException
+  {
+    try (var t = this.database.openTransaction()) {
+      final var rec = dbUndoGetTip(t);
+      if (rec.isPresent()) {
+        this.undo.set(Optional.of(parseUndoCommandFromProperties(rec.get())));
+      } else {
+        this.undo.set(Optional.empty());
+      }
+    }
+    this.onUndoStateChanged();
+  }
+
   void loadUndo(
     final LDatabaseTransactionType transaction)
   {
@@ -1555,6 +2394,29 @@ public final class LFileModel implements LFileModelType
     this.validationProblems.set(problems);
   }
 
+  void setBucketCounts(
+    final List<LBucketCount> counts)
+  {
+    this.bucketCounts.set(counts);
+  }
+
+  void setCaptionStatistics(
+    final LCaptionStatistics statistics)
+  {
+    this.captionStatistics.set(statistics);
+  }
+
+  void setImageCaptionSuggestions(
+    final List<LCaptionSuggestion> suggestions)
+  {
+    this.imageCaptionSuggestions.set(suggestions);
+  }
+
+  LCaptionStatisticsEngine captionStatisticsEngine()
+  {
+    return this.captionStatisticsEngine;
+  }
+
   void setExportEvents(
     final List<LFileModelEventType> newEvents)
   {
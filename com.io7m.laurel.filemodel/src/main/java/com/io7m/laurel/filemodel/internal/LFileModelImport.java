@@ -47,6 +47,7 @@ import java.util.concurrent.Flow;
 import java.util.concurrent.SubmissionPublisher;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
@@ -66,6 +67,9 @@ public final class LFileModelImport implements LFileModelImportType
   private final HashMap<Path, List<LCaptionName>> captions;
   private final CloseableCollectionType<ClosingResourceFailedException> resources;
   private final ReentrantLock runningLock;
+  private final LCancellation cancellation;
+  private final LProgressThrottle progressThrottle;
+  private final AtomicReference<CompletableFuture<?>> operation;
   private LFileModelType model;
 
   LFileModelImport(
@@ -96,6 +100,12 @@ public final class LFileModelImport implements LFileModelImportType
       new AtomicBoolean(false);
     this.runningLock =
       new ReentrantLock();
+    this.cancellation =
+      new LCancellation();
+    this.progressThrottle =
+      new LProgressThrottle(LProgressThrottle.DEFAULT_INTERVAL);
+    this.operation =
+      new AtomicReference<>();
   }
 
   /**
@@ -123,19 +133,59 @@ public final class LFileModelImport implements LFileModelImportType
   @Override
   public CompletableFuture<Void> execute()
   {
-    final var future = new CompletableFuture<Void>();
+    final var future = new LCancellableFuture<Void>(this.cancellation);
+    future.onCancelRequested(this::cancelOperation);
     Thread.ofVirtual()
       .start(() -> {
         try {
           this.executeActual();
+          this.cancellation.commitPoint();
           future.complete(null);
         } catch (final Throwable e) {
-          future.completeExceptionally(e);
+          future.completeFailed(e);
         }
       });
     return future;
   }
 
+  /**
+   * Cancel the model operation that the import is waiting for, if any, so
+   * that a long operation (such as assigning every caption) is rolled back
+   * rather than run to completion.
+   */
+
+  private void cancelOperation()
+  {
+    final var current = this.operation.get();
+    if (current != null) {
+      current.cancel(false);
+    }
+  }
+
+  /**
+   * Wait for a model operation to complete. The operation is cancelled if
+   * the import is cancelled whilst waiting.
+   *
+   * @param future The operation
+   *
+   * @throws Exception On errors
+   */
+
+  private void await(
+    final CompletableFuture<?> future)
+    throws Exception
+  {
+    this.operation.set(future);
+    try {
+      if (this.cancellation.isCancelled()) {
+        future.cancel(false);
+      }
+      future.get(1L, TimeUnit.MINUTES);
+    } finally {
+      this.operation.set(null);
+    }
+  }
+
   private void executeActual()
     throws LException
   {
@@ -152,13 +202,13 @@ public final class LFileModelImport implements LFileModelImportType
     throws LException
   {
     try {
-      this.createModel();
-      this.listFiles();
-      this.openCaptions();
-      this.saveCaptions();
-      this.importImages();
-      this.assignCaptions();
-      this.finish();
+      this.stage("createModel", this::createModel);
+      this.stage("listFiles", this::listFiles);
+      this.stage("openCaptions", this::openCaptions);
+      this.stage("saveCaptions", this::saveCaptions);
+      this.stage("importImages", this::importImages);
+      this.stage("assignCaptions", this::assignCaptions);
+      this.stage("finish", this::finish);
     } catch (final Throwable e) {
       this.failed.set(true);
       throw e;
@@ -181,12 +231,35 @@ public final class LFileModelImport implements LFileModelImportType
     }
   }
 
+  private interface StageType
+  {
+    void execute()
+      throws LException;
+  }
+
+  private void stage(
+    final String name,
+    final StageType stage)
+    throws LException
+  {
+    this.cancellation.check();
+    this.progressThrottle.reset();
+
+    final var event = new LJFRStageEvent("import", name);
+    event.begin();
+    try {
+      stage.execute();
+    } finally {
+      event.commit();
+    }
+  }
+
   private void finish()
   {
     this.event("Compacting database…");
 
     try {
-      this.model.compact().get(1L, TimeUnit.MINUTES);
+      this.await(this.model.compact());
     } catch (final Throwable e) {
       this.failed.set(true);
       this.handleException(e);
@@ -208,13 +281,14 @@ public final class LFileModelImport implements LFileModelImportType
 
     final var max = captionNames.size();
     for (int index = 0; index < max; ++index) {
+      this.cancellation.check();
       try {
         final var caption = captionNames.get(index);
         this.eventProgress(
           index,
           max,
           "Creating caption '%s'".formatted(caption));
-        this.model.captionAdd(caption).get(1L, TimeUnit.MINUTES);
+        this.await(this.model.captionAdd(caption));
       } catch (final Throwable e) {
         this.failed.set(true);
         this.handleException(e);
@@ -245,6 +319,7 @@ public final class LFileModelImport implements LFileModelImportType
 
     final int max = images.size();
     for (int index = 0; index < max; ++index) {
+      this.cancellation.check();
       final var image = images.get(index);
 
       final var captionIdList =
@@ -265,8 +340,7 @@ public final class LFileModelImport implements LFileModelImportType
     }
 
     try {
-      this.model.imageCaptionsAssign(assignments)
-        .get(1L, TimeUnit.MINUTES);
+      this.await(this.model.imageCaptionsAssign(assignments));
     } catch (final Throwable e) {
       this.failed.set(true);
       this.handleException(e);
@@ -284,6 +358,7 @@ public final class LFileModelImport implements LFileModelImportType
 
     final var max = this.imageFiles.size();
     for (int index = 0; index < max; ++index) {
+      this.cancellation.check();
       try {
         final var imageFile =
           this.imageFiles.get(index);
@@ -291,11 +366,13 @@ public final class LFileModelImport implements LFileModelImportType
         this.attributes.put("File", imageFile);
         this.eventProgress(index, max, "Loading image file %s.", imageFile);
 
-        this.model.imageAdd(
-          imageFile.toString(),
-          imageFile,
-          Optional.of(imageFile.toUri())
-        ).get(1L, TimeUnit.MINUTES);
+        this.await(
+          this.model.imageAdd(
+            imageFile.toString(),
+            imageFile,
+            Optional.of(imageFile.toUri())
+          )
+        );
       } catch (final Throwable e) {
         this.failed.set(true);
         this.handleException(e);
@@ -321,6 +398,7 @@ public final class LFileModelImport implements LFileModelImportType
 
     final var max = this.imageFiles.size();
     for (int index = 0; index < max; ++index) {
+      this.cancellation.check();
       try {
         final var imageFile =
           this.imageFiles.get(index);
@@ -400,6 +478,10 @@ public final class LFileModelImport implements LFileModelImportType
     final String message,
     final Object... arguments)
   {
+    if (!this.progressThrottle.shouldDeliver(current, max)) {
+      return;
+    }
+
     final var progress =
       OptionalDouble.of((double) current / (double) max);
 
@@ -0,0 +1,287 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.laurel.filemodel.internal;
+
+import com.io7m.laurel.filemodel.LHistoryRetention;
+import com.io7m.laurel.model.LLongMap;
+import com.io7m.laurel.model.LLongSet;
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+import static com.io7m.laurel.filemodel.internal.Tables.HISTORY_RETENTION;
+import static com.io7m.laurel.filemodel.internal.Tables.IMAGES;
+import static com.io7m.laurel.filemodel.internal.Tables.IMAGE_BLOBS;
+import static com.io7m.laurel.filemodel.internal.Tables.REDO;
+import static com.io7m.laurel.filemodel.internal.Tables.UNDO;
+
+/**
+ * Functions to store history retention policies, and to decide which undo
+ * entries a policy discards.
+ */
+
+final class LHistoryRetentions
+{
+  private LHistoryRetentions()
+  {
+
+  }
+
+  /**
+   * The undo entries that a policy discards.
+   *
+   * @param undoIds  The IDs of the entries, oldest first
+   * @param timeLast The time of the newest discarded entry
+   */
+
+  record Prune(
+    List<Long> undoIds,
+    long timeLast)
+  {
+    static Prune none()
+    {
+      return new Prune(List.of(), Long.MIN_VALUE);
+    }
+  }
+
+  /**
+   * Retrieve the retention policy.
+   *
+   * @param context The database context
+   *
+   * @return The policy
+   */
+
+  static LHistoryRetention get(
+    final DSLContext context)
+  {
+    final var record =
+      context.selectFrom(HISTORY_RETENTION)
+        .where(HISTORY_RETENTION.RETENTION_ID.eq(0L))
+        .fetchOne();
+
+    if (record == null) {
+      return LHistoryRetention.unlimited();
+    }
+
+    final var commands = record.get(HISTORY_RETENTION.RETENTION_COMMANDS);
+    final var age = record.get(HISTORY_RETENTION.RETENTION_AGE_SECONDS);
+    final var bytes = record.get(HISTORY_RETENTION.RETENTION_BYTES);
+
+    return new LHistoryRetention(
+      commands == null
+        ? OptionalLong.empty()
+        : OptionalLong.of(commands.longValue()),
+      Optional.ofNullable(age)
+        .map(s -> Duration.ofSeconds(s.longValue())),
+      bytes == null
+        ? OptionalLong.empty()
+        : OptionalLong.of(bytes.longValue())
+    );
+  }
+
+  /**
+   * Store the retention policy.
+   *
+   * @param context   The database context
+   * @param retention The policy
+   */
+
+  static void put(
+    final DSLContext context,
+    final LHistoryRetention retention)
+  {
+    context.deleteFrom(HISTORY_RETENTION)
+      .execute();
+
+    if (retention.isUnlimited()) {
+      return;
+    }
+
+    context.insertInto(HISTORY_RETENTION)
+      .set(HISTORY_RETENTION.RETENTION_ID, 0L)
+      .set(
+        HISTORY_RETENTION.RETENTION_COMMANDS,
+        boxed(retention.commands()))
+      .set(
+        HISTORY_RETENTION.RETENTION_AGE_SECONDS,
+        retention.age().map(d -> Long.valueOf(d.toSeconds())).orElse(null))
+      .set(
+        HISTORY_RETENTION.RETENTION_BYTES,
+        boxed(retention.bytes()))
+      .execute();
+  }
+
+  private static Long boxed(
+    final OptionalLong x)
+  {
+    return x.isPresent() ? Long.valueOf(x.getAsLong()) : null;
+  }
+
+  /**
+   * Decide which undo entries the given policy discards. Entries are
+   * examined newest first; the first entry that breaks any limit is
+   * discarded along with every older entry, so that the remaining history
+   * can still be undone in order.
+   *
+   * The size of an entry is the size of its serialized command plus the size
+   * of each image blob that it refers to, if no image, no redo entry, and no
+   * newer undo entry refers to that blob.
+   *
+   * @param context   The database context
+   * @param retention The policy
+   * @param timeNow   The current time, in milliseconds since the epoch
+   *
+   * @return The entries to discard
+   *
+   * @throws IOException On errors parsing history entries
+   */
+
+  static Prune plan(
+    final DSLContext context,
+    final LHistoryRetention retention,
+    final long timeNow)
+    throws IOException
+  {
+    if (retention.isUnlimited()) {
+      return Prune.none();
+    }
+
+    final var timeOldest =
+      retention.age()
+        .map(a -> Long.valueOf(timeNow - a.toMillis()))
+        .orElse(Long.valueOf(Long.MIN_VALUE))
+        .longValue();
+
+    final var blobSizes =
+      retention.bytes().isPresent()
+        ? unreferencedBlobSizes(context)
+        : new LLongMap<long[]>(0);
+
+    var index = 0L;
+    var size = 0L;
+    var timeLast = Long.MIN_VALUE;
+    final var undoIds = new ArrayList<Long>();
+
+    try (var cursor =
+           context.select(UNDO.UNDO_ID, UNDO.UNDO_TIME, UNDO.UNDO_DATA)
+             .from(UNDO)
+             .orderBy(UNDO.UNDO_ID.desc())
+             .fetchLazy()) {
+
+      for (final var r : cursor) {
+        if (!undoIds.isEmpty()) {
+          undoIds.add(r.value1());
+          continue;
+        }
+
+        final var time = r.value2().longValue();
+        var discard =
+          time < timeOldest
+          || (retention.commands().isPresent()
+              && index >= retention.commands().getAsLong());
+
+        if (!discard && retention.bytes().isPresent()) {
+          size += sizeOf(r.value3(), blobSizes);
+          discard = size > retention.bytes().getAsLong();
+        }
+
+        if (discard) {
+          undoIds.add(r.value1());
+          timeLast = time;
+        }
+        ++index;
+      }
+    }
+
+    Collections.reverse(undoIds);
+    return new Prune(List.copyOf(undoIds), timeLast);
+  }
+
+  /**
+   * The size of an undo entry. Each blob is only counted for the first
+   * entry that refers to it.
+   */
+
+  private static long sizeOf(
+    final byte[] data,
+    final LLongMap<long[]> blobSizes)
+    throws IOException
+  {
+    final var blobs = LLongSet.builder(4);
+    LBlobCollection.referencedBy(data, blobs);
+
+    final var size = new long[]{data.length};
+    blobs.build().forEach(blob -> {
+      final var cell = blobSizes.get(blob);
+      if (cell != null) {
+        size[0] += cell[0];
+        cell[0] = 0L;
+      }
+    });
+    return size[0];
+  }
+
+  /**
+   * The sizes of the blobs to which neither an image nor a redo entry
+   * refers; these are the blobs that only the undo history keeps alive.
+   */
+
+  private static LLongMap<long[]> unreferencedBlobSizes(
+    final DSLContext context)
+    throws IOException
+  {
+    final var redo =
+      LLongSet.builder(16);
+
+    try (var cursor =
+           context.select(REDO.REDO_DATA).from(REDO).fetchLazy()) {
+      for (final var r : cursor) {
+        LBlobCollection.referencedBy(r.value1(), redo);
+      }
+    }
+
+    final var redoBlobs = redo.build();
+    final var results = new LLongMap<long[]>(64);
+    final var length =
+      DSL.field("length({0})", Long.class, IMAGE_BLOBS.IMAGE_BLOB_DATA);
+
+    try (var cursor =
+           context.select(IMAGE_BLOBS.IMAGE_BLOB_ID, length)
+             .from(IMAGE_BLOBS)
+             .leftJoin(IMAGES)
+             .on(IMAGES.IMAGE_BLOB.eq(IMAGE_BLOBS.IMAGE_BLOB_ID))
+             .where(IMAGES.IMAGE_ID.isNull())
+             .fetchLazy()) {
+      for (final var r : cursor) {
+        final var blob = r.value1().longValue();
+        if (!redoBlobs.contains(blob)) {
+          results.put(blob, new long[]{r.value2().longValue()});
+        }
+      }
+    }
+    return results;
+  }
+}
@@ -22,14 +22,14 @@ import com.io7m.jattribute.core.AttributeType;
 import com.io7m.jattribute.core.Attributes;
 import com.io7m.laurel.filemodel.LImageComparison;
 import com.io7m.laurel.model.LCaption;
-import com.io7m.laurel.model.LCaptionID;
 import com.io7m.laurel.model.LImageID;
 import com.io7m.laurel.model.LImageWithID;
+import com.io7m.laurel.model.LLongMap;
 import org.jooq.DSLContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -78,17 +78,12 @@ public final class LImageComparisonModel
   {
     LOG.debug("Loading images");
 
+    final var images =
+      this.imagesAll.get();
     final var imageA =
-      this.imagesAll.get()
-        .stream()
-        .filter(i -> Objects.equals(i.id(), imageAId))
-        .findFirst();
-
+      LImageIndex.find(images, imageAId);
     final var imageB =
-      this.imagesAll.get()
-        .stream()
-        .filter(i -> Objects.equals(i.id(), imageBId))
-        .findFirst();
+      LImageIndex.find(images, imageBId);
 
     if (imageA.isPresent() && imageB.isPresent()) {
       this.imageComparisonImages.set(
@@ -99,48 +94,52 @@ public final class LImageComparisonModel
     }
   }
 
+  private static LLongMap<LCaption> captionsById(
+    final List<LCaption> captions)
+  {
+    final var results = new LLongMap<LCaption>(captions.size());
+    for (final var caption : captions) {
+      results.put(caption.id().value(), caption);
+    }
+    return results;
+  }
+
+  private static List<LCaption> captionsMissing(
+    final LLongMap<LCaption> captions,
+    final LLongMap<LCaption> other)
+  {
+    final var results = new ArrayList<LCaption>();
+    for (final var caption : captions.values()) {
+      if (!other.containsKey(caption.id().value())) {
+        results.add(caption);
+      }
+    }
+    return results;
+  }
+
   private void imageComparisonComputeComparison()
   {
     LOG.debug("Computing caption differences");
 
     final var captionsA =
-      new HashMap<LCaptionID, LCaption>();
+      captionsById(this.imageCaptionsA.get());
     final var captionsB =
-      new HashMap<LCaptionID, LCaption>();
+      captionsById(this.imageCaptionsB.get());
     final var captionsAExtra =
-      new HashMap<LCaptionID, LCaption>();
+      captionsMissing(captionsA, captionsB);
     final var captionsBExtra =
-      new HashMap<LCaptionID, LCaption>();
-
-    for (final var caption : this.imageCaptionsA.get()) {
-      captionsA.put(caption.id(), caption);
-    }
-    for (final var caption : this.imageCaptionsB.get()) {
-      captionsB.put(caption.id(), caption);
-    }
-    for (final var caption : captionsA.values()) {
-      if (!captionsB.containsKey(caption.id())) {
-        captionsAExtra.put(caption.id(), caption);
-      }
-    }
-    for (final var caption : captionsB.values()) {
-      if (!captionsA.containsKey(caption.id())) {
-        captionsBExtra.put(caption.id(), caption);
-      }
-    }
+      captionsMissing(captionsB, captionsA);
 
     LOG.debug("Image A has {} extra captions", captionsAExtra.size());
     LOG.debug("Image B has {} extra captions", captionsBExtra.size());
 
     this.imageCaptionsComparisonA.set(
-      captionsAExtra.values()
-        .stream()
+      captionsAExtra.stream()
         .sorted()
         .toList()
     );
     this.imageCaptionsComparisonB.set(
-      captionsBExtra.values()
-        .stream()
+      captionsBExtra.stream()
         .sorted()
         .toList()
     );
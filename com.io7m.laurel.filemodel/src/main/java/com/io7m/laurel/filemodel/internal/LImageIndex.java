@@ -0,0 +1,403 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.laurel.filemodel.internal;
+
+import com.io7m.laurel.model.LHashSHA256;
+import com.io7m.laurel.model.LImage;
+import com.io7m.laurel.model.LImageID;
+import com.io7m.laurel.model.LImageWithID;
+import com.io7m.mime2045.core.MimeType;
+import com.io7m.mime2045.parser.api.MimeParseException;
+
+import java.net.URI;
+import java.nio.file.Paths;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.function.Predicate;
+
+/**
+ * A compact, immutable, columnar list of images. Image IDs are held in a
+ * primitive array, hashes are held as raw octets, MIME types are shared
+ * between images, and file paths and source URIs are held as strings. The
+ * {@link LImageWithID} values exposed through the {@link List} interface are
+ * materialized on demand.
+ */
+
+public final class LImageIndex
+  extends AbstractList<LImageWithID>
+  implements RandomAccess
+{
+  private static final int HASH_SIZE = 32;
+  private static final HexFormat HEX = HexFormat.of();
+  private static final LImageIndex EMPTY = new Builder(0).build();
+
+  private final int size;
+  private final long[] ids;
+  private final String[] names;
+  private final String[] files;
+  private final String[] sources;
+  private final MimeType[] types;
+  private final byte[] hashes;
+
+  private LImageIndex(
+    final int inSize,
+    final long[] inIds,
+    final String[] inNames,
+    final String[] inFiles,
+    final String[] inSources,
+    final MimeType[] inTypes,
+    final byte[] inHashes)
+  {
+    this.size = inSize;
+    this.ids = inIds;
+    this.names = inNames;
+    this.files = inFiles;
+    this.sources = inSources;
+    this.types = inTypes;
+    this.hashes = inHashes;
+  }
+
+  /**
+   * @return The empty index
+   */
+
+  public static LImageIndex empty()
+  {
+    return EMPTY;
+  }
+
+  /**
+   * Create a new index builder.
+   *
+   * @param capacity The expected number of images
+   *
+   * @return A builder
+   */
+
+  public static Builder builder(
+    final int capacity)
+  {
+    return new Builder(capacity);
+  }
+
+  /**
+   * Find the image with the given ID in the given list, using the index
+   * directly if the list is an index.
+   *
+   * @param images The images
+   * @param id     The image ID
+   *
+   * @return The image, if present
+   */
+
+  public static Optional<LImageWithID> find(
+    final List<LImageWithID> images,
+    final LImageID id)
+  {
+    Objects.requireNonNull(id, "id");
+
+    if (images instanceof final LImageIndex index) {
+      return index.findById(id);
+    }
+    return images.stream()
+      .filter(i -> Objects.equals(i.id(), id))
+      .findFirst();
+  }
+
+  @Override
+  public LImageWithID get(
+    final int index)
+  {
+    Objects.checkIndex(index, this.size);
+
+    final var offset = index * HASH_SIZE;
+    return new LImageWithID(
+      new LImageID(this.ids[index]),
+      new LImage(
+        this.names[index],
+        Optional.ofNullable(this.files[index]).map(Paths::get),
+        Optional.ofNullable(this.sources[index]).map(URI::create),
+        this.types[index],
+        new LHashSHA256(
+          HEX.formatHex(this.hashes, offset, offset + HASH_SIZE))
+      )
+    );
+  }
+
+  @Override
+  public int size()
+  {
+    return this.size;
+  }
+
+  /**
+   * @param index The image index
+   *
+   * @return The ID of the image at the given index
+   */
+
+  public LImageID id(
+    final int index)
+  {
+    Objects.checkIndex(index, this.size);
+    return new LImageID(this.ids[index]);
+  }
+
+  /**
+   * @param index The image index
+   *
+   * @return The name of the image at the given index
+   */
+
+  public String name(
+    final int index)
+  {
+    Objects.checkIndex(index, this.size);
+    return this.names[index];
+  }
+
+  /**
+   * Find the image with the given ID.
+   *
+   * @param id The image ID
+   *
+   * @return The image, if present
+   */
+
+  public Optional<LImageWithID> findById(
+    final LImageID id)
+  {
+    final var value = id.value();
+    for (int index = 0; index < this.size; ++index) {
+      if (this.ids[index] == value) {
+        return Optional.of(this.get(index));
+      }
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * Select the images with names matching the given predicate, without
+   * materializing any images.
+   *
+   * @param predicate The name predicate
+   *
+   * @return The matching images, in the same order
+   */
+
+  public LImageIndex filterByName(
+    final Predicate<String> predicate)
+  {
+    Objects.requireNonNull(predicate, "predicate");
+
+    final var builder = new Builder(0);
+    for (int index = 0; index < this.size; ++index) {
+      if (predicate.test(this.names[index])) {
+        builder.addFrom(this, index);
+      }
+    }
+    return builder.build();
+  }
+
+  /**
+   * A mutable builder of image indices.
+   */
+
+  public static final class Builder
+  {
+    private final HashMap<String, MimeType> typesByText;
+    private final HashMap<MimeType, MimeType> typesShared;
+    private int size;
+    private long[] ids;
+    private String[] names;
+    private String[] files;
+    private String[] sources;
+    private MimeType[] types;
+    private byte[] hashes;
+
+    private Builder(
+      final int capacity)
+    {
+      final var c = Math.max(capacity, 8);
+      this.typesByText = new HashMap<>();
+      this.typesShared = new HashMap<>();
+      this.ids = new long[c];
+      this.names = new String[c];
+      this.files = new String[c];
+      this.sources = new String[c];
+      this.types = new MimeType[c];
+      this.hashes = new byte[c * HASH_SIZE];
+    }
+
+    private void reserve()
+    {
+      if (this.size < this.ids.length) {
+        return;
+      }
+
+      final var c = this.ids.length * 2;
+      this.ids = Arrays.copyOf(this.ids, c);
+      this.names = Arrays.copyOf(this.names, c);
+      this.files = Arrays.copyOf(this.files, c);
+      this.sources = Arrays.copyOf(this.sources, c);
+      this.types = Arrays.copyOf(this.types, c);
+      this.hashes = Arrays.copyOf(this.hashes, c * HASH_SIZE);
+    }
+
+    /**
+     * Add an image from its stored representation.
+     *
+     * @param id     The image ID
+     * @param name   The image name
+     * @param file   The image file, or {@code null}
+     * @param source The image source URI, or {@code null}
+     * @param type   The MIME type text
+     * @param hash   The SHA-256 hash, as lowercase hex
+     *
+     * @return this
+     *
+     * @throws MimeParseException On unparseable MIME types
+     */
+
+    public Builder add(
+      final long id,
+      final String name,
+      final String file,
+      final String source,
+      final String type,
+      final String hash)
+      throws MimeParseException
+    {
+      Objects.requireNonNull(type, "type");
+
+      var mimeType = this.typesByText.get(type);
+      if (mimeType == null) {
+        mimeType = this.shareType(
+          LCommandModelUpdates.MIME_PARSERS.parse(type));
+        this.typesByText.put(type, mimeType);
+      }
+
+      return this.addActual(
+        id,
+        name,
+        file,
+        source,
+        mimeType,
+        HEX.parseHex(new LHashSHA256(hash).value())
+      );
+    }
+
+    /**
+     * Add an image.
+     *
+     * @param image The image
+     *
+     * @return this
+     */
+
+    public Builder add(
+      final LImageWithID image)
+    {
+      final var data = image.image();
+      return this.addActual(
+        image.id().value(),
+        data.name(),
+        data.file().map(Object::toString).orElse(null),
+        data.source().map(Object::toString).orElse(null),
+        this.shareType(data.type()),
+        HEX.parseHex(data.hash().value())
+      );
+    }
+
+    private MimeType shareType(
+      final MimeType type)
+    {
+      return this.typesShared.computeIfAbsent(type, t -> t);
+    }
+
+    private void addFrom(
+      final LImageIndex index,
+      final int position)
+    {
+      this.reserve();
+      this.ids[this.size] = index.ids[position];
+      this.names[this.size] = index.names[position];
+      this.files[this.size] = index.files[position];
+      this.sources[this.size] = index.sources[position];
+      this.types[this.size] = index.types[position];
+      System.arraycopy(
+        index.hashes,
+        position * HASH_SIZE,
+        this.hashes,
+        this.size * HASH_SIZE,
+        HASH_SIZE
+      );
+      ++this.size;
+    }
+
+    private Builder addActual(
+      final long id,
+      final String name,
+      final String file,
+      final String source,
+      final MimeType type,
+      final byte[] hash)
+    {
+      Objects.requireNonNull(name, "name");
+
+      if (hash.length != HASH_SIZE) {
+        throw new IllegalArgumentException(
+          "Hash must be %d octets.".formatted(Integer.valueOf(HASH_SIZE))
+        );
+      }
+
+      this.reserve();
+      this.ids[this.size] = id;
+      this.names[this.size] = name;
+      this.files[this.size] = file;
+      this.sources[this.size] = source;
+      this.types[this.size] = type;
+      System.arraycopy(hash, 0, this.hashes, this.size * HASH_SIZE, HASH_SIZE);
+      ++this.size;
+      return this;
+    }
+
+    /**
+     * @return An index containing the images added so far
+     */
+
+    public LImageIndex build()
+    {
+      final var n = this.size;
+      return new LImageIndex(
+        n,
+        Arrays.copyOf(this.ids, n),
+        Arrays.copyOf(this.names, n),
+        Arrays.copyOf(this.files, n),
+        Arrays.copyOf(this.sources, n),
+        Arrays.copyOf(this.types, n),
+        Arrays.copyOf(this.hashes, n * HASH_SIZE)
+      );
+    }
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.laurel.filemodel.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Image data was read from the database.
+ */
+
+@Name("com.io7m.laurel.BlobRead")
+@Label("Blob Read")
+@Category({"Laurel", "Database"})
+@Description("Image data was read from the database.")
+@StackTrace(false)
+final class LJFRBlobReadEvent extends Event
+{
+  @Label("Image")
+  @Description("The image ID.")
+  long imageId;
+
+  @Label("Size")
+  @Description("The size of the image data.")
+  @DataAmount
+  long bytes;
+
+  LJFRBlobReadEvent()
+  {
+
+  }
+
+  /**
+   * Complete the event for the given image data.
+   *
+   * @param inImageId The image ID
+   * @param data      The image data
+   */
+
+  void record(
+    final long inImageId,
+    final byte[] data)
+  {
+    if (this.shouldCommit()) {
+      this.imageId = inImageId;
+      this.bytes = data.length;
+      this.commit();
+    }
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.laurel.filemodel.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Image data was written to the database.
+ */
+
+@Name("com.io7m.laurel.BlobWrite")
+@Label("Blob Write")
+@Category({"Laurel", "Database"})
+@Description("Image data was written to the database.")
+@StackTrace(false)
+final class LJFRBlobWriteEvent extends Event
+{
+  @Label("Hash")
+  @Description("The SHA-256 hash of the image data.")
+  String hash;
+
+  @Label("Size")
+  @Description("The size of the image data.")
+  @DataAmount
+  long bytes;
+
+  LJFRBlobWriteEvent()
+  {
+
+  }
+
+  /**
+   * Complete the event for the given image data.
+   *
+   * @param inHash The image hash
+   * @param data   The image data
+   */
+
+  void record(
+    final String inHash,
+    final byte[] data)
+  {
+    if (this.shouldCommit()) {
+      this.hash = inHash;
+      this.bytes = data.length;
+      this.commit();
+    }
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.laurel.filemodel.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * A command was executed, undone, or redone.
+ */
+
+@Name("com.io7m.laurel.Command")
+@Label("Command")
+@Category({"Laurel", "File Model"})
+@Description("A command was executed, undone, or redone.")
+@StackTrace(false)
+final class LJFRCommandEvent extends Event
+{
+  @Label("Command Class")
+  @Description("The class of the command.")
+  String commandClass;
+
+  @Label("Operation")
+  @Description("The operation applied to the command.")
+  String operation;
+
+  @Label("Parameter Size")
+  @Description("The number of elements in the command parameters.")
+  int parameterSize;
+
+  @Label("Undoable")
+  @Description("True if the command was recorded in the undo history.")
+  boolean undoable;
+
+  @Label("Succeeded")
+  @Description("True if the command completed successfully.")
+  boolean succeeded;
+
+  LJFRCommandEvent()
+  {
+
+  }
+
+  /**
+   * @param parameters The command parameters
+   *
+   * @return The number of elements in the parameters, or 1 for values that
+   * are not collections
+   */
+
+  static int sizeOf(
+    final Object parameters)
+  {
+    if (parameters instanceof final Collection<?> c) {
+      return c.size();
+    }
+    if (parameters instanceof final Map<?, ?> m) {
+      return m.size();
+    }
+    return 1;
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.laurel.filemodel.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A stage of an import or export completed.
+ */
+
+@Name("com.io7m.laurel.Stage")
+@Label("Import/Export Stage")
+@Category({"Laurel", "Import/Export"})
+@Description("A stage of an import or export completed.")
+@StackTrace(false)
+final class LJFRStageEvent extends Event
+{
+  @Label("Operation")
+  @Description("The operation (import or export).")
+  String operation;
+
+  @Label("Stage")
+  @Description("The name of the stage.")
+  String stage;
+
+  LJFRStageEvent(
+    final String inOperation,
+    final String inStage)
+  {
+    this.operation = inOperation;
+    this.stage = inStage;
+  }
+}
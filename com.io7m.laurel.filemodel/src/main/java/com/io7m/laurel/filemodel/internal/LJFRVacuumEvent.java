@@ -0,0 +1,52 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.laurel.filemodel.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The database was compacted, either by rebuilding it with a full VACUUM, or
+ * by releasing free pages with an incremental vacuum.
+ *
+ * @see LDatabaseVacuum
+ */
+
+@Name("com.io7m.laurel.Vacuum")
+@Label("Vacuum")
+@Category({"Laurel", "Database"})
+@Description("The database was compacted.")
+@StackTrace(false)
+final class LJFRVacuumEvent extends Event
+{
+  @Label("Mode")
+  @Description("FULL for a full VACUUM, INCREMENTAL for an incremental one.")
+  String mode;
+
+  @Label("Pages Freed")
+  @Description("The number of free pages released by the vacuum.")
+  long pagesFreed;
+
+  LJFRVacuumEvent()
+  {
+
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.laurel.filemodel.internal;
+
+import com.io7m.laurel.filemodel.LBucket;
+import com.io7m.laurel.filemodel.LJobPriority;
+import com.io7m.laurel.model.LException;
+import org.jooq.DSLContext;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Calculate the number of images in each of a set of resolution buckets.
+ */
+
+final class LJobBucketsCalculate implements LJobType
+{
+  private final List<LBucket> buckets;
+
+  /**
+   * Calculate the number of images in each of a set of resolution buckets.
+   *
+   * @param inBuckets The buckets
+   */
+
+  LJobBucketsCalculate(
+    final List<LBucket> inBuckets)
+  {
+    this.buckets = Objects.requireNonNull(inBuckets, "buckets");
+  }
+
+  @Override
+  public String describe()
+  {
+    return "Calculate buckets";
+  }
+
+  @Override
+  public LJobPriority priority()
+  {
+    return LJobPriority.HIGH;
+  }
+
+  @Override
+  public void execute(
+    final LJobContext context)
+    throws Exception
+  {
+    final var model = context.model();
+
+    if (this.buckets.isEmpty()) {
+      throw new LException(
+        "At least one bucket must be specified.",
+        "error-bucket-none",
+        Map.of(),
+        Optional.empty()
+      );
+    }
+
+    try {
+      model.eventWithoutProgress("Calculating image dimensions.");
+      final var sizes =
+        context.snapshot(t -> LBuckets.imageSizes(t.get(DSLContext.class)));
+      model.setBucketCounts(LBuckets.count(this.buckets, sizes));
+      model.eventWithoutProgress(
+        "Assigned %d images to %d buckets.",
+        Integer.valueOf(sizes.size()),
+        Integer.valueOf(this.buckets.size())
+      );
+    } catch (final IOException e) {
+      throw new LException(
+        "Failed to read image dimensions.",
+        e,
+        "error-image-format",
+        Map.of(),
+        Optional.empty()
+      );
+    }
+  }
+}
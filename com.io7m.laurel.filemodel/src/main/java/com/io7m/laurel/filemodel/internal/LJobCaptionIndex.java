@@ -0,0 +1,141 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.laurel.filemodel.internal;
+
+import com.io7m.laurel.filemodel.LJobPriority;
+import com.io7m.laurel.model.LException;
+import org.jooq.DSLContext;
+
+import static com.io7m.laurel.filemodel.internal.Tables.IMAGE_CAPTIONS;
+
+/**
+ * Build the in-memory caption index used for statistics and suggestions.
+ *
+ * The index is built from a read-only snapshot without holding the command
+ * lock, and is installed only if no command has changed the index since the
+ * snapshot was taken. If commands repeatedly change the index during the
+ * build, the final attempt holds the command lock throughout.
+ *
+ * @see LCaptionStatisticsEngine
+ */
+
+final class LJobCaptionIndex implements LJobType
+{
+  private static final int ATTEMPTS = 3;
+
+  LJobCaptionIndex()
+  {
+
+  }
+
+  @Override
+  public String describe()
+  {
+    return "Index captions";
+  }
+
+  @Override
+  public LJobPriority priority()
+  {
+    return LJobPriority.NORMAL;
+  }
+
+  @Override
+  public void execute(
+    final LJobContext context)
+    throws Exception
+  {
+    context.model().captionIndexStarted();
+    build(context);
+  }
+
+  /**
+   * Build the caption index, if it is not already up-to-date, and then
+   * compute the suggestions for the selected image (which are not computed
+   * whilst the index is invalid).
+   *
+   * @param context The job context
+   *
+   * @throws Exception On errors
+   */
+
+  static void build(
+    final LJobContext context)
+    throws Exception
+  {
+    final var model = context.model();
+    final var engine = model.captionStatisticsEngine();
+
+    if (!tryBuild(context, engine)) {
+      context.exclusive(() -> {
+        return context.snapshot(t -> {
+          engine.ensureValid(t.get(DSLContext.class));
+          return Boolean.TRUE;
+        });
+      });
+    }
+
+    context.exclusive(() -> {
+      LCommandModelUpdates.updateCaptionSuggestions(model);
+      return Boolean.TRUE;
+    });
+  }
+
+  private static boolean tryBuild(
+    final LJobContext context,
+    final LCaptionStatisticsEngine engine)
+    throws Exception
+  {
+    for (int attempt = 0; attempt < ATTEMPTS; ++attempt) {
+      context.checkpoint();
+      if (engine.isValid()) {
+        return true;
+      }
+
+      final boolean installed =
+        context.snapshot(t -> {
+          final var dsl = t.get(DSLContext.class);
+
+          /*
+           * The first read starts the snapshot. Taking it whilst holding the
+           * command lock guarantees that the snapshot reflects exactly the
+           * changes that the observed version reflects.
+           */
+
+          final var expected =
+            context.exclusive(() -> {
+              final var version = engine.version();
+              dsl.fetchCount(IMAGE_CAPTIONS);
+              return Long.valueOf(version);
+            });
+
+          final var built = new LCaptionStatisticsEngine();
+          built.<LException>rebuild(dsl, (processed, total) -> {
+            context.checkpoint();
+            context.progress(processed, total);
+          });
+          return Boolean.valueOf(engine.install(built, expected.longValue()));
+        }).booleanValue();
+
+      if (installed) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
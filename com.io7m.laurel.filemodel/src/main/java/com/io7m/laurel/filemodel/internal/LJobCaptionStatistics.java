@@ -0,0 +1,85 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.laurel.filemodel.internal;
+
+import com.io7m.laurel.filemodel.LCaptionStatisticsRequest;
+import com.io7m.laurel.filemodel.LJobPriority;
+import org.jooq.DSLContext;
+
+import java.util.Objects;
+
+/**
+ * Calculate caption frequency and co-occurrence statistics.
+ */
+
+final class LJobCaptionStatistics implements LJobType
+{
+  private final LCaptionStatisticsRequest request;
+
+  /**
+   * Calculate caption frequency and co-occurrence statistics.
+   *
+   * @param inRequest The request
+   */
+
+  LJobCaptionStatistics(
+    final LCaptionStatisticsRequest inRequest)
+  {
+    this.request = Objects.requireNonNull(inRequest, "request");
+  }
+
+  @Override
+  public String describe()
+  {
+    return "Calculate caption statistics";
+  }
+
+  @Override
+  public LJobPriority priority()
+  {
+    return LJobPriority.HIGH;
+  }
+
+  @Override
+  public void execute(
+    final LJobContext context)
+    throws Exception
+  {
+    final var model = context.model();
+    final var engine = model.captionStatisticsEngine();
+
+    if (!engine.isValid()) {
+      model.eventWithoutProgress("Indexing caption assignments.");
+      LJobCaptionIndex.build(context);
+    }
+
+    context.checkpoint();
+
+    final var statistics =
+      context.snapshot(t -> {
+        return engine.statistics(t.get(DSLContext.class), this.request);
+      });
+
+    model.setCaptionStatistics(statistics);
+    model.eventWithoutProgress(
+      "Calculated statistics for %d captions over %d images.",
+      Integer.valueOf(statistics.frequencies().size()),
+      Long.valueOf(statistics.imageCount())
+    );
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.laurel.filemodel.internal;
+
+import com.io7m.laurel.model.LException;
+
+import java.util.Objects;
+import java.util.concurrent.Callable;
+
+/**
+ * The context of a running background job.
+ *
+ * Jobs must call {@link #checkpoint()} regularly, and must not call it
+ * whilst holding the command lock or inside a write batch.
+ */
+
+final class LJobContext
+{
+  private final LFileModel model;
+  private final LJobScheduler scheduler;
+  private final LJobScheduler.Entry entry;
+
+  LJobContext(
+    final LFileModel inModel,
+    final LJobScheduler inScheduler,
+    final LJobScheduler.Entry inEntry)
+  {
+    this.model =
+      Objects.requireNonNull(inModel, "model");
+    this.scheduler =
+      Objects.requireNonNull(inScheduler, "scheduler");
+    this.entry =
+      Objects.requireNonNull(inEntry, "entry");
+  }
+
+  /**
+   * @return The file model
+   */
+
+  LFileModel model()
+  {
+    return this.model;
+  }
+
+  /**
+   * Check if the job has been cancelled, and wait for any pending
+   * interactive operations to complete.
+   *
+   * @throws LException If the job has been cancelled
+   */
+
+  void checkpoint()
+    throws LException
+  {
+    this.entry.cancellation().check();
+    this.scheduler.awaitInteractive(this.entry);
+  }
+
+  /**
+   * Report the progress of the job.
+   *
+   * @param current The number of items processed
+   * @param max     The total number of items
+   */
+
+  void progress(
+    final long current,
+    final long max)
+  {
+    this.scheduler.progress(this.entry, current, max);
+  }
+
+  /**
+   * Execute a query on a new read-only transaction. The transaction sees a
+   * consistent snapshot of the database, and does not block commands.
+   *
+   * @param query The query
+   * @param <T>   The type of results
+   *
+   * @return The query result
+   *
+   * @throws Exception On errors
+   */
+
+  <T> T snapshot(
+    final LFileModel.ReadOnlyQueryType<T> query)
+    throws Exception
+  {
+    return this.model.readOnly(query);
+  }
+
+  /**
+   * Execute a short section of code whilst holding the command lock. The
+   * section must not call {@link #checkpoint()}.
+   *
+   * @param section The section
+   * @param <T>     The type of results
+   *
+   * @return The result of the section
+   *
+   * @throws Exception On errors
+   */
+
+  <T> T exclusive(
+    final Callable<T> section)
+    throws Exception
+  {
+    this.checkpoint();
+    return this.model.withCommandLock(section);
+  }
+
+  /**
+   * Execute and commit a small batch of writes. The batch is executed whilst
+   * holding the command lock, and so should be kept short.
+   *
+   * @param batch The batch
+   *
+   * @throws Exception On errors
+   */
+
+  void commit(
+    final LFileModel.WriteBatchType batch)
+    throws Exception
+  {
+    this.checkpoint();
+    this.model.writeBatch(batch);
+  }
+}
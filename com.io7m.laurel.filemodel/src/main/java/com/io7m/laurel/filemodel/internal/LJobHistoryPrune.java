@@ -0,0 +1,121 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.laurel.filemodel.internal;
+
+import com.io7m.laurel.filemodel.LJobPriority;
+import org.jooq.DSLContext;
+
+import java.time.Instant;
+
+import static com.io7m.laurel.filemodel.internal.Tables.UNDO;
+
+/**
+ * Discard the oldest undo entries according to the file's history retention
+ * policy, in small batches, and then reclaim the space used by any images
+ * that only the discarded entries referred to.
+ *
+ * @see LHistoryRetentions
+ */
+
+final class LJobHistoryPrune implements LJobType
+{
+  private static final int BATCH_SIZE = 256;
+
+  LJobHistoryPrune()
+  {
+
+  }
+
+  @Override
+  public String describe()
+  {
+    return "Prune history";
+  }
+
+  @Override
+  public LJobPriority priority()
+  {
+    return LJobPriority.LOW;
+  }
+
+  @Override
+  public void execute(
+    final LJobContext context)
+    throws Exception
+  {
+    final var model = context.model();
+    model.historyPruneStarted();
+
+    final var timeNow = Instant.now().toEpochMilli();
+    final var prune =
+      context.snapshot(t -> {
+        final var dsl = t.get(DSLContext.class);
+        final var retention = LHistoryRetentions.get(dsl);
+        model.setHistoryRetention(retention);
+        return LHistoryRetentions.plan(dsl, retention, timeNow);
+      });
+
+    final var undoIds = prune.undoIds();
+    final var total = undoIds.size();
+    if (total == 0 || model.isReadOnly()) {
+      return;
+    }
+
+    /*
+     * Entries are deleted oldest first. An entry that was undone and redone
+     * in the meantime keeps its ID and time, and so is still discarded; an
+     * entry recorded in the meantime is newer than every discarded entry.
+     */
+
+    final var deleted = new int[1];
+    for (int start = 0; start < total; start += BATCH_SIZE) {
+      final var batch =
+        undoIds.subList(start, Math.min(total, start + BATCH_SIZE));
+
+      context.commit(t -> {
+        deleted[0] +=
+          t.get(DSLContext.class)
+            .deleteFrom(UNDO)
+            .where(UNDO.UNDO_ID.in(batch))
+            .and(UNDO.UNDO_TIME.le(prune.timeLast()))
+            .execute();
+      });
+      context.progress(start + batch.size(), total);
+    }
+
+    context.exclusive(() -> {
+      model.undoHistoryReload();
+      return Boolean.TRUE;
+    });
+
+    model.eventWithoutProgress(
+      "Discarded %d old history entries.",
+      Integer.valueOf(deleted[0])
+    );
+
+    /*
+     * Reclaiming space is scheduled as a separate job rather than run here,
+     * so that it runs at its own priority once this job has finished, and
+     * can be cancelled independently.
+     */
+
+    if (deleted[0] > 0) {
+      model.reclaimSpace();
+    }
+  }
+}
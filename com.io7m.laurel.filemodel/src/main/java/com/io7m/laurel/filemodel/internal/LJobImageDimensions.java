@@ -0,0 +1,173 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.laurel.filemodel.internal;
+
+import com.io7m.laurel.filemodel.LJobPriority;
+import org.jooq.DSLContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.io7m.laurel.filemodel.internal.Tables.IMAGE_BLOBS;
+
+/**
+ * Record the dimensions of image blobs created with older versions of the
+ * schema, so that later operations need not read image headers. Headers are
+ * read from a read-only snapshot, and the dimensions are written back in
+ * small batches.
+ */
+
+final class LJobImageDimensions implements LJobType
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(LJobImageDimensions.class);
+
+  private static final int BATCH_SIZE = 32;
+
+  LJobImageDimensions()
+  {
+
+  }
+
+  /**
+   * A batch of blobs.
+   *
+   * @param blobLast The ID of the last blob examined
+   * @param examined The number of blobs examined
+   * @param sizes    The sizes of the blobs that could be read
+   */
+
+  private record Batch(
+    long blobLast,
+    int examined,
+    Map<Long, LBuckets.Size> sizes)
+  {
+
+  }
+
+  @Override
+  public String describe()
+  {
+    return "Record image dimensions";
+  }
+
+  @Override
+  public LJobPriority priority()
+  {
+    return LJobPriority.LOW;
+  }
+
+  @Override
+  public void execute(
+    final LJobContext context)
+    throws Exception
+  {
+    final var total =
+      context.snapshot(t -> {
+        return Integer.valueOf(
+          t.get(DSLContext.class)
+            .fetchCount(
+              IMAGE_BLOBS,
+              IMAGE_BLOBS.IMAGE_BLOB_WIDTH.isNull()
+                .or(IMAGE_BLOBS.IMAGE_BLOB_HEIGHT.isNull()))
+        );
+      }).intValue();
+
+    if (total == 0) {
+      return;
+    }
+
+    var blobLast = Long.MIN_VALUE;
+    var examined = 0;
+    var recorded = 0;
+
+    while (true) {
+      context.checkpoint();
+
+      final var after = blobLast;
+      final var batch =
+        context.snapshot(t -> readBatch(t.get(DSLContext.class), after));
+
+      if (!batch.sizes().isEmpty()) {
+        context.commit(t -> writeBatch(t.get(DSLContext.class), batch));
+      }
+
+      blobLast = batch.blobLast();
+      examined += batch.examined();
+      recorded += batch.sizes().size();
+      context.progress(examined, total);
+
+      if (batch.examined() < BATCH_SIZE) {
+        break;
+      }
+    }
+
+    context.model()
+      .eventWithoutProgress(
+        "Recorded the dimensions of %d images.",
+        Integer.valueOf(recorded)
+      );
+  }
+
+  private static Batch readBatch(
+    final DSLContext context,
+    final long after)
+  {
+    final var records =
+      context.select(IMAGE_BLOBS.IMAGE_BLOB_ID, IMAGE_BLOBS.IMAGE_BLOB_DATA)
+        .from(IMAGE_BLOBS)
+        .where(
+          IMAGE_BLOBS.IMAGE_BLOB_WIDTH.isNull()
+            .or(IMAGE_BLOBS.IMAGE_BLOB_HEIGHT.isNull()))
+        .and(IMAGE_BLOBS.IMAGE_BLOB_ID.gt(Long.valueOf(after)))
+        .orderBy(IMAGE_BLOBS.IMAGE_BLOB_ID.asc())
+        .limit(Integer.valueOf(BATCH_SIZE))
+        .fetch();
+
+    var blobLast = after;
+    final var sizes = new LinkedHashMap<Long, LBuckets.Size>(records.size());
+    for (final var r : records) {
+      final var id = r.get(IMAGE_BLOBS.IMAGE_BLOB_ID);
+      blobLast = id.longValue();
+      try {
+        final var data = r.get(IMAGE_BLOBS.IMAGE_BLOB_DATA);
+        sizes.put(id, LBuckets.sizeOfImageData(data));
+      } catch (final IOException e) {
+        LOG.debug("Unable to read dimensions of blob {}: ", id, e);
+      }
+    }
+    return new Batch(blobLast, records.size(), sizes);
+  }
+
+  private static void writeBatch(
+    final DSLContext context,
+    final Batch batch)
+  {
+    for (final var entry : batch.sizes().entrySet()) {
+      final var size = entry.getValue();
+      context.update(IMAGE_BLOBS)
+        .set(IMAGE_BLOBS.IMAGE_BLOB_WIDTH, Long.valueOf(size.width()))
+        .set(IMAGE_BLOBS.IMAGE_BLOB_HEIGHT, Long.valueOf(size.height()))
+        .where(IMAGE_BLOBS.IMAGE_BLOB_ID.eq(entry.getKey()))
+        .execute();
+    }
+  }
+}
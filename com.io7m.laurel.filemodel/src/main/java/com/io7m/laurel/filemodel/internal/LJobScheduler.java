@@ -0,0 +1,481 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.laurel.filemodel.internal;
+
+import com.io7m.jattribute.core.AttributeReadableType;
+import com.io7m.jattribute.core.AttributeType;
+import com.io7m.jattribute.core.Attributes;
+import com.io7m.laurel.filemodel.LJobState;
+import com.io7m.laurel.filemodel.LJobStatus;
+import com.io7m.laurel.model.LException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A scheduler for background jobs. Jobs are executed one at a time, in
+ * priority order, on a single worker task. Interactive operations (commands,
+ * undo, and redo) always take precedence: whilst any interactive operation
+ * is pending, a running job is paused at its next checkpoint, and resumes
+ * once the last interactive operation has completed.
+ *
+ * The list of job statuses is built whilst holding the scheduler lock, but
+ * is published after the lock has been released, so that observers of the
+ * list are free to call back into the scheduler.
+ *
+ * @see LJobContext#checkpoint()
+ */
+
+final class LJobScheduler implements AutoCloseable
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(LJobScheduler.class);
+
+  private static final Comparator<Entry> BY_PRIORITY =
+    Comparator.comparingInt((Entry e) -> e.job.priority().ordinal())
+      .thenComparingLong(e -> e.id);
+
+  private static final Duration CLOSE_TIMEOUT =
+    Duration.ofSeconds(10L);
+
+  private final LFileModel model;
+  private final Executor executor;
+  private final AttributeType<List<LJobStatus>> jobs;
+  private final Object lock;
+  private final Object publishLock;
+  private final PriorityQueue<Entry> queue;
+  private Entry running;
+  private CompletableFuture<Void> worker;
+  private boolean workerActive;
+  private boolean closed;
+  private long idNext;
+  private int interactive;
+  private long statusesVersion;
+  private long statusesPublished;
+
+  LJobScheduler(
+    final Attributes attributes,
+    final Executor inExecutor,
+    final LFileModel inModel)
+  {
+    this.executor =
+      Objects.requireNonNull(inExecutor, "executor");
+    this.model =
+      Objects.requireNonNull(inModel, "model");
+    this.jobs =
+      attributes.withValue(List.of());
+    this.lock =
+      new Object();
+    this.publishLock =
+      new Object();
+    this.queue =
+      new PriorityQueue<>(BY_PRIORITY);
+    this.idNext =
+      1L;
+  }
+
+  /**
+   * A scheduled job.
+   */
+
+  static final class Entry
+  {
+    private final long id;
+    private final LJobType job;
+    private final LCancellableFuture<Void> future;
+    private final LProgressThrottle progressThrottle;
+    private LJobState state;
+    private OptionalDouble progress;
+
+    private Entry(
+      final long inId,
+      final LJobType inJob)
+    {
+      this.id = inId;
+      this.job = Objects.requireNonNull(inJob, "job");
+      this.future = new LCancellableFuture<>(new LCancellation());
+      this.progressThrottle =
+        new LProgressThrottle(LProgressThrottle.DEFAULT_INTERVAL);
+      this.state = LJobState.QUEUED;
+      this.progress = OptionalDouble.empty();
+    }
+
+    LCancellation cancellation()
+    {
+      return this.future.cancellation();
+    }
+
+    private LJobStatus status()
+    {
+      return new LJobStatus(
+        this.id,
+        this.job.describe(),
+        this.job.priority(),
+        this.state,
+        this.progress
+      );
+    }
+  }
+
+  /**
+   * The statuses of the jobs at a given point in time. Versions increase
+   * monotonically, and are used to discard statuses that are published
+   * after a newer set of statuses has already been published.
+   *
+   * @param version  The version
+   * @param statuses The job statuses
+   */
+
+  private record Statuses(
+    long version,
+    List<LJobStatus> statuses)
+  {
+    /**
+     * The statuses of the jobs at a given point in time.
+     *
+     * @param version  The version
+     * @param statuses The job statuses
+     */
+
+    private Statuses
+    {
+      Objects.requireNonNull(statuses, "statuses");
+    }
+  }
+
+  /**
+   * @return The status of every queued and running job
+   */
+
+  AttributeReadableType<List<LJobStatus>> jobs()
+  {
+    return this.jobs;
+  }
+
+  /**
+   * Schedule a job.
+   *
+   * @param job The job
+   *
+   * @return A future that is completed when the job has finished; cancelling
+   * the future cancels the job
+   */
+
+  CompletableFuture<Void> schedule(
+    final LJobType job)
+  {
+    Objects.requireNonNull(job, "job");
+
+    final Entry entry;
+    final Statuses statuses;
+    synchronized (this.lock) {
+      entry = new Entry(this.idNext++, job);
+      if (this.closed) {
+        entry.future.completeExceptionally(errorClosed());
+        return entry.future;
+      }
+
+      entry.future.onCancelRequested(() -> this.cancelQueued(entry));
+      this.queue.add(entry);
+      statuses = this.statusesLocked();
+
+      if (!this.workerActive) {
+        this.workerActive = true;
+        this.worker = CompletableFuture.runAsync(this::work, this.executor);
+      }
+    }
+
+    this.publish(statuses);
+    return entry.future;
+  }
+
+  /**
+   * Remove a cancelled job from the queue, if it has not yet started. A job
+   * that has started is completed by the worker once it has stopped.
+   *
+   * @param entry The job
+   */
+
+  private void cancelQueued(
+    final Entry entry)
+  {
+    final Statuses statuses;
+    synchronized (this.lock) {
+      if (!this.queue.remove(entry)) {
+        return;
+      }
+      statuses = this.statusesLocked();
+    }
+
+    this.publish(statuses);
+    entry.future.completeCancelled();
+  }
+
+  /**
+   * Indicate that an interactive operation has been submitted. Running jobs
+   * will pause at their next checkpoint until {@link #interactiveEnd()} has
+   * been called a matching number of times.
+   */
+
+  void interactiveBegin()
+  {
+    synchronized (this.lock) {
+      ++this.interactive;
+    }
+  }
+
+  /**
+   * Indicate that an interactive operation has completed.
+   */
+
+  void interactiveEnd()
+  {
+    synchronized (this.lock) {
+      this.interactive = Math.max(0, this.interactive - 1);
+      if (this.interactive == 0) {
+        this.lock.notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Wait until no interactive operations are pending.
+   *
+   * @param entry The job that is waiting
+   *
+   * @throws LException If the job is cancelled whilst waiting
+   */
+
+  void awaitInteractive(
+    final Entry entry)
+    throws LException
+  {
+    final Statuses paused;
+    synchronized (this.lock) {
+      if (this.interactive == 0) {
+        return;
+      }
+
+      entry.state = LJobState.PAUSED;
+      paused = this.statusesLocked();
+    }
+    this.publish(paused);
+
+    try {
+      synchronized (this.lock) {
+        while (this.interactive > 0 && !this.closed) {
+          entry.cancellation().check();
+          this.lock.wait(100L);
+        }
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      entry.cancellation().cancel();
+    } finally {
+      final Statuses resumed;
+      synchronized (this.lock) {
+        entry.state = LJobState.RUNNING;
+        resumed = this.statusesLocked();
+      }
+      this.publish(resumed);
+    }
+    entry.cancellation().check();
+  }
+
+  /**
+   * Update the progress of a job.
+   *
+   * @param entry   The job
+   * @param current The number of items processed
+   * @param max     The total number of items
+   */
+
+  void progress(
+    final Entry entry,
+    final long current,
+    final long max)
+  {
+    if (!entry.progressThrottle.shouldDeliver(current, max)) {
+      return;
+    }
+
+    final Statuses statuses;
+    synchronized (this.lock) {
+      entry.progress = OptionalDouble.of(
+        max <= 0L ? 1.0 : Math.min(1.0, (double) current / (double) max)
+      );
+      statuses = this.statusesLocked();
+    }
+    this.publish(statuses);
+  }
+
+  private void work()
+  {
+    while (true) {
+      final Entry entry;
+      final Statuses started;
+      synchronized (this.lock) {
+        entry = this.queue.poll();
+        if (entry == null) {
+          this.workerActive = false;
+          return;
+        }
+        entry.state = LJobState.RUNNING;
+        this.running = entry;
+        started = this.statusesLocked();
+      }
+      this.publish(started);
+
+      Throwable failure = null;
+      if (!entry.future.isDone()) {
+        try {
+          entry.cancellation().check();
+          entry.job.execute(new LJobContext(this.model, this, entry));
+        } catch (final Throwable e) {
+          LOG.debug("Job {} failed: ", entry.job.describe(), e);
+          failure = e;
+        }
+      }
+
+      /*
+       * The job is removed from the list of jobs before its future is
+       * completed, so that observers of the future never see a finished
+       * job in the list.
+       */
+
+      final Statuses finished;
+      synchronized (this.lock) {
+        this.running = null;
+        finished = this.statusesLocked();
+      }
+      this.publish(finished);
+
+      if (failure == null) {
+        entry.future.complete(null);
+      } else {
+        entry.future.completeFailed(failure);
+      }
+    }
+  }
+
+  private Statuses statusesLocked()
+  {
+    final var statuses = new ArrayList<LJobStatus>(this.queue.size() + 1);
+    if (this.running != null) {
+      statuses.add(this.running.status());
+    }
+
+    final var queued = new ArrayList<>(this.queue);
+    queued.sort(BY_PRIORITY);
+    for (final var entry : queued) {
+      statuses.add(entry.status());
+    }
+    return new Statuses(++this.statusesVersion, List.copyOf(statuses));
+  }
+
+  private void publish(
+    final Statuses statuses)
+  {
+    synchronized (this.publishLock) {
+      if (statuses.version > this.statusesPublished) {
+        this.statusesPublished = statuses.version;
+        this.jobs.set(statuses.statuses);
+      }
+    }
+  }
+
+  private static LException errorClosed()
+  {
+    return new LException(
+      "The file model has been closed.",
+      "error-closed",
+      Map.of(),
+      Optional.empty()
+    );
+  }
+
+  /**
+   * Close the scheduler. Queued jobs are cancelled, and the running job (if
+   * any) is asked to stop. The running job is given a bounded amount of
+   * time to finish, so that it is not still using the database when the
+   * database is closed.
+   */
+
+  @Override
+  public void close()
+  {
+    final List<Entry> cancelled;
+    final Statuses statuses;
+    final CompletableFuture<Void> activeWorker;
+
+    synchronized (this.lock) {
+      this.closed = true;
+      if (this.running != null) {
+        this.running.cancellation().cancel();
+      }
+      cancelled = new ArrayList<>(this.queue);
+      for (final var entry : cancelled) {
+        entry.cancellation().cancel();
+      }
+      this.queue.clear();
+      statuses = this.statusesLocked();
+      activeWorker = this.worker;
+      this.lock.notifyAll();
+    }
+
+    this.publish(statuses);
+    for (final var entry : cancelled) {
+      entry.future.completeCancelled();
+    }
+
+    if (activeWorker != null) {
+      awaitWorker(activeWorker);
+    }
+  }
+
+  private static void awaitWorker(
+    final CompletableFuture<Void> activeWorker)
+  {
+    try {
+      activeWorker.get(CLOSE_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (final TimeoutException e) {
+      LOG.warn(
+        "The running job did not finish within {}; closing regardless.",
+        CLOSE_TIMEOUT
+      );
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (final ExecutionException e) {
+      LOG.debug("Job worker failed: ", e.getCause());
+    }
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.laurel.filemodel.internal;
+
+import com.io7m.laurel.filemodel.LJobPriority;
+import org.jooq.DSLContext;
+
+/**
+ * Reclaim space in the file without blocking commands. Garbage image blobs
+ * are deleted in small batches, and then, if the file uses incremental
+ * auto-vacuum, free pages are returned to the filesystem a few at a time
+ * with {@code PRAGMA incremental_vacuum}.
+ *
+ * @see LDatabaseVacuum
+ *
+ * @see LBlobCollection
+ */
+
+final class LJobSpaceReclaim implements LJobType
+{
+  private static final int BLOB_BATCH_SIZE = 64;
+  private static final int VACUUM_BATCH_PAGES = 1024;
+
+  LJobSpaceReclaim()
+  {
+
+  }
+
+  @Override
+  public String describe()
+  {
+    return "Reclaim space";
+  }
+
+  @Override
+  public LJobPriority priority()
+  {
+    return LJobPriority.LOW;
+  }
+
+  @Override
+  public void execute(
+    final LJobContext context)
+    throws Exception
+  {
+    this.collectBlobs(context);
+    this.vacuum(context);
+  }
+
+  private void collectBlobs(
+    final LJobContext context)
+    throws Exception
+  {
+    final var garbage =
+      context.snapshot(t -> LBlobCollection.garbage(t.get(DSLContext.class)));
+
+    final var total = garbage.size();
+    final var deleted = new int[1];
+    for (int start = 0; start < total; start += BLOB_BATCH_SIZE) {
+      final var batch =
+        garbage.subList(start, Math.min(total, start + BLOB_BATCH_SIZE));
+
+      context.commit(t -> {
+        deleted[0] += LBlobCollection.delete(t.get(DSLContext.class), batch);
+      });
+      context.progress(start + batch.size(), total);
+    }
+
+    if (deleted[0] > 0) {
+      context.model()
+        .eventWithoutProgress(
+          "Deleted %d unused images.",
+          Integer.valueOf(deleted[0])
+        );
+    }
+  }
+
+  private void vacuum(
+    final LJobContext context)
+    throws Exception
+  {
+    final var pages =
+      context.snapshot(t -> {
+        return t.get(DSLContext.class).connectionResult(c -> {
+          final var mode = LDatabaseVacuum.autoVacuumMode(c);
+          if (mode != LDatabaseVacuum.AUTO_VACUUM_INCREMENTAL) {
+            return Long.valueOf(0L);
+          }
+          return Long.valueOf(LDatabaseVacuum.freePages(c));
+        });
+      }).longValue();
+
+    final var released = new long[1];
+    while (released[0] < pages) {
+      final var before = released[0];
+      context.commit(t -> {
+        released[0] +=
+          t.get(DSLContext.class).connectionResult(c -> {
+            return Long.valueOf(
+              LDatabaseVacuum.incrementalVacuum(c, VACUUM_BATCH_PAGES)
+            );
+          }).longValue();
+      });
+      if (released[0] == before) {
+        break;
+      }
+      context.progress(Math.min(pages, released[0]), pages);
+    }
+
+    if (released[0] > 0L) {
+      context.model()
+        .eventWithoutProgress(
+          "Released %d unused pages.",
+          Long.valueOf(released[0])
+        );
+    }
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.laurel.filemodel.internal;
+
+import com.io7m.laurel.filemodel.LJobPriority;
+
+/**
+ * A background job. Jobs are executed by the {@link LJobScheduler} without
+ * holding the model's command lock; they read from their own read-only
+ * transactions, and write (if at all) in small batches.
+ *
+ * @see LJobContext
+ */
+
+interface LJobType
+{
+  /**
+   * @return A humanly-readable description of the job
+   */
+
+  String describe();
+
+  /**
+   * @return The job priority
+   */
+
+  LJobPriority priority();
+
+  /**
+   * Execute the job.
+   *
+   * @param context The job context
+   *
+   * @throws Exception On errors
+   */
+
+  void execute(LJobContext context)
+    throws Exception;
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.laurel.filemodel.internal;
+
+import com.io7m.laurel.filemodel.LJobPriority;
+import org.jooq.DSLContext;
+
+/**
+ * Convert a file created without incremental auto-vacuum, so that
+ * {@link LJobSpaceReclaim} can return unused pages to the filesystem. The
+ * conversion rebuilds the entire file with a full {@code VACUUM}, and so it
+ * is only ever run when explicitly requested (by compacting the file). The
+ * job can be cancelled up until the rebuild starts.
+ *
+ * @see LDatabaseVacuum#convertToIncremental(java.sql.Connection)
+ */
+
+final class LJobVacuumConvert implements LJobType
+{
+  LJobVacuumConvert()
+  {
+
+  }
+
+  @Override
+  public String describe()
+  {
+    return "Convert file to incremental auto-vacuum";
+  }
+
+  @Override
+  public LJobPriority priority()
+  {
+    return LJobPriority.LOW;
+  }
+
+  @Override
+  public void execute(
+    final LJobContext context)
+    throws Exception
+  {
+    final var model = context.model();
+    if (model.isReadOnly()) {
+      return;
+    }
+
+    final var mode =
+      context.snapshot(t -> {
+        return t.get(DSLContext.class)
+          .connectionResult(LDatabaseVacuum::autoVacuumMode);
+      }).intValue();
+
+    if (mode == LDatabaseVacuum.AUTO_VACUUM_INCREMENTAL) {
+      return;
+    }
+
+    context.progress(0L, 1L);
+
+    /*
+     * VACUUM cannot run inside a transaction, so the transaction opened for
+     * the batch is committed (by enabling auto-commit) before the rebuild,
+     * and a new one is started afterwards.
+     */
+
+    context.commit(t -> {
+      t.get(DSLContext.class).connection(c -> {
+        c.setAutoCommit(true);
+        try {
+          LDatabaseVacuum.convertToIncremental(c);
+        } finally {
+          c.setAutoCommit(false);
+        }
+      });
+    });
+
+    context.progress(1L, 1L);
+    model.eventWithoutProgress(
+      "Converted file to incremental auto-vacuum."
+    );
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.laurel.filemodel.internal;
+
+import com.io7m.laurel.filemodel.LJobPriority;
+import com.io7m.laurel.filemodel.LValidationProblemType;
+import com.io7m.laurel.filemodel.LValidationProblemType.ImageMissingRequiredCaption;
+import com.io7m.laurel.model.LCaption;
+import com.io7m.laurel.model.LCaptionID;
+import com.io7m.laurel.model.LCategory;
+import com.io7m.laurel.model.LImageWithID;
+import org.jooq.DSLContext;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Validate.
+ */
+
+final class LJobValidate implements LJobType
+{
+  LJobValidate()
+  {
+
+  }
+
+  @Override
+  public String describe()
+  {
+    return "Validate";
+  }
+
+  @Override
+  public LJobPriority priority()
+  {
+    return LJobPriority.HIGH;
+  }
+
+  @Override
+  public void execute(
+    final LJobContext context)
+    throws Exception
+  {
+    final var model =
+      context.model();
+    final var images =
+      model.imageList().get();
+    final var required =
+      model.categoriesRequired().get();
+
+    final var problems =
+      context.snapshot(t -> {
+        final var dsl =
+          t.get(DSLContext.class);
+        final var categoryCaptions =
+          new LinkedHashMap<LCategory, Set<LCaptionID>>();
+
+        for (final var category : required) {
+          categoryCaptions.put(
+            category,
+            LCommandModelUpdates.listCategoryCaptionsAssigned(dsl, category.id())
+              .stream()
+              .map(LCaption::id)
+              .collect(Collectors.toSet())
+          );
+        }
+
+        final var results = new ArrayList<LValidationProblemType>();
+        for (int index = 0; index < images.size(); ++index) {
+          context.checkpoint();
+          context.progress(index, images.size());
+          checkImage(dsl, images.get(index), categoryCaptions, results);
+        }
+        return results;
+      });
+
+    model.setValidationProblems(List.copyOf(problems));
+  }
+
+  private static void checkImage(
+    final DSLContext context,
+    final LImageWithID image,
+    final Map<LCategory, Set<LCaptionID>> categoryCaptions,
+    final List<LValidationProblemType> problems)
+  {
+    final var captionsAssigned =
+      LCommandModelUpdates.listImageCaptionsAssigned(context, image.id())
+        .stream()
+        .map(LCaption::id)
+        .collect(Collectors.toSet());
+
+    for (final var entry : categoryCaptions.entrySet()) {
+      final var category = entry.getKey();
+      final var intersection = new HashSet<>(captionsAssigned);
+      intersection.retainAll(entry.getValue());
+
+      if (intersection.isEmpty()) {
+        problems.add(
+          new ImageMissingRequiredCaption(
+            image.id(),
+            category.id(),
+            "Image '%s' does not contain any captions from the required category '%s'."
+              .formatted(image.image().name(), category.name())
+          )
+        );
+      }
+    }
+  }
+}
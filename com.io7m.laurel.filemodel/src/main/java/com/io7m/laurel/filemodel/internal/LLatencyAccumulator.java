@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.laurel.filemodel.internal;
+
+import com.io7m.laurel.filemodel.LLatencyHistogram;
+
+import java.util.ArrayList;
+
+/**
+ * A mutable accumulator of latency observations.
+ */
+
+final class LLatencyAccumulator
+{
+  private final long[] buckets;
+  private long count;
+  private long total;
+  private long minimum;
+  private long maximum;
+
+  LLatencyAccumulator()
+  {
+    this.buckets =
+      new long[LLatencyHistogram.BUCKET_UPPER_BOUNDS_NANOS.size() + 1];
+    this.minimum = Long.MAX_VALUE;
+    this.maximum = 0L;
+  }
+
+  synchronized void add(
+    final long nanos)
+  {
+    final var clamped = Math.max(0L, nanos);
+    ++this.buckets[LLatencyHistogram.bucketFor(clamped)];
+    ++this.count;
+    this.total += clamped;
+    this.minimum = Math.min(this.minimum, clamped);
+    this.maximum = Math.max(this.maximum, clamped);
+  }
+
+  synchronized LLatencyHistogram snapshot()
+  {
+    final var counts = new ArrayList<Long>(this.buckets.length);
+    for (final var bucket : this.buckets) {
+      counts.add(Long.valueOf(bucket));
+    }
+
+    return new LLatencyHistogram(
+      this.count,
+      this.total,
+      this.count == 0L ? 0L : this.minimum,
+      this.maximum,
+      counts
+    );
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.laurel.filemodel.internal;
+
+import com.io7m.laurel.filemodel.LCommandOperation;
+import com.io7m.laurel.filemodel.LFileModelMetrics;
+import com.io7m.laurel.filemodel.LLatencyHistogram;
+import com.io7m.laurel.filemodel.LMetricsRecorderType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * The in-process metrics recorder. Measurements are accumulated locally,
+ * and forwarded to any additional recorders.
+ */
+
+public final class LMetrics
+  implements LMetricsRecorderType
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(LMetrics.class);
+
+  /**
+   * The maximum number of distinct queries tracked individually. Queries
+   * beyond this limit are accumulated under {@link #QUERY_OTHER}.
+   */
+
+  static final int QUERY_LIMIT = 1000;
+
+  /**
+   * The key under which untracked queries are accumulated.
+   */
+
+  static final String QUERY_OTHER = "(other)";
+
+  private final List<LMetricsRecorderType> delegates;
+  private final ConcurrentHashMap<String, LLatencyAccumulator> commands;
+  private final ConcurrentHashMap<String, LLatencyAccumulator> queries;
+  private final LongAdder commits;
+  private final LongAdder rollbacks;
+  private final LongAdder rows;
+
+  /**
+   * The in-process metrics recorder.
+   *
+   * @param inDelegates The additional recorders
+   */
+
+  public LMetrics(
+    final List<LMetricsRecorderType> inDelegates)
+  {
+    this.delegates = List.copyOf(inDelegates);
+    this.commands = new ConcurrentHashMap<>();
+    this.queries = new ConcurrentHashMap<>();
+    this.commits = new LongAdder();
+    this.rollbacks = new LongAdder();
+    this.rows = new LongAdder();
+  }
+
+  /**
+   * @return A snapshot of the metrics collected so far
+   */
+
+  public LFileModelMetrics snapshot()
+  {
+    return new LFileModelMetrics(
+      snapshotOf(this.commands),
+      snapshotOf(this.queries),
+      this.commits.sum(),
+      this.rollbacks.sum(),
+      this.rows.sum()
+    );
+  }
+
+  private static Map<String, LLatencyHistogram> snapshotOf(
+    final ConcurrentHashMap<String, LLatencyAccumulator> accumulators)
+  {
+    return accumulators.entrySet()
+      .stream()
+      .collect(Collectors.toMap(
+        Map.Entry::getKey,
+        e -> e.getValue().snapshot()
+      ));
+  }
+
+  @Override
+  public void onCommand(
+    final String command,
+    final LCommandOperation operation,
+    final long durationNanos,
+    final boolean succeeded)
+  {
+    final var key =
+      "%s:%s".formatted(command, operation.name().toLowerCase(Locale.ROOT));
+
+    this.commands.computeIfAbsent(key, k -> new LLatencyAccumulator())
+      .add(durationNanos);
+
+    for (final var delegate : this.delegates) {
+      try {
+        delegate.onCommand(command, operation, durationNanos, succeeded);
+      } catch (final RuntimeException e) {
+        LOG.debug("Metrics recorder failed: ", e);
+      }
+    }
+  }
+
+  @Override
+  public void onQuery(
+    final String query,
+    final long durationNanos,
+    final long rowCount)
+  {
+    var accumulator = this.queries.get(query);
+    if (accumulator == null) {
+      final var key =
+        this.queries.size() < QUERY_LIMIT ? query : QUERY_OTHER;
+      accumulator =
+        this.queries.computeIfAbsent(key, k -> new LLatencyAccumulator());
+    }
+
+    accumulator.add(durationNanos);
+    this.rows.add(Math.max(0L, rowCount));
+
+    for (final var delegate : this.delegates) {
+      try {
+        delegate.onQuery(query, durationNanos, rowCount);
+      } catch (final RuntimeException e) {
+        LOG.debug("Metrics recorder failed: ", e);
+      }
+    }
+  }
+
+  @Override
+  public void onTransactionCommit(
+    final long durationNanos)
+  {
+    this.commits.increment();
+
+    for (final var delegate : this.delegates) {
+      try {
+        delegate.onTransactionCommit(durationNanos);
+      } catch (final RuntimeException e) {
+        LOG.debug("Metrics recorder failed: ", e);
+      }
+    }
+  }
+
+  @Override
+  public void onTransactionRollback()
+  {
+    this.rollbacks.increment();
+
+    for (final var delegate : this.delegates) {
+      try {
+        delegate.onTransactionRollback();
+      } catch (final RuntimeException e) {
+        LOG.debug("Metrics recorder failed: ", e);
+      }
+    }
+  }
+}
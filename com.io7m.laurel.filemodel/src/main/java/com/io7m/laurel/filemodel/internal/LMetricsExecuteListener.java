@@ -0,0 +1,92 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.laurel.filemodel.internal;
+
+import com.io7m.laurel.filemodel.LMetricsRecorderType;
+import org.jooq.ExecuteContext;
+import org.jooq.ExecuteListener;
+
+import java.util.Objects;
+
+/**
+ * An execute listener that reports query timings and row counts.
+ */
+
+final class LMetricsExecuteListener
+  implements ExecuteListener
+{
+  private static final String START =
+    "com.io7m.laurel.filemodel.internal.LMetricsExecuteListener.start";
+
+  private final LMetricsRecorderType metrics;
+
+  LMetricsExecuteListener(
+    final LMetricsRecorderType inMetrics)
+  {
+    this.metrics = Objects.requireNonNull(inMetrics, "metrics");
+  }
+
+  @Override
+  public void start(
+    final ExecuteContext ctx)
+  {
+    ctx.data(START, Long.valueOf(System.nanoTime()));
+  }
+
+  @Override
+  public void end(
+    final ExecuteContext ctx)
+  {
+    if (ctx.data(START) instanceof final Long start) {
+      this.metrics.onQuery(
+        queryText(ctx),
+        System.nanoTime() - start.longValue(),
+        rowsOf(ctx)
+      );
+    }
+  }
+
+  static String queryText(
+    final ExecuteContext ctx)
+  {
+    final var sql = ctx.sql();
+    if (sql != null) {
+      return sql;
+    }
+
+    final var batch = ctx.batchSQL();
+    if (batch.length > 0 && batch[0] != null) {
+      return batch[0];
+    }
+    return "(unknown)";
+  }
+
+  private static long rowsOf(
+    final ExecuteContext ctx)
+  {
+    final var rows = ctx.rows();
+    if (rows >= 0) {
+      return rows;
+    }
+
+    final var result = ctx.result();
+    if (result != null) {
+      return result.size();
+    }
+    return 0L;
+  }
+}
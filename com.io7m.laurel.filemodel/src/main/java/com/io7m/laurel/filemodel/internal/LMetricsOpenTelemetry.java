@@ -0,0 +1,160 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.laurel.filemodel.internal;
+
+import com.io7m.laurel.filemodel.LCommandOperation;
+import com.io7m.laurel.filemodel.LMetricsRecorderType;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import io.opentelemetry.api.metrics.LongCounter;
+
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * A metrics recorder that publishes to OpenTelemetry.
+ */
+
+public final class LMetricsOpenTelemetry
+  implements LMetricsRecorderType
+{
+  private static final AttributeKey<String> COMMAND =
+    AttributeKey.stringKey("laurel.command");
+  private static final AttributeKey<String> OPERATION =
+    AttributeKey.stringKey("laurel.operation");
+  private static final AttributeKey<Boolean> SUCCEEDED =
+    AttributeKey.booleanKey("laurel.succeeded");
+  private static final AttributeKey<String> DB_OPERATION =
+    AttributeKey.stringKey("db.operation");
+
+  private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+  private final DoubleHistogram commandDuration;
+  private final DoubleHistogram queryDuration;
+  private final DoubleHistogram commitDuration;
+  private final LongCounter queryRows;
+  private final LongCounter rollbacks;
+
+  private LMetricsOpenTelemetry(
+    final OpenTelemetry openTelemetry)
+  {
+    final var meter =
+      openTelemetry.getMeter("com.io7m.laurel");
+
+    this.commandDuration =
+      meter.histogramBuilder("laurel.command.duration")
+        .setDescription("The time taken to execute, undo, or redo commands.")
+        .setUnit("s")
+        .build();
+    this.queryDuration =
+      meter.histogramBuilder("laurel.query.duration")
+        .setDescription("The time taken to execute database queries.")
+        .setUnit("s")
+        .build();
+    this.commitDuration =
+      meter.histogramBuilder("laurel.transaction.commit.duration")
+        .setDescription("The time taken to commit database transactions.")
+        .setUnit("s")
+        .build();
+    this.queryRows =
+      meter.counterBuilder("laurel.query.rows")
+        .setDescription("The number of rows fetched or affected by queries.")
+        .build();
+    this.rollbacks =
+      meter.counterBuilder("laurel.transaction.rollbacks")
+        .setDescription("The number of database transactions rolled back.")
+        .build();
+  }
+
+  /**
+   * Create a metrics recorder that publishes to OpenTelemetry.
+   *
+   * @param openTelemetry The OpenTelemetry instance
+   *
+   * @return A recorder
+   */
+
+  public static LMetricsRecorderType create(
+    final OpenTelemetry openTelemetry)
+  {
+    return new LMetricsOpenTelemetry(
+      Objects.requireNonNull(openTelemetry, "openTelemetry")
+    );
+  }
+
+  @Override
+  public void onCommand(
+    final String command,
+    final LCommandOperation operation,
+    final long durationNanos,
+    final boolean succeeded)
+  {
+    this.commandDuration.record(
+      (double) durationNanos / NANOS_PER_SECOND,
+      Attributes.of(
+        COMMAND, command,
+        OPERATION, operation.name().toLowerCase(Locale.ROOT),
+        SUCCEEDED, Boolean.valueOf(succeeded)
+      )
+    );
+  }
+
+  @Override
+  public void onQuery(
+    final String query,
+    final long durationNanos,
+    final long rows)
+  {
+    /*
+     * Query texts are unbounded in number; only the statement type is used
+     * as an attribute.
+     */
+
+    final var attributes =
+      Attributes.of(DB_OPERATION, statementType(query));
+
+    this.queryDuration.record(
+      (double) durationNanos / NANOS_PER_SECOND,
+      attributes
+    );
+    this.queryRows.add(Math.max(0L, rows), attributes);
+  }
+
+  private static String statementType(
+    final String query)
+  {
+    final var trimmed = query.stripLeading();
+    final var end = trimmed.indexOf(' ');
+    return (end < 0 ? trimmed : trimmed.substring(0, end))
+      .toUpperCase(Locale.ROOT);
+  }
+
+  @Override
+  public void onTransactionCommit(
+    final long durationNanos)
+  {
+    this.commitDuration.record((double) durationNanos / NANOS_PER_SECOND);
+  }
+
+  @Override
+  public void onTransactionRollback()
+  {
+    this.rollbacks.add(1L);
+  }
+}
@@ -0,0 +1,381 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.laurel.filemodel.internal;
+
+import com.io7m.laurel.model.LCaption;
+import com.io7m.laurel.model.LCaptionID;
+import com.io7m.laurel.model.LCaptionName;
+import com.io7m.laurel.model.LCategory;
+import com.io7m.laurel.model.LCategoryID;
+import com.io7m.laurel.model.LCategoryName;
+import com.io7m.laurel.model.LGlobalCaption;
+import com.io7m.laurel.model.LImageWithID;
+import com.io7m.laurel.model.LMetadataValue;
+import com.io7m.mime2045.parser.api.MimeParseException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A snapshot of the parts of the in-memory model that are expensive to load.
+ * Snapshots are stored in the database along with the database generation at
+ * the time the snapshot was taken, and are used in place of a full load when
+ * a file is reopened without having been modified.
+ *
+ * @param images             The images
+ * @param captions           The captions
+ * @param categories         The categories
+ * @param categoriesRequired The required categories
+ * @param categoryCaptions   The captions assigned to each category
+ * @param metadata           The metadata
+ * @param globalCaptions     The global captions
+ */
+
+public record LModelSnapshot(
+  List<LImageWithID> images,
+  List<LCaption> captions,
+  List<LCategory> categories,
+  List<LCategory> categoriesRequired,
+  SortedMap<LCategoryID, List<LCaption>> categoryCaptions,
+  List<LMetadataValue> metadata,
+  List<LGlobalCaption> globalCaptions)
+{
+  /**
+   * The current serialization format. This must be incremented whenever the
+   * serialized form changes, so that snapshots written by older versions are
+   * ignored.
+   */
+
+  public static final int FORMAT = 1;
+
+  private static final int MAGIC = 0x4C534E50;
+
+  /**
+   * A snapshot of the in-memory model.
+   *
+   * @param images             The images
+   * @param captions           The captions
+   * @param categories         The categories
+   * @param categoriesRequired The required categories
+   * @param categoryCaptions   The captions assigned to each category
+   * @param metadata           The metadata
+   * @param globalCaptions     The global captions
+   */
+
+  public LModelSnapshot
+  {
+    Objects.requireNonNull(images, "images");
+    Objects.requireNonNull(captions, "captions");
+    Objects.requireNonNull(categories, "categories");
+    Objects.requireNonNull(categoriesRequired, "categoriesRequired");
+    Objects.requireNonNull(categoryCaptions, "categoryCaptions");
+    Objects.requireNonNull(metadata, "metadata");
+    Objects.requireNonNull(globalCaptions, "globalCaptions");
+  }
+
+  /**
+   * Serialize the snapshot.
+   *
+   * @return The compressed serialized snapshot
+   *
+   * @throws IOException On errors
+   */
+
+  public byte[] serialize()
+    throws IOException
+  {
+    final var bytes = new ByteArrayOutputStream();
+    try (var output = new DataOutputStream(new GZIPOutputStream(bytes))) {
+      output.writeInt(MAGIC);
+      output.writeInt(FORMAT);
+
+      output.writeInt(this.images.size());
+      for (final var image : this.images) {
+        writeImage(output, image);
+      }
+
+      writeCaptions(output, this.captions);
+      writeCategories(output, this.categories);
+      writeCategories(output, this.categoriesRequired);
+
+      output.writeInt(this.categoryCaptions.size());
+      for (final var entry : this.categoryCaptions.entrySet()) {
+        output.writeLong(entry.getKey().value());
+        writeCaptions(output, entry.getValue());
+      }
+
+      output.writeInt(this.metadata.size());
+      for (final var meta : this.metadata) {
+        writeString(output, meta.name());
+        writeString(output, meta.value());
+      }
+
+      output.writeInt(this.globalCaptions.size());
+      for (final var caption : this.globalCaptions) {
+        writeCaption(output, caption.caption());
+        output.writeLong(caption.order());
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Deserialize a snapshot.
+   *
+   * @param data The compressed serialized snapshot
+   *
+   * @return The snapshot
+   *
+   * @throws IOException On errors, or if the data is not a snapshot in the
+   *                     current format
+   */
+
+  public static LModelSnapshot deserialize(
+    final byte[] data)
+    throws IOException
+  {
+    try (var input =
+           new DataInputStream(
+             new GZIPInputStream(new ByteArrayInputStream(data)))) {
+      if (input.readInt() != MAGIC) {
+        throw new IOException("Unrecognized model snapshot.");
+      }
+      final var format = input.readInt();
+      if (format != FORMAT) {
+        throw new IOException(
+          "Unsupported model snapshot format %d."
+            .formatted(Integer.valueOf(format))
+        );
+      }
+
+      final var imageCount = readCount(input);
+      final var images = LImageIndex.builder(imageCount);
+      for (int index = 0; index < imageCount; ++index) {
+        readImage(input, images);
+      }
+
+      final var captions = readCaptions(input);
+      final var categories = readCategories(input);
+      final var categoriesRequired = readCategories(input);
+
+      final var categoryCaptionCount = readCount(input);
+      final var categoryCaptions = new TreeMap<LCategoryID, List<LCaption>>();
+      for (int index = 0; index < categoryCaptionCount; ++index) {
+        categoryCaptions.put(
+          new LCategoryID(input.readLong()),
+          readCaptions(input)
+        );
+      }
+
+      final var metadataCount = readCount(input);
+      final var metadata = new ArrayList<LMetadataValue>(metadataCount);
+      for (int index = 0; index < metadataCount; ++index) {
+        metadata.add(
+          new LMetadataValue(readString(input), readString(input))
+        );
+      }
+
+      final var globalCount = readCount(input);
+      final var globalCaptions = new ArrayList<LGlobalCaption>(globalCount);
+      for (int index = 0; index < globalCount; ++index) {
+        globalCaptions.add(
+          new LGlobalCaption(readCaption(input), input.readLong())
+        );
+      }
+
+      return new LModelSnapshot(
+        images.build(),
+        captions,
+        categories,
+        categoriesRequired,
+        categoryCaptions,
+        List.copyOf(metadata),
+        List.copyOf(globalCaptions)
+      );
+    } catch (final IllegalArgumentException | MimeParseException e) {
+      throw new IOException(e);
+    }
+  }
+
+  private static int readCount(
+    final DataInputStream input)
+    throws IOException
+  {
+    final var count = input.readInt();
+    if (count < 0) {
+      throw new IOException(
+        "Negative count %d in model snapshot."
+          .formatted(Integer.valueOf(count))
+      );
+    }
+    return count;
+  }
+
+  private static void writeImage(
+    final DataOutputStream output,
+    final LImageWithID image)
+    throws IOException
+  {
+    final var data = image.image();
+    output.writeLong(image.id().value());
+    writeString(output, data.name());
+    writeOptionalString(output, data.file().map(Object::toString));
+    writeOptionalString(output, data.source().map(Object::toString));
+    writeString(output, data.type().toString());
+    writeString(output, data.hash().value());
+  }
+
+  private static void readImage(
+    final DataInputStream input,
+    final LImageIndex.Builder images)
+    throws IOException, MimeParseException
+  {
+    final var id = input.readLong();
+    final var name = readString(input);
+    final var file = readOptionalString(input);
+    final var source = readOptionalString(input);
+    final var type = readString(input);
+    final var hash = readString(input);
+    images.add(id, name, file.orElse(null), source.orElse(null), type, hash);
+  }
+
+  private static void writeCaptions(
+    final DataOutputStream output,
+    final List<LCaption> captions)
+    throws IOException
+  {
+    output.writeInt(captions.size());
+    for (final var caption : captions) {
+      writeCaption(output, caption);
+    }
+  }
+
+  private static List<LCaption> readCaptions(
+    final DataInputStream input)
+    throws IOException
+  {
+    final var count = readCount(input);
+    final var captions = new ArrayList<LCaption>(count);
+    for (int index = 0; index < count; ++index) {
+      captions.add(readCaption(input));
+    }
+    return List.copyOf(captions);
+  }
+
+  private static void writeCaption(
+    final DataOutputStream output,
+    final LCaption caption)
+    throws IOException
+  {
+    output.writeLong(caption.id().value());
+    writeString(output, caption.name().text());
+    output.writeLong(caption.count());
+  }
+
+  private static LCaption readCaption(
+    final DataInputStream input)
+    throws IOException
+  {
+    return new LCaption(
+      new LCaptionID(input.readLong()),
+      LCaptionName.interned(readString(input)),
+      input.readLong()
+    );
+  }
+
+  private static void writeCategories(
+    final DataOutputStream output,
+    final List<LCategory> categories)
+    throws IOException
+  {
+    output.writeInt(categories.size());
+    for (final var category : categories) {
+      output.writeLong(category.id().value());
+      writeString(output, category.name().text());
+      output.writeBoolean(category.required());
+    }
+  }
+
+  private static List<LCategory> readCategories(
+    final DataInputStream input)
+    throws IOException
+  {
+    final var count = readCount(input);
+    final var categories = new ArrayList<LCategory>(count);
+    for (int index = 0; index < count; ++index) {
+      categories.add(
+        new LCategory(
+          new LCategoryID(input.readLong()),
+          new LCategoryName(readString(input)),
+          input.readBoolean()
+        )
+      );
+    }
+    return List.copyOf(categories);
+  }
+
+  private static void writeOptionalString(
+    final DataOutputStream output,
+    final Optional<String> text)
+    throws IOException
+  {
+    output.writeBoolean(text.isPresent());
+    if (text.isPresent()) {
+      writeString(output, text.get());
+    }
+  }
+
+  private static Optional<String> readOptionalString(
+    final DataInputStream input)
+    throws IOException
+  {
+    if (input.readBoolean()) {
+      return Optional.of(readString(input));
+    }
+    return Optional.empty();
+  }
+
+  private static void writeString(
+    final DataOutputStream output,
+    final String text)
+    throws IOException
+  {
+    final var bytes = text.getBytes(UTF_8);
+    output.writeInt(bytes.length);
+    output.write(bytes);
+  }
+
+  private static String readString(
+    final DataInputStream input)
+    throws IOException
+  {
+    return new String(input.readNBytes(readCount(input)), UTF_8);
+  }
+}
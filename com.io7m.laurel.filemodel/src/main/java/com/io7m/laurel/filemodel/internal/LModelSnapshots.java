@@ -0,0 +1,197 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.laurel.filemodel.internal;
+
+import org.jooq.DSLContext;
+import org.jooq.exception.DataAccessException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import static com.io7m.laurel.filemodel.internal.Tables.MODEL_GENERATION;
+import static com.io7m.laurel.filemodel.internal.Tables.MODEL_SNAPSHOT;
+
+/**
+ * Functions to maintain the database generation and the model snapshot.
+ */
+
+public final class LModelSnapshots
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(LModelSnapshots.class);
+
+  private LModelSnapshots()
+  {
+
+  }
+
+  /**
+   * Count the rows changed so far on the given context's connection. The
+   * count covers the whole lifetime of the connection, and so only the
+   * difference between two calls made within the same transaction is
+   * meaningful.
+   *
+   * @param context The database context
+   *
+   * @return The number of rows changed
+   */
+
+  static long changes(
+    final DSLContext context)
+  {
+    return context.fetchOne("SELECT total_changes()")
+      .get(0, Long.class)
+      .longValue();
+  }
+
+  /**
+   * Increment the database generation.
+   *
+   * @param context The database context
+   */
+
+  static void generationIncrement(
+    final DSLContext context)
+  {
+    context.update(MODEL_GENERATION)
+      .set(
+        MODEL_GENERATION.GENERATION_VALUE,
+        MODEL_GENERATION.GENERATION_VALUE.plus(1L))
+      .where(MODEL_GENERATION.GENERATION_ID.eq(0L))
+      .execute();
+  }
+
+  private static long generation(
+    final DSLContext context)
+  {
+    return context.select(MODEL_GENERATION.GENERATION_VALUE)
+      .from(MODEL_GENERATION)
+      .where(MODEL_GENERATION.GENERATION_ID.eq(0L))
+      .fetchOptional(MODEL_GENERATION.GENERATION_VALUE)
+      .map(Long::longValue)
+      .orElse(0L);
+  }
+
+  /**
+   * Load the stored snapshot, if one exists and was taken at the current
+   * database generation.
+   *
+   * @param context The database context
+   *
+   * @return The snapshot, if a usable snapshot exists
+   */
+
+  static Optional<LModelSnapshot> load(
+    final DSLContext context)
+  {
+    try {
+      final var record =
+        context.select(
+            MODEL_SNAPSHOT.SNAPSHOT_GENERATION,
+            MODEL_SNAPSHOT.SNAPSHOT_FORMAT,
+            MODEL_SNAPSHOT.SNAPSHOT_DATA)
+          .from(MODEL_SNAPSHOT)
+          .where(MODEL_SNAPSHOT.SNAPSHOT_ID.eq(0L))
+          .fetchOne();
+
+      if (record == null) {
+        return Optional.empty();
+      }
+
+      final var generation = generation(context);
+      if (record.get(MODEL_SNAPSHOT.SNAPSHOT_GENERATION).longValue()
+          != generation) {
+        LOG.debug("Model snapshot is out of date.");
+        return Optional.empty();
+      }
+      if (record.get(MODEL_SNAPSHOT.SNAPSHOT_FORMAT).longValue()
+          != LModelSnapshot.FORMAT) {
+        LOG.debug("Model snapshot has an unsupported format.");
+        return Optional.empty();
+      }
+
+      return Optional.of(
+        LModelSnapshot.deserialize(record.get(MODEL_SNAPSHOT.SNAPSHOT_DATA))
+      );
+    } catch (final DataAccessException | IOException e) {
+      LOG.debug("Unable to load model snapshot: ", e);
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Take and store a snapshot of the database, unless a snapshot already
+   * exists for the current database generation.
+   *
+   * @param context The database context
+   *
+   * @return {@code true} if a snapshot was stored
+   *
+   * @throws IOException On errors
+   */
+
+  static boolean save(
+    final DSLContext context)
+    throws IOException
+  {
+    final var generation =
+      generation(context);
+    final var existing =
+      context.select(MODEL_SNAPSHOT.SNAPSHOT_GENERATION)
+        .from(MODEL_SNAPSHOT)
+        .where(MODEL_SNAPSHOT.SNAPSHOT_ID.eq(0L))
+        .and(MODEL_SNAPSHOT.SNAPSHOT_FORMAT.eq((long) LModelSnapshot.FORMAT))
+        .fetchOptional(MODEL_SNAPSHOT.SNAPSHOT_GENERATION);
+
+    if (existing.isPresent() && existing.get().longValue() == generation) {
+      return false;
+    }
+
+    final var snapshot =
+      new LModelSnapshot(
+        LCommandModelUpdates.listImages(context),
+        LCommandModelUpdates.listCaptionsAll(context),
+        LCommandModelUpdates.listCategoriesAll(context),
+        LCommandModelUpdates.listCategoriesRequired(context),
+        LCommandModelUpdates.listCategoriesCaptions(context),
+        LCommandModelUpdates.listMetadata(context),
+        LCommandModelUpdates.listGlobalCaptions(context)
+      );
+
+    final var data = snapshot.serialize();
+    context.insertInto(MODEL_SNAPSHOT)
+      .set(MODEL_SNAPSHOT.SNAPSHOT_ID, 0L)
+      .set(MODEL_SNAPSHOT.SNAPSHOT_GENERATION, generation)
+      .set(MODEL_SNAPSHOT.SNAPSHOT_FORMAT, (long) LModelSnapshot.FORMAT)
+      .set(MODEL_SNAPSHOT.SNAPSHOT_DATA, data)
+      .onConflict(MODEL_SNAPSHOT.SNAPSHOT_ID)
+      .doUpdate()
+      .set(MODEL_SNAPSHOT.SNAPSHOT_GENERATION, generation)
+      .set(MODEL_SNAPSHOT.SNAPSHOT_FORMAT, (long) LModelSnapshot.FORMAT)
+      .set(MODEL_SNAPSHOT.SNAPSHOT_DATA, data)
+      .execute();
+
+    LOG.debug(
+      "Stored model snapshot of {} octets at generation {}.",
+      Integer.valueOf(data.length),
+      Long.valueOf(generation)
+    );
+    return true;
+  }
+}
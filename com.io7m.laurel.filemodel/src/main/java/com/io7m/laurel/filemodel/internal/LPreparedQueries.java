@@ -0,0 +1,68 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.laurel.filemodel.internal;
+
+import org.jooq.BatchBindStep;
+import org.jooq.Param;
+import org.jooq.impl.DSL;
+
+/**
+ * Functions for building statements that are prepared once and executed
+ * many times. Bulk commands use either a kept statement
+ * ({@link org.jooq.Query#keepStatement(boolean)}) re-bound per row when they
+ * need per-row results, or a JDBC batch when they do not. In both cases
+ * the SQL is rendered and prepared once per command rather than once per row.
+ */
+
+final class LPreparedQueries
+{
+  private LPreparedQueries()
+  {
+
+  }
+
+  /**
+   * A bind placeholder for an integer column. A fresh placeholder must be
+   * created for each query, as jOOQ binds values into the placeholder
+   * instances themselves.
+   *
+   * @param name The parameter name
+   *
+   * @return A placeholder
+   */
+
+  static Param<Long> longParam(
+    final String name)
+  {
+    return DSL.param(name, Long.class);
+  }
+
+  /**
+   * Execute the given batch if any values have been bound to it. jOOQ
+   * otherwise executes an unbound batch once with {@code NULL} values.
+   *
+   * @param batch The batch
+   */
+
+  static void executeBatch(
+    final BatchBindStep batch)
+  {
+    if (batch.size() > 0) {
+      batch.execute();
+    }
+  }
+}
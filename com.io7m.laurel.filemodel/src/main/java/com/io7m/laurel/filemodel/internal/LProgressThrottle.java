@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.laurel.filemodel.internal;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * A time-based limit on the rate of progress events. Commands that iterate
+ * over many rows report progress for every row; the throttle delivers the
+ * first and last reports of an operation, and otherwise at most one report
+ * per interval. Callers check the throttle before formatting a message, so
+ * suppressed reports cost no more than a clock read.
+ *
+ * <p>Instances are not thread-safe.</p>
+ */
+
+public final class LProgressThrottle
+{
+  /**
+   * The default interval between progress events (twenty per second).
+   */
+
+  public static final Duration DEFAULT_INTERVAL =
+    Duration.ofMillis(50L);
+
+  private final long intervalNanos;
+  private long timeLast;
+  private boolean delivered;
+
+  /**
+   * A time-based limit on the rate of progress events.
+   *
+   * @param interval The minimum interval between delivered events
+   */
+
+  public LProgressThrottle(
+    final Duration interval)
+  {
+    this.intervalNanos =
+      Objects.requireNonNull(interval, "interval").toNanos();
+  }
+
+  /**
+   * Reset the throttle at the start of a new operation, so that the
+   * operation's first progress report is delivered.
+   */
+
+  public void reset()
+  {
+    this.delivered = false;
+  }
+
+  /**
+   * Determine if a progress report should be delivered.
+   *
+   * @param current The index of the current item
+   * @param max     The number of items
+   *
+   * @return {@code true} if the report should be delivered
+   */
+
+  public boolean shouldDeliver(
+    final long current,
+    final long max)
+  {
+    final var timeNow = System.nanoTime();
+    if (!this.delivered
+        || current + 1L >= max
+        || timeNow - this.timeLast >= this.intervalNanos) {
+      this.delivered = true;
+      this.timeLast = timeNow;
+      return true;
+    }
+    return false;
+  }
+}
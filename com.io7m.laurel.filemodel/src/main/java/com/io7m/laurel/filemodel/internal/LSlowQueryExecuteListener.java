@@ -0,0 +1,139 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.laurel.filemodel.internal;
+
+import com.io7m.laurel.filemodel.LSlowQuery;
+import org.jooq.ExecuteContext;
+import org.jooq.ExecuteListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * An execute listener that records statements that take longer than a
+ * threshold, along with their query plans.
+ */
+
+final class LSlowQueryExecuteListener
+  implements ExecuteListener
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(LSlowQueryExecuteListener.class);
+
+  private static final String START =
+    "com.io7m.laurel.filemodel.internal.LSlowQueryExecuteListener.start";
+
+  private final LSlowQueryLog log;
+
+  LSlowQueryExecuteListener(
+    final LSlowQueryLog inLog)
+  {
+    this.log = Objects.requireNonNull(inLog, "log");
+  }
+
+  @Override
+  public void start(
+    final ExecuteContext ctx)
+  {
+    ctx.data(START, Long.valueOf(System.nanoTime()));
+  }
+
+  @Override
+  public void end(
+    final ExecuteContext ctx)
+  {
+    if (!(ctx.data(START) instanceof final Long start)) {
+      return;
+    }
+
+    final var duration = System.nanoTime() - start.longValue();
+    if (!this.log.isSlow(duration)) {
+      return;
+    }
+
+    final var query =
+      LMetricsExecuteListener.queryText(ctx);
+    final var plan =
+      explain(ctx.connection(), query);
+
+    LOG.warn(
+      "Slow query ({} ms): {}",
+      Long.valueOf(duration / 1_000_000L),
+      query
+    );
+    for (final var line : plan) {
+      LOG.warn("  {}", line);
+    }
+
+    this.log.add(new LSlowQuery(OffsetDateTime.now(), query, duration, plan));
+  }
+
+  /**
+   * Retrieve the plan for the given statement. The statement is prepared
+   * without bind values; SQLite treats unbound parameters as {@code NULL},
+   * which does not affect the choice of indexes. The plan is retrieved over
+   * JDBC directly so that it does not pass through this listener again.
+   */
+
+  private static List<String> explain(
+    final Connection connection,
+    final String query)
+  {
+    if (connection == null || !isExplainable(query)) {
+      return List.of();
+    }
+
+    try (var statement =
+           connection.prepareStatement("EXPLAIN QUERY PLAN " + query);
+         var results = statement.executeQuery()) {
+      final var depths = new HashMap<Integer, Integer>();
+      final var lines = new ArrayList<String>();
+
+      while (results.next()) {
+        final var id = results.getInt("id");
+        final var parent = results.getInt("parent");
+        final var depth =
+          depths.getOrDefault(Integer.valueOf(parent), Integer.valueOf(-1))
+            .intValue() + 1;
+        depths.put(Integer.valueOf(id), Integer.valueOf(depth));
+        lines.add("  ".repeat(depth) + results.getString("detail"));
+      }
+      return List.copyOf(lines);
+    } catch (final SQLException e) {
+      return List.of("(Query plan unavailable: %s)".formatted(e.getMessage()));
+    }
+  }
+
+  private static boolean isExplainable(
+    final String query)
+  {
+    final var text = query.stripLeading().toLowerCase(Locale.ROOT);
+    return text.startsWith("select")
+           || text.startsWith("insert")
+           || text.startsWith("update")
+           || text.startsWith("delete")
+           || text.startsWith("with");
+  }
+}
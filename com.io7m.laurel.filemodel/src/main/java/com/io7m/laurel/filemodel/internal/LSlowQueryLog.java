@@ -0,0 +1,102 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.laurel.filemodel.internal;
+
+import com.io7m.laurel.filemodel.LSlowQuery;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A bounded log of the most recent slow queries.
+ */
+
+public final class LSlowQueryLog
+{
+  /**
+   * The maximum number of queries retained.
+   */
+
+  public static final int CAPACITY = 100;
+
+  private final long thresholdNanos;
+  private final ArrayDeque<LSlowQuery> queries;
+
+  /**
+   * A bounded log of the most recent slow queries.
+   *
+   * @param threshold The minimum execution time of a logged query
+   */
+
+  public LSlowQueryLog(
+    final Duration threshold)
+  {
+    Objects.requireNonNull(threshold, "threshold");
+    if (threshold.isNegative()) {
+      throw new IllegalArgumentException(
+        "Slow query threshold %s must be non-negative.".formatted(threshold)
+      );
+    }
+
+    this.thresholdNanos = threshold.toNanos();
+    this.queries = new ArrayDeque<>(CAPACITY);
+  }
+
+  /**
+   * @param durationNanos The execution time of a statement
+   *
+   * @return {@code true} if the statement counts as slow
+   */
+
+  boolean isSlow(
+    final long durationNanos)
+  {
+    return durationNanos >= this.thresholdNanos;
+  }
+
+  /**
+   * Add a query to the log, discarding the oldest query if the log is full.
+   *
+   * @param query The query
+   */
+
+  void add(
+    final LSlowQuery query)
+  {
+    Objects.requireNonNull(query, "query");
+
+    synchronized (this.queries) {
+      if (this.queries.size() == CAPACITY) {
+        this.queries.removeFirst();
+      }
+      this.queries.addLast(query);
+    }
+  }
+
+  /**
+   * @return The logged queries, oldest first
+   */
+
+  public List<LSlowQuery> snapshot()
+  {
+    synchronized (this.queries) {
+      return List.copyOf(this.queries);
+    }
+  }
+}
@@ -61,8 +61,10 @@ module com.io7m.laurel.filemodel
   requires com.io7m.mime2045.parser;
   requires com.io7m.seltzer.api;
 
-  requires io.opentelemetry.api;
+  requires transitive io.opentelemetry.api;
   requires java.desktop;
+  requires jdk.jfr;
+  requires org.apache.commons.compress;
   requires org.apache.commons.io;
   requires org.apache.tika.core;
   requires org.jooq;
@@ -56,6 +56,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.io7m.laurel.gui.internal.LStringConstants.TITLE;
@@ -74,6 +75,7 @@ public final class LExporterView extends LAbstractViewWithModel
   private final CloseableCollectionType<ClosingResourceFailedException> resources;
   private final AtomicBoolean running;
   private final RPServiceDirectoryType services;
+  private CompletableFuture<?> exportFuture;
 
   @FXML private Button select;
   @FXML private Button exportButton;
@@ -111,6 +113,8 @@ public final class LExporterView extends LAbstractViewWithModel
       CloseableCollection.create();
     this.running =
       new AtomicBoolean(false);
+    this.exportFuture =
+      CompletableFuture.completedFuture(null);
   }
 
   @Override
@@ -206,6 +210,8 @@ public final class LExporterView extends LAbstractViewWithModel
 
   private void close()
   {
+    this.exportFuture.cancel(true);
+
     try {
       this.resources.close();
     } catch (final ClosingResourceFailedException e) {
@@ -258,13 +264,22 @@ public final class LExporterView extends LAbstractViewWithModel
     this.running.set(true);
     this.validate();
 
-    this.fileModelNow()
-      .export(new LExportRequest(outputDirectory, exportImageFlag));
+    this.exportFuture =
+      this.fileModelNow()
+        .export(new LExportRequest(outputDirectory, exportImageFlag));
+
+    this.exportFuture.whenComplete((_0, _1) -> {
+      Platform.runLater(() -> {
+        this.running.set(false);
+        this.validate();
+      });
+    });
   }
 
   @FXML
   private void onCancelSelected()
   {
+    this.exportFuture.cancel(true);
     this.stage.close();
   }
 
@@ -49,6 +49,7 @@ import java.io.IOException;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static com.io7m.darco.api.DDatabaseUnit.UNIT;
 import static com.io7m.laurel.gui.internal.LStringConstants.REDO;
@@ -71,6 +72,7 @@ public final class LFileView extends LAbstractViewWithModel
   private final Stage stage;
   private final LPreferencesType preferences;
   private final RPServiceDirectoryType services;
+  private final AtomicReference<LFileModelEventType> eventLatest;
 
   private @FXML Parent mainContent;
   private @FXML Parent root;
@@ -112,6 +114,8 @@ public final class LFileView extends LAbstractViewWithModel
 
     this.stage =
       Objects.requireNonNull(inStage, "stage");
+    this.eventLatest =
+      new AtomicReference<>();
   }
 
   /**
@@ -247,11 +251,9 @@ public final class LFileView extends LAbstractViewWithModel
 
     final var eventSubscriber =
       subscriptions.add(
-        new LPerpetualSubscriber<LFileModelEventType>(event -> {
-          Platform.runLater(() -> {
-            this.onFileModelEvent(event);
-          });
-        })
+        new LPerpetualSubscriber<LFileModelEventType>(
+          this::onFileModelEventReceived
+        )
       );
 
     fileModel.events().subscribe(eventSubscriber);
@@ -297,6 +299,22 @@ public final class LFileView extends LAbstractViewWithModel
     }
   }
 
+  /**
+   * Only the most recent event is displayed, so events that arrive while an
+   * update is already pending on the UI thread replace the pending event
+   * instead of scheduling another update.
+   */
+
+  private void onFileModelEventReceived(
+    final LFileModelEventType event)
+  {
+    if (this.eventLatest.getAndSet(event) == null) {
+      Platform.runLater(() -> {
+        this.onFileModelEvent(this.eventLatest.getAndSet(null));
+      });
+    }
+  }
+
   private void onFileModelEvent(
     final LFileModelEventType event)
   {
@@ -57,6 +57,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.io7m.laurel.gui.internal.LStringConstants.TITLE;
@@ -75,6 +76,7 @@ public final class LImporterView implements LViewType
   private final CloseableCollectionType<ClosingResourceFailedException> resources;
   private final AtomicBoolean running;
   private final RPServiceDirectoryType services;
+  private CompletableFuture<Void> importFuture;
 
   @FXML private Button select;
   @FXML private Button create;
@@ -109,6 +111,8 @@ public final class LImporterView implements LViewType
       CloseableCollection.create();
     this.running =
       new AtomicBoolean(false);
+    this.importFuture =
+      CompletableFuture.completedFuture(null);
   }
 
   @Override
@@ -185,6 +189,8 @@ public final class LImporterView implements LViewType
 
   private void close()
   {
+    this.importFuture.cancel(true);
+
     try {
       this.resources.close();
     } catch (final ClosingResourceFailedException e) {
@@ -258,6 +264,7 @@ public final class LImporterView implements LViewType
     importer.events().subscribe(new LPerpetualSubscriber<>(this::onFileModelEvent));
 
     final var future = importer.execute();
+    this.importFuture = future;
     future.whenComplete((unused, throwable) -> {
       Platform.runLater(() -> {
         if (throwable == null) {
@@ -306,6 +313,7 @@ public final class LImporterView implements LViewType
   @FXML
   private void onCancelSelected()
   {
+    this.importFuture.cancel(true);
     this.stage.close();
   }
 
@@ -18,8 +18,8 @@
 package com.io7m.laurel.model;
 
 
-import java.util.Comparator;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 /**
@@ -38,6 +38,11 @@ public record LCaptionName(String text)
   public static final Pattern VALID_CAPTION =
     Pattern.compile("[a-z0-9A-Z_-][a-z0-9A-Z_ \\-']*");
 
+  private static final int INTERNED_MAXIMUM = 100_000;
+
+  private static final ConcurrentHashMap<String, LCaptionName> INTERNED =
+    new ConcurrentHashMap<>();
+
   /**
    * A caption.
    *
@@ -56,6 +61,37 @@ public record LCaptionName(String text)
     }
   }
 
+  /**
+   * Obtain a caption name for text that is expected to be valid, such as
+   * text read back from a file model database. Names are interned: the text
+   * is validated the first time it is seen, and subsequent calls with
+   * identical text return the same name without validating it again. The
+   * table of interned names is discarded if it grows too large.
+   *
+   * @param text The caption text
+   *
+   * @return A caption name
+   */
+
+  public static LCaptionName interned(
+    final String text)
+  {
+    Objects.requireNonNull(text, "text");
+
+    final var existing = INTERNED.get(text);
+    if (existing != null) {
+      return existing;
+    }
+
+    if (INTERNED.size() >= INTERNED_MAXIMUM) {
+      INTERNED.clear();
+    }
+
+    final var name = new LCaptionName(text);
+    final var raced = INTERNED.putIfAbsent(text, name);
+    return raced != null ? raced : name;
+  }
+
   @Override
   public String toString()
   {
@@ -66,7 +102,6 @@ public record LCaptionName(String text)
   public int compareTo(
     final LCaptionName other)
   {
-    return Comparator.comparing(LCaptionName::text)
-      .compare(this, other);
+    return this.text.compareTo(other.text);
   }
 }
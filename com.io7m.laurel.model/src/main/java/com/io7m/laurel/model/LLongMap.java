@@ -0,0 +1,284 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.laurel.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * A mutable map from {@code long} keys to non-null values, using open
+ * addressing with linear probing. Keys are held in a primitive array and are
+ * never boxed. The map is intended for indexing large numbers of values by
+ * database ID.
+ *
+ * @param <V> The type of values
+ */
+
+public final class LLongMap<V>
+{
+  private static final int MINIMUM_CAPACITY = 16;
+
+  private long[] keys;
+  private Object[] values;
+  private int size;
+  private int mask;
+
+  /**
+   * Create an empty map.
+   *
+   * @param expected The expected number of entries
+   */
+
+  public LLongMap(
+    final int expected)
+  {
+    this.allocate(capacityFor(expected));
+  }
+
+  private static int capacityFor(
+    final int expected)
+  {
+    final var required = Math.max(MINIMUM_CAPACITY, (expected / 3) * 4 + 4);
+    return Integer.highestOneBit(required - 1) << 1;
+  }
+
+  private static int hash(
+    final long key)
+  {
+    var h = key * 0x9E3779B97F4A7C15L;
+    h ^= h >>> 32;
+    h ^= h >>> 16;
+    return (int) h;
+  }
+
+  private void allocate(
+    final int capacity)
+  {
+    this.keys = new long[capacity];
+    this.values = new Object[capacity];
+    this.mask = capacity - 1;
+  }
+
+  private int slotOf(
+    final long key)
+  {
+    int slot = hash(key) & this.mask;
+    while (this.values[slot] != null && this.keys[slot] != key) {
+      slot = (slot + 1) & this.mask;
+    }
+    return slot;
+  }
+
+  /**
+   * @return The number of entries in the map
+   */
+
+  public int size()
+  {
+    return this.size;
+  }
+
+  /**
+   * @return {@code true} if the map is empty
+   */
+
+  public boolean isEmpty()
+  {
+    return this.size == 0;
+  }
+
+  /**
+   * @param key The key
+   *
+   * @return {@code true} if the map contains {@code key}
+   */
+
+  public boolean containsKey(
+    final long key)
+  {
+    return this.values[this.slotOf(key)] != null;
+  }
+
+  /**
+   * @param key The key
+   *
+   * @return The value associated with {@code key}, or {@code null}
+   */
+
+  @SuppressWarnings("unchecked")
+  public V get(
+    final long key)
+  {
+    return (V) this.values[this.slotOf(key)];
+  }
+
+  /**
+   * Associate {@code value} with {@code key}.
+   *
+   * @param key   The key
+   * @param value The value
+   *
+   * @return The value previously associated with {@code key}, or {@code null}
+   */
+
+  @SuppressWarnings("unchecked")
+  public V put(
+    final long key,
+    final V value)
+  {
+    Objects.requireNonNull(value, "value");
+
+    final var slot = this.slotOf(key);
+    final var existing = (V) this.values[slot];
+    if (existing != null) {
+      this.values[slot] = value;
+      return existing;
+    }
+
+    this.keys[slot] = key;
+    this.values[slot] = value;
+    ++this.size;
+
+    if (this.size * 4 > this.values.length * 3) {
+      this.rehash(this.values.length << 1);
+    }
+    return null;
+  }
+
+  /**
+   * Remove the entry for {@code key}, if any. The entries following the
+   * removed entry in its probe sequence are shifted back to fill the gap, so
+   * that no tombstones are needed.
+   *
+   * @param key The key
+   *
+   * @return The value previously associated with {@code key}, or {@code null}
+   */
+
+  @SuppressWarnings("unchecked")
+  public V remove(
+    final long key)
+  {
+    var hole = this.slotOf(key);
+    final var existing = (V) this.values[hole];
+    if (existing == null) {
+      return null;
+    }
+
+    this.values[hole] = null;
+    --this.size;
+
+    var slot = (hole + 1) & this.mask;
+    while (this.values[slot] != null) {
+      final var ideal = hash(this.keys[slot]) & this.mask;
+      if (((slot - ideal) & this.mask) >= ((slot - hole) & this.mask)) {
+        this.keys[hole] = this.keys[slot];
+        this.values[hole] = this.values[slot];
+        this.values[slot] = null;
+        hole = slot;
+      }
+      slot = (slot + 1) & this.mask;
+    }
+    return existing;
+  }
+
+  private void rehash(
+    final int capacity)
+  {
+    final var oldKeys = this.keys;
+    final var oldValues = this.values;
+    this.allocate(capacity);
+
+    for (int index = 0; index < oldValues.length; ++index) {
+      final var value = oldValues[index];
+      if (value != null) {
+        final var slot = this.slotOf(oldKeys[index]);
+        this.keys[slot] = oldKeys[index];
+        this.values[slot] = value;
+      }
+    }
+  }
+
+  /**
+   * @return The keys of the map
+   */
+
+  public LLongSet keys()
+  {
+    final var builder = LLongSet.builder(this.size);
+    for (int index = 0; index < this.values.length; ++index) {
+      if (this.values[index] != null) {
+        builder.add(this.keys[index]);
+      }
+    }
+    return builder.build();
+  }
+
+  /**
+   * @return A list of the values of the map, in no particular order
+   */
+
+  @SuppressWarnings("unchecked")
+  public List<V> values()
+  {
+    final var results = new ArrayList<V>(this.size);
+    for (final var value : this.values) {
+      if (value != null) {
+        results.add((V) value);
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Apply {@code consumer} to each value and its key, in no particular order.
+   *
+   * @param consumer The consumer
+   */
+
+  @SuppressWarnings("unchecked")
+  public void forEach(
+    final ObjLongConsumer<V> consumer)
+  {
+    for (int index = 0; index < this.values.length; ++index) {
+      final var value = this.values[index];
+      if (value != null) {
+        consumer.accept((V) value, this.keys[index]);
+      }
+    }
+  }
+
+  /**
+   * Remove all entries from the map.
+   */
+
+  public void clear()
+  {
+    Arrays.fill(this.values, null);
+    this.size = 0;
+  }
+
+  @Override
+  public String toString()
+  {
+    return "[LLongMap size=%d]".formatted(Integer.valueOf(this.size));
+  }
+}
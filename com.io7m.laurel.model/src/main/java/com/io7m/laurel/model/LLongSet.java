@@ -0,0 +1,287 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.laurel.model;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+
+/**
+ * An immutable set of {@code long} values, held as a sorted primitive array.
+ * Membership tests are performed by binary search. The set is intended for
+ * holding large numbers of database IDs without boxing each ID.
+ */
+
+public final class LLongSet
+{
+  private static final LLongSet EMPTY = new LLongSet(new long[0]);
+
+  private final long[] values;
+
+  private LLongSet(
+    final long[] inValues)
+  {
+    this.values = inValues;
+  }
+
+  /**
+   * @return The empty set
+   */
+
+  public static LLongSet empty()
+  {
+    return EMPTY;
+  }
+
+  /**
+   * Create a set from the given values. Duplicate values are removed.
+   *
+   * @param values The values
+   *
+   * @return A set
+   */
+
+  public static LLongSet of(
+    final long... values)
+  {
+    final var builder = new Builder(values.length);
+    for (final var value : values) {
+      builder.add(value);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Create a new set builder.
+   *
+   * @param capacity The expected number of values
+   *
+   * @return A builder
+   */
+
+  public static Builder builder(
+    final int capacity)
+  {
+    return new Builder(capacity);
+  }
+
+  /**
+   * @return The number of values in the set
+   */
+
+  public int size()
+  {
+    return this.values.length;
+  }
+
+  /**
+   * @return {@code true} if the set is empty
+   */
+
+  public boolean isEmpty()
+  {
+    return this.values.length == 0;
+  }
+
+  /**
+   * @param value The value
+   *
+   * @return {@code true} if the set contains {@code value}
+   */
+
+  public boolean contains(
+    final long value)
+  {
+    return Arrays.binarySearch(this.values, value) >= 0;
+  }
+
+  /**
+   * @param index The index
+   *
+   * @return The value at the given index, in ascending order
+   */
+
+  public long get(
+    final int index)
+  {
+    return this.values[index];
+  }
+
+  /**
+   * @param value The value
+   *
+   * @return A set containing the values of this set and {@code value}
+   */
+
+  public LLongSet with(
+    final long value)
+  {
+    final var index = Arrays.binarySearch(this.values, value);
+    if (index >= 0) {
+      return this;
+    }
+
+    final var insert = -(index + 1);
+    final var results = new long[this.values.length + 1];
+    System.arraycopy(this.values, 0, results, 0, insert);
+    results[insert] = value;
+    System.arraycopy(
+      this.values, insert, results, insert + 1, this.values.length - insert);
+    return new LLongSet(results);
+  }
+
+  /**
+   * @param value The value
+   *
+   * @return A set containing the values of this set except {@code value}
+   */
+
+  public LLongSet without(
+    final long value)
+  {
+    final var index = Arrays.binarySearch(this.values, value);
+    if (index < 0) {
+      return this;
+    }
+    if (this.values.length == 1) {
+      return EMPTY;
+    }
+
+    final var results = new long[this.values.length - 1];
+    System.arraycopy(this.values, 0, results, 0, index);
+    System.arraycopy(
+      this.values, index + 1, results, index, this.values.length - index - 1);
+    return new LLongSet(results);
+  }
+
+  /**
+   * Apply {@code consumer} to each value in ascending order.
+   *
+   * @param consumer The consumer
+   */
+
+  public void forEach(
+    final LongConsumer consumer)
+  {
+    for (final var value : this.values) {
+      consumer.accept(value);
+    }
+  }
+
+  /**
+   * @return The values in ascending order
+   */
+
+  public LongStream stream()
+  {
+    return Arrays.stream(this.values);
+  }
+
+  /**
+   * @return A copy of the values in ascending order
+   */
+
+  public long[] toArray()
+  {
+    return this.values.clone();
+  }
+
+  @Override
+  public boolean equals(
+    final Object other)
+  {
+    return this == other
+           || other instanceof final LLongSet set
+              && Arrays.equals(this.values, set.values);
+  }
+
+  @Override
+  public int hashCode()
+  {
+    return Arrays.hashCode(this.values);
+  }
+
+  @Override
+  public String toString()
+  {
+    return Arrays.toString(this.values);
+  }
+
+  /**
+   * A mutable builder of sets.
+   */
+
+  public static final class Builder
+  {
+    private long[] values;
+    private int size;
+
+    private Builder(
+      final int capacity)
+    {
+      this.values = new long[Math.max(capacity, 8)];
+      this.size = 0;
+    }
+
+    /**
+     * Add a value.
+     *
+     * @param value The value
+     *
+     * @return this
+     */
+
+    public Builder add(
+      final long value)
+    {
+      if (this.size == this.values.length) {
+        this.values = Arrays.copyOf(this.values, this.size << 1);
+      }
+      this.values[this.size] = value;
+      ++this.size;
+      return this;
+    }
+
+    /**
+     * @return A set containing the values added so far
+     */
+
+    public LLongSet build()
+    {
+      if (this.size == 0) {
+        return EMPTY;
+      }
+
+      final var sorted = Arrays.copyOf(this.values, this.size);
+      Arrays.sort(sorted);
+
+      int unique = 1;
+      for (int index = 1; index < sorted.length; ++index) {
+        if (sorted[index] != sorted[unique - 1]) {
+          sorted[unique] = sorted[index];
+          ++unique;
+        }
+      }
+
+      if (unique == sorted.length) {
+        return new LLongSet(sorted);
+      }
+      return new LLongSet(Arrays.copyOf(sorted, unique));
+    }
+  }
+}
@@ -19,6 +19,7 @@ package com.io7m.laurel.tests;
 
 import com.io7m.laurel.cmdline.internal.LCExport;
 import com.io7m.laurel.cmdline.internal.LCImport;
+import com.io7m.laurel.cmdline.internal.LCStatistics;
 import com.io7m.quarrel.core.QCommandOrGroupType;
 import com.io7m.quarrel.core.QCommandParserConfiguration;
 import com.io7m.quarrel.core.QCommandParsers;
@@ -59,7 +60,8 @@ public final class LCCommandsDocumentation
     final var commands =
       List.of(
         new LCExport(),
-        new LCImport()
+        new LCImport(),
+        new LCStatistics()
       );
 
     final SortedMap<String, QCommandOrGroupType> commandsByName =
@@ -19,11 +19,13 @@ package com.io7m.laurel.tests;
 
 import com.io7m.laurel.model.LCaptionName;
 import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestFactory;
 
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public final class LCaptionNameTest
@@ -48,6 +50,29 @@ public final class LCaptionNameTest
     ).map(LCaptionNameTest::invalidTestOf);
   }
 
+  @Test
+  public void testInterned()
+  {
+    final var a = LCaptionName.interned(new String("interned"));
+    final var b = LCaptionName.interned(new String("interned"));
+    assertSame(a, b);
+    assertEquals(new LCaptionName("interned"), a);
+
+    assertThrows(IllegalArgumentException.class, () -> {
+      LCaptionName.interned("'z");
+    });
+  }
+
+  @Test
+  public void testCompare()
+  {
+    assertEquals(
+      "a".compareTo("b"),
+      new LCaptionName("a").compareTo(new LCaptionName("b"))
+    );
+    assertEquals(0, new LCaptionName("a").compareTo(new LCaptionName("a")));
+  }
+
   private static DynamicTest validTestOf(
     final String text)
   {
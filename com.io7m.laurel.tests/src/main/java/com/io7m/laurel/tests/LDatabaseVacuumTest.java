@@ -0,0 +1,214 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.laurel.tests;
+
+import com.io7m.laurel.filemodel.LFileModels;
+import com.io7m.laurel.filemodel.internal.LDatabaseVacuum;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sqlite.SQLiteDataSource;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Objects;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class LDatabaseVacuumTest
+{
+  private static Connection open(
+    final Path file)
+    throws SQLException
+  {
+    final var source = new SQLiteDataSource();
+    source.setUrl("jdbc:sqlite:" + file);
+    return source.getConnection();
+  }
+
+  private static void fill(
+    final Connection connection)
+    throws SQLException
+  {
+    try (var st = connection.createStatement()) {
+      st.execute("CREATE TABLE t (x BLOB)");
+      for (int index = 0; index < 64; ++index) {
+        st.execute("INSERT INTO t VALUES (randomblob(16384))");
+      }
+    }
+  }
+
+  @Test
+  public void testIncrementalVacuumFreesPages(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    try (var c = open(directory.resolve("db.sqlite"))) {
+      try (var st = c.createStatement()) {
+        st.execute("PRAGMA auto_vacuum=INCREMENTAL");
+      }
+      fill(c);
+      try (var st = c.createStatement()) {
+        st.execute("DELETE FROM t");
+      }
+
+      final var before = LDatabaseVacuum.freePages(c);
+      assertTrue(before > 1L);
+
+      final var freed = LDatabaseVacuum.incrementalVacuum(c, before - 1L);
+      assertEquals(before - 1L, freed);
+      assertEquals(1L, LDatabaseVacuum.freePages(c));
+
+      assertEquals(1L, LDatabaseVacuum.incrementalVacuum(c, before));
+      assertEquals(0L, LDatabaseVacuum.freePages(c));
+    }
+  }
+
+  @Test
+  public void testConvertToIncremental(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    try (var c = open(directory.resolve("db.sqlite"))) {
+      try (var st = c.createStatement()) {
+        st.execute("PRAGMA auto_vacuum=NONE");
+      }
+      fill(c);
+      assertEquals(0, LDatabaseVacuum.autoVacuumMode(c));
+
+      assertTrue(LDatabaseVacuum.convertToIncremental(c));
+      assertEquals(
+        LDatabaseVacuum.AUTO_VACUUM_INCREMENTAL,
+        LDatabaseVacuum.autoVacuumMode(c)
+      );
+      assertFalse(LDatabaseVacuum.convertToIncremental(c));
+
+      try (var st = c.createStatement()) {
+        st.execute("DELETE FROM t");
+      }
+      assertTrue(LDatabaseVacuum.freePages(c) > 0L);
+      LDatabaseVacuum.incrementalVacuum(c, Long.MAX_VALUE);
+      assertEquals(0L, LDatabaseVacuum.freePages(c));
+    }
+  }
+
+  @Test
+  public void testFilesUseIncremental(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var file = directory.resolve("file.lau");
+    try (var model = LFileModels.open(file, false)) {
+      model.loading().get(10L, SECONDS);
+    }
+
+    try (var c = open(file)) {
+      assertEquals(
+        LDatabaseVacuum.AUTO_VACUUM_INCREMENTAL,
+        LDatabaseVacuum.autoVacuumMode(c)
+      );
+    }
+  }
+
+  @Test
+  public void testOldFilesConvertedOnCompact(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var file = directory.resolve("file.lau");
+    try (var model = LFileModels.open(file, false)) {
+      model.loading().get(10L, SECONDS);
+    }
+
+    try (var c = open(file)) {
+      try (var st = c.createStatement()) {
+        st.execute("PRAGMA auto_vacuum=NONE");
+        st.execute("VACUUM");
+      }
+      assertEquals(0, LDatabaseVacuum.autoVacuumMode(c));
+    }
+
+    /*
+     * Opening an old file does not convert it; compacting it does.
+     */
+
+    try (var model = LFileModels.open(file, false)) {
+      model.loading().get(10L, SECONDS);
+
+      try (var c = open(file)) {
+        assertEquals(0, LDatabaseVacuum.autoVacuumMode(c));
+      }
+
+      model.compact().get(10L, SECONDS);
+      model.reclaimSpace().get(10L, SECONDS);
+    }
+
+    try (var c = open(file)) {
+      assertEquals(
+        LDatabaseVacuum.AUTO_VACUUM_INCREMENTAL,
+        LDatabaseVacuum.autoVacuumMode(c)
+      );
+    }
+  }
+
+  @Test
+  public void testVacuumEventsRecorded(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var output = directory.resolve("vacuum.jfr");
+
+    try (var recording = new Recording()) {
+      recording.enable("com.io7m.laurel.Vacuum");
+      recording.start();
+
+      try (var c = open(directory.resolve("db.sqlite"))) {
+        fill(c);
+        LDatabaseVacuum.convertToIncremental(c);
+        try (var st = c.createStatement()) {
+          st.execute("DELETE FROM t");
+        }
+        LDatabaseVacuum.incrementalVacuum(c, Long.MAX_VALUE);
+      }
+
+      recording.stop();
+      recording.dump(output);
+    }
+
+    final var events =
+      RecordingFile.readAllEvents(output)
+        .stream()
+        .filter(e -> {
+          return Objects.equals(e.getEventType().getName(),
+                                "com.io7m.laurel.Vacuum");
+        })
+        .toList();
+
+    assertEquals(
+      List.of("FULL", "INCREMENTAL"),
+      events.stream().map(e -> e.getString("mode")).toList()
+    );
+    assertTrue(events.get(1).getLong("pagesFreed") > 0L);
+  }
+}
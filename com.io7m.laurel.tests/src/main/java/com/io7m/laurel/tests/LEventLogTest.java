@@ -0,0 +1,120 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.laurel.tests;
+
+import com.io7m.laurel.filemodel.LFileModelEvent;
+import com.io7m.laurel.filemodel.LFileModelEventType;
+import com.io7m.laurel.filemodel.internal.LEventLog;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalDouble;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class LEventLogTest
+{
+  private static LFileModelEventType event(
+    final int index)
+  {
+    return new LFileModelEvent(
+      "Event %d".formatted(Integer.valueOf(index)),
+      OptionalDouble.empty()
+    );
+  }
+
+  @Test
+  public void testCapacityInvalid()
+  {
+    assertThrows(
+      IllegalArgumentException.class,
+      () -> new LEventLog(0, LEventLog.DEFAULT_INTERVAL)
+    );
+  }
+
+  @Test
+  public void testOverflowDiscardsOldest()
+  {
+    final var log = new LEventLog(3, LEventLog.DEFAULT_INTERVAL);
+
+    log.add(event(0));
+    log.add(event(1));
+    assertEquals(List.of(event(0), event(1)), log.snapshot());
+    assertEquals(0L, log.discarded());
+
+    for (int index = 2; index < 8; ++index) {
+      log.add(event(index));
+    }
+
+    assertEquals(List.of(event(5), event(6), event(7)), log.snapshot());
+    assertEquals(5L, log.discarded());
+  }
+
+  @Test
+  public void testBurstCoalesced()
+  {
+    final var log = new LEventLog(100, Duration.ofHours(1L));
+    final var received = new ArrayList<List<LFileModelEventType>>();
+
+    /*
+     * The first snapshot is published immediately, and every other event in
+     * the burst falls within the same interval.
+     */
+
+    for (int index = 0; index < 1000; ++index) {
+      log.add(event(index));
+      log.publishIfDue(received::add);
+    }
+
+    assertEquals(1, received.size());
+    assertEquals(List.of(event(0)), received.get(0));
+
+    /*
+     * A final explicit publication delivers the most recent events, and
+     * nothing is published if the log has not changed.
+     */
+
+    log.publish(received::add);
+    assertEquals(2, received.size());
+    assertEquals(100, received.get(1).size());
+    assertEquals(event(999), received.get(1).get(99));
+
+    log.publish(received::add);
+    log.publishIfDue(received::add);
+    assertEquals(2, received.size());
+  }
+
+  @Test
+  public void testIntervalElapsed()
+  {
+    final var log = new LEventLog(100, Duration.ZERO);
+    final var received = new ArrayList<List<LFileModelEventType>>();
+
+    for (int index = 0; index < 10; ++index) {
+      log.add(event(index));
+      log.publishIfDue(received::add);
+      log.publishIfDue(received::add);
+    }
+
+    assertEquals(10, received.size());
+    assertEquals(10, received.get(9).size());
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.laurel.tests;
+
+import com.io7m.laurel.filemodel.LExportImageFormat;
+import com.io7m.laurel.filemodel.LExportTransform;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+public final class LExportTransformTest
+{
+  private static String keyOf(
+    final double quality)
+  {
+    return new LExportTransform(
+      256,
+      LExportImageFormat.JPEG,
+      quality,
+      Optional.empty()
+    ).parameterKey();
+  }
+
+  @Test
+  public void testParameterKeyExactQuality()
+  {
+    assertNotEquals(keyOf(0.849), keyOf(0.851));
+    assertNotEquals(keyOf(0.85), keyOf(0.8500000000000001));
+    assertEquals(keyOf(0.85), keyOf(0.85));
+    assertEquals(keyOf(0.0), keyOf(-0.0));
+  }
+
+  @Test
+  public void testParameterKeyParameters()
+  {
+    final var base =
+      new LExportTransform(256, LExportImageFormat.JPEG, 0.8, Optional.empty());
+
+    assertNotEquals(
+      base.parameterKey(),
+      new LExportTransform(128, LExportImageFormat.JPEG, 0.8, Optional.empty())
+        .parameterKey()
+    );
+    assertNotEquals(
+      base.parameterKey(),
+      new LExportTransform(256, LExportImageFormat.PNG, 0.8, Optional.empty())
+        .parameterKey()
+    );
+  }
+}
@@ -17,11 +17,19 @@
 
 package com.io7m.laurel.tests;
 
+import com.io7m.laurel.filemodel.LBucket;
+import com.io7m.laurel.filemodel.LBucketCount;
+import com.io7m.laurel.filemodel.LExportArchiveRequest;
+import com.io7m.laurel.filemodel.LExportImageFormat;
+import com.io7m.laurel.filemodel.LExportManifestRequest;
 import com.io7m.laurel.filemodel.LExportRequest;
+import com.io7m.laurel.filemodel.LExportTransform;
+import com.io7m.laurel.filemodel.LFileModelEvent;
 import com.io7m.laurel.filemodel.LFileModelEventType;
 import com.io7m.laurel.filemodel.LFileModelStatusIdle;
 import com.io7m.laurel.filemodel.LFileModelStatusLoading;
 import com.io7m.laurel.filemodel.LFileModels;
+import com.io7m.laurel.filemodel.internal.LBuckets;
 import com.io7m.laurel.filemodel.internal.LCaptionFiles;
 import com.io7m.laurel.gui.internal.LPerpetualSubscriber;
 import com.io7m.laurel.model.LCaptionName;
@@ -36,17 +44,26 @@ import org.junit.jupiter.api.io.TempDir;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.imageio.ImageIO;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import java.util.zip.ZipInputStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @ExtendWith({ZeladorExtension.class})
@@ -206,6 +223,503 @@ public final class LFileModelExportTest
     }
   }
 
+  @Test
+  public void testExportDatasetBucketed(
+    final CloseableResourcesType resources)
+    throws Exception
+  {
+    final var outputPath =
+      this.directory.resolve("export");
+    final var inputPath =
+      this.unpack("dataset_good.zip", "x");
+
+    try (var importer =
+           resources.addPerTestResource(LFileModels.createImport(
+             inputPath,
+             this.outputFile))) {
+      importer.events().subscribe(new LPerpetualSubscriber<>(this::addEvent));
+      importer.execute().get(1L, TimeUnit.MINUTES);
+    }
+
+    final var square = new LBucket(1024, 1024);
+    final var wide = new LBucket(1216, 832);
+    final var buckets = List.of(wide, square);
+
+    try (var model =
+           resources.addPerTestResource(LFileModels.open(
+             this.outputFile,
+             false))) {
+      model.loading().get(1L, TimeUnit.MINUTES);
+
+      model.bucketsCalculate(buckets)
+        .get(1L, TimeUnit.MINUTES);
+
+      assertEquals(
+        List.of(
+          new LBucketCount(wide, 0L),
+          new LBucketCount(square, 5L)
+        ),
+        model.bucketCounts().get()
+      );
+
+      model.export(
+          new LExportRequest(
+            outputPath,
+            true,
+            buckets,
+            Optional.empty(),
+            Optional.empty()))
+        .get(1L, TimeUnit.MINUTES);
+
+      assertFalse(Files.exists(outputPath.resolve("1216x832")));
+
+      for (final var image : model.imageList().get()) {
+        final var imageId =
+          image.id().value();
+        final var imageFile =
+          outputPath.resolve("1024x1024")
+            .resolve("0000000000000000000%d.png".formatted(imageId));
+        final var captionFile =
+          outputPath.resolve("1024x1024")
+            .resolve("0000000000000000000%d.caption".formatted(imageId));
+
+        assertTrue(Files.isRegularFile(imageFile));
+        assertTrue(Files.isRegularFile(captionFile));
+      }
+    }
+  }
+
+  @Test
+  public void testExportDatasetTransformed(
+    final CloseableResourcesType resources)
+    throws Exception
+  {
+    final var outputPath =
+      this.directory.resolve("export");
+    final var cachePath =
+      this.directory.resolve("cache");
+    final var inputPath =
+      this.unpack("dataset_good.zip", "x");
+
+    try (var importer =
+           resources.addPerTestResource(LFileModels.createImport(
+             inputPath,
+             this.outputFile))) {
+      importer.events().subscribe(new LPerpetualSubscriber<>(this::addEvent));
+      importer.execute().get(1L, TimeUnit.MINUTES);
+    }
+
+    final var transform =
+      new LExportTransform(
+        256,
+        LExportImageFormat.JPEG,
+        0.8,
+        Optional.of(cachePath)
+      );
+
+    try (var model =
+           resources.addPerTestResource(LFileModels.open(
+             this.outputFile,
+             false))) {
+      model.loading().get(1L, TimeUnit.MINUTES);
+
+      model.export(
+          new LExportRequest(
+            outputPath,
+            true,
+            List.of(),
+            Optional.of(transform),
+            Optional.empty()))
+        .get(1L, TimeUnit.MINUTES);
+
+      for (final var image : model.imageList().get()) {
+        final var imageId =
+          image.id().value();
+        final var imageFile =
+          outputPath.resolve("0000000000000000000%d.jpg".formatted(imageId));
+
+        assertTrue(Files.isRegularFile(imageFile));
+
+        final var decoded = ImageIO.read(imageFile.toFile());
+        assertEquals(256, decoded.getWidth());
+        assertEquals(256, decoded.getHeight());
+      }
+
+      try (var cached = Files.list(cachePath)) {
+        assertEquals(5L, cached.count());
+      }
+
+      /*
+       * A second export is served entirely from the cache.
+       */
+
+      model.exportClear();
+      model.export(
+          new LExportRequest(
+            outputPath,
+            true,
+            List.of(),
+            Optional.of(transform),
+            Optional.empty()))
+        .get(1L, TimeUnit.MINUTES);
+
+      final var copied =
+        model.exportEvents()
+          .get()
+          .stream()
+          .filter(e -> e instanceof LFileModelEvent)
+          .filter(e -> e.message().startsWith("Linked cached image file"))
+          .count();
+
+      assertEquals(5L, copied);
+    }
+  }
+
+  @Test
+  public void testExportDatasetBlobCache(
+    final CloseableResourcesType resources)
+    throws Exception
+  {
+    final var outputPath =
+      this.directory.resolve("export");
+    final var cachePath =
+      this.directory.resolve("blobs");
+    final var inputPath =
+      this.unpack("dataset_good.zip", "x");
+
+    try (var importer =
+           resources.addPerTestResource(LFileModels.createImport(
+             inputPath,
+             this.outputFile))) {
+      importer.events().subscribe(new LPerpetualSubscriber<>(this::addEvent));
+      importer.execute().get(1L, TimeUnit.MINUTES);
+    }
+
+    final var request =
+      new LExportRequest(
+        outputPath,
+        true,
+        List.of(),
+        Optional.empty(),
+        Optional.of(cachePath)
+      );
+
+    try (var model =
+           resources.addPerTestResource(LFileModels.open(
+             this.outputFile,
+             false))) {
+      model.loading().get(1L, TimeUnit.MINUTES);
+
+      model.export(request).get(1L, TimeUnit.MINUTES);
+
+      final List<Path> cached;
+      try (var files = Files.walk(cachePath)) {
+        cached = files.filter(Files::isRegularFile).toList();
+      }
+      assertEquals(5, cached.size());
+
+      for (final var image : model.imageList().get()) {
+        final var imageFile =
+          outputPath.resolve(
+            "0000000000000000000%d.png".formatted(image.id().value()));
+        final var hash =
+          image.image().hash().value();
+        final var cacheFile =
+          cachePath.resolve(hash.substring(0, 2))
+            .resolve("%s.png".formatted(hash));
+
+        assertTrue(Files.isRegularFile(imageFile));
+        assertTrue(Files.isSameFile(cacheFile, imageFile));
+      }
+
+      /*
+       * A second export reads no image data from the database.
+       */
+
+      model.exportClear();
+      model.export(request).get(1L, TimeUnit.MINUTES);
+
+      final var messages =
+        model.exportEvents()
+          .get()
+          .stream()
+          .map(LFileModelEventType::message)
+          .toList();
+
+      assertEquals(
+        0L,
+        messages.stream()
+          .filter(m -> m.startsWith("Caching image blob"))
+          .count()
+      );
+      assertEquals(
+        5L,
+        messages.stream()
+          .filter(m -> m.startsWith("Linking image file"))
+          .count()
+      );
+    }
+  }
+
+  @Test
+  public void testExportDatasetBlobCacheNotOverwritten(
+    final CloseableResourcesType resources)
+    throws Exception
+  {
+    final var outputPath =
+      this.directory.resolve("export");
+    final var cachePath =
+      this.directory.resolve("blobs");
+    final var inputPath =
+      this.unpack("dataset_good.zip", "x");
+
+    try (var importer =
+           resources.addPerTestResource(LFileModels.createImport(
+             inputPath,
+             this.outputFile))) {
+      importer.events().subscribe(new LPerpetualSubscriber<>(this::addEvent));
+      importer.execute().get(1L, TimeUnit.MINUTES);
+    }
+
+    try (var model =
+           resources.addPerTestResource(LFileModels.open(
+             this.outputFile,
+             false))) {
+      model.loading().get(1L, TimeUnit.MINUTES);
+
+      model.export(
+          new LExportRequest(
+            outputPath,
+            true,
+            List.of(),
+            Optional.empty(),
+            Optional.of(cachePath)))
+        .get(1L, TimeUnit.MINUTES);
+
+      /*
+       * A transformed export into the same directory replaces the exported
+       * files (which are hard links to the cached blobs) without writing
+       * through them into the cache.
+       */
+
+      model.exportClear();
+      model.export(
+          new LExportRequest(
+            outputPath,
+            true,
+            List.of(),
+            Optional.of(
+              new LExportTransform(
+                16,
+                LExportImageFormat.PNG,
+                1.0,
+                Optional.empty())),
+            Optional.empty()))
+        .get(1L, TimeUnit.MINUTES);
+
+      for (final var image : model.imageList().get()) {
+        final var imageFile =
+          outputPath.resolve(
+            "0000000000000000000%d.png".formatted(image.id().value()));
+        final var hash =
+          image.image().hash().value();
+        final var cacheFile =
+          cachePath.resolve(hash.substring(0, 2))
+            .resolve("%s.png".formatted(hash));
+
+        assertEquals(16, ImageIO.read(imageFile.toFile()).getWidth());
+        assertFalse(Files.isSameFile(cacheFile, imageFile));
+        assertEquals(hash, sha256(cacheFile));
+      }
+    }
+  }
+
+  private static String sha256(
+    final Path file)
+    throws Exception
+  {
+    final var digest = MessageDigest.getInstance("SHA-256");
+    return HexFormat.of().formatHex(digest.digest(Files.readAllBytes(file)));
+  }
+
+  @Test
+  public void testExportDatasetArchive(
+    final CloseableResourcesType resources)
+    throws Exception
+  {
+    final var outputPath =
+      this.directory.resolve("export");
+    final var inputPath =
+      this.unpack("dataset_good.zip", "x");
+
+    try (var importer =
+           resources.addPerTestResource(LFileModels.createImport(
+             inputPath,
+             this.outputFile))) {
+      importer.events().subscribe(new LPerpetualSubscriber<>(this::addEvent));
+      importer.execute().get(1L, TimeUnit.MINUTES);
+    }
+
+    try (var model =
+           resources.addPerTestResource(LFileModels.open(
+             this.outputFile,
+             false))) {
+      model.loading().get(1L, TimeUnit.MINUTES);
+
+      /*
+       * A tiny shard size limit places each image/caption pair into its
+       * own shard.
+       */
+
+      model.exportArchive(new LExportArchiveRequest(outputPath, 1L))
+        .get(1L, TimeUnit.MINUTES);
+
+      final var expectedKeys =
+        model.imageList()
+          .get()
+          .stream()
+          .map(i -> "%09d".formatted(Long.valueOf(i.id().value())))
+          .collect(Collectors.toSet());
+      final var keys = new HashSet<String>();
+
+      for (int index = 0; index < 5; ++index) {
+        final var shardFile =
+          outputPath.resolve("shard-00000%d.tar".formatted(index));
+        final var indexFile =
+          outputPath.resolve("shard-00000%d.idx".formatted(index));
+
+        assertTrue(Files.isRegularFile(shardFile));
+        assertTrue(Files.isRegularFile(indexFile));
+
+        final var shardData =
+          Files.readAllBytes(shardFile);
+        final var lines =
+          Files.readAllLines(indexFile);
+
+        assertEquals(2, lines.size());
+
+        final var imageLine = lines.get(0).split("\t");
+        assertTrue(imageLine[0].endsWith(".png"));
+
+        final var imageOffset = Integer.parseInt(imageLine[1]);
+        final var imageSize = Integer.parseInt(imageLine[2]);
+        final var imageData =
+          Arrays.copyOfRange(shardData, imageOffset, imageOffset + imageSize);
+
+        assertEquals((byte) 0x89, imageData[0]);
+        assertEquals((byte) 'P', imageData[1]);
+        assertEquals((byte) 'N', imageData[2]);
+        assertEquals((byte) 'G', imageData[3]);
+
+        final var key = imageLine[0].replace(".png", "");
+        keys.add(key);
+
+        final var captionLine = lines.get(1).split("\t");
+        assertEquals("%s.txt".formatted(key), captionLine[0]);
+
+        final var captionOffset = Integer.parseInt(captionLine[1]);
+        final var captionSize = Integer.parseInt(captionLine[2]);
+        final var captionFile =
+          this.directory.resolve("%s.txt".formatted(key));
+
+        Files.write(
+          captionFile,
+          Arrays.copyOfRange(
+            shardData,
+            captionOffset,
+            captionOffset + captionSize)
+        );
+        assertFalse(LCaptionFiles.parse(new HashMap<>(), captionFile).isEmpty());
+      }
+
+      assertEquals(expectedKeys, keys);
+      assertFalse(Files.exists(outputPath.resolve("shard-000005.tar")));
+    }
+  }
+
+  @Test
+  public void testExportDatasetManifest(
+    final CloseableResourcesType resources)
+    throws Exception
+  {
+    final var outputPath =
+      this.directory.resolve("export").resolve("manifest.jsonl");
+    final var inputPath =
+      this.unpack("dataset_good.zip", "x");
+
+    try (var importer =
+           resources.addPerTestResource(LFileModels.createImport(
+             inputPath,
+             this.outputFile))) {
+      importer.events().subscribe(new LPerpetualSubscriber<>(this::addEvent));
+      importer.execute().get(1L, TimeUnit.MINUTES);
+    }
+
+    try (var model =
+           resources.addPerTestResource(LFileModels.open(
+             this.outputFile,
+             false))) {
+      model.loading().get(1L, TimeUnit.MINUTES);
+
+      model.globalCaptionAdd(new LCaptionName("global"))
+        .get(1L, TimeUnit.MINUTES);
+      model.exportManifest(new LExportManifestRequest(outputPath))
+        .get(1L, TimeUnit.MINUTES);
+
+      final var lines = Files.readAllLines(outputPath);
+      assertEquals(5, lines.size());
+
+      for (final var image : model.imageList().get()) {
+        final var imageId = image.id().value();
+        final var line =
+          lines.stream()
+            .filter(x -> x.startsWith("{\"id\":%d,".formatted(imageId)))
+            .findFirst()
+            .orElseThrow();
+
+        assertTrue(line.contains(
+          "\"path\":\"0000000000000000000%d.png\"".formatted(imageId)));
+        assertTrue(line.contains(
+          "\"sha256\":\"%s\"".formatted(image.image().hash().value())));
+        assertTrue(line.contains("\"width\":512,\"height\":512"));
+        assertTrue(line.contains("\"captions\":[\"global\","));
+        assertTrue(line.endsWith("}"));
+      }
+
+      final var first =
+        lines.stream()
+          .filter(x -> x.startsWith("{\"id\":1,"))
+          .findFirst()
+          .orElseThrow();
+
+      assertTrue(first.contains(
+        "\"captions\":[\"global\",\"1boy\",\"hat\",\"horse\","));
+    }
+  }
+
+  @Test
+  public void testBucketAssignment()
+  {
+    final var square = new LBucket(1024, 1024);
+    final var wide = new LBucket(1216, 832);
+    final var tall = new LBucket(832, 1216);
+    final var buckets = List.of(square, wide, tall);
+
+    assertEquals(square, LBuckets.bucketFor(buckets, 512, 512));
+    assertEquals(wide, LBuckets.bucketFor(buckets, 1920, 1080));
+    assertEquals(tall, LBuckets.bucketFor(buckets, 1080, 1920));
+    assertEquals(square, LBuckets.bucketFor(buckets, 1100, 1000));
+
+    assertEquals(
+      new LBucket(512, 512),
+      LBuckets.bucketFor(List.of(square, new LBucket(512, 512)), 600, 600)
+    );
+
+    assertEquals(new LBucket(1216, 832), LBucket.parse("1216x832"));
+    assertThrows(IllegalArgumentException.class, () -> LBucket.parse("x"));
+    assertThrows(IllegalArgumentException.class, () -> LBucket.parse("0x1"));
+  }
+
   private void addEvent(
     final LFileModelEventType e)
   {
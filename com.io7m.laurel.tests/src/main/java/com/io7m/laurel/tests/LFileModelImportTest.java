@@ -42,12 +42,15 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.zip.ZipInputStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -239,6 +242,51 @@ public final class LFileModelImportTest
     }
   }
 
+  @Test
+  public void testImportCancelled(
+    final CloseableResourcesType resources)
+    throws Exception
+  {
+    final var inputPath =
+      this.unpack("dataset_good.zip", "x");
+
+    try (var importer =
+           resources.addPerTestResource(LFileModels.createImport(
+             inputPath,
+             this.outputFile))) {
+      final var future = new CompletableFuture<CompletableFuture<Void>>();
+      final var cancelled = new CompletableFuture<Boolean>();
+
+      importer.events().subscribe(new LPerpetualSubscriber<>(e -> {
+        this.addEvent(e);
+        if (e.message().startsWith("Importing images")) {
+          future.thenAccept(f -> {
+            cancelled.complete(Boolean.valueOf(f.cancel(true)));
+          });
+        }
+      }));
+
+      final var execution = importer.execute();
+      future.complete(execution);
+
+      /*
+       * The import may already have completed by the time the event is
+       * delivered. Otherwise, the import is reported as cancelled once it
+       * has stopped.
+       */
+
+      if (cancelled.get(1L, TimeUnit.MINUTES).booleanValue()) {
+        assertThrows(CancellationException.class, () -> {
+          execution.get(1L, TimeUnit.MINUTES);
+        });
+        assertTrue(execution.isCancelled());
+      } else {
+        execution.get(1L, TimeUnit.MINUTES);
+        assertFalse(execution.isCancelled());
+      }
+    }
+  }
+
   private void addEvent(
     final LFileModelEventType e)
   {
@@ -17,10 +17,16 @@
 
 package com.io7m.laurel.tests;
 
+import com.io7m.laurel.filemodel.LCaptionStatisticsRequest;
 import com.io7m.laurel.filemodel.LCategoryCaptionsAssignment;
+import com.io7m.laurel.filemodel.LCommandOperation;
+import com.io7m.laurel.filemodel.LFileModelTelemetry;
 import com.io7m.laurel.filemodel.LFileModelType;
 import com.io7m.laurel.filemodel.LFileModels;
+import com.io7m.laurel.filemodel.LHistoryRetention;
 import com.io7m.laurel.filemodel.LImageCaptionsAssignment;
+import com.io7m.laurel.filemodel.LJobStatus;
+import com.io7m.laurel.filemodel.LMetricsRecorderType;
 import com.io7m.laurel.filemodel.LValidationProblemType;
 import com.io7m.laurel.gui.internal.LPerpetualSubscriber;
 import com.io7m.laurel.model.LCaption;
@@ -36,6 +42,8 @@ import com.io7m.laurel.model.LImageWithID;
 import com.io7m.laurel.model.LMetadataValue;
 import com.io7m.zelador.test_extension.CloseableResourcesType;
 import com.io7m.zelador.test_extension.ZeladorExtension;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -43,23 +51,34 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.api.io.TempDir;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.sqlite.SQLiteDataSource;
 
 import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.OpenOption;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @ExtendWith({ZeladorExtension.class})
 public final class LFileModelTest
@@ -313,6 +332,191 @@ public final class LFileModelTest
     assertEquals(Optional.empty(), this.model.redoText().get());
   }
 
+  @Test
+  public void testMetrics()
+    throws Exception
+  {
+    final var commands = new ConcurrentLinkedQueue<String>();
+    final var recorder = new LMetricsRecorderType()
+    {
+      @Override
+      public void onCommand(
+        final String command,
+        final LCommandOperation operation,
+        final long durationNanos,
+        final boolean succeeded)
+      {
+        commands.add("%s:%s:%s".formatted(command, operation, succeeded));
+      }
+
+      @Override
+      public void onQuery(
+        final String query,
+        final long durationNanos,
+        final long rows)
+      {
+
+      }
+
+      @Override
+      public void onTransactionCommit(
+        final long durationNanos)
+      {
+
+      }
+
+      @Override
+      public void onTransactionRollback()
+      {
+
+      }
+    };
+
+    try (var metricsModel =
+           LFileModels.open(
+             this.file.resolveSibling("metrics.lau"),
+             false,
+             new LFileModelTelemetry(List.of(recorder), Optional.empty()))) {
+      metricsModel.loading().get(TIMEOUT, SECONDS);
+
+      metricsModel.imageAdd(
+        "image-a",
+        this.imageFile,
+        Optional.empty()
+      ).get(TIMEOUT, SECONDS);
+
+      assertThrows(ExecutionException.class, () -> {
+        metricsModel.imageAdd(
+          "image-b",
+          this.textFile,
+          Optional.empty()
+        ).get(TIMEOUT, SECONDS);
+      });
+
+      metricsModel.imageAdd(
+        "image-c",
+        this.imageFile,
+        Optional.empty()
+      ).get(TIMEOUT, SECONDS);
+
+      metricsModel.undo().get(TIMEOUT, SECONDS);
+      metricsModel.undo().get(TIMEOUT, SECONDS);
+      metricsModel.redo().get(TIMEOUT, SECONDS);
+
+      final var metrics = metricsModel.metrics();
+      assertEquals(
+        3L,
+        metrics.commands().get("LCommandImagesAdd:execute").count()
+      );
+      assertEquals(
+        2L,
+        metrics.commands().get("LCommandImagesAdd:undo").count()
+      );
+      assertEquals(
+        1L,
+        metrics.commands().get("LCommandImagesAdd:redo").count()
+      );
+      assertTrue(metrics.transactionsCommitted() >= 3L);
+      assertTrue(metrics.transactionsRolledBack() >= 1L);
+      assertTrue(metrics.rowsTouched() > 0L);
+      assertFalse(metrics.queries().isEmpty());
+
+      assertEquals(
+        List.of(
+          "LCommandImagesAdd:EXECUTE:true",
+          "LCommandImagesAdd:EXECUTE:false",
+          "LCommandImagesAdd:EXECUTE:true",
+          "LCommandImagesAdd:UNDO:true",
+          "LCommandImagesAdd:UNDO:true",
+          "LCommandImagesAdd:REDO:true"
+        ),
+        commands.stream()
+          .filter(c -> c.startsWith("LCommandImagesAdd:"))
+          .toList()
+      );
+    }
+  }
+
+  @Test
+  public void testCommandEventsRecorded()
+    throws Exception
+  {
+    final var output = this.file.resolveSibling("commands.jfr");
+
+    try (var recording = new Recording()) {
+      recording.enable("com.io7m.laurel.Command");
+      recording.start();
+
+      this.model.imageAdd(
+        "image-a",
+        this.imageFile,
+        Optional.empty()
+      ).get(TIMEOUT, SECONDS);
+      this.model.imageAdd(
+        "image-b",
+        this.imageFile,
+        Optional.empty()
+      ).get(TIMEOUT, SECONDS);
+
+      this.model.undo().get(TIMEOUT, SECONDS);
+      this.model.undo().get(TIMEOUT, SECONDS);
+      this.model.redo().get(TIMEOUT, SECONDS);
+
+      recording.stop();
+      recording.dump(output);
+    }
+
+    final var operations =
+      RecordingFile.readAllEvents(output)
+        .stream()
+        .filter(e -> {
+          return Objects.equals(e.getEventType().getName(),
+                                "com.io7m.laurel.Command");
+        })
+        .filter(e -> {
+          return Objects.equals(e.getString("commandClass"),
+                                "LCommandImagesAdd");
+        })
+        .map(e -> e.getString("operation"))
+        .toList();
+
+    assertEquals(
+      List.of("EXECUTE", "EXECUTE", "UNDO", "UNDO", "REDO"),
+      operations
+    );
+  }
+
+  @Test
+  public void testSlowQueries()
+    throws Exception
+  {
+    assertEquals(List.of(), this.model.slowQueries());
+
+    try (var slowModel =
+           LFileModels.open(
+             this.file.resolveSibling("slow.lau"),
+             false,
+             LFileModelTelemetry.none()
+               .withSlowQueryThreshold(Duration.ZERO))) {
+      slowModel.loading().get(TIMEOUT, SECONDS);
+
+      slowModel.imageAdd(
+        "image-a",
+        this.imageFile,
+        Optional.empty()
+      ).get(TIMEOUT, SECONDS);
+
+      final var queries = slowModel.slowQueries();
+      assertFalse(queries.isEmpty());
+      assertTrue(queries.size() <= 100);
+      assertTrue(
+        queries.stream()
+          .filter(q -> q.query().toLowerCase(Locale.ROOT).startsWith("select"))
+          .anyMatch(q -> !q.plan().isEmpty())
+      );
+    }
+  }
+
   @Test
   public void testCaptionAdd()
     throws Exception
@@ -943,6 +1147,353 @@ public final class LFileModelTest
     assertEquals(List.of(), this.imageCaptionsAssignedNow());
   }
 
+  @Test
+  public void testCaptionRemoveBulk()
+    throws Exception
+  {
+    final var images = this.addImages(4);
+    final var captions = this.addCaptions(50);
+
+    final var assignments = new ArrayList<LImageCaptionsAssignment>();
+    for (final var image : images) {
+      assignments.add(new LImageCaptionsAssignment(image, captions));
+    }
+    this.model.imageCaptionsAssign(assignments).get(TIMEOUT, SECONDS);
+    assertEquals(200L, this.captionAssignmentsNow());
+
+    this.model.captionRemove(captions).get(TIMEOUT, SECONDS);
+    assertEquals(List.of(), this.model.captionList().get());
+
+    this.model.undo().get(TIMEOUT, SECONDS);
+    assertEquals(50, this.model.captionList().get().size());
+    assertEquals(200L, this.captionAssignmentsNow());
+
+    this.model.redo().get(TIMEOUT, SECONDS);
+    assertEquals(List.of(), this.model.captionList().get());
+  }
+
+  @Test
+  public void testImageCaptionsAssignUnassignBulk()
+    throws Exception
+  {
+    /*
+     * 64 * 130 = 8320 pairs, which is more than the 8192 pairs processed
+     * in a single statement.
+     */
+
+    final var images = this.addImages(64);
+    final var captions = this.addCaptions(130);
+    final var total = 64L * 130L;
+
+    final var assignments = new ArrayList<LImageCaptionsAssignment>();
+    for (final var image : images) {
+      assignments.add(new LImageCaptionsAssignment(image, captions));
+    }
+
+    this.model.imageCaptionsAssign(assignments).get(TIMEOUT, SECONDS);
+    assertEquals(total, this.captionAssignmentsNow());
+    this.model.undo().get(TIMEOUT, SECONDS);
+    assertEquals(0L, this.captionAssignmentsNow());
+    this.model.redo().get(TIMEOUT, SECONDS);
+    assertEquals(total, this.captionAssignmentsNow());
+
+    this.model.imageCaptionsUnassign(assignments).get(TIMEOUT, SECONDS);
+    assertEquals(0L, this.captionAssignmentsNow());
+    this.model.undo().get(TIMEOUT, SECONDS);
+    assertEquals(total, this.captionAssignmentsNow());
+    this.model.redo().get(TIMEOUT, SECONDS);
+    assertEquals(0L, this.captionAssignmentsNow());
+  }
+
+  private List<LImageID> addImages(
+    final int count)
+    throws Exception
+  {
+    for (int index = 0; index < count; ++index) {
+      this.model.imageAdd(
+        "image-%04d".formatted(Integer.valueOf(index)),
+        this.imageFile,
+        Optional.empty()
+      ).get(TIMEOUT, SECONDS);
+    }
+    return this.model.imageList()
+      .get()
+      .stream()
+      .map(LImageWithID::id)
+      .toList();
+  }
+
+  private Set<LCaptionID> addCaptions(
+    final int count)
+    throws Exception
+  {
+    for (int index = 0; index < count; ++index) {
+      this.model.captionAdd(
+        new LCaptionName("T%04d".formatted(Integer.valueOf(index)))
+      ).get(TIMEOUT, SECONDS);
+    }
+    return this.model.captionList()
+      .get()
+      .stream()
+      .map(LCaption::id)
+      .collect(Collectors.toSet());
+  }
+
+  private long captionAssignmentsNow()
+  {
+    return this.model.captionList()
+      .get()
+      .stream()
+      .mapToLong(LCaption::count)
+      .sum();
+  }
+
+  @Test
+  public void testCaptionStatistics()
+    throws Exception
+  {
+    this.model.imageAdd(
+      "image-a",
+      this.imageFile,
+      Optional.of(this.imageFile.toUri())
+    ).get(TIMEOUT, SECONDS);
+
+    this.model.imageAdd(
+      "image-b",
+      this.imageFile,
+      Optional.of(this.imageFile.toUri())
+    ).get(TIMEOUT, SECONDS);
+
+    final var i0 = this.model.imageList().get().get(0).id();
+    final var i1 = this.model.imageList().get().get(1).id();
+
+    this.model.captionAdd(new LCaptionName("TX")).get(TIMEOUT, SECONDS);
+    this.model.captionAdd(new LCaptionName("TY")).get(TIMEOUT, SECONDS);
+    this.model.captionAdd(new LCaptionName("TZ")).get(TIMEOUT, SECONDS);
+
+    final var tx = this.findCaption("TX").id();
+    final var ty = this.findCaption("TY").id();
+    final var tz = this.findCaption("TZ").id();
+
+    final var request =
+      new LCaptionStatisticsRequest(Optional.empty(), 10);
+
+    /*
+     * The first calculation builds the index; later assignments update it.
+     */
+
+    this.model.captionStatisticsCalculate(request).get(TIMEOUT, SECONDS);
+    assertEquals(
+      List.of(),
+      this.model.captionStatistics().get().cooccurrences()
+    );
+
+    this.model.imageCaptionsAssign(List.of(
+      new LImageCaptionsAssignment(i0, Set.of(tx, ty)),
+      new LImageCaptionsAssignment(i1, Set.of(tx, ty, tz))
+    )).get(TIMEOUT, SECONDS);
+
+    this.model.captionStatisticsCalculate(request).get(TIMEOUT, SECONDS);
+
+    var statistics = this.model.captionStatistics().get();
+    assertEquals(2L, statistics.imageCount());
+    assertEquals(tx, statistics.frequencies().get(0).id());
+    assertEquals(2L, statistics.frequencies().get(0).count());
+    assertEquals(3, statistics.cooccurrences().size());
+    assertEquals(tx, statistics.cooccurrences().get(0).captionA().id());
+    assertEquals(ty, statistics.cooccurrences().get(0).captionB().id());
+    assertEquals(2L, statistics.cooccurrences().get(0).count());
+    assertEquals(1.0, statistics.cooccurrences().get(0).jaccard());
+    assertEquals(i1, statistics.outliers().get(0).image());
+    assertEquals(3, statistics.outliers().get(0).captions());
+
+    this.model.imageCaptionsUnassign(List.of(
+      new LImageCaptionsAssignment(i1, Set.of(ty))
+    )).get(TIMEOUT, SECONDS);
+
+    this.model.captionStatisticsCalculate(request).get(TIMEOUT, SECONDS);
+    statistics = this.model.captionStatistics().get();
+    assertEquals(1L, statistics.cooccurrences().get(0).count());
+
+    this.model.undo().get(TIMEOUT, SECONDS);
+    this.model.captionStatisticsCalculate(
+      new LCaptionStatisticsRequest(Optional.of(tz), 10)
+    ).get(TIMEOUT, SECONDS);
+
+    statistics = this.model.captionStatistics().get();
+    assertEquals(2, statistics.cooccurrences().size());
+    for (final var pair : statistics.cooccurrences()) {
+      assertEquals(tz, pair.captionA().id());
+      assertEquals(1L, pair.count());
+    }
+  }
+
+  @Test
+  public void testCaptionSuggestions()
+    throws Exception
+  {
+    for (final var name : List.of("image-a", "image-b", "image-c")) {
+      this.model.imageAdd(
+        name,
+        this.imageFile,
+        Optional.of(this.imageFile.toUri())
+      ).get(TIMEOUT, SECONDS);
+    }
+
+    final var i0 = this.model.imageList().get().get(0).id();
+    final var i1 = this.model.imageList().get().get(1).id();
+    final var i2 = this.model.imageList().get().get(2).id();
+
+    this.model.captionAdd(new LCaptionName("TX")).get(TIMEOUT, SECONDS);
+    this.model.captionAdd(new LCaptionName("TY")).get(TIMEOUT, SECONDS);
+    this.model.captionAdd(new LCaptionName("TZ")).get(TIMEOUT, SECONDS);
+
+    final var tx = this.findCaption("TX");
+    final var ty = this.findCaption("TY");
+    final var tz = this.findCaption("TZ");
+
+    this.model.imageCaptionsAssign(List.of(
+      new LImageCaptionsAssignment(i0, Set.of(tx.id(), ty.id())),
+      new LImageCaptionsAssignment(i1, Set.of(tx.id(), ty.id(), tz.id()))
+    )).get(TIMEOUT, SECONDS);
+
+    /*
+     * An image without captions is offered the most common captions.
+     */
+
+    this.model.imageSelect(Optional.of(i2)).get(TIMEOUT, SECONDS);
+    assertEquals(
+      List.of(tx.name(), ty.name(), tz.name()),
+      this.imageCaptionSuggestionsNow()
+    );
+
+    this.model.imageCaptionsAssign(List.of(
+      new LImageCaptionsAssignment(i2, Set.of(tx.id()))
+    )).get(TIMEOUT, SECONDS);
+
+    this.awaitJobs();
+    final var suggestions = this.model.imageCaptionSuggestions().get();
+    assertEquals(
+      List.of(ty.name(), tz.name()),
+      this.imageCaptionSuggestionsNow()
+    );
+    assertEquals(2.0 / 3.0, suggestions.get(0).score(), 1.0e-9);
+    assertEquals(1.0 / 3.0, suggestions.get(1).score(), 1.0e-9);
+
+    this.model.imageCaptionsAssign(List.of(
+      new LImageCaptionsAssignment(i2, Set.of(ty.id()))
+    )).get(TIMEOUT, SECONDS);
+    assertEquals(List.of(tz.name()), this.imageCaptionSuggestionsNow());
+
+    this.model.undo().get(TIMEOUT, SECONDS);
+    assertEquals(
+      List.of(ty.name(), tz.name()),
+      this.imageCaptionSuggestionsNow()
+    );
+
+    this.model.imageSelect(Optional.empty()).get(TIMEOUT, SECONDS);
+    assertEquals(List.of(), this.imageCaptionSuggestionsNow());
+  }
+
+  @Test
+  public void testCaptionSuggestionsIndexInvalid()
+    throws Exception
+  {
+    final var images = this.addImages(3);
+    final var i0 = images.get(0);
+    final var i1 = images.get(1);
+    final var i2 = images.get(2);
+
+    this.model.captionAdd(new LCaptionName("TX")).get(TIMEOUT, SECONDS);
+    this.model.captionAdd(new LCaptionName("TY")).get(TIMEOUT, SECONDS);
+    this.model.captionAdd(new LCaptionName("TZ")).get(TIMEOUT, SECONDS);
+
+    final var tx = this.findCaption("TX");
+    final var ty = this.findCaption("TY");
+    final var tz = this.findCaption("TZ");
+
+    this.model.imageCaptionsAssign(List.of(
+      new LImageCaptionsAssignment(i0, Set.of(tx.id(), tz.id())),
+      new LImageCaptionsAssignment(i1, Set.of(ty.id(), tz.id()))
+    )).get(TIMEOUT, SECONDS);
+
+    /*
+     * Deleting a caption invalidates the caption index. Selecting an image
+     * does not rebuild the index itself; a job rebuilds it and then
+     * publishes the suggestions.
+     */
+
+    this.model.captionRemove(Set.of(tz.id())).get(TIMEOUT, SECONDS);
+    this.model.imageSelect(Optional.of(i2)).get(TIMEOUT, SECONDS);
+
+    assertEquals(
+      Set.of(tx.name(), ty.name()),
+      Set.copyOf(this.imageCaptionSuggestionsNow())
+    );
+    assertEquals(0.5, this.suggestionScore(tx), 1.0e-9);
+  }
+
+  @Test
+  public void testCaptionSuggestionsImageDeleted()
+    throws Exception
+  {
+    final var images = this.addImages(4);
+    final var i0 = images.get(0);
+    final var i1 = images.get(1);
+    final var i2 = images.get(2);
+    final var i3 = images.get(3);
+
+    this.model.captionAdd(new LCaptionName("TX")).get(TIMEOUT, SECONDS);
+    this.model.captionAdd(new LCaptionName("TY")).get(TIMEOUT, SECONDS);
+
+    final var tx = this.findCaption("TX");
+    final var ty = this.findCaption("TY");
+
+    this.model.imageCaptionsAssign(List.of(
+      new LImageCaptionsAssignment(i0, Set.of(tx.id())),
+      new LImageCaptionsAssignment(i1, Set.of(tx.id(), ty.id())),
+      new LImageCaptionsAssignment(i3, Set.of(ty.id()))
+    )).get(TIMEOUT, SECONDS);
+
+    this.model.imageSelect(Optional.of(i2)).get(TIMEOUT, SECONDS);
+    assertEquals(2.0 / 3.0, this.suggestionScore(tx), 1.0e-9);
+    assertEquals(2.0 / 3.0, this.suggestionScore(ty), 1.0e-9);
+
+    /*
+     * Deleted images, and images whose captions have all been removed, do
+     * not count as captioned images.
+     */
+
+    this.model.imagesDelete(List.of(i3)).get(TIMEOUT, SECONDS);
+    this.model.imageCaptionsUnassign(List.of(
+      new LImageCaptionsAssignment(i0, Set.of(tx.id()))
+    )).get(TIMEOUT, SECONDS);
+
+    this.model.imageSelect(Optional.of(i2)).get(TIMEOUT, SECONDS);
+    assertEquals(1.0, this.suggestionScore(tx), 1.0e-9);
+    assertEquals(1.0, this.suggestionScore(ty), 1.0e-9);
+
+    this.model.undo().get(TIMEOUT, SECONDS);
+    this.model.undo().get(TIMEOUT, SECONDS);
+    this.model.imageSelect(Optional.of(i2)).get(TIMEOUT, SECONDS);
+    assertEquals(2.0 / 3.0, this.suggestionScore(tx), 1.0e-9);
+    assertEquals(2.0 / 3.0, this.suggestionScore(ty), 1.0e-9);
+  }
+
+  private double suggestionScore(
+    final LCaption caption)
+    throws Exception
+  {
+    this.awaitJobs();
+    return this.model.imageCaptionSuggestions()
+      .get()
+      .stream()
+      .filter(s -> Objects.equals(s.caption().id(), caption.id()))
+      .findFirst()
+      .orElseThrow()
+      .score();
+  }
+
   @Test
   public void testImageCaptionsDeletion()
     throws Exception
@@ -1118,6 +1669,104 @@ public final class LFileModelTest
     assertEquals(List.of(), this.imageCaptionsAssignedNow());
   }
 
+  @Test
+  public void testReclaimSpaceKeepsHistory()
+    throws Exception
+  {
+    this.model.imageAdd(
+      "image-a",
+      this.imageFile,
+      Optional.of(this.imageFile.toUri())
+    ).get(TIMEOUT, SECONDS);
+
+    final var i0 = this.model.imageList().get().get(0).id();
+    this.model.imagesDelete(List.of(i0)).get(TIMEOUT, SECONDS);
+    assertEquals(List.of(), this.model.imageList().get());
+
+    /*
+     * The deleted image is still referenced by the undo history, and so
+     * must survive collection.
+     */
+
+    this.model.reclaimSpace().get(TIMEOUT, SECONDS);
+    this.model.undo().get(TIMEOUT, SECONDS);
+    assertEquals(1, this.model.imageList().get().size());
+
+    this.model.redo().get(TIMEOUT, SECONDS);
+    this.compact();
+    this.model.reclaimSpace().get(TIMEOUT, SECONDS);
+    assertEquals(List.of(), this.model.imageList().get());
+  }
+
+  @Test
+  public void testHistoryRetentionCommands()
+    throws Exception
+  {
+    this.model.captionAdd(new LCaptionName("TX")).get(TIMEOUT, SECONDS);
+    this.model.captionAdd(new LCaptionName("TY")).get(TIMEOUT, SECONDS);
+    this.model.captionAdd(new LCaptionName("TZ")).get(TIMEOUT, SECONDS);
+
+    final var retention = LHistoryRetention.unlimited().withCommands(1L);
+    this.model.historyRetentionSet(retention).get(TIMEOUT, SECONDS);
+    this.model.historyPrune().get(TIMEOUT, SECONDS);
+    assertEquals(retention, this.model.historyRetention().get());
+
+    /*
+     * Only the most recent command can be undone.
+     */
+
+    this.model.undo().get(TIMEOUT, SECONDS);
+    this.model.undo().get(TIMEOUT, SECONDS);
+    this.findCaption("TX");
+    this.findCaption("TY");
+    assertThrows(NoSuchElementException.class, () -> this.findCaption("TZ"));
+    assertEquals(Optional.empty(), this.model.undoText().get());
+  }
+
+  @Test
+  public void testHistoryPruneReclaimsImages()
+    throws Exception
+  {
+    this.model.imageAdd(
+      "image-a",
+      this.imageFile,
+      Optional.of(this.imageFile.toUri())
+    ).get(TIMEOUT, SECONDS);
+
+    final var i0 = this.model.imageList().get().get(0).id();
+    this.model.imagesDelete(List.of(i0)).get(TIMEOUT, SECONDS);
+    this.model.captionAdd(new LCaptionName("TX")).get(TIMEOUT, SECONDS);
+    assertEquals(1L, this.imageBlobCount());
+
+    /*
+     * Once the deletion has been pruned from the history, nothing refers
+     * to the image, and so its data is collected.
+     */
+
+    final var retention = LHistoryRetention.unlimited().withCommands(1L);
+    this.model.historyRetentionSet(retention).get(TIMEOUT, SECONDS);
+    this.model.historyPrune().get(TIMEOUT, SECONDS);
+    this.model.reclaimSpace().get(TIMEOUT, SECONDS);
+    assertEquals(0L, this.imageBlobCount());
+
+    this.model.undo().get(TIMEOUT, SECONDS);
+    this.model.undo().get(TIMEOUT, SECONDS);
+    assertEquals(List.of(), this.model.imageList().get());
+  }
+
+  private long imageBlobCount()
+    throws SQLException
+  {
+    final var source = new SQLiteDataSource();
+    source.setUrl("jdbc:sqlite:" + this.file);
+    try (var c = source.getConnection();
+         var st = c.createStatement();
+         var rs = st.executeQuery("SELECT COUNT(*) FROM image_blobs")) {
+      rs.next();
+      return rs.getLong(1);
+    }
+  }
+
   @Test
   public void testImageComparison()
     throws Exception
@@ -1323,6 +1972,185 @@ public final class LFileModelTest
     assertEquals(List.of(meta3), this.model.metadataList().get());
   }
 
+  @Test
+  public void testMetadataCoalesced()
+    throws Exception
+  {
+    final var values = new ArrayList<LMetadataValue>();
+    final var futures = new ArrayList<CompletableFuture<?>>();
+    for (int index = 0; index < 20; ++index) {
+      final var value =
+        new LMetadataValue("k%02d".formatted(Integer.valueOf(index)), "v");
+      values.add(value);
+      futures.add(this.model.metadataPut(List.of(value)));
+    }
+
+    CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+      .get(TIMEOUT, SECONDS);
+    assertEquals(values, this.model.metadataList().get());
+
+    for (int index = 19; index >= 0; --index) {
+      this.model.undo().get(TIMEOUT, SECONDS);
+      assertEquals(values.subList(0, index), this.model.metadataList().get());
+    }
+  }
+
+  @Test
+  public void testCommandCancelled()
+    throws Exception
+  {
+    final var ta = new LCaptionName("A");
+    final var tb = new LCaptionName("B");
+
+    /*
+     * The command may already have completed by the time it is cancelled.
+     * Either way, the model must remain usable afterwards.
+     */
+
+    final var future = this.model.captionAdd(ta);
+    if (future.cancel(true)) {
+      assertThrows(CancellationException.class, () -> {
+        future.get(TIMEOUT, SECONDS);
+      });
+      assertTrue(future.isCancelled());
+      assertFalse(this.captionListNow().contains(ta));
+    } else {
+      future.get(TIMEOUT, SECONDS);
+      assertFalse(future.isCancelled());
+      assertTrue(this.captionListNow().contains(ta));
+    }
+
+    this.model.captionAdd(tb).get(TIMEOUT, SECONDS);
+    assertTrue(this.captionListNow().contains(tb));
+
+    this.model.undo().get(TIMEOUT, SECONDS);
+    assertFalse(this.captionListNow().contains(tb));
+  }
+
+  @Test
+  public void testCommandCancelledCoalesced()
+    throws Exception
+  {
+    final var values = new ArrayList<LMetadataValue>();
+    final var futures = new ArrayList<CompletableFuture<?>>();
+    for (int index = 0; index < 20; ++index) {
+      final var value =
+        new LMetadataValue("k%02d".formatted(Integer.valueOf(index)), "v");
+      values.add(value);
+      futures.add(this.model.metadataPut(List.of(value)));
+    }
+
+    /*
+     * A command is reported as cancelled if and only if its changes were
+     * rolled back.
+     */
+
+    final var cancelled = new ArrayList<Boolean>();
+    for (int index = 0; index < 20; index += 2) {
+      cancelled.add(Boolean.valueOf(futures.get(index).cancel(true)));
+    }
+
+    final var expected = new ArrayList<LMetadataValue>();
+    for (int index = 0; index < 20; ++index) {
+      final var future = futures.get(index);
+      if (index % 2 == 0 && cancelled.get(index / 2).booleanValue()) {
+        assertThrows(CancellationException.class, () -> {
+          future.get(TIMEOUT, SECONDS);
+        });
+        assertTrue(future.isCancelled());
+      } else {
+        future.get(TIMEOUT, SECONDS);
+        assertFalse(future.isCancelled());
+        expected.add(values.get(index));
+      }
+    }
+
+    assertEquals(expected, this.model.metadataList().get());
+  }
+
+  @Test
+  public void testReopenSnapshot()
+    throws Exception
+  {
+    final var ta = new LCaptionName("A");
+    final var tb = new LCaptionName("B");
+    final var meta = new LMetadataValue("a", "x");
+
+    this.model.loading().get(TIMEOUT, SECONDS);
+    this.model.imageAdd(
+      "image-a",
+      this.imageFile,
+      Optional.of(this.imageFile.toUri())
+    ).get(TIMEOUT, SECONDS);
+    this.model.captionAdd(ta).get(TIMEOUT, SECONDS);
+    this.model.metadataPut(List.of(meta)).get(TIMEOUT, SECONDS);
+
+    final var images = this.model.imageList().get();
+    final var captions = this.model.captionList().get();
+
+    /*
+     * Reopening an unmodified file uses the stored snapshot.
+     */
+
+    this.model.close();
+    this.model = LFileModels.open(this.file, false);
+    this.model.loading().get(TIMEOUT, SECONDS);
+
+    assertEquals(images, this.model.imageList().get());
+    assertEquals(captions, this.model.captionList().get());
+    assertEquals(List.of(meta), this.model.metadataList().get());
+    assertEquals(
+      Optional.of("Update metadata value(s)"),
+      this.model.undoText().get()
+    );
+
+    /*
+     * Modifying the file invalidates the snapshot.
+     */
+
+    this.model.captionAdd(tb).get(TIMEOUT, SECONDS);
+    this.model.close();
+    this.model = LFileModels.open(this.file, false);
+    this.model.loading().get(TIMEOUT, SECONDS);
+
+    assertEquals(List.of(ta, tb), this.captionListNow());
+    assertEquals(images, this.model.imageList().get());
+  }
+
+  @Test
+  public void testReopenSnapshotAfterUndoRedo()
+    throws Exception
+  {
+    final var ta = new LCaptionName("A");
+    final var tb = new LCaptionName("B");
+
+    this.model.loading().get(TIMEOUT, SECONDS);
+    this.model.captionAdd(ta).get(TIMEOUT, SECONDS);
+    this.model.captionAdd(tb).get(TIMEOUT, SECONDS);
+    this.reopen();
+    assertEquals(List.of(ta, tb), this.captionListNow());
+
+    /*
+     * Undo and redo change the model, and so invalidate the snapshot.
+     */
+
+    this.model.undo().get(TIMEOUT, SECONDS);
+    this.reopen();
+    assertEquals(List.of(ta), this.captionListNow());
+
+    this.model.redo().get(TIMEOUT, SECONDS);
+    this.reopen();
+    assertEquals(List.of(ta, tb), this.captionListNow());
+  }
+
+  private void reopen()
+    throws Exception
+  {
+    this.model.close();
+    this.model = LFileModels.open(this.file, false);
+    this.model.loading().get(TIMEOUT, SECONDS);
+  }
+
   @Test
   public void testGlobalCaptions()
     throws Exception
@@ -1527,6 +2355,65 @@ public final class LFileModelTest
     );
   }
 
+  @Test
+  public void testValidationRunsAsJob()
+    throws Exception
+  {
+    final var seen = new ConcurrentLinkedQueue<LJobStatus>();
+
+    this.model.imageAdd(
+      "image-a",
+      this.imageFile,
+      Optional.of(this.imageFile.toUri())
+    ).get(TIMEOUT, SECONDS);
+
+    try (var ignored = this.model.jobs()
+      .subscribe((oldValue, newValue) -> seen.addAll(newValue))) {
+      this.model.validate()
+        .get(TIMEOUT, SECONDS);
+    }
+
+    assertTrue(
+      seen.stream()
+        .anyMatch(j -> Objects.equals(j.description(), "Validate"))
+    );
+    assertTrue(
+      this.model.jobs()
+        .get()
+        .stream()
+        .noneMatch(j -> Objects.equals(j.description(), "Validate"))
+    );
+    assertEquals(List.of(), this.model.validationProblems().get());
+  }
+
+  @Test
+  public void testCloseWaitsForJobs()
+    throws Exception
+  {
+    this.addImages(4);
+
+    /*
+     * Closing the model cancels queued jobs and waits for the running job,
+     * so every job has finished by the time the model is closed.
+     */
+
+    final var futures = List.of(
+      this.model.validate(),
+      this.model.validate(),
+      this.model.reclaimSpace(),
+      this.model.validate()
+    );
+
+    this.reopen();
+
+    for (final var future : futures) {
+      assertTrue(future.isDone());
+    }
+    assertEquals(List.of(), this.model.jobs().get().stream()
+      .filter(j -> Objects.equals(j.description(), "Validate"))
+      .toList());
+  }
+
   @Test
   public void testGlobalCaptionsModifyNonexistent()
     throws Exception
@@ -1667,6 +2554,32 @@ public final class LFileModelTest
       .orElseThrow();
   }
 
+  private List<LCaptionName> imageCaptionSuggestionsNow()
+    throws Exception
+  {
+    this.awaitJobs();
+    return this.model.imageCaptionSuggestions()
+      .get()
+      .stream()
+      .map(s -> s.caption().name())
+      .toList();
+  }
+
+  /**
+   * Wait for all background jobs to finish. Caption suggestions, for
+   * example, are computed by a job if the caption index is not valid.
+   */
+
+  private void awaitJobs()
+    throws Exception
+  {
+    final var deadline = System.nanoTime() + SECONDS.toNanos(TIMEOUT);
+    while (!this.model.jobs().get().isEmpty()) {
+      assertTrue(System.nanoTime() < deadline, "Jobs must finish in time.");
+      Thread.sleep(10L);
+    }
+  }
+
   private LCaption findCaption(
     final String name)
   {
@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.laurel.tests;
+
+import com.io7m.laurel.filemodel.internal.LImageIndex;
+import com.io7m.laurel.model.LImageID;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class LImageIndexTest
+{
+  private static final String HASH_A =
+    "5891b5b522d5df086d0ff0b110fbd9d21bb4fc7163af34d08286a2e846f6be03";
+  private static final String HASH_B =
+    "b5bb9d8014a0f9b1d61e21e796d78dccdf1352f23cd32812f4850b878ae4944c";
+
+  @Test
+  public void testIndex()
+    throws Exception
+  {
+    final var index =
+      LImageIndex.builder(1)
+        .add(3L, "b", "/tmp/b.png", null, "image/png", HASH_B)
+        .add(
+          1L,
+          "a",
+          null,
+          "https://www.example.com/a.png",
+          "image/png",
+          HASH_A)
+        .build();
+
+    assertEquals(2, index.size());
+
+    final var b = index.get(0);
+    assertEquals(new LImageID(3L), b.id());
+    assertEquals("b", b.image().name());
+    assertEquals(Optional.of(Paths.get("/tmp/b.png")), b.image().file());
+    assertEquals(Optional.empty(), b.image().source());
+    assertEquals(HASH_B, b.image().hash().value());
+
+    final var a = index.get(1);
+    assertEquals(new LImageID(1L), a.id());
+    assertEquals(Optional.empty(), a.image().file());
+    assertEquals(
+      Optional.of(URI.create("https://www.example.com/a.png")),
+      a.image().source()
+    );
+    assertEquals(HASH_A, a.image().hash().value());
+    assertEquals(b.image().type(), a.image().type());
+
+    final var copy =
+      LImageIndex.builder(0)
+        .add(b)
+        .add(a)
+        .build();
+
+    assertEquals(index, copy);
+    assertEquals(List.of(b, a), copy);
+    assertEquals(Optional.of(a), index.findById(new LImageID(1L)));
+    assertEquals(Optional.empty(), index.findById(new LImageID(2L)));
+    assertEquals(List.of(a), index.filterByName("a"::equals));
+
+    assertThrows(IndexOutOfBoundsException.class, () -> index.get(2));
+    assertThrows(UnsupportedOperationException.class, () -> index.add(a));
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.laurel.tests;
+
+import com.io7m.laurel.model.LLongMap;
+import com.io7m.laurel.model.LLongSet;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class LLongMapTest
+{
+  @Test
+  public void testMap()
+  {
+    final var map = new LLongMap<String>(0);
+    assertTrue(map.isEmpty());
+
+    for (long key = -500L; key < 500L; ++key) {
+      assertNull(map.put(key * 1024L, Long.toString(key)));
+    }
+
+    assertEquals(1000, map.size());
+    for (long key = -500L; key < 500L; ++key) {
+      assertTrue(map.containsKey(key * 1024L));
+      assertEquals(Long.toString(key), map.get(key * 1024L));
+    }
+    assertFalse(map.containsKey(1L));
+    assertNull(map.get(1L));
+
+    assertEquals("0", map.put(0L, "zero"));
+    assertEquals("zero", map.get(0L));
+    assertEquals(1000, map.size());
+    assertEquals(1000, new HashSet<>(map.values()).size());
+
+    final var keys = map.keys();
+    assertEquals(1000, keys.size());
+    assertEquals(-500L * 1024L, keys.get(0));
+    assertEquals(499L * 1024L, keys.get(999));
+
+    assertThrows(NullPointerException.class, () -> map.put(1L, null));
+
+    map.clear();
+    assertTrue(map.isEmpty());
+    assertFalse(map.containsKey(0L));
+    assertEquals(LLongSet.empty(), map.keys());
+  }
+
+  @Test
+  public void testRemove()
+  {
+    final var map = new LLongMap<String>(0);
+
+    /*
+     * Keys that are multiples of a large power of two collide often, which
+     * exercises the shifting of entries in long probe sequences.
+     */
+
+    for (long key = 0L; key < 1000L; ++key) {
+      map.put(key << 20, Long.toString(key));
+    }
+
+    assertNull(map.remove(1L));
+    for (long key = 0L; key < 1000L; key += 2L) {
+      assertEquals(Long.toString(key), map.remove(key << 20));
+    }
+
+    assertEquals(500, map.size());
+    for (long key = 0L; key < 1000L; ++key) {
+      if (key % 2L == 0L) {
+        assertFalse(map.containsKey(key << 20));
+      } else {
+        assertEquals(Long.toString(key), map.get(key << 20));
+      }
+    }
+
+    for (long key = 1L; key < 1000L; key += 2L) {
+      assertEquals(Long.toString(key), map.remove(key << 20));
+    }
+    assertTrue(map.isEmpty());
+    assertEquals(LLongSet.empty(), map.keys());
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.laurel.tests;
+
+import com.io7m.laurel.model.LLongSet;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class LLongSetTest
+{
+  @Test
+  public void testSet()
+  {
+    final var builder = LLongSet.builder(0);
+    for (int index = 100; index >= 0; --index) {
+      builder.add(index);
+      builder.add(index);
+    }
+
+    final var set = builder.build();
+    assertEquals(101, set.size());
+    assertFalse(set.isEmpty());
+
+    for (int index = 0; index <= 100; ++index) {
+      assertEquals(index, set.get(index));
+      assertTrue(set.contains(index));
+    }
+    assertFalse(set.contains(-1L));
+    assertFalse(set.contains(101L));
+
+    assertEquals(LLongSet.of(3L, 1L, 2L, 1L), LLongSet.of(1L, 2L, 3L));
+    assertArrayEquals(
+      new long[]{1L, 2L, 3L},
+      LLongSet.of(3L, 2L, 1L).toArray()
+    );
+    assertSame(LLongSet.empty(), LLongSet.of());
+    assertTrue(LLongSet.empty().isEmpty());
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.laurel.tests;
+
+import com.io7m.laurel.filemodel.internal.LProgressThrottle;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class LProgressThrottleTest
+{
+  @Test
+  public void testFirstAndFinalDelivered()
+  {
+    final var throttle = new LProgressThrottle(Duration.ofHours(1L));
+
+    /*
+     * Only the first and final reports are delivered; everything in
+     * between falls within the same interval.
+     */
+
+    assertTrue(throttle.shouldDeliver(0L, 1000L));
+    for (long current = 1L; current < 999L; ++current) {
+      assertFalse(throttle.shouldDeliver(current, 1000L));
+    }
+    assertTrue(throttle.shouldDeliver(1000L, 1000L));
+  }
+
+  @Test
+  public void testResetDeliversFirst()
+  {
+    final var throttle = new LProgressThrottle(Duration.ofHours(1L));
+
+    assertTrue(throttle.shouldDeliver(0L, 100L));
+    assertFalse(throttle.shouldDeliver(1L, 100L));
+    assertFalse(throttle.shouldDeliver(0L, 100L));
+
+    throttle.reset();
+    assertTrue(throttle.shouldDeliver(0L, 100L));
+    assertFalse(throttle.shouldDeliver(1L, 100L));
+  }
+
+  @Test
+  public void testIntervalElapsed()
+    throws Exception
+  {
+    final var throttle = new LProgressThrottle(Duration.ofMillis(10L));
+
+    assertTrue(throttle.shouldDeliver(0L, 100L));
+    Thread.sleep(20L);
+    assertTrue(throttle.shouldDeliver(1L, 100L));
+  }
+
+  @Test
+  public void testZeroIntervalDeliversAll()
+  {
+    final var throttle = new LProgressThrottle(Duration.ZERO);
+
+    for (long current = 0L; current <= 100L; ++current) {
+      assertTrue(throttle.shouldDeliver(current, 100L));
+    }
+  }
+}
@@ -34,9 +34,11 @@ open module com.io7m.laurel.tests
   requires com.io7m.zelador.test_extension;
   requires javafx.base;
   requires javafx.controls;
+  requires jdk.jfr;
   requires net.jqwik.api;
   requires org.apache.commons.io;
   requires org.slf4j;
+  requires org.xerial.sqlitejdbc;
 
   requires org.junit.jupiter.api;
   requires org.junit.jupiter.engine;